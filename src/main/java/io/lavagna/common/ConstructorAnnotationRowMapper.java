@@ -21,21 +21,28 @@ import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.math.BigDecimal;
 import java.sql.Clob;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Date;
 
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
 
 public class ConstructorAnnotationRowMapper<T> implements RowMapper<T> {
 
-	private final Constructor<T> con;
-	private final List<ColumnMapper> mappedColumn;
+	/**
+	 * The constructor, adapted as (Object[]) -> Object.
+	 */
+	private final MethodHandle con;
+	private final ColumnMapper[] mappedColumn;
+	private final Class<?>[] paramTypes;
 
 	/**
 	 * Check if the given class has the correct form.
@@ -84,38 +91,102 @@ public class ConstructorAnnotationRowMapper<T> implements RowMapper<T> {
 		return false;
 	}
 
-	@SuppressWarnings("unchecked")
 	public ConstructorAnnotationRowMapper(Class<T> clazz) {
 		int constructorCount = clazz.getConstructors().length;
 		Assert.isTrue(constructorCount == 1, "The class " + clazz.getName()
 				+ " must have exactly one public constructor, " + constructorCount + " are present");
 
-		con = (Constructor<T>) clazz.getConstructors()[0];
-		mappedColumn = from(clazz, con.getParameterAnnotations(), con.getParameterTypes());
+		Constructor<?> constructor = clazz.getConstructors()[0];
+		mappedColumn = from(clazz, constructor.getParameterAnnotations(), constructor.getParameterTypes());
+		paramTypes = constructor.getParameterTypes();
+		con = toMethodHandle(constructor);
 	}
 
+	private static MethodHandle toMethodHandle(Constructor<?> constructor) {
+		int count = constructor.getParameterTypes().length;
+		// the class itself may not be public
+		constructor.setAccessible(true);
+		try {
+			return MethodHandles.lookup().unreflectConstructor(constructor)
+					.asType(MethodType.genericMethodType(count)).asSpreader(Object[].class, count);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Map a single row, the column indexes are resolved at each call.
+	 *
+	 * When mapping a whole {@link ResultSet}, use the {@link RowMapper} returned by {@link #newIndexedRowMapper()}.
+	 */
 	@Override
 	public T mapRow(ResultSet rs, int rowNum) throws SQLException {
-		List<Object> vals = new ArrayList<>(mappedColumn.size());
+		return mapRow(rs, columnIndexes(rs));
+	}
+
+	/**
+	 * Return a {@link RowMapper} that resolve the column indexes only once for each {@link ResultSet}. The returned
+	 * instance is not thread safe: use a new one for each query.
+	 *
+	 * @return
+	 */
+	public RowMapper<T> newIndexedRowMapper() {
+		return new IndexedRowMapper();
+	}
 
-		for (ColumnMapper colMapper : mappedColumn) {
-			vals.add(colMapper.getObject(rs));
+	private class IndexedRowMapper implements RowMapper<T> {
+
+		private ResultSet resolvedFor;
+		private int[] indexes;
+
+		@Override
+		public T mapRow(ResultSet rs, int rowNum) throws SQLException {
+			if (rs != resolvedFor) {
+				indexes = columnIndexes(rs);
+				resolvedFor = rs;
+			}
+			return ConstructorAnnotationRowMapper.this.mapRow(rs, indexes);
+		}
+	}
+
+	private int[] columnIndexes(ResultSet rs) throws SQLException {
+		int[] indexes = new int[mappedColumn.length];
+		for (int i = 0; i < mappedColumn.length; i++) {
+			indexes[i] = rs.findColumn(mappedColumn[i].name);
+		}
+		return indexes;
+	}
+
+	@SuppressWarnings("unchecked")
+	private T mapRow(ResultSet rs, int[] indexes) throws SQLException {
+		Object[] vals = new Object[mappedColumn.length];
+		for (int i = 0; i < mappedColumn.length; i++) {
+			vals[i] = mappedColumn[i].getObject(rs, indexes[i]);
+			checkType(i, vals[i]);
 		}
 
 		try {
-			return con.newInstance(vals.toArray(new Object[vals.size()]));
-		} catch (ReflectiveOperationException e) {
+			return (T) (Object) con.invokeExact(vals);
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
 			throw new SQLException(e);
-		} catch (IllegalArgumentException e) {
-			throw new SQLException("type mismatch between the expected one from the construct and the one passed,"
-					+ " check 1: some values are null and passed to primitive types 2: incompatible numeric types", e);
 		}
 	}
 
-	private static List<ColumnMapper> from(Class<?> clazz, Annotation[][] annotations, Class<?>[] paramTypes) {
-		List<ColumnMapper> res = new ArrayList<>();
+	private void checkType(int position, Object val) throws SQLException {
+		Class<?> paramType = paramTypes[position];
+		if (val == null ? paramType.isPrimitive() : !ClassUtils.resolvePrimitiveIfNecessary(paramType).isInstance(
+				val)) {
+			throw new SQLException("type mismatch for the column " + mappedColumn[position].name + ": expected "
+					+ paramType.getName() + ", found " + (val == null ? "null" : val.getClass().getName()));
+		}
+	}
+
+	private static ColumnMapper[] from(Class<?> clazz, Annotation[][] annotations, Class<?>[] paramTypes) {
+		ColumnMapper[] res = new ColumnMapper[annotations.length];
 		for (int i = 0; i < annotations.length; i++) {
-			res.add(findColumnAnnotationValue(clazz, i, annotations[i], paramTypes[i]));
+			res[i] = findColumnAnnotationValue(clazz, i, annotations[i], paramTypes[i]);
 		}
 		return res;
 	}
@@ -132,6 +203,14 @@ public class ConstructorAnnotationRowMapper<T> implements RowMapper<T> {
 					return new EnumColumnMapper(name, paramType);
 				} else if (boolean.class == paramType || Boolean.class == paramType) {
 					return new BooleanColumnMapper(name);
+				} else if (int.class == paramType || Integer.class == paramType) {
+					return new IntColumnMapper(name);
+				} else if (long.class == paramType || Long.class == paramType) {
+					return new LongColumnMapper(name);
+				} else if (String.class == paramType) {
+					return new StringColumnMapper(name);
+				} else if (Date.class == paramType) {
+					return new DateColumnMapper(name);
 				} else {
 					return new ColumnMapper(name);
 				}
@@ -150,7 +229,11 @@ public class ConstructorAnnotationRowMapper<T> implements RowMapper<T> {
 		}
 
 		public Object getObject(ResultSet rs) throws SQLException {
-			Object res = rs.getObject(name);
+			return getObject(rs, rs.findColumn(name));
+		}
+
+		public Object getObject(ResultSet rs, int index) throws SQLException {
+			Object res = rs.getObject(index);
 			if (res != null && Clob.class.isAssignableFrom(res.getClass())) {
 				try (ClobAutoCloseable clob = new ClobAutoCloseable((Clob) res)) {
 					return clob.clob.getSubString(1, (int) clob.clob.length());
@@ -177,14 +260,65 @@ public class ConstructorAnnotationRowMapper<T> implements RowMapper<T> {
 		}
 	}
 
+	static class IntColumnMapper extends ColumnMapper {
+
+		IntColumnMapper(String name) {
+			super(name);
+		}
+
+		@Override
+		public Object getObject(ResultSet rs, int index) throws SQLException {
+			int res = rs.getInt(index);
+			return rs.wasNull() ? null : res;
+		}
+	}
+
+	static class LongColumnMapper extends ColumnMapper {
+
+		LongColumnMapper(String name) {
+			super(name);
+		}
+
+		@Override
+		public Object getObject(ResultSet rs, int index) throws SQLException {
+			long res = rs.getLong(index);
+			return rs.wasNull() ? null : res;
+		}
+	}
+
+	static class StringColumnMapper extends ColumnMapper {
+
+		StringColumnMapper(String name) {
+			super(name);
+		}
+
+		@Override
+		public Object getObject(ResultSet rs, int index) throws SQLException {
+			return rs.getString(index);
+		}
+	}
+
+	static class DateColumnMapper extends ColumnMapper {
+
+		DateColumnMapper(String name) {
+			super(name);
+		}
+
+		@Override
+		public Object getObject(ResultSet rs, int index) throws SQLException {
+			return rs.getTimestamp(index);
+		}
+	}
+
 	static class BooleanColumnMapper extends ColumnMapper {
 
 		BooleanColumnMapper(String name) {
 			super(name);
 		}
 
-		public Object getObject(ResultSet rs) throws SQLException {
-			Object res = rs.getObject(name);
+		@Override
+		public Object getObject(ResultSet rs, int index) throws SQLException {
+			Object res = rs.getObject(index);
 			Class<?> resClass = res == null ? null : res.getClass();
 			if (res == null || Boolean.class.isAssignableFrom(resClass)) {
 				return res;
@@ -210,8 +344,8 @@ public class ConstructorAnnotationRowMapper<T> implements RowMapper<T> {
 
 		@SuppressWarnings("unchecked")
 		@Override
-		public Object getObject(ResultSet rs) throws SQLException {
-			String res = rs.getString(name);
+		public Object getObject(ResultSet rs, int index) throws SQLException {
+			String res = rs.getString(index);
 			return res == null ? null : Enum.valueOf(enumType, res);
 		}
 	}
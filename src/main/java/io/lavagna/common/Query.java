@@ -27,4 +27,14 @@ public @interface Query {
 	String value();
 
 	QueryType type() default QueryType.EXECUTE;
+
+	/**
+	 * JDBC fetch size, used only by the methods that receive a {@link RowCallback}.
+	 *
+	 * Note: MySQL honour it only when the connection has the "useCursorFetch=true" property, PostgreSQL only inside a
+	 * transaction.
+	 *
+	 * @return
+	 */
+	int fetchSize() default 1000;
 }
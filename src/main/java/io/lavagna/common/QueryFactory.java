@@ -19,6 +19,8 @@ package io.lavagna.common;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.util.Assert;
@@ -47,13 +49,30 @@ public class QueryFactory {
 		}
 	}
 
+	/**
+	 * The invocation plans are resolved once, when the proxy is created: the annotations are not read again at each
+	 * call.
+	 */
 	@SuppressWarnings("unchecked")
 	private static <T> T from(final Class<T> clazz, final String activeDb, final NamedParameterJdbcTemplate jdbc) {
+		final Map<Method, QueryType.Invocation> invocations = new HashMap<>();
+		for (Method method : clazz.getMethods()) {
+			if (method.isAnnotationPresent(Query.class)) {
+				QueryTypeAndQuery qs = extractQueryAnnotation(clazz, activeDb, method);
+				invocations.put(method, qs.type.prepare(qs.query, method));
+			}
+		}
+
 		return (T) Proxy.newProxyInstance(clazz.getClassLoader(), new Class[] { clazz }, new InvocationHandler() {
 			@Override
 			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-				QueryTypeAndQuery qs = extractQueryAnnotation(clazz, activeDb, method);
-				return qs.type.apply(qs.query, jdbc, method, args);
+				QueryType.Invocation invocation = invocations.get(method);
+				if (invocation == null) {
+					// will fail with the missing @Query annotation message
+					QueryTypeAndQuery qs = extractQueryAnnotation(clazz, activeDb, method);
+					invocation = qs.type.prepare(qs.query, method);
+				}
+				return invocation.apply(jdbc, args);
 			}
 		});
 	}
@@ -19,17 +19,30 @@ package io.lavagna.common;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SingleColumnRowMapper;
+import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.core.SqlProvider;
 import org.springframework.jdbc.core.StatementCreatorUtils;
 import org.springframework.jdbc.core.namedparam.EmptySqlParameterSource;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 
 /**
@@ -38,7 +51,8 @@ import org.springframework.util.StringUtils;
  * <ul>
  * <li>TEMPLATE : we receive the string defined in @Query/@QueryOverride annotation.
  * <li>EXECUTE : the query will be executed. If it's a select, the result will be mapped with a
- * ConstructorAnnotationRowMapper if it has the correct form.
+ * ConstructorAnnotationRowMapper if it has the correct form. If the method has a {@link RowCallback} parameter, the rows
+ * are passed one by one to the callback instead of being returned.
  * </ul>
  * 
  */
@@ -48,8 +62,13 @@ public enum QueryType {
 	 */
 	TEMPLATE {
 		@Override
-		Object apply(String template, NamedParameterJdbcTemplate jdbc, Method method, Object[] args) {
-			return template;
+		Invocation prepare(final String template, Method method) {
+			return new Invocation() {
+				@Override
+				public Object apply(NamedParameterJdbcTemplate jdbc, Object[] args) {
+					return template;
+				}
+			};
 		}
 	},
 
@@ -64,50 +83,62 @@ public enum QueryType {
 		 * in the pair. If the class has not the correct form, the boolean will be false and the class will be used as
 		 * it is in the jdbc template.
 		 */
-		private final Map<Class<Object>, HasRowmapper> cachedClassToMapper = new ConcurrentHashMap<Class<Object>, HasRowmapper>();
+		private final ConcurrentMap<Class<Object>, HasRowmapper> cachedClassToMapper = new ConcurrentHashMap<Class<Object>, HasRowmapper>();
 
 		@Override
-		Object apply(String template, NamedParameterJdbcTemplate jdbc, Method method, Object[] args) {
-			JdbcAction action = actionFromTemplate(template);
-			SqlParameterSource parameters = extractParameters(method, args);
-			if (action == JdbcAction.QUERY) {
-				return doQuery(template, jdbc, method, parameters);
-			} else {
-				return jdbc.update(template, parameters);
+		Invocation prepare(String template, Method method) {
+			Parameters parameters = Parameters.from(method);
+			if (actionFromTemplate(template) == JdbcAction.UPDATE) {
+				return new Update(template, parameters);
+			}
+
+			int callbackIndex = callbackIndex(method);
+			if (callbackIndex >= 0) {
+				Class<Object> c = callbackRowClass(method, callbackIndex);
+				HasRowmapper r = ensurePresence(c);
+				return new StreamingSelect(template, parameters, callbackIndex, c, r.present ? r.rowMapper : null,
+						method.getAnnotation(Query.class).fetchSize());
 			}
+
+			boolean list = method.getReturnType().isAssignableFrom(List.class);
+			Class<Object> c = resultClass(method, list);
+			HasRowmapper r = ensurePresence(c);
+			return new Select(template, parameters, list, c, r.present ? r.rowMapper : null);
 		}
 
 		@SuppressWarnings("unchecked")
-		private Object doQuery(String template, NamedParameterJdbcTemplate jdbc, Method method,
-				SqlParameterSource parameters) {
-			if (method.getReturnType().isAssignableFrom(List.class)) {
-				Class<Object> c = (Class<Object>) ((ParameterizedType) method.getGenericReturnType())
-						.getActualTypeArguments()[0];
-				HasRowmapper r = ensurePresence(c);
-				if (r.present) {
-					return jdbc.query(template, parameters, r.rowMapper);
-				} else {
-					return jdbc.queryForList(template, parameters, c);
-				}
+		private Class<Object> resultClass(Method method, boolean list) {
+			if (list) {
+				return (Class<Object>) ((ParameterizedType) method.getGenericReturnType()).getActualTypeArguments()[0];
 			} else {
-				Class<Object> c = (Class<Object>) method.getReturnType();
-				HasRowmapper r = ensurePresence(c);
-				if (r.present) {
-					return jdbc.queryForObject(template, parameters, r.rowMapper);
-				} else {
-					return jdbc.queryForObject(template, parameters, c);
-				}
+				return (Class<Object>) method.getReturnType();
 			}
 		}
 
+		@SuppressWarnings("unchecked")
+		private Class<Object> callbackRowClass(Method method, int callbackIndex) {
+			return (Class<Object>) ((ParameterizedType) method.getGenericParameterTypes()[callbackIndex])
+					.getActualTypeArguments()[0];
+		}
+
 		private HasRowmapper ensurePresence(Class<Object> c) {
-			if (!cachedClassToMapper.containsKey(c)) {
-				cachedClassToMapper.put(c, handleClass(c));
+			HasRowmapper r = cachedClassToMapper.get(c);
+			if (r == null) {
+				cachedClassToMapper.putIfAbsent(c, handleClass(c));
+				r = cachedClassToMapper.get(c);
 			}
-			return cachedClassToMapper.get(c);
+			return r;
 		}
 	};
 
+	/**
+	 * The precompiled form of a query method: everything that can be derived from the method signature and the query
+	 * is computed only once.
+	 */
+	interface Invocation {
+		Object apply(NamedParameterJdbcTemplate jdbc, Object[] args);
+	}
+
 	private static JdbcAction actionFromTemplate(String template) {
 		String tmpl = StringUtils.deleteAny(template.toLowerCase(Locale.ENGLISH), "() ").trim();
 		return tmpl.indexOf("select") == 0 ? JdbcAction.QUERY : JdbcAction.UPDATE;
@@ -117,7 +148,7 @@ public enum QueryType {
 		QUERY, UPDATE
 	}
 
-	abstract Object apply(String template, NamedParameterJdbcTemplate jdbc, Method method, Object[] args);
+	abstract Invocation prepare(String template, Method method);
 
 	private static HasRowmapper handleClass(Class<Object> c) {
 		if (ConstructorAnnotationRowMapper.hasConstructorInTheCorrectForm(c)) {
@@ -127,23 +158,173 @@ public enum QueryType {
 		}
 	}
 
-	private static SqlParameterSource extractParameters(Method m, Object[] args) {
+	private static int callbackIndex(Method method) {
+		Class<?>[] parameterTypes = method.getParameterTypes();
+		for (int i = 0; i < parameterTypes.length; i++) {
+			if (RowCallback.class == parameterTypes[i]) {
+				Assert.isTrue(void.class == method.getReturnType(), String.format(
+						"method %s has a RowCallback parameter and must return void", method.getName()));
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static class Update implements Invocation {
+		private final String template;
+		private final Parameters parameters;
+
+		Update(String template, Parameters parameters) {
+			this.template = template;
+			this.parameters = parameters;
+		}
+
+		@Override
+		public Object apply(NamedParameterJdbcTemplate jdbc, Object[] args) {
+			return jdbc.update(template, parameters.toSource(args));
+		}
+	}
+
+	private static class Select implements Invocation {
+		private final String template;
+		private final Parameters parameters;
+		private final boolean list;
+		private final Class<Object> resultClass;
+		private final ConstructorAnnotationRowMapper<Object> rowMapper;
 
-		Class<?>[] parameterTypes = m.getParameterTypes();
-		Annotation[][] parameterAnnotations = m.getParameterAnnotations();
-		if (parameterAnnotations == null || parameterAnnotations.length == 0) {
-			return new EmptySqlParameterSource();
+		Select(String template, Parameters parameters, boolean list, Class<Object> resultClass,
+				ConstructorAnnotationRowMapper<Object> rowMapper) {
+			this.template = template;
+			this.parameters = parameters;
+			this.list = list;
+			this.resultClass = resultClass;
+			this.rowMapper = rowMapper;
 		}
 
-		MapSqlParameterSource ps = new MapSqlParameterSource();
-		for (int i = 0; i < args.length; i++) {
-			String name = parameterName(parameterAnnotations[i]);
-			if (name != null) {
-				ps.addValue(name, args[i], StatementCreatorUtils.javaTypeToSqlParameterType(parameterTypes[i]));
+		@Override
+		public Object apply(NamedParameterJdbcTemplate jdbc, Object[] args) {
+			SqlParameterSource source = parameters.toSource(args);
+			if (list) {
+				return rowMapper != null ? jdbc.query(template, source, rowMapper.newIndexedRowMapper()) : jdbc
+						.queryForList(template, source, resultClass);
+			} else {
+				return rowMapper != null ? jdbc.queryForObject(template, source, rowMapper) : jdbc.queryForObject(
+						template, source, resultClass);
 			}
 		}
+	}
 
-		return ps;
+	/**
+	 * Map the rows one by one and pass them to the {@link RowCallback}: the result is never fully materialized.
+	 */
+	private static class StreamingSelect implements Invocation {
+		private final ParsedSql parsedSql;
+		private final Parameters parameters;
+		private final int callbackIndex;
+		private final Class<Object> resultClass;
+		private final ConstructorAnnotationRowMapper<Object> rowMapper;
+		private final int fetchSize;
+
+		StreamingSelect(String template, Parameters parameters, int callbackIndex, Class<Object> resultClass,
+				ConstructorAnnotationRowMapper<Object> rowMapper, int fetchSize) {
+			this.parsedSql = NamedParameterUtils.parseSqlStatement(template);
+			this.parameters = parameters;
+			this.callbackIndex = callbackIndex;
+			this.resultClass = resultClass;
+			this.rowMapper = rowMapper;
+			this.fetchSize = fetchSize;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public Object apply(NamedParameterJdbcTemplate jdbc, Object[] args) {
+			final RowCallback<Object> callback = (RowCallback<Object>) args[callbackIndex];
+			final RowMapper<Object> mapper = rowMapper != null ? rowMapper.newIndexedRowMapper()
+					: new SingleColumnRowMapper<>(resultClass);
+
+			SqlParameterSource source = parameters.toSource(args);
+			final String sql = NamedParameterUtils.substituteNamedParameters(parsedSql, source);
+			Object[] values = NamedParameterUtils.buildValueArray(parsedSql, source, null);
+			List<SqlParameter> declared = NamedParameterUtils.buildSqlParameterList(parsedSql, source);
+			final PreparedStatementCreator psc = new PreparedStatementCreatorFactory(sql, declared)
+					.newPreparedStatementCreator(values);
+
+			jdbc.getJdbcOperations().query(new FetchSizePreparedStatementCreator(psc, sql, fetchSize),
+					new RowCallbackHandler() {
+
+						private int rowNum = 0;
+
+						@Override
+						public void processRow(ResultSet rs) throws SQLException {
+							callback.processRow(mapper.mapRow(rs, rowNum++));
+						}
+					});
+			return null;
+		}
+	}
+
+	private static class FetchSizePreparedStatementCreator implements PreparedStatementCreator, SqlProvider {
+		private final PreparedStatementCreator psc;
+		private final String sql;
+		private final int fetchSize;
+
+		FetchSizePreparedStatementCreator(PreparedStatementCreator psc, String sql, int fetchSize) {
+			this.psc = psc;
+			this.sql = sql;
+			this.fetchSize = fetchSize;
+		}
+
+		@Override
+		public PreparedStatement createPreparedStatement(Connection con) throws SQLException {
+			PreparedStatement ps = psc.createPreparedStatement(con);
+			ps.setFetchSize(fetchSize);
+			return ps;
+		}
+
+		@Override
+		public String getSql() {
+			return sql;
+		}
+	}
+
+	/**
+	 * Names and sql types of the parameters annotated with {@link Bind}. A null name means that the parameter is not
+	 * bound.
+	 */
+	private static class Parameters {
+		private final String[] names;
+		private final int[] sqlTypes;
+
+		Parameters(String[] names, int[] sqlTypes) {
+			this.names = names;
+			this.sqlTypes = sqlTypes;
+		}
+
+		static Parameters from(Method m) {
+			Class<?>[] parameterTypes = m.getParameterTypes();
+			Annotation[][] parameterAnnotations = m.getParameterAnnotations();
+			String[] names = new String[parameterTypes.length];
+			int[] sqlTypes = new int[parameterTypes.length];
+			for (int i = 0; i < parameterTypes.length; i++) {
+				names[i] = parameterName(parameterAnnotations[i]);
+				sqlTypes[i] = StatementCreatorUtils.javaTypeToSqlParameterType(parameterTypes[i]);
+			}
+			return new Parameters(names, sqlTypes);
+		}
+
+		SqlParameterSource toSource(Object[] args) {
+			if (names.length == 0) {
+				return new EmptySqlParameterSource();
+			}
+
+			MapSqlParameterSource ps = new MapSqlParameterSource();
+			for (int i = 0; i < names.length; i++) {
+				if (names[i] != null) {
+					ps.addValue(names[i], args[i], sqlTypes[i]);
+				}
+			}
+			return ps;
+		}
 	}
 
 	private static String parameterName(Annotation[] annotation) {
@@ -162,9 +343,9 @@ public enum QueryType {
 
 	private static class HasRowmapper {
 		private final boolean present;
-		private final RowMapper<Object> rowMapper;
+		private final ConstructorAnnotationRowMapper<Object> rowMapper;
 
-		HasRowmapper(boolean present, RowMapper<Object> rowMapper) {
+		HasRowmapper(boolean present, ConstructorAnnotationRowMapper<Object> rowMapper) {
 			this.present = present;
 			this.rowMapper = rowMapper;
 		}
@@ -0,0 +1,29 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.common;
+
+/**
+ * Receive the rows of a select one by one: when a method annotated with {@link Query} has a parameter of this type, the
+ * rows are mapped lazily and the method must return void.
+ *
+ * @param <T>
+ *            the row type, mapped as the element of a List return type would be.
+ */
+public interface RowCallback<T> {
+
+	void processRow(T row);
+}
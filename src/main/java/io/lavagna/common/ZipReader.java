@@ -0,0 +1,116 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.common;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Read the entries of a zip archive by name. The archive is opened once and the entries are indexed from the central
+ * directory, so each read is a direct access instead of a scan of the whole file.
+ *
+ * The json entries are parsed while they are decompressed, without loading them in a string. The reader can be used
+ * concurrently.
+ */
+public class ZipReader implements Closeable {
+
+	private final ZipFile zipFile;
+	private final Map<String, ZipEntry> entries;
+
+	public ZipReader(Path file) throws IOException {
+		this.zipFile = new ZipFile(file.toFile());
+		Map<String, ZipEntry> index = new LinkedHashMap<>();
+		Enumeration<? extends ZipEntry> e = zipFile.entries();
+		while (e.hasMoreElements()) {
+			ZipEntry ze = e.nextElement();
+			index.put(ze.getName(), ze);
+		}
+		this.entries = Collections.unmodifiableMap(index);
+	}
+
+	public boolean contains(String name) {
+		return entries.containsKey(name);
+	}
+
+	/**
+	 * The content of the entry, the stream must be closed by the caller.
+	 */
+	public InputStream getInputStream(String name) throws IOException {
+		ZipEntry ze = entries.get(name);
+		if (ze == null) {
+			throw new IOException("missing entry " + name);
+		}
+		return zipFile.getInputStream(ze);
+	}
+
+	public <T> T readObject(String name, TypeToken<T> t) {
+		try {
+			return read(entries.get(name), t);
+		} catch (IOException ioe) {
+			throw new IllegalStateException("error while reading data for " + name, ioe);
+		}
+	}
+
+	/**
+	 * Read all the entries with a name matching the given regex, in the order of the archive.
+	 */
+	public <T> List<T> readMatchingObjects(String regex, TypeToken<T> t) {
+		Pattern pattern = Pattern.compile(regex);
+		try {
+			List<T> res = new ArrayList<>();
+			for (ZipEntry ze : entries.values()) {
+				if (pattern.matcher(ze.getName()).matches()) {
+					res.add(read(ze, t));
+				}
+			}
+			return res;
+		} catch (IOException ioe) {
+			throw new IllegalStateException("error while reading data for " + regex, ioe);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T read(ZipEntry ze, TypeToken<T> t) throws IOException {
+		if (ze == null) {
+			throw new IOException("missing entry");
+		}
+		try (Reader reader = new InputStreamReader(zipFile.getInputStream(ze), StandardCharsets.UTF_8)) {
+			return (T) Json.GSON.fromJson(reader, t.getType());
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		zipFile.close();
+	}
+}
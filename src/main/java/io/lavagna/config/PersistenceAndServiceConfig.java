@@ -16,17 +16,35 @@
  */
 package io.lavagna.config;
 
+import io.lavagna.common.Json;
 import io.lavagna.common.QueryFactory;
 import io.lavagna.common.QueryRepositoryScanner;
+import io.lavagna.query.CardDataQuery;
+import io.lavagna.service.BlobStore;
+import io.lavagna.service.DatabaseBlobStore;
+import io.lavagna.service.EventFanoutService;
+import io.lavagna.service.FileSystemBlobStore;
+import io.lavagna.service.RelatedProjectResolver;
+import io.lavagna.service.UserService;
+import io.lavagna.web.helper.EventSubscriptionInterceptor;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.sql.SQLException;
+import java.text.SimpleDateFormat;
+import java.util.List;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import javax.sql.DataSource;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
 import org.springframework.context.MessageSource;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Primary;
 import org.springframework.context.support.ReloadableResourceBundleMessageSource;
 import org.springframework.core.env.Environment;
 import org.springframework.dao.DataAccessException;
@@ -37,17 +55,25 @@ import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import org.springframework.jdbc.support.SQLErrorCodeSQLExceptionTranslator;
 import org.springframework.jdbc.support.lob.DefaultLobHandler;
 import org.springframework.jdbc.support.lob.LobHandler;
+import org.springframework.messaging.converter.ByteArrayMessageConverter;
+import org.springframework.messaging.converter.DefaultContentTypeResolver;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
-import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 import org.springframework.util.ErrorHandler;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.socket.config.annotation.AbstractWebSocketMessageBrokerConfigurer;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.server.support.HttpSessionHandshakeInterceptor;
 
 /**
  * Datasource configuration.
@@ -56,7 +82,18 @@ import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 @EnableTransactionManagement
 @ComponentScan(basePackages = { "io.lavagna.service", "io.lavagna.config.dbmanager" })
 public class PersistenceAndServiceConfig extends AbstractWebSocketMessageBrokerConfigurer implements
-		SchedulingConfigurer {
+		SchedulingConfigurer, ApplicationContextAware {
+
+	private static final int DEFAULT_CHANNEL_THREADS = Runtime.getRuntime().availableProcessors() * 2;
+	private static final int DEFAULT_CHANNEL_QUEUE = 10000;
+
+	// not autowired: this configuration is created before the autowiring support is available
+	private ApplicationContext applicationContext;
+
+	@Override
+	public void setApplicationContext(ApplicationContext applicationContext) {
+		this.applicationContext = applicationContext;
+	}
 
 	@Override
 	public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
@@ -105,6 +142,22 @@ public class PersistenceAndServiceConfig extends AbstractWebSocketMessageBrokerC
 		return new DefaultLobHandler();
 	}
 
+	@Bean
+	public DatabaseBlobStore databaseBlobStore(NamedParameterJdbcTemplate jdbc, CardDataQuery queries) {
+		return new DatabaseBlobStore(jdbc, queries);
+	}
+
+	/**
+	 * The content of the uploaded files is kept in the database, unless the "blobstore.path" property points to a
+	 * directory.
+	 */
+	@Bean
+	@Primary
+	public BlobStore blobStore(Environment env, DatabaseBlobStore databaseBlobStore) throws IOException {
+		String path = env.getProperty("blobstore.path");
+		return StringUtils.isBlank(path) ? databaseBlobStore : new FileSystemBlobStore(Paths.get(path));
+	}
+
 	@Bean
 	public MessageSource messageSource() {
 		ReloadableResourceBundleMessageSource source = new ReloadableResourceBundleMessageSource();
@@ -114,9 +167,63 @@ public class PersistenceAndServiceConfig extends AbstractWebSocketMessageBrokerC
 		return source;
 	}
 
+	/**
+	 * The general purpose scheduler, also used for sending the events to the browsers.
+	 */
+	@Bean(destroyMethod = "shutdown")
+	@Primary
+	public ThreadPoolTaskScheduler taskScheduler() {
+		return scheduler("scheduler", "lavagna-scheduler-", 2);
+	}
+
+	/**
+	 * The email notifications: a slow SMTP server must not delay the other jobs.
+	 */
+	@Bean(destroyMethod = "shutdown")
+	public ThreadPoolTaskScheduler notificationScheduler() {
+		return scheduler("notification", "lavagna-notification-scheduler-", 1);
+	}
+
+	/**
+	 * The copy of the MySQL full text tables and the in memory search index.
+	 */
+	@Bean(destroyMethod = "shutdown")
+	public ThreadPoolTaskScheduler fullTextScheduler() {
+		return scheduler("fulltext", "lavagna-fulltext-scheduler-", 1);
+	}
+
 	@Bean(destroyMethod = "shutdown")
-	public TaskScheduler taskScheduler() {
+	public ThreadPoolTaskScheduler statisticsScheduler() {
+		return scheduler("statistics", "lavagna-statistics-scheduler-", 1);
+	}
+
+	/**
+	 * Compose the notification emails in parallel: "executors.notification-render.threads" (by default the
+	 * processors, at least 2) and "executors.notification-render.queue". When the queue is full, the email is
+	 * composed by the notification scheduler itself.
+	 */
+	@Bean
+	public ThreadPoolTaskExecutor notificationRenderExecutor() {
+		Environment env = applicationContext.getEnvironment();
+		int threads = env.getProperty("executors.notification-render.threads", Integer.class,
+				Math.max(2, Runtime.getRuntime().availableProcessors()));
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setThreadNamePrefix("lavagna-notification-render-");
+		executor.setCorePoolSize(threads);
+		executor.setMaxPoolSize(threads);
+		executor.setQueueCapacity(env.getProperty("executors.notification-render.queue", Integer.class, 1000));
+		executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+		return executor;
+	}
+
+	/**
+	 * A scheduler with "executors.[name].threads" threads.
+	 */
+	private ThreadPoolTaskScheduler scheduler(String name, String threadNamePrefix, int defaultThreads) {
 		ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+		scheduler.setThreadNamePrefix(threadNamePrefix);
+		scheduler.setPoolSize(applicationContext.getEnvironment().getProperty("executors." + name + ".threads",
+				Integer.class, defaultThreads));
 		scheduler.setErrorHandler(new ErrorHandler() {
 			@Override
 			public void handleError(Throwable t) {
@@ -127,13 +234,85 @@ public class PersistenceAndServiceConfig extends AbstractWebSocketMessageBrokerC
 		return scheduler;
 	}
 
+	/**
+	 * The attributes of the http session are copied in the websocket session: the subscriptions are checked against
+	 * the user, see {@link EventSubscriptionInterceptor}.
+	 */
 	@Override
 	public void registerStompEndpoints(StompEndpointRegistry registry) {
-		registry.addEndpoint("/api/socket").withSockJS();
+		registry.addEndpoint("/api/socket").addInterceptors(new HttpSessionHandshakeInterceptor()).withSockJS();
 	}
 
+	/**
+	 * The events are sent by an in memory broker, so each node reach only its own clients. With multiple nodes,
+	 * "events.broker" must be:
+	 * <ul>
+	 * <li>relay: the events are relayed through an external STOMP broker</li>
+	 * <li>database: the nodes exchange the events through the database, see {@link EventFanoutService}</li>
+	 * </ul>
+	 */
 	@Override
 	public void configureMessageBroker(MessageBrokerRegistry registry) {
-		registry.enableSimpleBroker("/event");
+		Environment env = applicationContext.getEnvironment();
+		if ("relay".equals(env.getProperty("events.broker"))) {
+			String login = env.getProperty("events.broker.relay.login", "guest");
+			String passcode = env.getProperty("events.broker.relay.passcode", "guest");
+			registry.enableStompBrokerRelay("/event")//
+					.setRelayHost(env.getProperty("events.broker.relay.host", "localhost"))//
+					.setRelayPort(env.getProperty("events.broker.relay.port", Integer.class, 61613))//
+					.setClientLogin(login).setClientPasscode(passcode)//
+					.setSystemLogin(login).setSystemPasscode(passcode);
+		} else {
+			registry.enableSimpleBroker("/event");
+		}
+
+		EventFanoutService eventFanoutService = applicationContext.getBean(EventFanoutService.class);
+		if (eventFanoutService.isEnabled()) {
+			registry.configureBrokerChannel().setInterceptors(eventFanoutService);
+		}
+	}
+
+	/**
+	 * The default converters, but the dates of the events are formatted as in the responses of the REST api (see
+	 * {@link Json#GSON}): the clients handle in the same way the data fetched and the data received with the events.
+	 */
+	@Override
+	public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+		DefaultContentTypeResolver resolver = new DefaultContentTypeResolver();
+		resolver.setDefaultMimeType(MimeTypeUtils.APPLICATION_JSON);
+		MappingJackson2MessageConverter jsonConverter = new MappingJackson2MessageConverter();
+		jsonConverter.setContentTypeResolver(resolver);
+		jsonConverter.getObjectMapper().setDateFormat(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ"));
+
+		messageConverters.add(new StringMessageConverter());
+		messageConverters.add(new ByteArrayMessageConverter());
+		messageConverters.add(jsonConverter);
+		return false;
+	}
+
+	@Override
+	public void configureClientInboundChannel(ChannelRegistration registration) {
+		configureChannelExecutor(registration, "events.inbound");
+		registration.setInterceptors(new EventSubscriptionInterceptor(applicationContext.getBean(UserService.class),
+				applicationContext.getBean(RelatedProjectResolver.class)));
+	}
+
+	@Override
+	public void configureClientOutboundChannel(ChannelRegistration registration) {
+		configureChannelExecutor(registration, "events.outbound");
+	}
+
+	/**
+	 * The pools of the client channels: "[prefix].threads" (by default twice the processors, as spring does) and
+	 * "[prefix].queue", the number of messages waiting for a thread (by default {@link #DEFAULT_CHANNEL_QUEUE}).
+	 *
+	 * When the queue is full the message is rejected: an event for a browser is dropped and logged by the broker, a
+	 * message from a browser fails.
+	 */
+	private void configureChannelExecutor(ChannelRegistration registration, String prefix) {
+		Environment env = applicationContext.getEnvironment();
+		int threads = env.getProperty(prefix + ".threads", Integer.class, DEFAULT_CHANNEL_THREADS);
+		registration.taskExecutor().corePoolSize(threads).maxPoolSize(threads).keepAliveSeconds(60)
+				.queueCapacity(env.getProperty(prefix + ".queue", Integer.class, DEFAULT_CHANNEL_QUEUE));
 	}
 }
@@ -17,13 +17,18 @@
 package io.lavagna.config;
 
 import io.lavagna.service.ConfigurationRepository;
+import io.lavagna.service.EventFanoutService;
+import io.lavagna.service.FullTextIndexService;
 import io.lavagna.service.MySqlFullTextSupportService;
 import io.lavagna.service.NotificationService;
 import io.lavagna.service.Scheduler;
+import io.lavagna.service.SchedulerLeaseService;
 import io.lavagna.service.StatisticsService;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.core.env.Environment;
+import org.springframework.messaging.MessageChannel;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
@@ -31,13 +36,22 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 public class SchedulingServiceConfig {
 
 	@Bean
-	public Scheduler getScheduler(TaskScheduler taskScheduler, Environment env,
+	public Scheduler getScheduler(TaskScheduler taskScheduler,
+			@Qualifier("notificationScheduler") TaskScheduler notificationScheduler,
+			@Qualifier("fullTextScheduler") TaskScheduler fullTextScheduler,
+			@Qualifier("statisticsScheduler") TaskScheduler statisticsScheduler,
+			Environment env,
 			ConfigurationRepository configurationRepository,
 			MySqlFullTextSupportService mySqlFullTextSupportService,
+			FullTextIndexService fullTextIndexService,
 			NotificationService notificationService,
-			StatisticsService statisticsService) {
-		return new Scheduler(taskScheduler, env, configurationRepository,
-				mySqlFullTextSupportService, notificationService,
-				statisticsService);
+			StatisticsService statisticsService,
+			EventFanoutService eventFanoutService,
+			@Qualifier("brokerChannel") MessageChannel brokerChannel,
+			SchedulerLeaseService schedulerLeaseService) {
+		return new Scheduler(taskScheduler, notificationScheduler, fullTextScheduler, statisticsScheduler, env,
+				configurationRepository,
+				mySqlFullTextSupportService, fullTextIndexService, notificationService,
+				statisticsService, eventFanoutService, brokerChannel, schedulerLeaseService);
 	}
 }
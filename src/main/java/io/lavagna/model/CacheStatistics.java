@@ -0,0 +1,38 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.model;
+
+import lombok.Getter;
+
+@Getter
+public class CacheStatistics {
+
+	private final String name;
+	private final long hits;
+	private final long misses;
+	/**
+	 * Between 0 and 1, 0 if the cache has never been accessed.
+	 */
+	private final double hitRatio;
+
+	public CacheStatistics(String name, long hits, long misses) {
+		this.name = name;
+		this.hits = hits;
+		this.misses = misses;
+		this.hitRatio = hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+	}
+}
@@ -0,0 +1,44 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.model;
+
+import java.util.List;
+
+import lombok.Getter;
+
+/**
+ * A page of a list paginated with {@link ContinuationToken}.
+ */
+@Getter
+public class ContinuationPage<T> {
+
+	private final List<T> items;
+	/**
+	 * Token for fetching the next page, null if this is the last one.
+	 */
+	private final String continuationToken;
+	/**
+	 * Total count of the elements, null if it has not been requested.
+	 */
+	private final Integer count;
+
+	public ContinuationPage(List<T> items, ContinuationToken next, Integer count) {
+		this.items = items;
+		this.continuationToken = next == null ? null : next.encode();
+		this.count = count;
+	}
+}
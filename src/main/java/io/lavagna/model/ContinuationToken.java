@@ -0,0 +1,84 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.model;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Date;
+
+import lombok.Getter;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Position in a list ordered by time and id (both descending), used for keyset pagination: the next page contains
+ * the elements that come after the given time and id.
+ *
+ * The clients see it as an opaque string, see {@link #encode()} and {@link #decode(String)}.
+ */
+@Getter
+public class ContinuationToken {
+
+	private final Timestamp time;
+	private final int id;
+
+	public ContinuationToken(Date time, int id) {
+		this.time = time instanceof Timestamp ? (Timestamp) time : new Timestamp(time.getTime());
+		this.id = id;
+	}
+
+	/**
+	 * The nanoseconds are kept, as some databases store the timestamps with a sub-millisecond precision.
+	 */
+	public String encode() {
+		String token = time.getTime() + ":" + time.getNanos() + ":" + id;
+		return Base64.encodeBase64URLSafeString(token.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @return null if the token is blank
+	 * @throws InvalidContinuationTokenException if the token has not been created by {@link #encode()}
+	 */
+	public static ContinuationToken decode(String token) {
+		if (StringUtils.isBlank(token)) {
+			return null;
+		}
+
+		String[] splitted = StringUtils.split(new String(Base64.decodeBase64(token), StandardCharsets.UTF_8), ':');
+		if (splitted.length != 3) {
+			throw new InvalidContinuationTokenException(token);
+		}
+
+		try {
+			Timestamp time = new Timestamp(Long.parseLong(splitted[0]));
+			time.setNanos(Integer.parseInt(splitted[1]));
+			return new ContinuationToken(time, Integer.parseInt(splitted[2]));
+		} catch (IllegalArgumentException e) {
+			throw new InvalidContinuationTokenException(token);
+		}
+	}
+
+	public static class InvalidContinuationTokenException extends IllegalArgumentException {
+
+		private static final long serialVersionUID = -6446006263596263591L;
+
+		public InvalidContinuationTokenException(String token) {
+			super("invalid continuation token: " + token);
+		}
+	}
+}
@@ -0,0 +1,49 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.model;
+
+import io.lavagna.common.ConstructorAnnotationRowMapper.Column;
+
+import java.util.Date;
+
+import lombok.Getter;
+
+/**
+ * A message sent to the browsers connected to a node, to be forwarded by the other nodes.
+ */
+@Getter
+public class EventFanoutMessage {
+
+	private final int id;
+	private final String node;
+	private final String destination;
+	private final String contentType;
+	private final String payload;
+	private final Date time;
+
+	public EventFanoutMessage(@Column("EVENT_FANOUT_ID") int id, @Column("EVENT_FANOUT_NODE") String node,
+			@Column("EVENT_FANOUT_DESTINATION") String destination,
+			@Column("EVENT_FANOUT_CONTENT_TYPE") String contentType, @Column("EVENT_FANOUT_PAYLOAD") String payload,
+			@Column("EVENT_FANOUT_TIME") Date time) {
+		this.id = id;
+		this.node = node;
+		this.destination = destination;
+		this.contentType = contentType;
+		this.payload = payload;
+		this.time = time;
+	}
+}
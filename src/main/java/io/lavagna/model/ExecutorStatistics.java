@@ -0,0 +1,53 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.model;
+
+import lombok.Getter;
+
+@Getter
+public class ExecutorStatistics {
+
+	private final String name;
+	private final int threads;
+	private final int coreThreads;
+	/**
+	 * Not meaningful for a scheduler: its threads are bounded by coreThreads.
+	 */
+	private final int maxThreads;
+	private final int activeThreads;
+	/**
+	 * The tasks waiting for a thread (for a scheduler: including the ones not due yet).
+	 */
+	private final int queueSize;
+	/**
+	 * How many tasks can still be queued, Integer.MAX_VALUE if the queue is unbounded.
+	 */
+	private final int queueRemainingCapacity;
+	private final long completedTasks;
+
+	public ExecutorStatistics(String name, int threads, int coreThreads, int maxThreads, int activeThreads, int queueSize,
+			int queueRemainingCapacity, long completedTasks) {
+		this.name = name;
+		this.threads = threads;
+		this.coreThreads = coreThreads;
+		this.maxThreads = maxThreads;
+		this.activeThreads = activeThreads;
+		this.queueSize = queueSize;
+		this.queueRemainingCapacity = queueRemainingCapacity;
+		this.completedTasks = completedTasks;
+	}
+}
@@ -0,0 +1,43 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.model;
+
+import java.util.Date;
+
+import lombok.Getter;
+
+@Getter
+public class FullTextSyncStatistics {
+
+	/**
+	 * Null if the copy has never run.
+	 */
+	private final Date lastSync;
+	private final int lastBatchChanges;
+	private final long totalChanges;
+	/**
+	 * Age, at the time of the last copy, of the oldest change that was waiting: 0 if there was nothing to copy.
+	 */
+	private final long lagSeconds;
+
+	public FullTextSyncStatistics(Date lastSync, int lastBatchChanges, long totalChanges, long lagSeconds) {
+		this.lastSync = lastSync;
+		this.lastBatchChanges = lastBatchChanges;
+		this.totalChanges = totalChanges;
+		this.lagSeconds = lagSeconds;
+	}
+}
@@ -33,6 +33,10 @@ public class ImportContext {
 	private final Map<Integer, Integer> fileId = new HashMap<>();
 	//
 
+	// lookups done for each imported event, by "provider:username" and by "BOARD-SEQ"
+	private final Map<String, User> users = new HashMap<>();
+	private final Map<String, Integer> cardIds = new HashMap<>();
+
 	private final Set<String> importedProject = new HashSet<>();
 	private final Set<String> importedBoard = new HashSet<>();
 
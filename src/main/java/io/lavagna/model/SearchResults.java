@@ -28,12 +28,32 @@ public class SearchResults {
 	private final int currentPage;
 	private final int countPerPage;
 	private final int totalPages;
+	/**
+	 * Only when using the keyset pagination: token for fetching the next page, null if this is the last one.
+	 */
+	private final String continuationToken;
 
 	public SearchResults(List<CardFullWithCounts> found, int count, int currentPage, int countPerPage) {
 		this.found = found;
 		this.count = count;
 		this.currentPage = currentPage;
 		this.countPerPage = countPerPage;
-		totalPages = (count + countPerPage - 1) / countPerPage;
+		this.totalPages = (count + countPerPage - 1) / countPerPage;
+		this.continuationToken = null;
+	}
+
+	/**
+	 * Results of a keyset paginated search.
+	 *
+	 * @param count
+	 *            -1 if the count has not been calculated, in this case totalPages will be -1 too
+	 */
+	public SearchResults(List<CardFullWithCounts> found, int count, int countPerPage, ContinuationToken next) {
+		this.found = found;
+		this.count = count;
+		this.currentPage = 0;
+		this.countPerPage = countPerPage;
+		this.totalPages = count < 0 ? -1 : (count + countPerPage - 1) / countPerPage;
+		this.continuationToken = next == null ? null : next.encode();
 	}
 }
@@ -0,0 +1,36 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.query;
+
+import io.lavagna.common.Bind;
+import io.lavagna.common.Query;
+import io.lavagna.common.QueryRepository;
+
+import java.util.List;
+
+@QueryRepository
+public interface CacheVersionQuery {
+
+	@Query("SELECT CACHE_VERSION FROM LA_CACHE_VERSION WHERE CACHE_NAME = :name")
+	List<Long> getVersion(@Bind("name") String name);
+
+	@Query("UPDATE LA_CACHE_VERSION SET CACHE_VERSION = CACHE_VERSION + 1 WHERE CACHE_NAME = :name")
+	int increment(@Bind("name") String name);
+
+	@Query("INSERT INTO LA_CACHE_VERSION(CACHE_NAME, CACHE_VERSION) VALUES (:name, 1)")
+	int insert(@Bind("name") String name);
+}
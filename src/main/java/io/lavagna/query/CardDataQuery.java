@@ -22,6 +22,7 @@ import io.lavagna.common.Query;
 import io.lavagna.common.QueryOverride;
 import io.lavagna.common.QueryRepository;
 import io.lavagna.common.QueryType;
+import io.lavagna.common.RowCallback;
 import io.lavagna.model.CardData;
 import io.lavagna.model.CardDataCount;
 import io.lavagna.model.CardDataFull;
@@ -77,6 +78,10 @@ public interface CardDataQuery {
 	@Query("SELECT * FROM LA_CARD_DATA WHERE CARD_DATA_REFERENCE_ID = :referenceId AND CARD_DATA_TYPE = :type ORDER BY CARD_DATA_ORDER ASC")
 	List<CardData> findAllLightByReferenceIdAndType(@Bind("referenceId") int referenceId, @Bind("type") String type);
 
+	@Query("SELECT * FROM LA_CARD_DATA WHERE CARD_DATA_REFERENCE_ID IN (:referenceIds) AND CARD_DATA_TYPE = :type ORDER BY CARD_DATA_REFERENCE_ID ASC, CARD_DATA_ORDER ASC")
+	List<CardData> findAllLightByReferenceIdsAndType(@Bind("referenceIds") Collection<Integer> referenceIds,
+			@Bind("type") String type);
+
 	@Query("INSERT INTO LA_CARD_DATA(CARD_DATA_CARD_ID_FK,CARD_DATA_TYPE,CARD_DATA_CONTENT,CARD_DATA_ORDER) "
 			+ " VALUES (:cardId, :type, :content, (SELECT * FROM (SELECT COALESCE(MAX(CARD_DATA_ORDER),0) + 1 FROM LA_CARD_DATA WHERE CARD_DATA_CARD_ID_FK = :cardId AND CARD_DATA_TYPE = :type) AS MAX_CARD_DATA_ORDER))")
 	int create(@Bind("cardId") int cardId, @Bind("type") String type, @Bind("content") String content);
@@ -113,6 +118,9 @@ public interface CardDataQuery {
 	@Query("UPDATE LA_CARD_DATA SET CARD_DATA_ORDER = :order WHERE CARD_DATA_ID = :id")
 	int updateOrderById(@Bind("id") int id, @Bind("order") int order);
 
+	@Query(type = QueryType.TEMPLATE, value = "UPDATE LA_CARD_DATA SET CARD_DATA_ORDER = :order WHERE CARD_DATA_ID = :id")
+	String updateDataOrderById();
+
 	@Query(type = QueryType.TEMPLATE, value = "UPDATE LA_CARD_DATA SET CARD_DATA_ORDER = :order WHERE CARD_DATA_ID = :id AND CARD_DATA_CARD_ID_FK = :cardId AND CARD_DATA_REFERENCE_ID = :referenceId")
 	String updateOrderByCardAndReferenceId();
 
@@ -146,8 +154,21 @@ public interface CardDataQuery {
 	@Query("SELECT CARD_DATA_CARD_ID_FK AS CARD_ID, CARD_DATA_TYPE,  COUNT(CARD_DATA_TYPE) AS CARD_DATA_TYPE_COUNT FROM LA_CARD_DATA WHERE CARD_DATA_DELETED = FALSE AND CARD_DATA_CARD_ID_FK IN (:ids) GROUP BY CARD_DATA_CARD_ID_FK, CARD_DATA_TYPE")
 	List<CardDataCount> findCountsByCardIds(@Bind("ids") List<Integer> ids);
 
-	@Query(type = QueryType.TEMPLATE, value = "INSERT INTO LA_CARD_DATA_UPLOAD_CONTENT(DIGEST,SIZE,CONTENT,CONTENT_TYPE) VALUES (?, ?, ?, ?)")
-	String addUploadContent();
+	@Query("INSERT INTO LA_CARD_DATA_UPLOAD_CONTENT(DIGEST,SIZE,CONTENT_TYPE) VALUES (:digest, :size, :contentType)")
+	int addUploadContent(@Bind("digest") String digest, @Bind("size") long size,
+			@Bind("contentType") String contentType);
+
+	@Query(type = QueryType.TEMPLATE, value = "UPDATE LA_CARD_DATA_UPLOAD_CONTENT SET CONTENT = ? WHERE DIGEST = ?")
+	String updateUploadContent();
+
+	@Query("UPDATE LA_CARD_DATA_UPLOAD_CONTENT SET CONTENT = NULL WHERE DIGEST = :digest")
+	int removeUploadContent(@Bind("digest") String digest);
+
+	@Query("SELECT COUNT(1) FROM LA_CARD_DATA_UPLOAD_CONTENT WHERE DIGEST = :digest AND CONTENT IS NOT NULL")
+	Integer findDigestWithContent(@Bind("digest") String digest);
+
+	@Query("SELECT DIGEST FROM LA_CARD_DATA_UPLOAD_CONTENT WHERE CONTENT IS NOT NULL ORDER BY DIGEST")
+	List<String> findAllDigestsWithContent();
 
 	@Query("SELECT COUNT(1) FROM LA_CARD_DATA_UPLOAD_CONTENT WHERE DIGEST = :digest")
 	Integer findDigest(@Bind("digest") String digest);
@@ -168,7 +189,10 @@ public interface CardDataQuery {
 	@Query("SELECT DIGEST,SIZE,CONTENT_TYPE  FROM LA_CARD_DATA_UPLOAD_CONTENT")
 	List<CardDataUploadContentInfo> findAllDataUploadContentInfo();
 
-	@Query(type = QueryType.TEMPLATE, value = "SELECT CONTENT, CONTENT_TYPE FROM LA_CARD_DATA_UPLOAD_CONTENT WHERE DIGEST = :digest")
+	@Query("SELECT DIGEST,SIZE,CONTENT_TYPE  FROM LA_CARD_DATA_UPLOAD_CONTENT")
+	void findAllDataUploadContentInfo(RowCallback<CardDataUploadContentInfo> callback);
+
+	@Query(type = QueryType.TEMPLATE, value = "SELECT SIZE, CONTENT FROM LA_CARD_DATA_UPLOAD_CONTENT WHERE DIGEST = :digest AND CONTENT IS NOT NULL")
 	String fileContent();
 
 }
@@ -41,6 +41,9 @@ public interface CardLabelQuery {
 	@Query("INSERT INTO LA_CARD_LABEL_LIST_VALUE(CARD_LABEL_ID_FK, CARD_LABEL_LIST_VALUE_ORDER, CARD_LABEL_LIST_VALUE) VALUES (:cardLabelId, (SELECT * FROM (SELECT COALESCE(MAX(CARD_LABEL_LIST_VALUE_ORDER),0) + 1 FROM LA_CARD_LABEL_LIST_VALUE WHERE CARD_LABEL_ID_FK = :cardLabelId) MAX_ORDER), :value)")
 	int addLabelListValue(@Bind("cardLabelId") int cardLabelId, @Bind("value") String value);
 
+	@Query(type = QueryType.TEMPLATE, value = "INSERT INTO LA_CARD_LABEL_LIST_VALUE(CARD_LABEL_ID_FK, CARD_LABEL_LIST_VALUE_ORDER, CARD_LABEL_LIST_VALUE) VALUES (:cardLabelId, :order, :value)")
+	String addLabelListValueWithOrder();
+
 	@Query("UPDATE LA_CARD_LABEL_LIST_VALUE SET CARD_LABEL_LIST_VALUE = :value WHERE CARD_LABEL_LIST_VALUE_ID = :id")
 	int updateLabelListValue(@Bind("id") int id, @Bind("value") String value);
 
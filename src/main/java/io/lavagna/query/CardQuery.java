@@ -22,11 +22,13 @@ import io.lavagna.common.Query;
 import io.lavagna.common.QueryOverride;
 import io.lavagna.common.QueryRepository;
 import io.lavagna.common.QueryType;
+import io.lavagna.common.RowCallback;
 import io.lavagna.model.Card;
 import io.lavagna.model.CardFull;
 import io.lavagna.model.Event;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Set;
 
@@ -45,9 +47,15 @@ public interface CardQuery {
 	@Query("SELECT CARD_ID FROM LA_CARD WHERE CARD_ID IN (:cardIds) AND CARD_BOARD_COLUMN_ID_FK = :columnId")
 	List<Integer> findCardIdsInColumnId(@Bind("cardIds") List<Integer> cardIds, @Bind("columnId") int columnId);
 
+	@Query("SELECT COUNT(DISTINCT BOARD_PROJECT_ID_FK) FROM LA_BOARD_COLUMN INNER JOIN LA_BOARD ON BOARD_COLUMN_BOARD_ID_FK = BOARD_ID WHERE BOARD_COLUMN_ID IN (:columnIds)")
+	Integer countProjectsOfColumns(@Bind("columnIds") List<Integer> columnIds);
+
 	@Query("SELECT * FROM LA_CARD_FULL WHERE BOARD_SHORT_NAME = :boardShortName")
 	List<CardFull> findAllByBoardShortName(@Bind("boardShortName") String boardShortName);
 
+	@Query("SELECT * FROM LA_CARD_FULL WHERE BOARD_SHORT_NAME = :boardShortName")
+	void findAllByBoardShortName(@Bind("boardShortName") String boardShortName, RowCallback<CardFull> callback);
+
 	@Query("SELECT * FROM LA_CARD_FULL WHERE (LOWER(CARD_NAME) LIKE CONCAT('%', CONCAT(LOWER(:term), '%')) OR CARD_SEQ_NUMBER LIKE CONCAT(:term, '%')) AND PROJECT_ID IN (:projectIdFilter) ORDER BY BOARD_SHORT_NAME ASC, CARD_SEQ_NUMBER ASC LIMIT 10")
 	@QueriesOverride({
 		@QueryOverride(db = DB.PGSQL, value = "SELECT * FROM LA_CARD_FULL WHERE (LOWER(CARD_NAME) LIKE CONCAT('%', CONCAT(LOWER(:term), '%')) OR CAST(CARD_SEQ_NUMBER AS TEXT) LIKE CONCAT(:term, '%')) AND PROJECT_ID IN (:projectIdFilter) ORDER BY BOARD_SHORT_NAME ASC, CARD_SEQ_NUMBER ASC LIMIT 10")
@@ -65,13 +73,31 @@ public interface CardQuery {
 			+ " WHERE "
 			+ " BOARD_COLUMN_BOARD_ID_FK = :boardId AND "
 			+ " BOARD_COLUMN_LOCATION = :location "
-			+ " ORDER BY CARD_LAST_UPDATED DESC " + " LIMIT :amount OFFSET :offset ")
+			+ " ORDER BY CARD_LAST_UPDATED DESC, CARD_ID DESC " + " LIMIT :amount OFFSET :offset ")
 	List<Card> fetchPaginatedByBoardIdAndLocation(@Bind("boardId") int boardId, @Bind("location") String location,
 			@Bind("amount") int amount, @Bind("offset") int offset);
 
+	@Query("SELECT CARD_ID, CARD_NAME, CARD_SEQ_NUMBER, CARD_ORDER, CARD_BOARD_COLUMN_ID_FK, CREATE_USER, CREATE_TIME, LAST_UPDATE_USER, LAST_UPDATE_TIME, BOARD_COLUMN_DEFINITION_VALUE, BOARD_SHORT_NAME, PROJECT_SHORT_NAME FROM LA_CARD_FULL "
+			+ " INNER JOIN LA_BOARD_COLUMN ON CARD_BOARD_COLUMN_ID_FK = BOARD_COLUMN_ID "
+			+ " WHERE BOARD_COLUMN_BOARD_ID_FK = :boardId AND LA_BOARD_COLUMN.BOARD_COLUMN_LOCATION = :location "
+			+ " ORDER BY LAST_UPDATE_TIME DESC, CARD_ID DESC LIMIT :amount")
+	List<CardFull> fetchFirstByBoardIdAndLocation(@Bind("boardId") int boardId, @Bind("location") String location,
+			@Bind("amount") int amount);
+
+	@Query("SELECT CARD_ID, CARD_NAME, CARD_SEQ_NUMBER, CARD_ORDER, CARD_BOARD_COLUMN_ID_FK, CREATE_USER, CREATE_TIME, LAST_UPDATE_USER, LAST_UPDATE_TIME, BOARD_COLUMN_DEFINITION_VALUE, BOARD_SHORT_NAME, PROJECT_SHORT_NAME FROM LA_CARD_FULL "
+			+ " INNER JOIN LA_BOARD_COLUMN ON CARD_BOARD_COLUMN_ID_FK = BOARD_COLUMN_ID "
+			+ " WHERE BOARD_COLUMN_BOARD_ID_FK = :boardId AND LA_BOARD_COLUMN.BOARD_COLUMN_LOCATION = :location "
+			+ " AND (LAST_UPDATE_TIME < :time OR (LAST_UPDATE_TIME = :time AND CARD_ID < :id)) "
+			+ " ORDER BY LAST_UPDATE_TIME DESC, CARD_ID DESC LIMIT :amount")
+	List<CardFull> fetchByBoardIdAndLocationAfter(@Bind("boardId") int boardId, @Bind("location") String location,
+			@Bind("time") Date time, @Bind("id") int id, @Bind("amount") int amount);
+
 	@Query("SELECT * FROM LA_CARD_FULL WHERE CARD_BOARD_COLUMN_ID_FK = :columnId ORDER BY CARD_ORDER ASC, CARD_NAME ASC")
 	List<CardFull> findAllFullByColumnId(@Bind("columnId") int columnId);
 
+	@Query("SELECT CARD_ID FROM LA_CARD WHERE CARD_BOARD_COLUMN_ID_FK = :columnId ORDER BY CARD_ORDER ASC, CARD_NAME ASC")
+	List<Integer> findCardIdsByColumnId(@Bind("columnId") int columnId);
+
 	@Query("SELECT * FROM LA_CARD_FULL WHERE CARD_ID IN (:ids)")
 	List<CardFull> findAllByIds(@Bind("ids") Collection<Integer> ids);
 
@@ -79,10 +105,19 @@ public interface CardQuery {
 			+ "CREATE_TIME, LAST_UPDATE_USER, LAST_UPDATE_TIME, BOARD_COLUMN_DEFINITION_VALUE, BOARD_SHORT_NAME, PROJECT_SHORT_NAME FROM LA_ASSIGNED_CARD "
 			+ "INNER JOIN LA_CARD_FULL ON ASSIGNED_CARD_ID = CARD_ID "
 			+ "WHERE ASSIGNED_USER_ID = :userId AND BOARD_COLUMN_DEFINITION_VALUE = ASSIGNED_CARD_STATUS AND BOARD_COLUMN_DEFINITION_VALUE = 'OPEN' "
-			+ "ORDER BY ASSIGNED_EVENT_TIME DESC LIMIT :amount OFFSET :offset")
+			+ "ORDER BY ASSIGNED_EVENT_TIME DESC, CARD_ID DESC LIMIT :amount OFFSET :offset")
 	List<CardFull> fetchAllOpenCardsByUserId(@Bind("userId") int userId, @Bind("amount") int amount,
 			@Bind("offset") int offset);
 
+	@Query("SELECT CARD_ID, CARD_NAME, CARD_SEQ_NUMBER, CARD_ORDER, CARD_BOARD_COLUMN_ID_FK, CREATE_USER, "
+			+ "CREATE_TIME, LAST_UPDATE_USER, LAST_UPDATE_TIME, BOARD_COLUMN_DEFINITION_VALUE, BOARD_SHORT_NAME, PROJECT_SHORT_NAME FROM LA_ASSIGNED_CARD "
+			+ "INNER JOIN LA_CARD_FULL ON ASSIGNED_CARD_ID = CARD_ID "
+			+ "WHERE ASSIGNED_USER_ID = :userId AND BOARD_COLUMN_DEFINITION_VALUE = ASSIGNED_CARD_STATUS AND BOARD_COLUMN_DEFINITION_VALUE = 'OPEN' "
+			+ "AND (ASSIGNED_EVENT_TIME < :time OR (ASSIGNED_EVENT_TIME = :time AND CARD_ID < :id)) "
+			+ "ORDER BY ASSIGNED_EVENT_TIME DESC, CARD_ID DESC LIMIT :amount")
+	List<CardFull> fetchAllOpenCardsByUserIdAfter(@Bind("userId") int userId, @Bind("time") Date time,
+			@Bind("id") int id, @Bind("amount") int amount);
+
 	@Query("SELECT CARD_ID, CARD_NAME, CARD_SEQ_NUMBER, CARD_ORDER, CARD_BOARD_COLUMN_ID_FK, CREATE_USER, "
 			+ " CREATE_TIME, LAST_UPDATE_USER, LAST_UPDATE_TIME, BOARD_COLUMN_DEFINITION_VALUE, BOARD_SHORT_NAME, PROJECT_SHORT_NAME FROM LA_ASSIGNED_CARD "
 			+ " INNER JOIN LA_CARD_FULL ON ASSIGNED_CARD_ID = CARD_ID "
@@ -104,6 +139,9 @@ public interface CardQuery {
 	@Query("SELECT CARD_ID, CARD_NAME, CARD_BOARD_COLUMN_ID_FK, CARD_ORDER, CARD_USER_ID_FK, CARD_SEQ_NUMBER FROM LA_CARD WHERE CARD_ID = :cardId")
 	Card findBy(@Bind("cardId") int cardId);
 
+	@Query("SELECT CARD_ID, CARD_NAME, CARD_BOARD_COLUMN_ID_FK, CARD_ORDER, CARD_USER_ID_FK, CARD_SEQ_NUMBER FROM LA_CARD WHERE CARD_ID IN (:ids)")
+	List<Card> findByIds(@Bind("ids") Collection<Integer> ids);
+
 	@Query("SELECT CARD_ID, CARD_NAME, CARD_SEQ_NUMBER, CARD_ORDER, CARD_BOARD_COLUMN_ID_FK, CREATE_USER, CREATE_TIME, LAST_UPDATE_USER, LAST_UPDATE_TIME, BOARD_COLUMN_DEFINITION_VALUE, BOARD_SHORT_NAME, PROJECT_SHORT_NAME FROM LA_CARD_FULL WHERE CARD_ID = :cardId")
 	CardFull findFullBy(@Bind("cardId") int cardId);
 
@@ -139,9 +177,6 @@ public interface CardQuery {
 	@Query(type = QueryType.TEMPLATE, value = "UPDATE LA_CARD SET CARD_ORDER = :cardOrder WHERE CARD_ID = :cardId AND CARD_BOARD_COLUMN_ID_FK = :columnId")
 	String updateCardOrder();
 
-	@Query("UPDATE LA_CARD SET CARD_ORDER = :order WHERE CARD_ID = :cardId")
-	int updateCardOrder(@Bind("cardId") int cardId, @Bind("order") int order);
-
 	@Query("UPDATE LA_CARD SET CARD_ORDER = CARD_ORDER + 1 WHERE CARD_BOARD_COLUMN_ID_FK = :columnId")
 	int incrementCardsOrder(@Bind("columnId") int columnId);
 
@@ -158,4 +193,12 @@ public interface CardQuery {
 			+ " INNER JOIN LA_BOARD_COLUMN ON CARD_BOARD_COLUMN_ID_FK = BOARD_COLUMN_ID "
 			+ " INNER JOIN LA_BOARD ON BOARD_COLUMN_BOARD_ID_FK = BOARD_ID WHERE (BOARD_SHORT_NAME, CARD_SEQ_NUMBER) IN (:projShortNameAndCardSeq)")
 	String findCardsIs();
+
+	@Query(type = QueryType.TEMPLATE, value = "SELECT CARD_ID, CARD_SEQ_NUMBER FROM LA_CARD "
+			+ " INNER JOIN LA_BOARD_COLUMN ON CARD_BOARD_COLUMN_ID_FK = BOARD_COLUMN_ID "
+			+ " INNER JOIN LA_BOARD ON BOARD_COLUMN_BOARD_ID_FK = BOARD_ID WHERE BOARD_SHORT_NAME = :shortName")
+	String findCardIdsBySequenceNumber();
+
+	@Query(type = QueryType.TEMPLATE, value = "UPDATE LA_CARD SET CARD_ORDER = :order WHERE CARD_ID = :cardId")
+	String updateCardOrderById();
 }
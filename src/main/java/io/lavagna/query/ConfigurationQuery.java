@@ -22,20 +22,10 @@ import io.lavagna.common.QueryRepository;
 import io.lavagna.model.ConfigurationKeyValue;
 
 import java.util.List;
-import java.util.Set;
 
 @QueryRepository
 public interface ConfigurationQuery {
 
-	@Query("SELECT COUNT(*) FROM LA_CONF WHERE CONF_KEY = :key")
-	Integer hasKeyDefined(@Bind("key") String key);
-
-	@Query("SELECT * FROM LA_CONF WHERE CONF_KEY IN (:keys)")
-	List<ConfigurationKeyValue> findConfigurationFor(@Bind("keys") Set<String> keys);
-
-	@Query("SELECT CONF_VALUE FROM LA_CONF WHERE CONF_KEY = :key")
-	List<String> getValue(@Bind("key") String key);
-
 	@Query("INSERT INTO LA_CONF(CONF_KEY, CONF_VALUE) VALUES(:key, :value)")
 	int set(@Bind("key") String key, @Bind("value") String value);
 
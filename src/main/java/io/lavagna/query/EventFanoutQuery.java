@@ -0,0 +1,40 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.query;
+
+import io.lavagna.common.Bind;
+import io.lavagna.common.Query;
+import io.lavagna.common.QueryRepository;
+import io.lavagna.model.EventFanoutMessage;
+
+import java.util.Date;
+import java.util.List;
+
+@QueryRepository
+public interface EventFanoutQuery {
+
+	@Query("INSERT INTO LA_EVENT_FANOUT(EVENT_FANOUT_NODE, EVENT_FANOUT_DESTINATION, EVENT_FANOUT_CONTENT_TYPE, EVENT_FANOUT_PAYLOAD, EVENT_FANOUT_TIME) "
+			+ " VALUES (:node, :destination, :contentType, :payload, :time)")
+	int insert(@Bind("node") String node, @Bind("destination") String destination,
+			@Bind("contentType") String contentType, @Bind("payload") String payload, @Bind("time") Date time);
+
+	@Query("SELECT * FROM LA_EVENT_FANOUT WHERE EVENT_FANOUT_NODE <> :node AND EVENT_FANOUT_TIME >= :since ORDER BY EVENT_FANOUT_ID ASC")
+	List<EventFanoutMessage> findFromOtherNodesSince(@Bind("node") String node, @Bind("since") Date since);
+
+	@Query("DELETE FROM LA_EVENT_FANOUT WHERE EVENT_FANOUT_TIME < :time")
+	int deleteOlderThan(@Bind("time") Date time);
+}
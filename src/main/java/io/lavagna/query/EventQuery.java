@@ -22,6 +22,7 @@ import io.lavagna.common.Query;
 import io.lavagna.common.QueryOverride;
 import io.lavagna.common.QueryRepository;
 import io.lavagna.common.QueryType;
+import io.lavagna.common.RowCallback;
 import io.lavagna.model.Event;
 import io.lavagna.model.EventsCount;
 
@@ -44,6 +45,9 @@ public interface EventQuery {
 	@Query("SELECT * FROM LA_EVENT ORDER BY EVENT_ID ASC LIMIT :amount OFFSET :offset ")
 	List<Event> find(@Bind("offset") int offset, @Bind("amount") int amount);
 
+	@Query("SELECT * FROM LA_EVENT ORDER BY EVENT_ID ASC")
+	void findAll(RowCallback<Event> callback);
+
 	@Query("SELECT COUNT(EVENT_ID) FROM LA_EVENT")
 	Integer count();
 
@@ -51,6 +55,10 @@ public interface EventQuery {
 	List<Event> findNextEventFor(@Bind("cardDataId") int cardDataId, @Bind("eventId") int eventId,
 			@Bind("eventType") String eventType);
 
+	@Query("SELECT * FROM LA_EVENT WHERE EVENT_CARD_DATA_ID_FK IN (:cardDataIds) AND EVENT_TYPE IN (:eventTypes) ORDER BY EVENT_ID ASC")
+	List<Event> findByCardDataIdsAndTypes(@Bind("cardDataIds") Collection<Integer> cardDataIds,
+			@Bind("eventTypes") Collection<String> eventTypes);
+
 	@Query("INSERT INTO LA_EVENT(EVENT_LABEL_NAME, EVENT_LABEL_TYPE, EVENT_CARD_ID_FK, EVENT_USER_ID_FK, EVENT_TIME, EVENT_TYPE, EVENT_VALUE_INT, EVENT_VALUE_STRING, EVENT_VALUE_TIMESTAMP, EVENT_VALUE_CARD_FK, EVENT_VALUE_USER_FK) "
 			+ " VALUES (:labelName, :labelType, :cardId, :userId, :now, :event, :valueInt, :valueString, :valueTimestamp, :valueCard, :valueUser)")
 	int insertLabelEvent(@Bind("labelName") String labelName, @Bind("labelType") String labelType,
@@ -91,9 +99,25 @@ public interface EventQuery {
 			+ " EVENT_VALUE_TIMESTAMP, EVENT_VALUE_CARD_FK, EVENT_VALUE_USER_FK "
 			+ " FROM LA_EVENT INNER JOIN LA_CARD_LABEL_VALUE ON LA_EVENT.EVENT_CARD_ID_FK = LA_CARD_LABEL_VALUE.CARD_ID_FK "
 			+ " WHERE LA_CARD_LABEL_VALUE.CARD_LABEL_VALUE_USER_FK = :user "
-			+ " ORDER BY EVENT_TIME DESC LIMIT :amount OFFSET :offset ")
+			+ " ORDER BY EVENT_TIME DESC, EVENT_ID DESC LIMIT :amount OFFSET :offset ")
 	List<Event> getUserFeedByPage(@Bind("user") int user, @Bind("amount") int amount, @Bind("offset") int offset);
 
+	@Query("SELECT EVENT_ID, EVENT_CARD_ID_FK, EVENT_USER_ID_FK, EVENT_TYPE, EVENT_TIME, EVENT_CARD_DATA_ID_FK, "
+			+ " EVENT_PREV_CARD_DATA_ID_FK, EVENT_NEW_CARD_DATA_ID_FK, EVENT_COLUMN_ID_FK, EVENT_PREV_COLUMN_ID_FK, EVENT_LABEL_NAME, EVENT_LABEL_TYPE, EVENT_VALUE_INT, "
+			+ " EVENT_VALUE_STRING, EVENT_VALUE_TIMESTAMP, EVENT_VALUE_CARD_FK, EVENT_VALUE_USER_FK "
+			+ " FROM LA_EVENT INNER JOIN LA_CARD ON LA_EVENT.EVENT_CARD_ID_FK = LA_CARD.CARD_ID WHERE LA_CARD.CARD_USER_ID_FK = :user "
+			+ " AND (EVENT_TIME < :time OR (EVENT_TIME = :time AND EVENT_ID < :id)) "
+			+ " UNION "
+			+ " SELECT EVENT_ID, EVENT_CARD_ID_FK, EVENT_USER_ID_FK, EVENT_TYPE, EVENT_TIME, EVENT_CARD_DATA_ID_FK, EVENT_PREV_CARD_DATA_ID_FK, EVENT_NEW_CARD_DATA_ID_FK, "
+			+ " EVENT_COLUMN_ID_FK, EVENT_PREV_COLUMN_ID_FK, EVENT_LABEL_NAME, EVENT_LABEL_TYPE, EVENT_VALUE_INT, EVENT_VALUE_STRING, "
+			+ " EVENT_VALUE_TIMESTAMP, EVENT_VALUE_CARD_FK, EVENT_VALUE_USER_FK "
+			+ " FROM LA_EVENT INNER JOIN LA_CARD_LABEL_VALUE ON LA_EVENT.EVENT_CARD_ID_FK = LA_CARD_LABEL_VALUE.CARD_ID_FK "
+			+ " WHERE LA_CARD_LABEL_VALUE.CARD_LABEL_VALUE_USER_FK = :user "
+			+ " AND (EVENT_TIME < :time OR (EVENT_TIME = :time AND EVENT_ID < :id)) "
+			+ " ORDER BY EVENT_TIME DESC, EVENT_ID DESC LIMIT :amount ")
+	List<Event> getUserFeedAfter(@Bind("user") int user, @Bind("time") Date time, @Bind("id") int id,
+			@Bind("amount") int amount);
+
 	// profile
 
 	@Query("SELECT EVENT_ID, EVENT_CARD_ID_FK, EVENT_USER_ID_FK, EVENT_TYPE, EVENT_TIME, EVENT_CARD_DATA_ID_FK,"
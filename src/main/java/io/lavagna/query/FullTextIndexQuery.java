@@ -0,0 +1,54 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.query;
+
+import io.lavagna.common.Bind;
+import io.lavagna.common.Query;
+import io.lavagna.common.QueryRepository;
+import io.lavagna.common.RowCallback;
+import io.lavagna.model.Card;
+import io.lavagna.model.CardData;
+import io.lavagna.model.Event;
+
+import java.util.Collection;
+import java.util.List;
+
+@QueryRepository
+public interface FullTextIndexQuery {
+
+	@Query("SELECT MAX(EVENT_ID) FROM LA_EVENT")
+	Integer findLastEventId();
+
+	@Query("SELECT * FROM LA_EVENT WHERE EVENT_ID > :eventId ORDER BY EVENT_ID ASC")
+	void findEventsAfter(@Bind("eventId") int eventId, RowCallback<Event> callback);
+
+	@Query("SELECT * FROM LA_EVENT WHERE EVENT_ID IN (:ids)")
+	void findEventsByIds(@Bind("ids") Collection<Integer> ids, RowCallback<Event> callback);
+
+	@Query("SELECT DISTINCT CARD_DATA_CARD_ID_FK FROM LA_CARD_DATA WHERE CARD_DATA_ID IN (:ids)")
+	List<Integer> findCardIdsByCardDataIds(@Bind("ids") Collection<Integer> ids);
+
+	@Query("SELECT CARD_ID FROM LA_CARD ORDER BY CARD_ID ASC")
+	List<Integer> findAllCardIds();
+
+	@Query("SELECT CARD_ID, CARD_NAME, CARD_BOARD_COLUMN_ID_FK, CARD_ORDER, CARD_USER_ID_FK, CARD_SEQ_NUMBER FROM LA_CARD WHERE CARD_ID IN (:ids)")
+	List<Card> findCardsByIds(@Bind("ids") Collection<Integer> ids);
+
+	@Query("SELECT * FROM LA_CARD_DATA WHERE CARD_DATA_CARD_ID_FK IN (:ids) AND CARD_DATA_DELETED = FALSE "
+			+ " AND CARD_DATA_TYPE IN ('COMMENT', 'ACTION_LIST', 'ACTION_CHECKED', 'ACTION_UNCHECKED', 'DESCRIPTION')")
+	List<CardData> findSearchableDataByCardIds(@Bind("ids") Collection<Integer> ids);
+}
@@ -16,21 +16,35 @@
  */
 package io.lavagna.query;
 
+import io.lavagna.common.Bind;
 import io.lavagna.common.Query;
 import io.lavagna.common.QueryRepository;
 
+import java.util.List;
+
+/**
+ * The rows to copy in the FTS support tables are recorded in LA_FTS_CHANGE_LOG by the triggers on LA_CARD and
+ * LA_CARD_DATA: the copy is done in batches of changes, ordered by FTS_CHANGE_ID.
+ */
 @QueryRepository
 public interface MySqlFullTextSupportQuery {
 
-	@Query("INSERT INTO LA_CARD_FTS_SUPPORT SELECT CARD_ID,CARD_NAME,CARD_LAST_UPDATED FROM LA_CARD left join LA_CARD_FTS_SUPPORT ON CARD_ID = CARD_FTS_SUPPORT_CARD_ID_FK WHERE CARD_FTS_SUPPORT_CARD_ID_FK IS NULL LIMIT 1000")
-	int syncNewCards();
+	/**
+	 * Age in seconds of the oldest change to copy, measured with the clock of the database: empty if there are no
+	 * changes.
+	 */
+	@Query("SELECT TIMESTAMPDIFF(SECOND, FTS_CHANGE_TIME, CURRENT_TIMESTAMP) FROM LA_FTS_CHANGE_LOG ORDER BY FTS_CHANGE_ID LIMIT 1")
+	List<Integer> findOldestChangeAge();
+
+	@Query("SELECT MAX(FTS_CHANGE_ID) FROM (SELECT FTS_CHANGE_ID FROM LA_FTS_CHANGE_LOG ORDER BY FTS_CHANGE_ID LIMIT 5000) AS FTS_BATCH")
+	Integer findLastChangeIdOfNextBatch();
 
-	@Query("REPLACE INTO LA_CARD_FTS_SUPPORT SELECT CARD_ID,CARD_NAME,CARD_LAST_UPDATED FROM LA_CARD left join LA_CARD_FTS_SUPPORT ON CARD_ID = CARD_FTS_SUPPORT_CARD_ID_FK WHERE CARD_LAST_UPDATED <> CARD_FTS_SUPPORT_LAST_UPDATED LIMIT 1000")
-	int syncUpdatedCards();
+	@Query("REPLACE INTO LA_CARD_FTS_SUPPORT SELECT CARD_ID,CARD_NAME,CARD_LAST_UPDATED FROM LA_CARD WHERE CARD_ID IN (SELECT FTS_CHANGE_REF_ID FROM LA_FTS_CHANGE_LOG WHERE FTS_CHANGE_TYPE = 'CARD' AND FTS_CHANGE_ID <= :lastChangeId)")
+	int syncChangedCards(@Bind("lastChangeId") int lastChangeId);
 
-	@Query("INSERT INTO LA_CARD_DATA_FTS_SUPPORT SELECT CARD_DATA_ID,CARD_DATA_CONTENT,CARD_DATA_LAST_UPDATED FROM LA_CARD_DATA left join LA_CARD_DATA_FTS_SUPPORT ON CARD_DATA_ID = CARD_DATA_FTS_SUPPORT_CARD_DATA_ID_FK WHERE CARD_DATA_FTS_SUPPORT_CARD_DATA_ID_FK IS NULL LIMIT 1000")
-	int syncNewCardData();
+	@Query("REPLACE INTO LA_CARD_DATA_FTS_SUPPORT SELECT CARD_DATA_ID,CARD_DATA_CONTENT,CARD_DATA_LAST_UPDATED FROM LA_CARD_DATA WHERE CARD_DATA_ID IN (SELECT FTS_CHANGE_REF_ID FROM LA_FTS_CHANGE_LOG WHERE FTS_CHANGE_TYPE = 'CARD_DATA' AND FTS_CHANGE_ID <= :lastChangeId)")
+	int syncChangedCardData(@Bind("lastChangeId") int lastChangeId);
 
-	@Query("REPLACE INTO LA_CARD_DATA_FTS_SUPPORT SELECT CARD_DATA_ID,CARD_DATA_CONTENT,CARD_DATA_LAST_UPDATED FROM LA_CARD_DATA left join LA_CARD_DATA_FTS_SUPPORT ON CARD_DATA_ID = CARD_DATA_FTS_SUPPORT_CARD_DATA_ID_FK WHERE CARD_DATA_LAST_UPDATED <> CARD_DATA_FTS_SUPPORT_LAST_UPDATED LIMIT 1000")
-	int syncUpdatedCardData();
+	@Query("DELETE FROM LA_FTS_CHANGE_LOG WHERE FTS_CHANGE_ID <= :lastChangeId")
+	int deleteChangesUntil(@Bind("lastChangeId") int lastChangeId);
 }
@@ -22,6 +22,7 @@ import io.lavagna.common.QueryRepository;
 import io.lavagna.common.QueryType;
 import io.lavagna.model.Event;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -51,16 +52,19 @@ public interface NotificationQuery {
 	@Query(type = QueryType.TEMPLATE, value = " AND USER_ID NOT IN  (:userWithChanges) ")
 	String notIn();
 
-	@Query("SELECT USER_LAST_EMAIL_SENT FROM LA_USER WHERE USER_ID = :userId")
-	Date lastEmailSent(@Bind("userId") int userId);
+	@Query(type = QueryType.TEMPLATE, value = "SELECT USER_ID, USER_LAST_EMAIL_SENT FROM LA_USER WHERE USER_ID IN (:userIds)")
+	String lastEmailSentForUsers();
 
-	@Query("SELECT * FROM (SELECT DISTINCT CARD_ID_FK FROM LA_CARD_LABEL "
+	@Query(type = QueryType.TEMPLATE, value = "SELECT DISTINCT CARD_LABEL_VALUE_USER_FK, CARD_ID_FK FROM LA_CARD_LABEL "
 			+ " INNER JOIN LA_CARD_LABEL_VALUE ON CARD_LABEL_ID = CARD_LABEL_ID_FK "
-			+ " WHERE CARD_LABEL_VALUE_USER_FK = :userId AND CARD_LABEL_DOMAIN = 'SYSTEM' AND "
-			+ " CARD_LABEL_NAME IN ('ASSIGNED', 'WATCHED_BY') ) CARD_IDS "
-			+ " INNER JOIN LA_EVENT ON CARD_ID_FK = EVENT_CARD_ID_FK WHERE EVENT_TIME BETWEEN :from AND :upTo ORDER BY EVENT_TIME ASC")
-	List<Event> eventsForUser(@Bind("userId") int userId, @Bind("from") Date from, @Bind("upTo") Date upTo);
+			+ " WHERE CARD_LABEL_VALUE_USER_FK IN (:userIds) AND CARD_LABEL_DOMAIN = 'SYSTEM' AND "
+			+ " CARD_LABEL_NAME IN ('ASSIGNED', 'WATCHED_BY')")
+	String cardsForUsers();
 
-	@Query("UPDATE LA_USER SET USER_LAST_EMAIL_SENT = :sentDate WHERE USER_ID = :userId")
-	int updateSentEmailDate(@Bind("sentDate") Date sentDate, @Bind("userId") int userId);
+	@Query("SELECT * FROM LA_EVENT WHERE EVENT_CARD_ID_FK IN (:cardIds) AND EVENT_TIME BETWEEN :from AND :upTo ORDER BY EVENT_TIME ASC")
+	List<Event> eventsForCards(@Bind("cardIds") Collection<Integer> cardIds, @Bind("from") Date from,
+			@Bind("upTo") Date upTo);
+
+	@Query("UPDATE LA_USER SET USER_LAST_EMAIL_SENT = :sentDate WHERE USER_ID IN (:userIds)")
+	int updateSentEmailDate(@Bind("sentDate") Date sentDate, @Bind("userIds") Collection<Integer> userIds);
 }
@@ -95,6 +95,51 @@ public interface ProjectQuery {
 			+ "(SELECT EVENT_CARD_ID_FK FROM LA_EVENT WHERE EVENT_ID = :eventId )))")
 	List<Integer> findRelatedProjectIdByEventId(@Bind("eventId") int eventId);
 
+	// the following fragments are combined with UNION ALL for resolving in a single query the projects related to a set
+	// of resources. RESOURCE_SHORT_NAME is meaningful only for the boards.
+
+	@Query(type = QueryType.TEMPLATE, value = "SELECT 'BOARD' AS RESOURCE_TYPE, BOARD_ID AS RESOURCE_ID, BOARD_SHORT_NAME AS RESOURCE_SHORT_NAME, PROJECT_SHORT_NAME FROM LA_BOARD "//
+			+ " INNER JOIN LA_PROJECT ON BOARD_PROJECT_ID_FK = PROJECT_ID WHERE BOARD_SHORT_NAME IN (:boardShortNames)")
+	String findRelatedProjectShortNameByBoardShortNames();
+
+	@Query(type = QueryType.TEMPLATE, value = "SELECT 'CARD' AS RESOURCE_TYPE, CARD_ID AS RESOURCE_ID, PROJECT_SHORT_NAME AS RESOURCE_SHORT_NAME, PROJECT_SHORT_NAME FROM LA_CARD "//
+			+ " INNER JOIN LA_BOARD_COLUMN ON CARD_BOARD_COLUMN_ID_FK = BOARD_COLUMN_ID "//
+			+ " INNER JOIN LA_BOARD ON BOARD_COLUMN_BOARD_ID_FK = BOARD_ID "//
+			+ " INNER JOIN LA_PROJECT ON BOARD_PROJECT_ID_FK = PROJECT_ID WHERE CARD_ID IN (:cardIds)")
+	String findRelatedProjectShortNameByCardIds();
+
+	@Query(type = QueryType.TEMPLATE, value = "SELECT 'COLUMN' AS RESOURCE_TYPE, BOARD_COLUMN_ID AS RESOURCE_ID, PROJECT_SHORT_NAME AS RESOURCE_SHORT_NAME, PROJECT_SHORT_NAME FROM LA_BOARD_COLUMN "//
+			+ " INNER JOIN LA_BOARD ON BOARD_COLUMN_BOARD_ID_FK = BOARD_ID "//
+			+ " INNER JOIN LA_PROJECT ON BOARD_PROJECT_ID_FK = PROJECT_ID WHERE BOARD_COLUMN_ID IN (:columnIds)")
+	String findRelatedProjectShortNameByColumnIds();
+
+	@Query(type = QueryType.TEMPLATE, value = "SELECT 'CARD_DATA' AS RESOURCE_TYPE, CARD_DATA_ID AS RESOURCE_ID, PROJECT_SHORT_NAME AS RESOURCE_SHORT_NAME, PROJECT_SHORT_NAME FROM LA_CARD_DATA "//
+			+ " INNER JOIN LA_CARD ON CARD_DATA_CARD_ID_FK = CARD_ID "//
+			+ " INNER JOIN LA_BOARD_COLUMN ON CARD_BOARD_COLUMN_ID_FK = BOARD_COLUMN_ID "//
+			+ " INNER JOIN LA_BOARD ON BOARD_COLUMN_BOARD_ID_FK = BOARD_ID "//
+			+ " INNER JOIN LA_PROJECT ON BOARD_PROJECT_ID_FK = PROJECT_ID WHERE CARD_DATA_ID IN (:cardDataIds)")
+	String findRelatedProjectShortNameByCardDataIds();
+
+	@Query(type = QueryType.TEMPLATE, value = "SELECT 'EVENT' AS RESOURCE_TYPE, EVENT_ID AS RESOURCE_ID, PROJECT_SHORT_NAME AS RESOURCE_SHORT_NAME, PROJECT_SHORT_NAME FROM LA_EVENT "//
+			+ " INNER JOIN LA_CARD ON EVENT_CARD_ID_FK = CARD_ID "//
+			+ " INNER JOIN LA_BOARD_COLUMN ON CARD_BOARD_COLUMN_ID_FK = BOARD_COLUMN_ID "//
+			+ " INNER JOIN LA_BOARD ON BOARD_COLUMN_BOARD_ID_FK = BOARD_ID "//
+			+ " INNER JOIN LA_PROJECT ON BOARD_PROJECT_ID_FK = PROJECT_ID WHERE EVENT_ID IN (:eventIds)")
+	String findRelatedProjectShortNameByEventIds();
+
+	@Query(type = QueryType.TEMPLATE, value = "SELECT 'LABEL' AS RESOURCE_TYPE, CARD_LABEL_ID AS RESOURCE_ID, PROJECT_SHORT_NAME AS RESOURCE_SHORT_NAME, PROJECT_SHORT_NAME FROM LA_CARD_LABEL "//
+			+ " INNER JOIN LA_PROJECT ON CARD_LABEL_PROJECT_ID_FK = PROJECT_ID WHERE CARD_LABEL_ID IN (:labelIds)")
+	String findRelatedProjectShortNameByLabelIds();
+
+	@Query(type = QueryType.TEMPLATE, value = "SELECT 'LABEL_VALUE' AS RESOURCE_TYPE, CARD_LABEL_VALUE_ID AS RESOURCE_ID, PROJECT_SHORT_NAME AS RESOURCE_SHORT_NAME, PROJECT_SHORT_NAME FROM LA_CARD_LABEL_VALUE "//
+			+ " INNER JOIN LA_CARD_LABEL ON CARD_LABEL_ID_FK = CARD_LABEL_ID "//
+			+ " INNER JOIN LA_PROJECT ON CARD_LABEL_PROJECT_ID_FK = PROJECT_ID WHERE CARD_LABEL_VALUE_ID IN (:labelValueIds)")
+	String findRelatedProjectShortNameByLabelValueIds();
+
+	@Query(type = QueryType.TEMPLATE, value = "SELECT 'COLUMN_DEFINITION' AS RESOURCE_TYPE, BOARD_COLUMN_DEFINITION_ID AS RESOURCE_ID, PROJECT_SHORT_NAME AS RESOURCE_SHORT_NAME, PROJECT_SHORT_NAME FROM LA_BOARD_COLUMN_DEFINITION "//
+			+ " INNER JOIN LA_PROJECT ON BOARD_COLUMN_DEFINITION_PROJECT_ID_FK = PROJECT_ID WHERE BOARD_COLUMN_DEFINITION_ID IN (:columnDefinitionIds)")
+	String findRelatedProjectShortNameByColumnDefinitionIds();
+
 	@Query(type = QueryType.TEMPLATE, value = "INSERT INTO LA_BOARD_COLUMN_DEFINITION (BOARD_COLUMN_DEFINITION_PROJECT_ID_FK, BOARD_COLUMN_DEFINITION_VALUE, BOARD_COLUMN_DEFINITION_COLOR) VALUES (:projectId, :value, :color)")
 	String createColumnDefinition();
 
@@ -0,0 +1,42 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.query;
+
+import io.lavagna.common.Bind;
+import io.lavagna.common.Query;
+import io.lavagna.common.QueryRepository;
+
+import java.util.Date;
+
+@QueryRepository
+public interface SchedulerLeaseQuery {
+
+	@Query("UPDATE LA_SCHEDULER_LEASE SET SCHEDULER_LEASE_NODE = :node, SCHEDULER_LEASE_EXPIRATION = :expiration "
+			+ " WHERE SCHEDULER_LEASE_NAME = :name AND (SCHEDULER_LEASE_NODE = :node OR SCHEDULER_LEASE_EXPIRATION < :now)")
+	int renewOrTakeOver(@Bind("name") String name, @Bind("node") String node, @Bind("now") Date now,
+			@Bind("expiration") Date expiration);
+
+	@Query("SELECT COUNT(*) FROM LA_SCHEDULER_LEASE WHERE SCHEDULER_LEASE_NAME = :name")
+	Integer count(@Bind("name") String name);
+
+	@Query("INSERT INTO LA_SCHEDULER_LEASE(SCHEDULER_LEASE_NAME, SCHEDULER_LEASE_NODE, SCHEDULER_LEASE_EXPIRATION) "
+			+ " VALUES (:name, :node, :expiration)")
+	int insert(@Bind("name") String name, @Bind("node") String node, @Bind("expiration") Date expiration);
+
+	@Query("DELETE FROM LA_SCHEDULER_LEASE WHERE SCHEDULER_LEASE_NODE = :node")
+	int release(@Bind("node") String node);
+}
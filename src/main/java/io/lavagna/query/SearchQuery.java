@@ -31,6 +31,9 @@ public interface SearchQuery {
 	@Query(type = QueryType.TEMPLATE, value = "SELECT LA_CARD.CARD_ID FROM ")
 	String findFirstSelect();
 
+	@Query(type = QueryType.TEMPLATE, value = "SELECT BOARD_COLUMN_DEFINITION_VALUE, COUNT(LA_CARD.CARD_ID) AS CARD_COUNT FROM ")
+	String findFirstSelectCountByColumnDefinition();
+
 	@Query(type = QueryType.TEMPLATE, value = "LA_CARD "
 			+ " INNER JOIN LA_BOARD_COLUMN ON LA_CARD.CARD_BOARD_COLUMN_ID_FK = LA_BOARD_COLUMN.BOARD_COLUMN_ID "
 			+ " INNER JOIN LA_BOARD_COLUMN_DEFINITION ON BOARD_COLUMN_DEFINITION_ID_FK = BOARD_COLUMN_DEFINITION_ID "
@@ -56,6 +59,12 @@ public interface SearchQuery {
 	@Query(type = QueryType.TEMPLATE, value = " ORDER BY LA_CARD.CARD_LAST_UPDATED DESC LIMIT ? OFFSET  ?")
 	String findSeventhOrderByAndLimit();
 
+	@Query(type = QueryType.TEMPLATE, value = " ORDER BY LA_CARD.CARD_LAST_UPDATED DESC, LA_CARD.CARD_ID DESC LIMIT ?")
+	String findSeventhOrderByKeysetAndLimit();
+
+	@Query(type = QueryType.TEMPLATE, value = " GROUP BY BOARD_COLUMN_DEFINITION_VALUE")
+	String findSeventhGroupByColumnDefinition();
+
 	@Query(type = QueryType.TEMPLATE, value = "SELECT LA_CARD.CARD_ID FROM LA_CARD LEFT JOIN  (")
 	String findCardIdNotInOpen();
 
@@ -137,4 +146,77 @@ public interface SearchQuery {
 
 	@Query(type = QueryType.TEMPLATE, value = " SELECT CARD_ID FROM LA_CARD WHERE CARD_LAST_UPDATED_USER_ID_FK = ? ")
 	String findByUpdatedBy();
+
+	// predicates used by SearchService for building a single WHERE clause. They can reference the tables joined in
+	// findFrom.
+
+	@Query(type = QueryType.TEMPLATE, value = "LA_CARD "
+			+ " INNER JOIN LA_BOARD_COLUMN ON LA_CARD.CARD_BOARD_COLUMN_ID_FK = LA_BOARD_COLUMN.BOARD_COLUMN_ID "
+			+ " INNER JOIN LA_BOARD_COLUMN_DEFINITION ON BOARD_COLUMN_DEFINITION_ID_FK = BOARD_COLUMN_DEFINITION_ID "
+			+ " INNER JOIN LA_BOARD ON LA_BOARD.BOARD_ID = LA_BOARD_COLUMN.BOARD_COLUMN_BOARD_ID_FK "
+			+ " INNER JOIN LA_PROJECT ON LA_BOARD.BOARD_PROJECT_ID_FK = LA_PROJECT.PROJECT_ID ")
+	String findFrom();
+
+	@Query(type = QueryType.TEMPLATE, value = " AND ")
+	String predicateAnd();
+
+	@Query(type = QueryType.TEMPLATE, value = " ) ")
+	String predicateEnd();
+
+	@Query(type = QueryType.TEMPLATE, value = " NOT ")
+	String predicateNot();
+
+	@Query(type = QueryType.TEMPLATE, value = " BOARD_COLUMN_DEFINITION_VALUE = ? ")
+	String predicateByStatus();
+
+	@Query(type = QueryType.TEMPLATE, value = " BOARD_COLUMN_LOCATION = ? ")
+	String predicateByLocation();
+
+	@Query(type = QueryType.TEMPLATE, value = " BOARD_ARCHIVED = ? ")
+	String predicateByBoardStatus();
+
+	@Query(type = QueryType.TEMPLATE, value = " LA_CARD.CARD_LAST_UPDATED BETWEEN ? AND ? ")
+	String predicateByUpdated();
+
+	@Query(type = QueryType.TEMPLATE, value = " LA_CARD.CARD_LAST_UPDATED_USER_ID_FK = ? ")
+	String predicateByUpdatedBy();
+
+	@Query(type = QueryType.TEMPLATE, value = " EXISTS (SELECT EVENT_ID FROM LA_EVENT WHERE EVENT_CARD_ID_FK = LA_CARD.CARD_ID "
+			+ " AND EVENT_TYPE = 'CARD_CREATE' AND EVENT_TIME BETWEEN ? AND ?) ")
+	String predicateByCardCreationEventDate();
+
+	@Query(type = QueryType.TEMPLATE, value = " EXISTS (SELECT EVENT_ID FROM LA_EVENT WHERE EVENT_CARD_ID_FK = LA_CARD.CARD_ID "
+			+ " AND EVENT_TYPE = 'CARD_CREATE' AND EVENT_USER_ID_FK = ?) ")
+	String predicateByCardCreationEventUser();
+
+	/**
+	 * Must be closed with {@link #predicateEnd()}.
+	 */
+	@Query(type = QueryType.TEMPLATE, value = " EXISTS (SELECT CARD_LABEL_VALUE_ID FROM LA_CARD_LABEL_VALUE "
+			+ " INNER JOIN LA_CARD_LABEL ON CARD_LABEL_ID = CARD_LABEL_ID_FK "
+			+ " WHERE CARD_ID_FK = LA_CARD.CARD_ID AND CARD_LABEL_VALUE_DELETED <> TRUE AND CARD_LABEL_DOMAIN = 'SYSTEM' AND CARD_LABEL_NAME = ? ")
+	String predicateExistsSystemLabel();
+
+	/**
+	 * Must be closed with {@link #predicateEnd()}.
+	 */
+	@Query(type = QueryType.TEMPLATE, value = " EXISTS (SELECT CARD_LABEL_VALUE_ID FROM LA_CARD_LABEL_VALUE "
+			+ " INNER JOIN LA_CARD_LABEL ON CARD_LABEL_ID = CARD_LABEL_ID_FK "
+			+ " WHERE CARD_ID_FK = LA_CARD.CARD_ID AND CARD_LABEL_VALUE_DELETED <> TRUE AND CARD_LABEL_DOMAIN = 'USER' AND CARD_LABEL_NAME LIKE CONCAT(? ,'%') ")
+	String predicateExistsUserLabel();
+
+	/**
+	 * Must be closed with {@link #predicateEnd()}.
+	 */
+	@Query(type = QueryType.TEMPLATE, value = " LA_CARD.CARD_ID IN ( ")
+	String predicateCardIdIn();
+
+	/**
+	 * Must be closed with {@link #predicateEnd()}.
+	 */
+	@Query(type = QueryType.TEMPLATE, value = "SELECT CARD_ID FROM LA_CARD WHERE CARD_ID IN ( ")
+	String findByCardIdIn();
+
+	@Query(type = QueryType.TEMPLATE, value = " (LA_CARD.CARD_LAST_UPDATED < ? OR (LA_CARD.CARD_LAST_UPDATED = ? AND LA_CARD.CARD_ID < ?)) ")
+	String predicateBefore();
 }
@@ -21,6 +21,7 @@ import io.lavagna.common.QueriesOverride;
 import io.lavagna.common.Query;
 import io.lavagna.common.QueryOverride;
 import io.lavagna.common.QueryRepository;
+import io.lavagna.common.QueryType;
 import io.lavagna.model.CardFull;
 import io.lavagna.model.EventsCount;
 import io.lavagna.model.LabelAndValueWithCount;
@@ -58,11 +59,9 @@ public interface StatisticsQuery {
 			+ "INNER JOIN LA_BOARD_COLUMN_DEFINITION ON BOARD_STATISTICS_COLUMN_DEFINITION_ID_FK = BOARD_COLUMN_DEFINITION_ID WHERE BOARD_STATISTICS_BOARD_ID_FK = :boardId")
 	List<StatisticForExport> findForBoard(@Bind("boardId") int boardId);
 
-	@Query("INSERT INTO LA_BOARD_STATISTICS(BOARD_STATISTICS_TIME, BOARD_STATISTICS_BOARD_ID_FK, BOARD_STATISTICS_COLUMN_DEFINITION_ID_FK, BOARD_STATISTICS_LOCATION, BOARD_STATISTICS_COUNT) "
+	@Query(type = QueryType.TEMPLATE, value = "INSERT INTO LA_BOARD_STATISTICS(BOARD_STATISTICS_TIME, BOARD_STATISTICS_BOARD_ID_FK, BOARD_STATISTICS_COLUMN_DEFINITION_ID_FK, BOARD_STATISTICS_LOCATION, BOARD_STATISTICS_COUNT) "
 			+ " VALUES(:date, :boardId, :boardColumnDefinitionId, :location, :count)")
-	int addFromImport(@Bind("date") Date date, @Bind("boardId") int boardId,
-			@Bind("boardColumnDefinitionId") int boardColumnDefinitionId, @Bind("location") String location,
-			@Bind("count") long count);
+	String addFromImport();
 
 	@Query("SELECT BOARD_STATISTICS_TIME AS TIME, BOARD_COLUMN_DEFINITION_VALUE, SUM(BOARD_STATISTICS_COUNT) AS STATISTICS_COUNT FROM LA_BOARD_STATISTICS "
 			+ "INNER JOIN LA_BOARD_COLUMN_DEFINITION ON BOARD_STATISTICS_COLUMN_DEFINITION_ID_FK = BOARD_COLUMN_DEFINITION_ID "
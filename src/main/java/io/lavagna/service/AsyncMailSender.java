@@ -0,0 +1,224 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.model.MailConfig;
+
+import java.util.Date;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.env.Environment;
+import org.springframework.mail.MailException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Send the emails in background, so a slow SMTP server does not block the caller.
+ *
+ * <p>
+ * The queue of the emails to send is bounded: when it's full the email is discarded. An email keeps its place in the
+ * queue until it has been delivered or given up: a failed delivery is retried {@link #MAX_ATTEMPTS} times, with an
+ * increasing delay.
+ * </p>
+ *
+ * <p>
+ * A place can be reserved with {@link #prepare(MailConfig, String, String, String, String)} and the email sent later,
+ * e.g. once the transaction that produced it has been committed.
+ * </p>
+ */
+@Service
+public class AsyncMailSender implements DisposableBean {
+
+	private static final Logger LOG = LogManager.getLogger();
+
+	static final int THREADS = 2;
+	static final int QUEUE_SIZE = 1000;
+	static final int MAX_ATTEMPTS = 3;
+	static final long RETRY_DELAY = 30 * 1000;
+
+	private final TaskScheduler taskScheduler;
+	private final long retryDelay;
+	private final ThreadPoolExecutor executor;
+	/**
+	 * The free places in the queue, the executor queue itself can never be full.
+	 */
+	private final Semaphore places;
+
+	@Autowired
+	public AsyncMailSender(@Qualifier("notificationScheduler") TaskScheduler taskScheduler, Environment env) {
+		this(taskScheduler, RETRY_DELAY, env.getProperty("executors.mail.threads", Integer.class, THREADS), env
+				.getProperty("executors.mail.queue", Integer.class, QUEUE_SIZE));
+	}
+
+	AsyncMailSender(TaskScheduler taskScheduler, long retryDelay) {
+		this(taskScheduler, retryDelay, THREADS, QUEUE_SIZE);
+	}
+
+	AsyncMailSender(TaskScheduler taskScheduler, long retryDelay, int threads, int queueSize) {
+		this.taskScheduler = taskScheduler;
+		this.retryDelay = retryDelay;
+
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("lavagna-mail-");
+		threadFactory.setDaemon(true);
+		this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(queueSize), threadFactory);
+		this.places = new Semaphore(queueSize);
+	}
+
+	ThreadPoolExecutor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Enqueue the email.
+	 *
+	 * @param mailConfig
+	 * @param to
+	 * @param subject
+	 * @param text
+	 * @param html
+	 *            can be null
+	 * @return false if the queue is full and the email has been discarded
+	 */
+	public boolean send(MailConfig mailConfig, String to, String subject, String text, String html) {
+		PreparedMail mail = prepare(mailConfig, to, subject, text, html);
+		if (mail == null) {
+			return false;
+		}
+		mail.send();
+		return true;
+	}
+
+	/**
+	 * Reserve a place in the queue for the email, without sending it: {@link PreparedMail#send()} or
+	 * {@link PreparedMail#discard()} must be called.
+	 *
+	 * @param mailConfig
+	 * @param to
+	 * @param subject
+	 * @param text
+	 * @param html
+	 *            can be null
+	 * @return null if the queue is full and the email has been discarded
+	 */
+	public PreparedMail prepare(MailConfig mailConfig, String to, String subject, String text, String html) {
+		if (!places.tryAcquire()) {
+			LOG.warn("The email queue is full, discarding the email to {}", to);
+			return null;
+		}
+		return new PreparedMail(new MailTask(mailConfig, to, subject, text, html));
+	}
+
+	/**
+	 * An email with a reserved place in the queue. Only the first call to {@link #send()} or {@link #discard()} has
+	 * an effect.
+	 */
+	public final class PreparedMail {
+
+		private final MailTask task;
+		private final AtomicBoolean done = new AtomicBoolean();
+
+		private PreparedMail(MailTask task) {
+			this.task = task;
+		}
+
+		public void send() {
+			if (done.compareAndSet(false, true)) {
+				submit(task);
+			}
+		}
+
+		public void discard() {
+			if (done.compareAndSet(false, true)) {
+				places.release();
+			}
+		}
+	}
+
+	private void submit(MailTask task) {
+		try {
+			executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			// only after the shutdown
+			LOG.warn("The email sender has been shut down, discarding the email to {}", task.to);
+			places.release();
+		}
+	}
+
+	@Override
+	public void destroy() throws InterruptedException {
+		executor.shutdown();
+		executor.awaitTermination(10, TimeUnit.SECONDS);
+	}
+
+	private class MailTask implements Runnable {
+
+		private final MailConfig mailConfig;
+		private final String to;
+		private final String subject;
+		private final String text;
+		private final String html;
+		private int attempt = 1;
+
+		MailTask(MailConfig mailConfig, String to, String subject, String text, String html) {
+			this.mailConfig = mailConfig;
+			this.to = to;
+			this.subject = subject;
+			this.text = text;
+			this.html = html;
+		}
+
+		@Override
+		public void run() {
+			boolean retry = false;
+			try {
+				mailConfig.send(to, subject, text, html);
+			} catch (MailException e) {
+				if (attempt >= MAX_ATTEMPTS) {
+					LOG.error("Error while sending an email to " + to + ", giving up after " + attempt + " attempts", e);
+					return;
+				}
+				LOG.warn("Error while sending an email to " + to + ", attempt " + attempt + " of " + MAX_ATTEMPTS, e);
+				long delay = retryDelay * attempt;
+				attempt++;
+				taskScheduler.schedule(new Runnable() {
+					@Override
+					public void run() {
+						submit(MailTask.this);
+					}
+				}, new Date(System.currentTimeMillis() + delay));
+				retry = true;
+			} finally {
+				// the place is kept by a retried email
+				if (!retry) {
+					places.release();
+				}
+			}
+		}
+	}
+}
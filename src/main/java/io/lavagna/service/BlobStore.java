@@ -0,0 +1,42 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Storage for the content of the uploaded files, addressed by their SHA-256 digest.
+ *
+ * The metadata (size, content type) and the references to the content always live in LA_CARD_DATA_UPLOAD_CONTENT
+ * and LA_CARD_DATA_UPLOAD: a store only holds the bytes. As the key is derived from the content, storing the same
+ * digest twice is harmless.
+ */
+public interface BlobStore {
+
+	boolean contains(String digest);
+
+	void store(String digest, long size, InputStream content) throws IOException;
+
+	/**
+	 * Write at most <code>length</code> bytes of the content, starting from <code>offset</code>.
+	 */
+	void read(String digest, long offset, long length, WritableByteChannel out) throws IOException;
+
+	void remove(String digest) throws IOException;
+}
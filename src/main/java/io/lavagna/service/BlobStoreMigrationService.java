@@ -0,0 +1,57 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import java.io.IOException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Move the content of the uploaded files stored in the database to the configured {@link BlobStore}.
+ *
+ * Each file is moved in its own transaction, so the migration can be interrupted and run again, and the application
+ * can still serve the files in the meantime.
+ */
+@Service
+public class BlobStoreMigrationService {
+
+	private static final Logger LOG = LogManager.getLogger();
+
+	private final CardDataRepository cardDataRepository;
+
+	@Autowired
+	public BlobStoreMigrationService(CardDataRepository cardDataRepository) {
+		this.cardDataRepository = cardDataRepository;
+	}
+
+	/**
+	 * @return the number of moved files
+	 */
+	public int moveDatabaseContentToBlobStore() throws IOException {
+		int moved = 0;
+		for (String digest : cardDataRepository.findAllDigestsStoredInDatabase()) {
+			if (cardDataRepository.moveContentToBlobStore(digest)) {
+				moved++;
+			}
+		}
+		LOG.info("Moved {} files out of the database", moved);
+		return moved;
+	}
+}
@@ -0,0 +1,101 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.query.CacheVersionQuery;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Version counters of the data kept in memory: each modification increment the counter, so a node can check with a
+ * single cheap query if its cached copy is still valid.
+ */
+@Repository
+@Transactional(readOnly = true)
+public class CacheVersionRepository {
+
+	private final CacheVersionQuery queries;
+
+	@Autowired
+	public CacheVersionRepository(CacheVersionQuery queries) {
+		this.queries = queries;
+	}
+
+	public long getVersion(String name) {
+		List<Long> res = queries.getVersion(name);
+		return res.isEmpty() ? 0 : res.get(0);
+	}
+
+	@Transactional(readOnly = false)
+	public void increment(String name) {
+		if (queries.increment(name) == 0) {
+			queries.insert(name);
+		}
+	}
+
+	/**
+	 * Increment the version and call the invalidation callback: immediately and again when the current transaction
+	 * complete (commit or rollback), as the cache may have been filled meanwhile with uncommitted data. Until then,
+	 * {@link #isModifiedInCurrentTransaction(String)} return true.
+	 *
+	 * @param name
+	 * @param invalidate
+	 */
+	@Transactional(readOnly = false)
+	public void increment(String name, final Runnable invalidate) {
+		invalidate.run();
+
+		// the other nodes see the new version only after the commit: once per transaction is enough
+		if (isModifiedInCurrentTransaction(name)) {
+			return;
+		}
+		increment(name);
+
+		final String resourceKey = resourceKey(name);
+		if (TransactionSynchronizationManager.isSynchronizationActive()
+				&& !TransactionSynchronizationManager.hasResource(resourceKey)) {
+			TransactionSynchronizationManager.bindResource(resourceKey, Boolean.TRUE);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(resourceKey);
+					invalidate.run();
+				}
+			});
+		}
+	}
+
+	/**
+	 * True if the current transaction has modified the cached data: it must read directly from the database.
+	 *
+	 * @param name
+	 * @return
+	 */
+	public boolean isModifiedInCurrentTransaction(String name) {
+		return TransactionSynchronizationManager.hasResource(resourceKey(name));
+	}
+
+	private static String resourceKey(String name) {
+		return CacheVersionRepository.class.getName() + "." + name;
+	}
+}
@@ -18,6 +18,7 @@ package io.lavagna.service;
 
 import static java.util.Objects.requireNonNull;
 import static org.apache.commons.lang3.StringUtils.trimToEmpty;
+import io.lavagna.common.RowCallback;
 import io.lavagna.model.BoardColumn.BoardColumnLocation;
 import io.lavagna.model.CardData;
 import io.lavagna.model.CardDataCount;
@@ -35,32 +36,26 @@ import io.lavagna.query.CardDataQuery;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
+import java.nio.channels.Channels;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map.Entry;
 import java.util.Map;
 import java.util.Set;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
-import org.springframework.jdbc.core.support.AbstractLobCreatingPreparedStatementCallback;
-import org.springframework.jdbc.support.lob.DefaultLobHandler;
-import org.springframework.jdbc.support.lob.LobCreator;
-import org.springframework.jdbc.support.lob.LobHandler;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.util.StreamUtils;
 
 @Repository
 @Transactional(readOnly = true)
@@ -70,11 +65,16 @@ public class CardDataRepository {
 
 	private final NamedParameterJdbcTemplate jdbc;
 	private final CardDataQuery queries;
+	private final BlobStore blobStore;
+	private final DatabaseBlobStore databaseBlobStore;
 
 	@Autowired
-	public CardDataRepository(NamedParameterJdbcTemplate jdbc, CardDataQuery queries) {
+	public CardDataRepository(NamedParameterJdbcTemplate jdbc, CardDataQuery queries, BlobStore blobStore,
+			DatabaseBlobStore databaseBlobStore) {
 		this.jdbc = jdbc;
 		this.queries = queries;
+		this.blobStore = blobStore;
+		this.databaseBlobStore = databaseBlobStore;
 	}
 
 	private static List<String> toStringList(Set<?> s) {
@@ -151,6 +151,13 @@ public class CardDataRepository {
 		return queries.findAllLightByReferenceIdAndType(referenceId, type.toString());
 	}
 
+	public List<CardData> findAllDataLightByReferenceIdsAndType(Collection<Integer> referenceIds, CardType type) {
+		if (referenceIds.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return queries.findAllLightByReferenceIdsAndType(referenceIds, type.toString());
+	}
+
 	public List<CardDataFull> findAllDataByCardIdAndType(int cardId, CardType type) {
 		return queries.findAllByCardIdAndType(cardId, type.toString());
 	}
@@ -167,6 +174,10 @@ public class CardDataRepository {
 		return queries.findAllDataUploadContentInfo();
 	}
 
+	public void findAllDataUploadContentInfo(RowCallback<CardDataUploadContentInfo> callback) {
+		queries.findAllDataUploadContentInfo(callback);
+	}
+
 	@Transactional(readOnly = false)
 	public CardData createData(int cardId, CardType type, String content) {
 		LOG.debug("createCardData: {card: {}, type: {}, content: {}}", cardId, type, content);
@@ -213,6 +224,20 @@ public class CardDataRepository {
 		return queries.updateOrderById(id, order);
 	}
 
+	/**
+	 * Update the order of many card data in a single batch.
+	 *
+	 * @param orderById
+	 */
+	@Transactional(readOnly = false)
+	public void updateOrderByIds(Map<Integer, Integer> orderById) {
+		List<SqlParameterSource> params = new ArrayList<>(orderById.size());
+		for (Entry<Integer, Integer> kv : orderById.entrySet()) {
+			params.add(new MapSqlParameterSource("id", kv.getKey()).addValue("order", kv.getValue()));
+		}
+		jdbc.batchUpdate(queries.updateDataOrderById(), params.toArray(new SqlParameterSource[params.size()]));
+	}
+
 	/**
 	 * Order the action item inside a action list. Additionally, the ids are filtered.
 	 * 
@@ -285,20 +310,24 @@ public class CardDataRepository {
 	}
 
 	@Transactional(readOnly = false)
-	public int addUploadContent(final String digest, final long fileSize, final InputStream content,
-			final String contentType) {
-		LobHandler lobHandler = new DefaultLobHandler();
-		return jdbc.getJdbcOperations().execute(queries.addUploadContent(),
-				new AbstractLobCreatingPreparedStatementCallback(lobHandler) {
-
-					@Override
-					protected void setValues(PreparedStatement ps, LobCreator lobCreator) throws SQLException {
-						ps.setString(1, digest);
-						ps.setLong(2, fileSize);
-						lobCreator.setBlobAsBinaryStream(ps, 3, content, (int) fileSize);
-						ps.setString(4, contentType);
-					}
-				});
+	public int addUploadContent(String digest, long fileSize, InputStream content, String contentType) {
+		int res = queries.addUploadContent(digest, fileSize, contentType);
+		try {
+			blobStore.store(digest, fileSize, content);
+		} catch (IOException e) {
+			throw new IllegalStateException("Error while storing file " + digest, e);
+		}
+		return res;
+	}
+
+	/**
+	 * Same as {@link #addUploadContent(String, long, InputStream, String)}, behind a savepoint when a transaction is
+	 * active: if the same content is stored concurrently, the DuplicateKeyException rolls back only this insert and
+	 * the caller's transaction stays usable.
+	 */
+	@Transactional(readOnly = false, propagation = Propagation.NESTED)
+	public int addUploadContentInSavepoint(String digest, long fileSize, InputStream content, String contentType) {
+		return addUploadContent(digest, fileSize, content, contentType);
 	}
 
 	@Transactional(readOnly = false)
@@ -314,19 +343,42 @@ public class CardDataRepository {
 		return queries.isFileAvailableByCard(cardId, digest).equals(1);
 	}
 
-	public void outputFileContent(String digest, final OutputStream out) throws IOException {
-		LOG.debug("get file digest : {} ", digest);
-		SqlParameterSource param = new MapSqlParameterSource("digest", digest);
-
-		jdbc.query(queries.fileContent(), param, new RowCallbackHandler() {
-			@Override
-			public void processRow(ResultSet rs) throws SQLException {
-				try (InputStream is = rs.getBinaryStream("CONTENT")) {
-					StreamUtils.copy(is, out);
-				} catch (IOException e) {
-					throw new IllegalStateException("Error while copying data", e);
-				}
-			}
-		});
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public void outputFileContent(String digest, OutputStream out) throws IOException {
+		outputFileContent(digest, 0, Long.MAX_VALUE, out);
+	}
+
+	/**
+	 * Write at most <code>length</code> bytes of the file, starting from <code>offset</code>. The content not yet moved
+	 * to the configured {@link BlobStore} is read from the database.
+	 *
+	 * No transaction is started, so a download from the filesystem does not hold a database connection.
+	 */
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public void outputFileContent(String digest, long offset, long length, OutputStream out) throws IOException {
+		LOG.debug("get file digest : {}, offset: {}, length: {}", digest, offset, length);
+		BlobStore store = blobStore == databaseBlobStore || blobStore.contains(digest) ? blobStore : databaseBlobStore;
+		store.read(digest, offset, length, Channels.newChannel(out));
+	}
+
+	public List<String> findAllDigestsStoredInDatabase() {
+		return queries.findAllDigestsWithContent();
+	}
+
+	/**
+	 * Move the content of a file from the database to the configured {@link BlobStore}, if it's not the database itself.
+	 *
+	 * @return true if the content has been moved
+	 */
+	@Transactional(readOnly = false)
+	public boolean moveContentToBlobStore(String digest) throws IOException {
+		if (blobStore == databaseBlobStore || !databaseBlobStore.contains(digest)) {
+			return false;
+		}
+		if (!blobStore.contains(digest)) {
+			databaseBlobStore.copyTo(digest, blobStore);
+		}
+		databaseBlobStore.remove(digest);
+		return true;
 	}
 }
@@ -19,6 +19,7 @@ package io.lavagna.service;
 import static java.util.EnumSet.of;
 import io.lavagna.model.CardData;
 import io.lavagna.model.CardDataFull;
+import io.lavagna.model.CardDataHistory;
 import io.lavagna.model.CardType;
 import io.lavagna.model.Event;
 import io.lavagna.model.Event.EventType;
@@ -26,8 +27,11 @@ import io.lavagna.model.FileDataLight;
 import io.lavagna.model.User;
 
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.tuple.ImmutablePair;
@@ -41,11 +45,14 @@ public class CardDataService {
 
 	private final EventRepository eventRepository;
 	private final CardDataRepository cardDataRepository;
+	private final FullTextIndexService fullTextIndexService;
 
 	@Autowired
-	public CardDataService(EventRepository eventRepository, CardDataRepository cardDataRepository) {
+	public CardDataService(EventRepository eventRepository, CardDataRepository cardDataRepository,
+			FullTextIndexService fullTextIndexService) {
 		this.eventRepository = eventRepository;
 		this.cardDataRepository = cardDataRepository;
+		this.fullTextIndexService = fullTextIndexService;
 	}
 
 	public List<CardDataFull> findDescriptionByCardId(int cardId) {
@@ -56,6 +63,63 @@ public class CardDataService {
 		return cardDataRepository.findAllDataByCardIdAndType(cardId, CardType.COMMENT);
 	}
 
+	public CardDataHistory findDescriptionHistoryByCardId(int cardId) {
+		List<CardDataFull> descriptions = findDescriptionByCardId(cardId);
+		// look for duplicates, the event model will keep the entire history of
+		// the description
+		CardDataHistory description = null;
+		for (CardDataFull des : descriptions) {
+			if (description == null) {
+				description = new CardDataHistory(des.getId(), des.getContent(), des.getOrder(), des.getUserId(),
+						des.getTime(), des.getUserId(), des.getTime());
+			}
+
+			if (des.getEventType() == EventType.DESCRIPTION_CREATE) {
+				description.setUserId(des.getUserId());
+				description.setTime(des.getTime());
+			}
+			if (des.getEventType() == EventType.DESCRIPTION_UPDATE) {
+				description.setUpdatedCount(description.getUpdatedCount() + 1);
+				// never null because the object's fields are always initialized
+				if (des.getTime().getTime() > description.getUpdateDate().getTime()) {
+					description.setUpdateUser(des.getUserId());
+					description.setUpdateDate(des.getTime());
+				}
+			}
+		}
+		return description;
+	}
+
+	public List<CardDataHistory> findAllCommentsHistoryByCardId(int cardId) {
+		List<CardDataFull> comments = findAllCommentsByCardId(cardId);
+		// look for duplicates, the event model will keep the entire history of
+		// the comment
+		Map<Integer, CardDataHistory> duplicates = new HashMap<>();
+		for (CardDataFull comment : comments) {
+			if (!duplicates.containsKey(comment.getId())) {
+				CardDataHistory newComment = new CardDataHistory(comment.getId(), comment.getContent(),
+						comment.getOrder(), comment.getUserId(), comment.getTime(), comment.getUserId(),
+						comment.getTime());
+				duplicates.put(comment.getId(), newComment);
+			}
+			CardDataHistory instance = duplicates.get(comment.getId());
+
+			if (comment.getEventType() == EventType.COMMENT_CREATE) {
+				instance.setUserId(comment.getUserId());
+				instance.setTime(comment.getTime());
+			}
+			if (comment.getEventType() == EventType.COMMENT_UPDATE) {
+				instance.setUpdatedCount(instance.getUpdatedCount() + 1);
+				// never null because the object's fields are always initialized
+				if (comment.getTime().getTime() > instance.getUpdateDate().getTime()) {
+					instance.setUpdateUser(comment.getUserId());
+					instance.setUpdateDate(comment.getTime());
+				}
+			}
+		}
+		return new ArrayList<CardDataHistory>(duplicates.values());
+	}
+
 	public List<CardData> findAllActionListsAndItemsByCardId(int cardId) {
 		return cardDataRepository.findAllDataLightByCardIdAndTypes(cardId,
 				of(CardType.ACTION_CHECKED, CardType.ACTION_UNCHECKED, CardType.ACTION_LIST));
@@ -100,6 +164,16 @@ public class CardDataService {
 		if (!cardDataRepository.fileExists(digest)) {
 			cardDataRepository.addUploadContent(digest, fileSize, content, contentType);
 		}
+		return attachFile(name, digest, cardId, user, time);
+	}
+
+	/**
+	 * Attach to the card a file whose content has already been stored.
+	 *
+	 * @return true and the new card data, or false if the card already has a file with the same content
+	 */
+	@Transactional(readOnly = false)
+	public ImmutablePair<Boolean, CardData> attachFile(String name, String digest, int cardId, User user, Date time) {
 		if (!cardDataRepository.isFileAvailableByCard(digest, cardId)) {
 			CardData file = cardDataRepository.createData(cardId, CardType.FILE, digest);
 			cardDataRepository.createUploadInfo(digest, name, name, file.getId());
@@ -151,12 +225,14 @@ public class CardDataService {
 
 	@Transactional(readOnly = false)
 	public int updateActionItem(int actionItemId, String content) {
+		fullTextIndexService.cardDataChanged(actionItemId);
 		return cardDataRepository.updateContent(actionItemId, of(CardType.ACTION_CHECKED, CardType.ACTION_UNCHECKED),
 				content);
 	}
 
 	@Transactional(readOnly = false)
 	public int updateActionList(int actionListId, String content) {
+		fullTextIndexService.cardDataChanged(actionListId);
 		return cardDataRepository.updateContent(actionListId, of(CardType.ACTION_LIST), content);
 	}
 
@@ -233,18 +309,21 @@ public class CardDataService {
 	@Transactional(readOnly = false)
 	public void undoDeleteActionItem(Event event) {
 		eventRepository.remove(event.getId(), event.getCardId(), event.getEvent());
+		fullTextIndexService.cardDataChanged(event.getDataId());
 		cardDataRepository.undoSoftDelete(event.getDataId(), of(CardType.ACTION_CHECKED, CardType.ACTION_UNCHECKED));
 	}
 
 	@Transactional(readOnly = false)
 	public void undoDeleteComment(Event event) {
 		eventRepository.remove(event.getId(), event.getCardId(), event.getEvent());
+		fullTextIndexService.cardDataChanged(event.getDataId());
 		cardDataRepository.undoSoftDelete(event.getDataId(), of(CardType.COMMENT));
 	}
 
 	@Transactional(readOnly = false)
 	public void undoDeleteActionList(Event event) {
 		eventRepository.remove(event.getId(), event.getCardId(), event.getEvent());
+		fullTextIndexService.cardDataChanged(event.getDataId());
 		cardDataRepository.undoSoftDeleteOnCascade(event.getDataId(), of(CardType.ACTION_LIST),
 				of(EventType.ACTION_ITEM_DELETE));
 	}
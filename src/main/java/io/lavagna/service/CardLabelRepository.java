@@ -34,7 +34,9 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
 
 import org.apache.commons.lang3.Validate;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -154,6 +156,17 @@ public class CardLabelRepository {
 		return res;
 	}
 
+	/**
+	 * The values of the labels of the card, by label id.
+	 */
+	public Map<Integer, List<CardLabelValue>> findCardLabelValuesByLabelIdForCardId(int cardId) {
+		Map<Integer, List<CardLabelValue>> res = new TreeMap<>();
+		for (Entry<CardLabel, List<CardLabelValue>> kv : findCardLabelValuesByCardId(cardId).entrySet()) {
+			res.put(kv.getKey().getId(), kv.getValue());
+		}
+		return res;
+	}
+
 	@Transactional(readOnly = false)
 	public CardLabel updateLabel(int labelId, Label label) {
 		CardLabel cl = findLabelById(labelId);
@@ -216,6 +229,22 @@ public class CardLabelRepository {
 		return queries.findLastCreatedLabelListValue();
 	}
 
+	/**
+	 * Add the values to a label without values, in a single batch. The order of the list is kept.
+	 *
+	 * @param labelId
+	 * @param values
+	 */
+	@Transactional(readOnly = false)
+	public void addLabelListValues(int labelId, List<String> values) {
+		SqlParameterSource[] params = new SqlParameterSource[values.size()];
+		for (int i = 0; i < values.size(); i++) {
+			params[i] = new MapSqlParameterSource("cardLabelId", labelId).addValue("order", i + 1).addValue("value",
+					values.get(i));
+		}
+		jdbc.batchUpdate(queries.addLabelListValueWithOrder(), params);
+	}
+
 	@Transactional(readOnly = false)
 	public void removeLabelListValue(int labelListValueId) {
 		queries.removeLabelListValue(labelListValueId);
@@ -17,9 +17,12 @@
 package io.lavagna.service;
 
 import static org.apache.commons.lang3.StringUtils.trimToNull;
+import io.lavagna.common.RowCallback;
 import io.lavagna.model.BoardColumn.BoardColumnLocation;
 import io.lavagna.model.Card;
 import io.lavagna.model.CardFull;
+import io.lavagna.model.ContinuationPage;
+import io.lavagna.model.ContinuationToken;
 import io.lavagna.model.Event;
 import io.lavagna.model.User;
 import io.lavagna.query.CardQuery;
@@ -27,10 +30,12 @@ import io.lavagna.query.CardQuery;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map.Entry;
 import java.util.Map;
 import java.util.Set;
 
@@ -55,11 +60,14 @@ public class CardRepository {
 
 	private final NamedParameterJdbcTemplate jdbc;
 	private final CardQuery queries;
+	private final RelatedProjectResolver relatedProjectResolver;
 
 	@Autowired
-	public CardRepository(NamedParameterJdbcTemplate jdbc, CardQuery queries) {
+	public CardRepository(NamedParameterJdbcTemplate jdbc, CardQuery queries,
+			RelatedProjectResolver relatedProjectResolver) {
 		this.jdbc = jdbc;
 		this.queries = queries;
+		this.relatedProjectResolver = relatedProjectResolver;
 	}
 
 	// prepare a {:cardOrder, :cardId, :columnId} list
@@ -78,6 +86,10 @@ public class CardRepository {
 		return queries.findAllByBoardShortName(boardShortName);
 	}
 
+	public void findAllByBoardShortName(String boardShortName, RowCallback<CardFull> callback) {
+		queries.findAllByBoardShortName(boardShortName, callback);
+	}
+
 	public List<Card> findAllByBoardIdAndLocation(int boardId, BoardColumnLocation location) {
 		return queries.findAllByBoardIdAndLocation(boardId, location.toString());
 	}
@@ -86,6 +98,13 @@ public class CardRepository {
 		return queries.findAllFullByColumnId(columnId);
 	}
 
+	/**
+	 * The ids of the cards in the column, in the same order of {@link #findAllByColumnId(int)}.
+	 */
+	public List<Integer> findCardIdsByColumnId(int columnId) {
+		return queries.findCardIdsByColumnId(columnId);
+	}
+
 	public List<CardFull> findAllByIds(Collection<Integer> ids) {
 		return ids.isEmpty() ? Collections.<CardFull> emptyList() : queries.findAllByIds(ids);
 	}
@@ -94,6 +113,15 @@ public class CardRepository {
 		return queries.fetchAllOpenCardsByUserId(userId, pageSize + 1, page * pageSize);
 	}
 
+	/**
+	 * Keyset based variant of {@link #fetchAllOpenCardsByUserId(int, int, int)}: fetch at most pageSize + 1 cards
+	 * after the given token (from the beginning if null).
+	 */
+	public List<CardFull> fetchAllOpenCardsByUserId(int userId, ContinuationToken after, int pageSize) {
+		return after == null ? queries.fetchAllOpenCardsByUserId(userId, pageSize + 1, 0) : queries
+				.fetchAllOpenCardsByUserIdAfter(userId, after.getTime(), after.getId(), pageSize + 1);
+	}
+
 	public List<CardFull> fetchAllOpenCardsByProjectAndUserId(String projectShortName, int userId, int page,
 			int pageSize) {
 		return queries.fetchAllOpenCardsByProjectIdAndUserId(userId, projectShortName, pageSize + 1, page * pageSize);
@@ -111,10 +139,41 @@ public class CardRepository {
 		return queries.fetchPaginatedByBoardIdAndLocation(boardId, location.toString(), 11, page * 10);
 	}
 
+	/**
+	 * Keyset based variant of {@link #fetchPaginatedByBoardIdAndLocation(int, BoardColumnLocation, int)}: return 10
+	 * cards after the given token (from the beginning if null).
+	 */
+	public ContinuationPage<CardFull> fetchPaginatedByBoardIdAndLocation(int boardId, BoardColumnLocation location,
+			ContinuationToken after) {
+		List<CardFull> cards = after == null ? queries.fetchFirstByBoardIdAndLocation(boardId, location.toString(),
+				11) : queries.fetchByBoardIdAndLocationAfter(boardId, location.toString(), after.getTime(),
+				after.getId(), 11);
+		return toContinuationPage(cards, 10, null);
+	}
+
+	/**
+	 * Wrap the first pageSize cards: if there are more, the continuation token point to the last wrapped card.
+	 */
+	static <T extends CardFull> ContinuationPage<T> toContinuationPage(List<T> cards, int pageSize, Integer count) {
+		if (cards.size() <= pageSize) {
+			return new ContinuationPage<>(cards, null, count);
+		}
+		List<T> page = cards.subList(0, pageSize);
+		CardFull last = page.get(pageSize - 1);
+		return new ContinuationPage<>(page, new ContinuationToken(last.getLastUpdateTime(), last.getId()), count);
+	}
+
 	public Card findBy(int cardId) {
 		return queries.findBy(cardId);
 	}
 
+	public List<Card> findByIds(Collection<Integer> cardIds) {
+		if (cardIds.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return queries.findByIds(cardIds);
+	}
+
 	public CardFull findFullBy(int cardId) {
 		return queries.findFullBy(cardId);
 	}
@@ -212,6 +271,18 @@ public class CardRepository {
 				"previousColumnId", previousColumnId);
 		int affected = jdbc.update(queries.moveCardToColumn(), param);
 		Validate.isTrue(1 == affected, "moveCardToColumn: must affect exactly one row");
+		cardsMoved(previousColumnId, columnId);
+	}
+
+	/**
+	 * The cached resource -> project mapping changes only when the cards move to another project: within a project
+	 * the shared cache version is not incremented, as it would serialize all the moves on its row.
+	 */
+	private void cardsMoved(int previousColumnId, int columnId) {
+		if (previousColumnId != columnId
+				&& queries.countProjectsOfColumns(Arrays.asList(previousColumnId, columnId)) > 1) {
+			relatedProjectResolver.cardsMoved();
+		}
 	}
 
 	@Transactional(readOnly = false)
@@ -237,6 +308,10 @@ public class CardRepository {
 			}
 		}
 
+		if (!updated.isEmpty()) {
+			cardsMoved(previousColumnId, columnId);
+		}
+
 		return updated;
 	}
 
@@ -305,7 +380,35 @@ public class CardRepository {
 		return queries.getOpenCardsCountByProjectAndUserId(projectShortName, id);
 	}
 
-	public int updateCardOrder(int cardId, int order) {
-		return queries.updateCardOrder(cardId, order);
+	/**
+	 * Update the order of many cards in a single batch.
+	 *
+	 * @param orderByCardId
+	 */
+	@Transactional(readOnly = false)
+	public void updateCardsOrder(Map<Integer, Integer> orderByCardId) {
+		List<SqlParameterSource> params = new ArrayList<>(orderByCardId.size());
+		for (Entry<Integer, Integer> kv : orderByCardId.entrySet()) {
+			params.add(new MapSqlParameterSource("cardId", kv.getKey()).addValue("order", kv.getValue()));
+		}
+		jdbc.batchUpdate(queries.updateCardOrderById(), params.toArray(new SqlParameterSource[params.size()]));
+	}
+
+	/**
+	 * Return the card ids of a board, by sequence number.
+	 *
+	 * @param boardShortName
+	 * @return
+	 */
+	public Map<Integer, Integer> findCardIdsBySequenceNumber(String boardShortName) {
+		final Map<Integer, Integer> res = new HashMap<>();
+		jdbc.query(queries.findCardIdsBySequenceNumber(), new MapSqlParameterSource("shortName", boardShortName),
+				new RowCallbackHandler() {
+					@Override
+					public void processRow(ResultSet rs) throws SQLException {
+						res.put(rs.getInt("CARD_SEQ_NUMBER"), rs.getInt("CARD_ID"));
+					}
+				});
+		return res;
 	}
 }
@@ -21,12 +21,15 @@ import io.lavagna.model.CardDataCount;
 import io.lavagna.model.CardFull;
 import io.lavagna.model.CardFullWithCounts;
 import io.lavagna.model.CardFullWithCountsHolder;
+import io.lavagna.model.ContinuationPage;
+import io.lavagna.model.ContinuationToken;
 import io.lavagna.model.Event;
 import io.lavagna.model.Event.EventType;
 import io.lavagna.model.LabelAndValue;
 import io.lavagna.model.User;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
@@ -83,6 +86,11 @@ public class CardService {
 		return res;
 	}
 
+	public List<CardFullWithCounts> fetchAllByIds(Collection<Integer> ids) {
+		List<CardFull> cards = cardRepository.findAllByIds(ids);
+		return cards.isEmpty() ? Collections.<CardFullWithCounts> emptyList() : fetchCardFull(cards);
+	}
+
 	public CardFullWithCountsHolder getAllOpenCards(User user, int page, int pageSize) {
 
 		List<CardFull> cards = cardRepository.fetchAllOpenCardsByUserId(user.getId(), page, pageSize);
@@ -101,6 +109,23 @@ public class CardService {
 		return new CardFullWithCountsHolder(res, totalItems, pageSize);
 	}
 
+	/**
+	 * Keyset based variant of {@link #getAllOpenCards(User, int, int)}.
+	 *
+	 * @param after
+	 *            null for the first page
+	 * @param withCount
+	 *            if the total count of open cards must be calculated
+	 */
+	public ContinuationPage<CardFullWithCounts> getAllOpenCards(User user, ContinuationToken after, int pageSize,
+			boolean withCount) {
+		List<CardFull> cards = cardRepository.fetchAllOpenCardsByUserId(user.getId(), after, pageSize);
+		Integer count = withCount ? cardRepository.getOpenCardsCountByUserId(user.getId()) : null;
+		List<CardFullWithCounts> res = cards.isEmpty() ? Collections.<CardFullWithCounts> emptyList()
+				: fetchCardFull(cards);
+		return CardRepository.toContinuationPage(res, pageSize, count);
+	}
+
 	public CardFullWithCountsHolder getAllOpenCardsByProject(String projectShortName, User user, int page, int pageSize) {
 		List<CardFull> cards = cardRepository.fetchAllOpenCardsByProjectAndUserId(projectShortName, user.getId(), page,
 				pageSize);
@@ -16,30 +16,58 @@
  */
 package io.lavagna.service;
 
+import io.lavagna.model.CacheStatistics;
 import io.lavagna.model.ConfigurationKeyValue;
 import io.lavagna.model.Key;
 import io.lavagna.query.ConfigurationQuery;
 
+import java.util.Collections;
 import java.util.EnumMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+/**
+ * The configuration is read at each request (see SecurityFilter): the whole LA_CONF table is kept in memory.
+ *
+ * <p>
+ * The cached copy is dropped after each modification done by this node and the version stored in LA_CACHE_VERSION is
+ * checked at most every {@link #VERSION_CHECK_INTERVAL} ms for the modifications done by the other nodes. A transaction
+ * that has modified the configuration reads directly from the database until its end.
+ * </p>
+ */
 @Repository
 @Transactional(readOnly = true)
 public class ConfigurationRepository {
 
+	static final String CACHE_NAME = "CONFIGURATION";
+	static final long VERSION_CHECK_INTERVAL = 1000;
+
 	private final ConfigurationQuery queries;
+	private final CacheVersionRepository cacheVersionRepository;
+	private final long versionCheckInterval;
+
+	private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(Snapshot.invalid());
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
 
 	@Autowired
-	public ConfigurationRepository(ConfigurationQuery queries) {
+	public ConfigurationRepository(ConfigurationQuery queries, CacheVersionRepository cacheVersionRepository) {
+		this(queries, cacheVersionRepository, VERSION_CHECK_INTERVAL);
+	}
+
+	ConfigurationRepository(ConfigurationQuery queries, CacheVersionRepository cacheVersionRepository,
+			long versionCheckInterval) {
 		this.queries = queries;
+		this.cacheVersionRepository = cacheVersionRepository;
+		this.versionCheckInterval = versionCheckInterval;
 	}
 
 	public List<ConfigurationKeyValue> findAll() {
@@ -47,50 +75,47 @@ public class ConfigurationRepository {
 	}
 
 	public Map<Key, String> findConfigurationFor(Set<Key> keys) {
-		Set<String> s = new HashSet<>();
+		Map<Key, String> conf = configuration();
 		Map<Key, String> res = new EnumMap<Key, String>(Key.class);
 		for (Key k : keys) {
-			s.add(k.toString());
-			res.put(k, null);
-		}
-
-		for (ConfigurationKeyValue kv : queries.findConfigurationFor(s)) {
-			res.put(kv.getFirst(), kv.getSecond());
+			res.put(k, conf.get(k));
 		}
 		return res;
 	}
 
 	public boolean hasKeyDefined(Key key) {
-		return !Integer.valueOf(0).equals(queries.hasKeyDefined(key.toString()));
+		return configuration().containsKey(key);
 	}
 
 	public String getValueOrNull(Key key) {
-		List<String> res = queries.getValue(key.toString());
-		return res.isEmpty() ? null : res.get(0);
+		return configuration().get(key);
 	}
 
 	public String getValue(Key key) {
-		List<String> res = queries.getValue(key.toString());
-		if (res.isEmpty()) {
+		Map<Key, String> conf = configuration();
+		if (!conf.containsKey(key)) {
 			throw new EmptyResultDataAccessException(1);
 		} else {
-			return res.get(0);
+			return conf.get(key);
 		}
 	}
 
 	@Transactional(readOnly = false)
 	public void insert(Key key, String value) {
 		queries.set(key.toString(), value);
+		configurationModified();
 	}
 
 	@Transactional(readOnly = false)
 	public void update(Key key, String value) {
 		queries.update(key.toString(), value);
+		configurationModified();
 	}
 
 	@Transactional(readOnly = false)
 	public void delete(Key key) {
 		queries.delete(key.toString());
+		configurationModified();
 	}
 
 	@Transactional(readOnly = false)
@@ -103,4 +128,72 @@ public class ConfigurationRepository {
 			}
 		}
 	}
+
+	public CacheStatistics getCacheStatistics() {
+		return new CacheStatistics(CACHE_NAME, hits.get(), misses.get());
+	}
+
+	private Map<Key, String> configuration() {
+
+		if (cacheVersionRepository.isModifiedInCurrentTransaction(CACHE_NAME)) {
+			misses.incrementAndGet();
+			return load();
+		}
+
+		Snapshot current = snapshot.get();
+		long now = System.currentTimeMillis();
+		if (current.values != null && now - current.checkedAt < versionCheckInterval) {
+			hits.incrementAndGet();
+			return current.values;
+		}
+
+		long version = cacheVersionRepository.getVersion(CACHE_NAME);
+		if (current.values != null && current.version == version) {
+			snapshot.compareAndSet(current, new Snapshot(current.values, version, now));
+			hits.incrementAndGet();
+			return current.values;
+		}
+
+		misses.incrementAndGet();
+		Map<Key, String> values = load();
+		// if the snapshot has been invalidated in the meantime, the loaded values may be already outdated
+		snapshot.compareAndSet(current, new Snapshot(values, version, now));
+		return values;
+	}
+
+	private Map<Key, String> load() {
+		Map<Key, String> res = new EnumMap<>(Key.class);
+		for (ConfigurationKeyValue kv : queries.findAll()) {
+			res.put(kv.getFirst(), kv.getSecond());
+		}
+		return Collections.unmodifiableMap(res);
+	}
+
+	private void configurationModified() {
+		cacheVersionRepository.increment(CACHE_NAME, new Runnable() {
+			@Override
+			public void run() {
+				snapshot.set(Snapshot.invalid());
+			}
+		});
+	}
+
+	private static class Snapshot {
+		/**
+		 * null if invalid.
+		 */
+		private final Map<Key, String> values;
+		private final long version;
+		private final long checkedAt;
+
+		Snapshot(Map<Key, String> values, long version, long checkedAt) {
+			this.values = values;
+			this.version = version;
+			this.checkedAt = checkedAt;
+		}
+
+		static Snapshot invalid() {
+			return new Snapshot(null, -1, 0);
+		}
+	}
 }
@@ -0,0 +1,129 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.query.CardDataQuery;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.support.AbstractLobCreatingPreparedStatementCallback;
+import org.springframework.jdbc.support.lob.DefaultLobHandler;
+import org.springframework.jdbc.support.lob.LobCreator;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Keep the content in the CONTENT column of LA_CARD_DATA_UPLOAD_CONTENT. The row must already exist.
+ *
+ * The operations run in the transaction of the caller.
+ */
+public class DatabaseBlobStore implements BlobStore {
+
+	private final NamedParameterJdbcTemplate jdbc;
+	private final CardDataQuery queries;
+
+	public DatabaseBlobStore(NamedParameterJdbcTemplate jdbc, CardDataQuery queries) {
+		this.jdbc = jdbc;
+		this.queries = queries;
+	}
+
+	@Override
+	public boolean contains(String digest) {
+		return queries.findDigestWithContent(digest).equals(1);
+	}
+
+	@Override
+	public void store(final String digest, final long size, final InputStream content) {
+		jdbc.getJdbcOperations().execute(queries.updateUploadContent(),
+				new AbstractLobCreatingPreparedStatementCallback(new DefaultLobHandler()) {
+
+					@Override
+					protected void setValues(PreparedStatement ps, LobCreator lobCreator) throws SQLException {
+						lobCreator.setBlobAsBinaryStream(ps, 1, content, (int) size);
+						ps.setString(2, digest);
+					}
+				});
+	}
+
+	@Override
+	public void read(String digest, final long offset, final long length, WritableByteChannel out) {
+		final OutputStream os = Channels.newOutputStream(out);
+		jdbc.query(queries.fileContent(), new MapSqlParameterSource("digest", digest), new RowCallbackHandler() {
+			@Override
+			public void processRow(ResultSet rs) throws SQLException {
+				try (InputStream is = rs.getBinaryStream("CONTENT")) {
+					copyRange(is, os, offset, length);
+				} catch (IOException e) {
+					throw new IllegalStateException("Error while copying data", e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Pass the content to the given store. Used when moving the existing content out of the database.
+	 */
+	public void copyTo(final String digest, final BlobStore target) {
+		jdbc.query(queries.fileContent(), new MapSqlParameterSource("digest", digest), new RowCallbackHandler() {
+			@Override
+			public void processRow(ResultSet rs) throws SQLException {
+				try (InputStream is = rs.getBinaryStream("CONTENT")) {
+					target.store(digest, rs.getLong("SIZE"), is);
+				} catch (IOException e) {
+					throw new IllegalStateException("Error while copying data", e);
+				}
+			}
+		});
+	}
+
+	@Override
+	public void remove(String digest) {
+		queries.removeUploadContent(digest);
+	}
+
+	private static void copyRange(InputStream in, OutputStream out, long offset, long length) throws IOException {
+		long skipped = 0;
+		while (skipped < offset) {
+			long s = in.skip(offset - skipped);
+			if (s <= 0) {
+				return;
+			}
+			skipped += s;
+		}
+		if (offset == 0 && length == Long.MAX_VALUE) {
+			StreamUtils.copy(in, out);
+			return;
+		}
+		byte[] buffer = new byte[StreamUtils.BUFFER_SIZE];
+		long remaining = length;
+		int read;
+		while (remaining > 0 && (read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+			out.write(buffer, 0, read);
+			remaining -= read;
+		}
+		out.flush();
+	}
+}
@@ -17,29 +17,311 @@
 package io.lavagna.service;
 
 import io.lavagna.model.BoardColumn.BoardColumnLocation;
+import io.lavagna.model.CardData;
+import io.lavagna.model.CardDataHistory;
 import io.lavagna.model.CardFull;
+import io.lavagna.model.CardFullWithCounts;
+import io.lavagna.model.CardLabelValue;
+import io.lavagna.model.FileDataLight;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
+
 import org.apache.commons.lang3.tuple.Triple;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
 import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+/**
+ * Send the events to the subscribed clients.
+ *
+ * The events on the cards of a column ("/event/column/{id}/card") carry a {@link ColumnDelta}: the clients patch the
+ * cards they already have instead of fetching again the whole column. Each column has its own version, incremented by
+ * each delta: a client that see a gap in the versions must fetch the column again.
+ *
+ * In the same way the events on the data of a card ("/event/card/{id}/card-data") carry a {@link CardDataDelta} with
+ * the new state of the modified parts of the card, versioned by card.
+ *
+ * The events are not sent immediately: the ones raised inside a transaction are kept until the commit (and discarded
+ * on rollback), then all of them are buffered for a short window and merged, so a bulk operation sends a single
+ * message for each topic and event type instead of one for each card.
+ */
 @Component
 public class EventEmitter {
 
+	private static final Logger LOG = LogManager.getLogger();
+
+	private static final long DEFAULT_COALESCE_WINDOW = 100;
+
 	private final SimpMessageSendingOperations messagingTemplate;
+	private final CardService cardService;
+	private final CardRepository cardRepository;
+	private final CardDataService cardDataService;
+	private final CardDataRepository cardDataRepository;
+	private final CardLabelRepository cardLabelRepository;
+	private final TaskScheduler taskScheduler;
+	private final long coalesceWindow;
+
+	private final ConcurrentMap<Integer, AtomicLong> columnVersions = new ConcurrentHashMap<>();
+	private final ConcurrentMap<Integer, AtomicLong> cardDataVersions = new ConcurrentHashMap<>();
+
+	// guarded by this
+	private EventBuffer pending = new EventBuffer();
+	private boolean flushScheduled;
+
+	/**
+	 * The flushes run one at a time: the events are sent in the order they have been buffered.
+	 */
+	private final Object flushLock = new Object();
 
 	@Autowired
-	public EventEmitter(SimpMessageSendingOperations messageSendingOperations) {
+	public EventEmitter(SimpMessageSendingOperations messageSendingOperations, CardService cardService,
+			CardRepository cardRepository, CardDataService cardDataService, CardDataRepository cardDataRepository,
+			CardLabelRepository cardLabelRepository, TaskScheduler taskScheduler, Environment env) {
+		this(messageSendingOperations, cardService, cardRepository, cardDataService, cardDataRepository,
+				cardLabelRepository, taskScheduler, env.getProperty("events.coalesce.window", Long.class,
+						DEFAULT_COALESCE_WINDOW));
+	}
+
+	EventEmitter(SimpMessageSendingOperations messageSendingOperations, CardService cardService,
+			CardRepository cardRepository, CardDataService cardDataService, CardDataRepository cardDataRepository,
+			CardLabelRepository cardLabelRepository, TaskScheduler taskScheduler, long coalesceWindow) {
 		this.messagingTemplate = messageSendingOperations;
+		this.cardService = cardService;
+		this.cardRepository = cardRepository;
+		this.cardDataService = cardDataService;
+		this.cardDataRepository = cardDataRepository;
+		this.cardLabelRepository = cardLabelRepository;
+		this.taskScheduler = taskScheduler;
+		this.coalesceWindow = coalesceWindow;
+	}
+
+	/**
+	 * The buffer of the current transaction, or the pending one if there is no transaction.
+	 */
+	private EventBuffer buffer() {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			return null;
+		}
+		EventBuffer buffer = (EventBuffer) TransactionSynchronizationManager.getResource(this);
+		if (buffer == null) {
+			final EventBuffer transactionBuffer = new EventBuffer();
+			TransactionSynchronizationManager.bindResource(this, transactionBuffer);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					enqueue(transactionBuffer);
+				}
+
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(EventEmitter.this);
+				}
+			});
+			buffer = transactionBuffer;
+		}
+		return buffer;
+	}
+
+	private void send(String destination, Event event) {
+		EventBuffer buffer = buffer();
+		if (buffer != null) {
+			buffer.add(destination, event);
+		} else {
+			EventBuffer single = new EventBuffer();
+			single.add(destination, event);
+			enqueue(single);
+		}
+	}
+
+	private void sendColumnDelta(int columnId, LavagnaEvent type, Collection<Integer> cardIds, boolean withOrder) {
+		EventBuffer buffer = buffer();
+		if (buffer != null) {
+			buffer.addColumnChange(columnId, type, cardIds, withOrder);
+		} else {
+			EventBuffer single = new EventBuffer();
+			single.addColumnChange(columnId, type, cardIds, withOrder);
+			enqueue(single);
+		}
+	}
+
+	private void sendCardData(int cardId, LavagnaEvent type, CardDataSection section) {
+		EventBuffer buffer = buffer();
+		if (buffer != null) {
+			buffer.addCardDataChange(cardId, type, EnumSet.of(section));
+		} else {
+			EventBuffer single = new EventBuffer();
+			single.addCardDataChange(cardId, type, EnumSet.of(section));
+			enqueue(single);
+		}
+	}
+
+	private synchronized void enqueue(EventBuffer buffer) {
+		pending.addAll(buffer);
+		if (!flushScheduled) {
+			flushScheduled = true;
+			taskScheduler.schedule(new Runnable() {
+				@Override
+				public void run() {
+					flush();
+				}
+			}, new Date(System.currentTimeMillis() + coalesceWindow));
+		}
+	}
+
+	/**
+	 * Send all the pending events.
+	 */
+	void flush() {
+		synchronized (flushLock) {
+			EventBuffer toSend;
+			synchronized (this) {
+				toSend = pending;
+				pending = new EventBuffer();
+				flushScheduled = false;
+			}
+			sendNow(toSend);
+		}
+	}
+
+	private void sendNow(EventBuffer toSend) {
+		for (Entry<Integer, ColumnChange> columnChange : toSend.columnChanges.entrySet()) {
+			ColumnChange change = columnChange.getValue();
+			try {
+				sendColumnDeltaNow(columnChange.getKey(), change.type, change.cardIds, change.withOrder);
+			} catch (RuntimeException e) {
+				LOG.warn("error while sending the changes of the column " + columnChange.getKey(), e);
+			}
+		}
+
+		for (Entry<Integer, CardDataChange> cardDataChange : toSend.cardDataChanges.entrySet()) {
+			CardDataChange change = cardDataChange.getValue();
+			try {
+				sendCardDataDeltaNow(cardDataChange.getKey(), change.type, change.sections);
+			} catch (RuntimeException e) {
+				LOG.warn("error while sending the changes of the data of the card " + cardDataChange.getKey(), e);
+			}
+		}
+
+		for (Entry<String, Map<LavagnaEvent, Set<Object>>> destination : toSend.events.entrySet()) {
+			for (Entry<LavagnaEvent, Set<Object>> typeAndPayloads : destination.getValue().entrySet()) {
+				Set<Object> payloads = typeAndPayloads.getValue();
+				Object payload = payloads.size() == 1 ? payloads.iterator().next() : new ArrayList<>(payloads);
+				messagingTemplate.convertAndSend(destination.getKey(), event(typeAndPayloads.getKey(), payload));
+			}
+		}
+	}
+
+	/**
+	 * The version of the last delta sent for the cards of the column: must be read <b>before</b> fetching the cards.
+	 */
+	public long columnVersion(int columnId) {
+		return currentVersion(columnVersions, columnId);
+	}
+
+	/**
+	 * The version of the last delta sent for the data of the card: must be read <b>before</b> fetching the data.
+	 */
+	public long cardDataVersion(int cardId) {
+		return currentVersion(cardDataVersions, cardId);
+	}
+
+	private static long currentVersion(ConcurrentMap<Integer, AtomicLong> versions, int id) {
+		AtomicLong version = versions.get(id);
+		return version == null ? 0 : version.get();
+	}
+
+	private static AtomicLong version(ConcurrentMap<Integer, AtomicLong> versions, int id) {
+		AtomicLong version = versions.get(id);
+		if (version == null) {
+			versions.putIfAbsent(id, new AtomicLong());
+			version = versions.get(id);
+		}
+		return version;
+	}
+
+	/**
+	 * Send the current state of the given cards, and if requested the new order of the cards of the column.
+	 */
+	private void sendColumnDeltaNow(int columnId, LavagnaEvent type, Collection<Integer> cardIds, boolean withOrder) {
+		AtomicLong version = version(columnVersions, columnId);
+		// the cards are read under the lock too: a newer state must never get an older version
+		synchronized (version) {
+			List<CardFullWithCounts> cards = new ArrayList<>();
+			boolean movedOut = false;
+			for (CardFullWithCounts card : cardService.fetchAllByIds(cardIds)) {
+				if (card.getColumnId() == columnId) {
+					cards.add(card);
+				} else {
+					movedOut = true;
+				}
+			}
+			List<Integer> order = withOrder || movedOut ? cardRepository.findCardIdsByColumnId(columnId) : null;
+			messagingTemplate.convertAndSend(column(columnId),
+					event(type, new ColumnDelta(version.incrementAndGet(), cards, order)));
+		}
+	}
+
+	/**
+	 * Send the current state of the card, of its activity and of the given parts of its data.
+	 */
+	private void sendCardDataDeltaNow(int cardId, LavagnaEvent type, Set<CardDataSection> sections) {
+		AtomicLong version = version(cardDataVersions, cardId);
+		// the data is read under the lock too: a newer state must never get an older version
+		synchronized (version) {
+			CardFull card = cardRepository.findFullBy(cardId);
+			List<io.lavagna.model.Event> activity = cardRepository.fetchAllActivityByCardId(cardId);
+			CardDataHistory description = null;
+			List<CardDataHistory> comments = null;
+			List<CardData> actionLists = null;
+			List<FileDataLight> files = null;
+			Map<Integer, List<CardLabelValue>> labelValues = null;
+			if (sections.contains(CardDataSection.DESCRIPTION)) {
+				description = cardDataService.findDescriptionHistoryByCardId(cardId);
+			}
+			if (sections.contains(CardDataSection.COMMENTS)) {
+				comments = cardDataService.findAllCommentsHistoryByCardId(cardId);
+			}
+			if (sections.contains(CardDataSection.ACTION_LISTS)) {
+				actionLists = cardDataService.findAllActionListsAndItemsByCardId(cardId);
+			}
+			if (sections.contains(CardDataSection.FILES)) {
+				files = cardDataRepository.findAllFilesByCardId(cardId);
+			}
+			if (sections.contains(CardDataSection.LABEL_VALUES)) {
+				labelValues = cardLabelRepository.findCardLabelValuesByLabelIdForCardId(cardId);
+			}
+			messagingTemplate.convertAndSend(cardData(cardId), event(type, new CardDataDelta(version.incrementAndGet(),
+					card, activity, description, comments, actionLists, files, labelValues)));
+		}
+	}
+
+	private void sendColumnDelta(int columnId, LavagnaEvent type, int cardId) {
+		sendColumnDelta(columnId, type, Collections.singletonList(cardId), false);
 	}
 
 	private static Event event(LavagnaEvent type) {
@@ -73,259 +355,255 @@ public class EventEmitter {
 	// ------------ project
 
 	public void emitCreateProject(String projectShortName) {
-		messagingTemplate.convertAndSend("/event/project", event(LavagnaEvent.CREATE_PROJECT, projectShortName));
+		send("/event/project", event(LavagnaEvent.CREATE_PROJECT, projectShortName));
 	}
 
 	public void emitUpdateProject(String projectShortName) {
-		messagingTemplate.convertAndSend("/event/project", event(LavagnaEvent.UPDATE_PROJECT, projectShortName));
+		send("/event/project", event(LavagnaEvent.UPDATE_PROJECT, projectShortName));
 	}
 
 	public void emitImportProject(String importId, int currentBoard, int boards, String boardName) {
+		// the progress of the import must be seen while the import is running
 		messagingTemplate.convertAndSend("/event/import/" + importId, importEvent(currentBoard, boards, boardName));
 	}
 
 	// ------------ board
 
 	public void emitCreateBoard(String projectShortName) {
-		messagingTemplate.convertAndSend("/event/project/" + projectShortName + "/board",
-				event(LavagnaEvent.CREATE_BOARD));
+		send("/event/project/" + projectShortName + "/board", event(LavagnaEvent.CREATE_BOARD));
 	}
 
 	public void emitUpdateBoard(String boardShortName) {
-		messagingTemplate.convertAndSend("/event/board/" + boardShortName, event(LavagnaEvent.UPDATE_BOARD));
+		send("/event/board/" + boardShortName, event(LavagnaEvent.UPDATE_BOARD));
 	}
 
 	// ------------ column
 
 	public void emitCreateColumn(String boardShortName, BoardColumnLocation location) {
-		messagingTemplate
-				.convertAndSend(columnDestination(boardShortName, location), event(LavagnaEvent.CREATE_COLUMN));
+		send(columnDestination(boardShortName, location), event(LavagnaEvent.CREATE_COLUMN));
 	}
 
 	public void emitUpdateColumn(String boardShortName, BoardColumnLocation location, int columnId) {
-		messagingTemplate
-				.convertAndSend(columnDestination(boardShortName, location), event(LavagnaEvent.UPDATE_COLUMN));
-		messagingTemplate.convertAndSend("/event/column/" + columnId, event(LavagnaEvent.UPDATE_COLUMN));
+		send(columnDestination(boardShortName, location), event(LavagnaEvent.UPDATE_COLUMN));
+		send("/event/column/" + columnId, event(LavagnaEvent.UPDATE_COLUMN));
 	}
 
 	public void emitUpdateColumnPosition(String boardShortName, BoardColumnLocation location) {
-		messagingTemplate.convertAndSend(columnDestination(boardShortName, location),
-				event(LavagnaEvent.UPDATE_COLUMN_POSITION));
+		send(columnDestination(boardShortName, location), event(LavagnaEvent.UPDATE_COLUMN_POSITION));
 	}
 
 	// ------------ card
 
 	public void emitCreateCard(String projectShortName, String boardShortName, int columnId, int cardId) {
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.CREATE_CARD));
-		messagingTemplate.convertAndSend(board(projectShortName, boardShortName),
-				event(LavagnaEvent.CREATE_CARD, cardId));
+		sendColumnDelta(columnId, LavagnaEvent.CREATE_CARD, Collections.singletonList(cardId), true);
+		send(board(projectShortName, boardShortName), event(LavagnaEvent.CREATE_CARD, cardId));
 	}
 
 	public void emitUpdateCard(String projectShortName, String boardShortName, int columnId, int cardId) {
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.UPDATE_CARD));
-		messagingTemplate.convertAndSend(board(projectShortName, boardShortName),
-				event(LavagnaEvent.UPDATE_CARD, cardId));
+		sendColumnDelta(columnId, LavagnaEvent.UPDATE_CARD, cardId);
+		send(board(projectShortName, boardShortName), event(LavagnaEvent.UPDATE_CARD, cardId));
 	}
 
 	public void emitUpdateCardPosition(int columnId) {
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.UPDATE_CARD_POSITION));
+		emitUpdateCardPosition(columnId, Collections.<Integer> emptyList());
+	}
+
+	/**
+	 * The cards of the column have been reordered, and the given cards have been moved in.
+	 */
+	public void emitUpdateCardPosition(int columnId, Collection<Integer> movedIn) {
+		sendColumnDelta(columnId, LavagnaEvent.UPDATE_CARD_POSITION, movedIn, true);
 	}
 
 	public void emitMoveCardOutsideOfBoard(String boardShortName, BoardColumnLocation location) {
-		messagingTemplate.convertAndSend("/event/board/" + boardShortName + "/location/" + location + "/card",
+		send("/event/board/" + boardShortName + "/location/" + location + "/card",
 				event(LavagnaEvent.UPDATE_CARD_POSITION));
 	}
 
 	public void emitMoveCardFromOutsideOfBoard(String boardShortName, BoardColumnLocation location) {
-		messagingTemplate.convertAndSend("/event/board/" + boardShortName + "/location/" + location + "/card",
+		send("/event/board/" + boardShortName + "/location/" + location + "/card",
 				event(LavagnaEvent.UPDATE_CARD_POSITION));
 	}
 
 	public void emitCardHasMoved(String projectShortName, String boardShortName, Collection<Integer> affected) {
 		for (Integer a : affected) {
-			messagingTemplate.convertAndSend(board(projectShortName, boardShortName),
-					event(LavagnaEvent.UPDATE_CARD_POSITION, a));
+			send(board(projectShortName, boardShortName), event(LavagnaEvent.UPDATE_CARD_POSITION, a));
 		}
 	}
 
 	public void emitCreateRole() {
-		messagingTemplate.convertAndSend("/event/permission", event(LavagnaEvent.CREATE_ROLE));
+		send("/event/permission", event(LavagnaEvent.CREATE_ROLE));
 	}
 
 	// ------------ permission
 
 	public void emitCreateRole(String projectShortName) {
-		messagingTemplate.convertAndSend("/event/permission/project/" + projectShortName,
-				event(LavagnaEvent.CREATE_ROLE));
+		send("/event/permission/project/" + projectShortName, event(LavagnaEvent.CREATE_ROLE));
 	}
 
 	public void emitDeleteRole() {
-		messagingTemplate.convertAndSend("/event/permission", event(LavagnaEvent.DELETE_ROLE));
+		send("/event/permission", event(LavagnaEvent.DELETE_ROLE));
 	}
 
 	public void emitDeleteRole(String projectShortName) {
-		messagingTemplate.convertAndSend("/event/permission/project/" + projectShortName,
-				event(LavagnaEvent.DELETE_ROLE));
+		send("/event/permission/project/" + projectShortName, event(LavagnaEvent.DELETE_ROLE));
 	}
 
 	public void emitUpdatePermissionsToRole() {
-		messagingTemplate.convertAndSend("/event/permission", event(LavagnaEvent.UPDATE_PERMISSION_TO_ROLE));
+		send("/event/permission", event(LavagnaEvent.UPDATE_PERMISSION_TO_ROLE));
 	}
 
 	public void emitUpdatePermissionsToRole(String projectShortName) {
-		messagingTemplate.convertAndSend("/event/permission/project/" + projectShortName,
-				event(LavagnaEvent.UPDATE_PERMISSION_TO_ROLE));
+		send("/event/permission/project/" + projectShortName, event(LavagnaEvent.UPDATE_PERMISSION_TO_ROLE));
 	}
 
 	public void emitAssignRoleToUsers(String role) {
-		messagingTemplate.convertAndSend("/event/permission", event(LavagnaEvent.ASSIGN_ROLE_TO_USERS, role));
+		send("/event/permission", event(LavagnaEvent.ASSIGN_ROLE_TO_USERS, role));
 	}
 
 	public void emitAssignRoleToUsers(String role, String projectShortName) {
-		messagingTemplate.convertAndSend("/event/permission/project/" + projectShortName,
-				event(LavagnaEvent.ASSIGN_ROLE_TO_USERS, role));
+		send("/event/permission/project/" + projectShortName, event(LavagnaEvent.ASSIGN_ROLE_TO_USERS, role));
 	}
 
 	public void emitRemoveRoleToUsers(String role) {
-		messagingTemplate.convertAndSend("/event/permission", event(LavagnaEvent.REMOVE_ROLE_TO_USERS, role));
+		send("/event/permission", event(LavagnaEvent.REMOVE_ROLE_TO_USERS, role));
 	}
 
 	public void emitRemoveRoleToUsers(String role, String projectShortName) {
-		messagingTemplate.convertAndSend("/event/permission/project/" + projectShortName,
-				event(LavagnaEvent.REMOVE_ROLE_TO_USERS, role));
+		send("/event/permission/project/" + projectShortName, event(LavagnaEvent.REMOVE_ROLE_TO_USERS, role));
 	}
 
 	// ------------ card description
 	public void emitUpdateDescription(int columnId, int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.UPDATE_DESCRIPTION));
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.UPDATE_DESCRIPTION));
+		sendCardData(cardId, LavagnaEvent.UPDATE_DESCRIPTION, CardDataSection.DESCRIPTION);
+		sendColumnDelta(columnId, LavagnaEvent.UPDATE_DESCRIPTION, cardId);
 	}
 
 	// ------------ comment
 	public void emitCreateComment(int columnId, int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.CREATE_COMMENT));
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.CREATE_COMMENT));
+		sendCardData(cardId, LavagnaEvent.CREATE_COMMENT, CardDataSection.COMMENTS);
+		sendColumnDelta(columnId, LavagnaEvent.CREATE_COMMENT, cardId);
 	}
 
 	public void emitUpdateComment(int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.UPDATE_COMMENT));
+		sendCardData(cardId, LavagnaEvent.UPDATE_COMMENT, CardDataSection.COMMENTS);
 	}
 
 	public void emitDeleteComment(int columnId, int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.DELETE_COMMENT));
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.DELETE_COMMENT));
+		sendCardData(cardId, LavagnaEvent.DELETE_COMMENT, CardDataSection.COMMENTS);
+		sendColumnDelta(columnId, LavagnaEvent.DELETE_COMMENT, cardId);
 	}
 
 	public void emitUndoDeleteComment(int columnId, int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.UNDO_DELETE_COMMENT));
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.UNDO_DELETE_COMMENT));
+		sendCardData(cardId, LavagnaEvent.UNDO_DELETE_COMMENT, CardDataSection.COMMENTS);
+		sendColumnDelta(columnId, LavagnaEvent.UNDO_DELETE_COMMENT, cardId);
 	}
 
 	// ------------ action list handling
 
 	public void emitCreateActionList(int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.CREATE_ACTION_LIST));
+		sendCardData(cardId, LavagnaEvent.CREATE_ACTION_LIST, CardDataSection.ACTION_LISTS);
 	}
 
 	public void emitDeleteActionList(int columnId, int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.DELETE_ACTION_LIST));
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.DELETE_ACTION_LIST));
+		sendCardData(cardId, LavagnaEvent.DELETE_ACTION_LIST, CardDataSection.ACTION_LISTS);
+		sendColumnDelta(columnId, LavagnaEvent.DELETE_ACTION_LIST, cardId);
 	}
 
 	public void emitUpdateActionList(int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.UPDATE_ACTION_LIST));
+		sendCardData(cardId, LavagnaEvent.UPDATE_ACTION_LIST, CardDataSection.ACTION_LISTS);
 	}
 
 	public void emitReorderActionLists(int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.REORDER_ACTION_LIST));
+		sendCardData(cardId, LavagnaEvent.REORDER_ACTION_LIST, CardDataSection.ACTION_LISTS);
 	}
 
 	public void emitCreateActionItem(int columnId, int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.CREATE_ACTION_ITEM));
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.REORDER_ACTION_LIST));
+		sendCardData(cardId, LavagnaEvent.CREATE_ACTION_ITEM, CardDataSection.ACTION_LISTS);
+		sendColumnDelta(columnId, LavagnaEvent.REORDER_ACTION_LIST, cardId);
 	}
 
 	public void emitDeleteActionItem(int columnId, int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.DELETE_ACTION_ITEM));
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.DELETE_ACTION_ITEM));
+		sendCardData(cardId, LavagnaEvent.DELETE_ACTION_ITEM, CardDataSection.ACTION_LISTS);
+		sendColumnDelta(columnId, LavagnaEvent.DELETE_ACTION_ITEM, cardId);
 	}
 
 	public void emitToggleActionItem(int columnId, int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.TOGGLE_ACTION_ITEM));
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.TOGGLE_ACTION_ITEM));
+		sendCardData(cardId, LavagnaEvent.TOGGLE_ACTION_ITEM, CardDataSection.ACTION_LISTS);
+		sendColumnDelta(columnId, LavagnaEvent.TOGGLE_ACTION_ITEM, cardId);
 	}
 
 	public void emitUpdateUpdateActionItem(int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.UPDATE_ACTION_ITEM));
+		sendCardData(cardId, LavagnaEvent.UPDATE_ACTION_ITEM, CardDataSection.ACTION_LISTS);
 	}
 
 	public void emitMoveActionItem(int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.MOVE_ACTION_ITEM));
+		sendCardData(cardId, LavagnaEvent.MOVE_ACTION_ITEM, CardDataSection.ACTION_LISTS);
 	}
 
 	public void emitReorderActionItems(int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.REORDER_ACTION_ITEM));
+		sendCardData(cardId, LavagnaEvent.REORDER_ACTION_ITEM, CardDataSection.ACTION_LISTS);
 	}
 
 	public void emiteUndoDeleteActionItem(int columnId, int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.UNDO_DELETE_ACTION_ITEM));
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.UNDO_DELETE_ACTION_ITEM));
+		sendCardData(cardId, LavagnaEvent.UNDO_DELETE_ACTION_ITEM, CardDataSection.ACTION_LISTS);
+		sendColumnDelta(columnId, LavagnaEvent.UNDO_DELETE_ACTION_ITEM, cardId);
 	}
 
 	public void emitUndoDeleteActionList(int columnId, int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.UNDO_DELETE_ACTION_LIST));
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.UNDO_DELETE_ACTION_LIST));
+		sendCardData(cardId, LavagnaEvent.UNDO_DELETE_ACTION_LIST, CardDataSection.ACTION_LISTS);
+		sendColumnDelta(columnId, LavagnaEvent.UNDO_DELETE_ACTION_LIST, cardId);
 
 	}
 
 	// ------------
 	public void emitUploadFile(int columnId, int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.CREATE_FILE));
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.CREATE_FILE));
+		sendCardData(cardId, LavagnaEvent.CREATE_FILE, CardDataSection.FILES);
+		sendColumnDelta(columnId, LavagnaEvent.CREATE_FILE, cardId);
 	}
 
 	public void emitDeleteFile(int columnId, int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.DELETE_FILE));
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.DELETE_FILE));
+		sendCardData(cardId, LavagnaEvent.DELETE_FILE, CardDataSection.FILES);
+		sendColumnDelta(columnId, LavagnaEvent.DELETE_FILE, cardId);
 	}
 
 	public void emiteUndoDeleteFile(int columnId, int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.UNDO_DELETE_FILE));
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.UNDO_DELETE_FILE));
+		sendCardData(cardId, LavagnaEvent.UNDO_DELETE_FILE, CardDataSection.FILES);
+		sendColumnDelta(columnId, LavagnaEvent.UNDO_DELETE_FILE, cardId);
 	}
 
 	// ------------
 	public void emitAddLabelValueToCard(String projectShortName, int columnId, int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.ADD_LABEL_VALUE_TO_CARD));
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.ADD_LABEL_VALUE_TO_CARD));
-		messagingTemplate.convertAndSend("/event/project/" + projectShortName + "/label-value",
-				event(LavagnaEvent.ADD_LABEL_VALUE_TO_CARD));
+		sendCardData(cardId, LavagnaEvent.ADD_LABEL_VALUE_TO_CARD, CardDataSection.LABEL_VALUES);
+		sendColumnDelta(columnId, LavagnaEvent.ADD_LABEL_VALUE_TO_CARD, cardId);
+		send("/event/project/" + projectShortName + "/label-value", event(LavagnaEvent.ADD_LABEL_VALUE_TO_CARD));
 	}
 
 	public void emitUpdateLabelValue(String projectShortName, int columnId, int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.UPDATE_LABEL_VALUE));
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.UPDATE_LABEL_VALUE));
-		messagingTemplate.convertAndSend("/event/project/" + projectShortName + "/label-value",
-				event(LavagnaEvent.UPDATE_LABEL_VALUE));
+		sendCardData(cardId, LavagnaEvent.UPDATE_LABEL_VALUE, CardDataSection.LABEL_VALUES);
+		sendColumnDelta(columnId, LavagnaEvent.UPDATE_LABEL_VALUE, cardId);
+		send("/event/project/" + projectShortName + "/label-value", event(LavagnaEvent.UPDATE_LABEL_VALUE));
 	}
 
 	public void emitRemoveLabelValue(String projectShortName, int columnId, int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.REMOVE_LABEL_VALUE));
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.REMOVE_LABEL_VALUE));
-		messagingTemplate.convertAndSend("/event/project/" + projectShortName + "/label-value",
-				event(LavagnaEvent.REMOVE_LABEL_VALUE));
+		sendCardData(cardId, LavagnaEvent.REMOVE_LABEL_VALUE, CardDataSection.LABEL_VALUES);
+		sendColumnDelta(columnId, LavagnaEvent.REMOVE_LABEL_VALUE, cardId);
+		send("/event/project/" + projectShortName + "/label-value", event(LavagnaEvent.REMOVE_LABEL_VALUE));
 	}
 
-	private static Triple<Set<Integer>, Set<Integer>, Set<String>> extractFrom(List<CardFull> l) {
+	private static Triple<Set<Integer>, Map<Integer, Set<Integer>>, Set<String>> extractFrom(List<CardFull> l) {
 		Set<Integer> cardIds = new HashSet<>();
-		Set<Integer> columnIds = new HashSet<>();
+		Map<Integer, Set<Integer>> cardIdsByColumnId = new HashMap<>();
 		Set<String> projectShortNames = new HashSet<>();
 		for (CardFull cf : l) {
 			cardIds.add(cf.getId());
-			columnIds.add(cf.getColumnId());
+			if (!cardIdsByColumnId.containsKey(cf.getColumnId())) {
+				cardIdsByColumnId.put(cf.getColumnId(), new HashSet<Integer>());
+			}
+			cardIdsByColumnId.get(cf.getColumnId()).add(cf.getId());
 			projectShortNames.add(cf.getProjectShortName());
 		}
-		return Triple.of(cardIds, columnIds, projectShortNames);
+		return Triple.of(cardIds, cardIdsByColumnId, projectShortNames);
 	}
 
 	public void emitRemoveLabelValueToCards(List<CardFull> affectedCards) {
@@ -333,15 +611,15 @@ public class EventEmitter {
 	}
 
 	private void sendEventForLabel(List<CardFull> affectedCards, LavagnaEvent ev) {
-		Triple<Set<Integer>, Set<Integer>, Set<String>> a = extractFrom(affectedCards);
+		Triple<Set<Integer>, Map<Integer, Set<Integer>>, Set<String>> a = extractFrom(affectedCards);
 		for (int cardId : a.getLeft()) {
-			messagingTemplate.convertAndSend(cardData(cardId), event(ev));
+			sendCardData(cardId, ev, CardDataSection.LABEL_VALUES);
 		}
-		for (int columnId : a.getMiddle()) {
-			messagingTemplate.convertAndSend(column(columnId), event(ev));
+		for (Entry<Integer, Set<Integer>> columnAndCards : a.getMiddle().entrySet()) {
+			sendColumnDelta(columnAndCards.getKey(), ev, columnAndCards.getValue(), false);
 		}
 		for (String projectShortName : a.getRight()) {
-			messagingTemplate.convertAndSend("/event/project/" + projectShortName + "/label-value", event(ev));
+			send("/event/project/" + projectShortName + "/label-value", event(ev));
 		}
 	}
 
@@ -355,23 +633,20 @@ public class EventEmitter {
 	}
 
 	public void emitAddLabel(String projectShortName) {
-		messagingTemplate
-				.convertAndSend("/event/project/" + projectShortName + "/label", event(LavagnaEvent.ADD_LABEL));
+		send("/event/project/" + projectShortName + "/label", event(LavagnaEvent.ADD_LABEL));
 	}
 
 	public void emitUpdateLabel(String projectShortName, int labelId) {
-		messagingTemplate.convertAndSend("/event/project/" + projectShortName + "/label",
-				event(LavagnaEvent.UPDATE_LABEL, labelId));
+		send("/event/project/" + projectShortName + "/label", event(LavagnaEvent.UPDATE_LABEL, labelId));
 	}
 
 	public void emitDeleteLabel(String projectShortName, int labelId) {
-		messagingTemplate.convertAndSend("/event/project/" + projectShortName + "/label",
-				event(LavagnaEvent.DELETE_LABEL, labelId));
+		send("/event/project/" + projectShortName + "/label", event(LavagnaEvent.DELETE_LABEL, labelId));
 	}
 
 	// user profile update
 	public void emitUpdateUserProfile(int userId) {
-		messagingTemplate.convertAndSend("/event/user", event(LavagnaEvent.UPDATE_USER, userId));
+		send("/event/user", event(LavagnaEvent.UPDATE_USER, userId));
 	}
 
 	private enum LavagnaEvent {
@@ -399,6 +674,13 @@ public class EventEmitter {
 		UPDATE_USER;
 	}
 
+	/**
+	 * The parts of the data of a card sent by a {@link CardDataDelta}.
+	 */
+	private enum CardDataSection {
+		DESCRIPTION, COMMENTS, ACTION_LISTS, FILES, LABEL_VALUES;
+	}
+
 	// ------------
 
 	@Getter
@@ -408,6 +690,114 @@ public class EventEmitter {
 		private final Object payload;
 	}
 
+	/**
+	 * The events waiting to be sent: the events with the same destination and type are merged, their payloads are
+	 * sent together.
+	 */
+	private static class EventBuffer {
+		private final Map<String, Map<LavagnaEvent, Set<Object>>> events = new LinkedHashMap<>();
+		private final Map<Integer, ColumnChange> columnChanges = new LinkedHashMap<>();
+		private final Map<Integer, CardDataChange> cardDataChanges = new LinkedHashMap<>();
+
+		void add(String destination, Event event) {
+			if (!events.containsKey(destination)) {
+				events.put(destination, new LinkedHashMap<LavagnaEvent, Set<Object>>());
+			}
+			Map<LavagnaEvent, Set<Object>> byType = events.get(destination);
+			if (!byType.containsKey(event.type)) {
+				byType.put(event.type, new LinkedHashSet<>());
+			}
+			byType.get(event.type).add(event.payload);
+		}
+
+		void addColumnChange(int columnId, LavagnaEvent type, Collection<Integer> cardIds, boolean withOrder) {
+			if (!columnChanges.containsKey(columnId)) {
+				columnChanges.put(columnId, new ColumnChange());
+			}
+			ColumnChange change = columnChanges.get(columnId);
+			change.type = type;
+			change.cardIds.addAll(cardIds);
+			change.withOrder |= withOrder;
+		}
+
+		void addCardDataChange(int cardId, LavagnaEvent type, Set<CardDataSection> sections) {
+			if (!cardDataChanges.containsKey(cardId)) {
+				cardDataChanges.put(cardId, new CardDataChange());
+			}
+			CardDataChange change = cardDataChanges.get(cardId);
+			change.type = type;
+			change.sections.addAll(sections);
+		}
+
+		void addAll(EventBuffer other) {
+			for (Entry<String, Map<LavagnaEvent, Set<Object>>> destination : other.events.entrySet()) {
+				for (Entry<LavagnaEvent, Set<Object>> typeAndPayloads : destination.getValue().entrySet()) {
+					for (Object payload : typeAndPayloads.getValue()) {
+						add(destination.getKey(), event(typeAndPayloads.getKey(), payload));
+					}
+				}
+			}
+			for (Entry<Integer, ColumnChange> change : other.columnChanges.entrySet()) {
+				addColumnChange(change.getKey(), change.getValue().type, change.getValue().cardIds,
+						change.getValue().withOrder);
+			}
+			for (Entry<Integer, CardDataChange> change : other.cardDataChanges.entrySet()) {
+				addCardDataChange(change.getKey(), change.getValue().type, change.getValue().sections);
+			}
+		}
+	}
+
+	private static class ColumnChange {
+		private LavagnaEvent type;
+		private final Set<Integer> cardIds = new LinkedHashSet<>();
+		private boolean withOrder;
+	}
+
+	private static class CardDataChange {
+		private LavagnaEvent type;
+		private final Set<CardDataSection> sections = EnumSet.noneOf(CardDataSection.class);
+	}
+
+	/**
+	 * The changes of the cards of a column.
+	 */
+	@Getter
+	@AllArgsConstructor(access = AccessLevel.PRIVATE)
+	public static class ColumnDelta {
+		private final long version;
+		/**
+		 * The new state of the created or modified cards.
+		 */
+		private final List<CardFullWithCounts> cards;
+		/**
+		 * The ids of all the cards of the column in their order, the missing ones have been removed. Null if the
+		 * cards have not been added, removed or reordered.
+		 */
+		private final List<Integer> order;
+	}
+
+	/**
+	 * The changes of the data of a card: the parts that have not been modified are null.
+	 */
+	@Getter
+	@AllArgsConstructor(access = AccessLevel.PRIVATE)
+	public static class CardDataDelta {
+		private final long version;
+		private final CardFull card;
+		private final List<io.lavagna.model.Event> activity;
+		private final CardDataHistory description;
+		private final List<CardDataHistory> comments;
+		/**
+		 * The action lists and their items.
+		 */
+		private final List<CardData> actionLists;
+		private final List<FileDataLight> files;
+		/**
+		 * The values of the labels of the card, by label id.
+		 */
+		private final Map<Integer, List<CardLabelValue>> labelValues;
+	}
+
 	@Getter
 	@AllArgsConstructor(access = AccessLevel.PRIVATE)
 	public static class ImportEvent {
@@ -0,0 +1,145 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.model.EventFanoutMessage;
+import io.lavagna.query.EventFanoutQuery;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptorAdapter;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeType;
+
+/**
+ * Fanout of the events through the database, for running multiple nodes without an external broker
+ * ("events.broker=database").
+ *
+ * Intercepts the messages sent to the local broker and writes them in LA_EVENT_FANOUT; the messages written by the
+ * other nodes are read back and sent to the local broker. The nodes must have their clocks synchronized: a message is
+ * read only during {@link #WINDOW} milliseconds from its creation.
+ */
+@Service
+public class EventFanoutService extends ChannelInterceptorAdapter {
+
+	/**
+	 * Header of the messages received from the other nodes: they must not be written again.
+	 */
+	static final String FORWARDED_HEADER = "lavagnaForwarded";
+
+	static final long WINDOW = 30 * 1000;
+
+	private static final long RETENTION = 5 * 60 * 1000;
+
+	private final EventFanoutQuery queries;
+	private final boolean enabled;
+	private final String node = UUID.randomUUID().toString();
+	private final Queue<EventFanoutMessage> outgoing = new ConcurrentLinkedQueue<>();
+
+	// guarded by this
+	private Set<Integer> received;
+	private long lastCleanup;
+
+	@Autowired
+	public EventFanoutService(EventFanoutQuery queries, Environment env) {
+		this(queries, "database".equals(env.getProperty("events.broker")));
+	}
+
+	EventFanoutService(EventFanoutQuery queries, boolean enabled) {
+		this.queries = queries;
+		this.enabled = enabled;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Override
+	public Message<?> preSend(Message<?> message, MessageChannel channel) {
+		if (!enabled || !(message.getPayload() instanceof byte[])) {
+			return message;
+		}
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+		String destination = accessor.getDestination();
+		if (accessor.getMessageType() == SimpMessageType.MESSAGE && accessor.getHeader(FORWARDED_HEADER) == null
+				&& destination != null && destination.startsWith("/event/")) {
+			MimeType contentType = accessor.getContentType();
+			outgoing.add(new EventFanoutMessage(0, node, destination, contentType == null ? null : contentType
+					.toString(), new String((byte[]) message.getPayload(), StandardCharsets.UTF_8), new Date()));
+		}
+		return message;
+	}
+
+	/**
+	 * Write the messages sent by this node, and send to the local broker the new ones written by the other nodes.
+	 *
+	 * @param localBroker
+	 * @return the number of messages received from the other nodes
+	 */
+	public synchronized int exchange(MessageChannel localBroker) {
+		for (EventFanoutMessage m = outgoing.poll(); m != null; m = outgoing.poll()) {
+			queries.insert(m.getNode(), m.getDestination(), m.getContentType(), m.getPayload(), m.getTime());
+		}
+
+		long now = System.currentTimeMillis();
+
+		// the ids are not assigned in commit order: the whole window is read again each time
+		List<EventFanoutMessage> messages = queries.findFromOtherNodesSince(node, new Date(now - WINDOW));
+		Set<Integer> ids = new HashSet<>();
+		int count = 0;
+		for (EventFanoutMessage m : messages) {
+			ids.add(m.getId());
+			// at the first exchange the messages already there are ignored
+			if (received != null && !received.contains(m.getId())) {
+				localBroker.send(toLocalMessage(m));
+				count++;
+			}
+		}
+		received = ids;
+
+		if (now - lastCleanup > RETENTION) {
+			queries.deleteOlderThan(new Date(now - RETENTION));
+			lastCleanup = now;
+		}
+		return count;
+	}
+
+	private static Message<byte[]> toLocalMessage(EventFanoutMessage m) {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+		accessor.setDestination(m.getDestination());
+		if (m.getContentType() != null) {
+			accessor.setContentType(MimeType.valueOf(m.getContentType()));
+		}
+		accessor.setHeader(FORWARDED_HEADER, Boolean.TRUE);
+		return MessageBuilder.createMessage(m.getPayload().getBytes(StandardCharsets.UTF_8),
+				accessor.getMessageHeaders());
+	}
+}
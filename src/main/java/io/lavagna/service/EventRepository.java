@@ -16,8 +16,11 @@
  */
 package io.lavagna.service;
 
+import io.lavagna.common.RowCallback;
 import io.lavagna.model.CardLabel.LabelType;
 import io.lavagna.model.CardLabelValue.LabelValue;
+import io.lavagna.model.ContinuationPage;
+import io.lavagna.model.ContinuationToken;
 import io.lavagna.model.Event;
 import io.lavagna.model.Event.EventType;
 import io.lavagna.model.EventsCount;
@@ -61,10 +64,37 @@ public class EventRepository {
 		return queries.find(offset, amount);
 	}
 
+	/**
+	 * Pass all the events, ordered by id, to the callback without loading them in memory.
+	 *
+	 * @param callback
+	 */
+	public void findAll(RowCallback<Event> callback) {
+		queries.findAll(callback);
+	}
+
 	public List<Event> findNextEventFor(Event e) {
 		return queries.findNextEventFor(e.getDataId(), e.getId(), e.getEvent().toString());
 	}
 
+	/**
+	 * Return the events of the given types related to the card data, ordered by id.
+	 *
+	 * @param cardDataIds
+	 * @param types
+	 * @return
+	 */
+	public List<Event> findByCardDataIdsAndTypes(Collection<Integer> cardDataIds, Set<EventType> types) {
+		if (cardDataIds.isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<String> t = new ArrayList<>(types.size());
+		for (EventType type : types) {
+			t.add(type.toString());
+		}
+		return queries.findByCardDataIdsAndTypes(cardDataIds, t);
+	}
+
 	public Event getEventById(int eventId) {
 		return queries.getById(eventId);
 	}
@@ -156,6 +186,23 @@ public class EventRepository {
 		return queries.getUserFeedByPage(userId, FEED_SIZE + 1, page * FEED_SIZE);
 	}
 
+	/**
+	 * Keyset based variant of {@link #getUserFeedByPage(int, int)}.
+	 *
+	 * @param after
+	 *            null for the first page
+	 */
+	public ContinuationPage<Event> getUserFeed(int userId, ContinuationToken after) {
+		List<Event> events = after == null ? queries.getUserFeedByPage(userId, FEED_SIZE + 1, 0) : queries
+				.getUserFeedAfter(userId, after.getTime(), after.getId(), FEED_SIZE + 1);
+		if (events.size() <= FEED_SIZE) {
+			return new ContinuationPage<>(events, null, null);
+		}
+		List<Event> page = events.subList(0, FEED_SIZE);
+		Event last = page.get(FEED_SIZE - 1);
+		return new ContinuationPage<>(page, new ContinuationToken(last.getTime(), last.getId()), null);
+	}
+
 	// profile
 
 	public List<Event> getLatestActivityByPage(int userId, int page) {
@@ -26,7 +26,6 @@ import io.lavagna.model.User;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -37,14 +36,21 @@ import java.util.TreeMap;
 class EventsContext {
 	// aggregate the events by card id
 	final Map<Integer, List<Event>> events = new TreeMap<>();
-	final Map<Integer, User> users = new HashMap<>();
-	final Map<Integer, CardFull> cards = new HashMap<>();
+	final Map<Integer, User> users;
+	final Map<Integer, CardFull> cards;
 	final Map<Integer, String> cardData;
-	final Map<Integer, BoardColumn> columns = new HashMap<>();
+	final Map<Integer, BoardColumn> columns;
 
-	EventsContext(List<Event> events, List<User> users, List<CardFull> cards, Map<Integer, String> cardData,
-			List<BoardColumn> columns) {
+	/**
+	 * The users, cards, card data and columns maps can be shared between contexts: they can contain more elements than
+	 * the ones related to the events.
+	 */
+	EventsContext(List<Event> events, Map<Integer, User> users, Map<Integer, CardFull> cards,
+			Map<Integer, String> cardData, Map<Integer, BoardColumn> columns) {
+		this.users = users;
+		this.cards = cards;
 		this.cardData = cardData;
+		this.columns = columns;
 
 		for (Event e : events) {
 			if (!this.events.containsKey(e.getCardId())) {
@@ -52,15 +58,6 @@ class EventsContext {
 			}
 			this.events.get(e.getCardId()).add(e);
 		}
-		for (User u : users) {
-			this.users.put(u.getId(), u);
-		}
-		for (CardFull c : cards) {
-			this.cards.put(c.getId(), c);
-		}
-		for (BoardColumn bc : columns) {
-			this.columns.put(bc.getId(), bc);
-		}
 	}
 
 	String formatLabel(Event e) {
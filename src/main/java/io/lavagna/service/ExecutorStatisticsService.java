@@ -0,0 +1,77 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.model.ExecutorStatistics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+
+/**
+ * Statistics of the thread pools: the schedulers and the pools of the websocket channels (by bean name), and the pool
+ * sending the emails.
+ */
+@Service
+public class ExecutorStatisticsService {
+
+	private final ListableBeanFactory beanFactory;
+	private final AsyncMailSender asyncMailSender;
+
+	@Autowired
+	public ExecutorStatisticsService(ListableBeanFactory beanFactory, AsyncMailSender asyncMailSender) {
+		this.beanFactory = beanFactory;
+		this.asyncMailSender = asyncMailSender;
+	}
+
+	public List<ExecutorStatistics> findAll() {
+		List<ExecutorStatistics> res = new ArrayList<>();
+		for (Entry<String, ThreadPoolTaskScheduler> scheduler : beanFactory.getBeansOfType(
+				ThreadPoolTaskScheduler.class).entrySet()) {
+			res.add(statisticsOf(scheduler.getKey(), scheduler.getValue().getScheduledThreadPoolExecutor()));
+		}
+		for (Entry<String, ThreadPoolTaskExecutor> executor : beanFactory.getBeansOfType(
+				ThreadPoolTaskExecutor.class).entrySet()) {
+			res.add(statisticsOf(executor.getKey(), executor.getValue().getThreadPoolExecutor()));
+		}
+		res.add(statisticsOf("asyncMailSender", asyncMailSender.getExecutor()));
+
+		Collections.sort(res, new Comparator<ExecutorStatistics>() {
+			@Override
+			public int compare(ExecutorStatistics o1, ExecutorStatistics o2) {
+				return o1.getName().compareTo(o2.getName());
+			}
+		});
+		return res;
+	}
+
+	static ExecutorStatistics statisticsOf(String name, ThreadPoolExecutor executor) {
+		return new ExecutorStatistics(name, executor.getPoolSize(), executor.getCorePoolSize(),
+				executor.getMaximumPoolSize(),
+				executor.getActiveCount(), executor.getQueue().size(), executor.getQueue().remainingCapacity(),
+				executor.getCompletedTaskCount());
+	}
+}
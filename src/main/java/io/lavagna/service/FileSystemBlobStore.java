@@ -0,0 +1,93 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Keep the content in a local directory, one file for each digest. The files are spread in two levels of sub
+ * directories named after the first characters of the digest (e.g. <code>ab/cd/abcd...</code>).
+ *
+ * A file is first written in a temporary file in the same directory and then atomically moved to its final name, so a
+ * partially written content is never visible. The downloads are served with {@link FileChannel#transferTo}.
+ */
+public class FileSystemBlobStore implements BlobStore {
+
+	private static final Logger LOG = LogManager.getLogger();
+
+	private final Path root;
+
+	public FileSystemBlobStore(Path root) throws IOException {
+		this.root = Files.createDirectories(root);
+		LOG.info("Storing the uploaded files in {}", root.toAbsolutePath());
+	}
+
+	Path pathOf(String digest) {
+		Validate.isTrue(digest.matches("[0-9a-f]{64}"), "invalid digest %s", digest);
+		return root.resolve(digest.substring(0, 2)).resolve(digest.substring(2, 4)).resolve(digest);
+	}
+
+	@Override
+	public boolean contains(String digest) {
+		return Files.exists(pathOf(digest));
+	}
+
+	@Override
+	public void store(String digest, long size, InputStream content) throws IOException {
+		Path target = pathOf(digest);
+		if (Files.exists(target)) {
+			return;
+		}
+		Path dir = Files.createDirectories(target.getParent());
+		Path tmp = Files.createTempFile(dir, digest, ".tmp");
+		try {
+			long copied = Files.copy(content, tmp, StandardCopyOption.REPLACE_EXISTING);
+			if (copied != size) {
+				throw new IOException("Expected " + size + " bytes for " + digest + ", got " + copied);
+			}
+			Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	@Override
+	public void read(String digest, long offset, long length, WritableByteChannel out) throws IOException {
+		try (FileChannel fc = FileChannel.open(pathOf(digest), StandardOpenOption.READ)) {
+			long end = Math.min(fc.size(), offset + Math.min(length, Long.MAX_VALUE - offset));
+			for (long position = offset; position < end;) {
+				position += fc.transferTo(position, end - position, out);
+			}
+		}
+	}
+
+	@Override
+	public void remove(String digest) throws IOException {
+		Files.deleteIfExists(pathOf(digest));
+	}
+}
@@ -0,0 +1,189 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.model.User;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Store the files uploaded on a card.
+ *
+ * The SHA-256 digest of each file is computed while reading it once: the content is then written in the
+ * {@link BlobStore} only when it's not already present. The files of the same upload are hashed and stored in parallel,
+ * then attached to the card in order.
+ */
+@Service
+public class FileUploadService implements DisposableBean {
+
+	private static final Logger LOG = LogManager.getLogger();
+
+	private final CardDataRepository cardDataRepository;
+	private final CardDataService cardDataService;
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * A file to upload. {@link #getInputStream()} may be called more than once.
+	 */
+	public interface Upload {
+		String getName();
+
+		String getContentType();
+
+		InputStream getInputStream() throws IOException;
+	}
+
+	@Autowired
+	public FileUploadService(CardDataRepository cardDataRepository, CardDataService cardDataService) {
+		this.cardDataRepository = cardDataRepository;
+		this.cardDataService = cardDataService;
+
+		int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("lavagna-upload-");
+		threadFactory.setDaemon(true);
+		this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(threads * 4), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * @return the digests of the files that have been attached to the card, in the order of the uploads
+	 */
+	public List<String> uploadFiles(int cardId, List<? extends Upload> uploads, User user, Date time)
+			throws IOException {
+
+		// the content is stored in its own transaction: inside a caller's transaction it must be done by the calling
+		// thread to stay in it.
+		boolean parallel = uploads.size() > 1 && !TransactionSynchronizationManager.isActualTransactionActive();
+
+		List<Future<StoredContent>> stored = new ArrayList<>(uploads.size());
+		for (Upload upload : uploads) {
+			StoreContent task = new StoreContent(upload);
+			if (parallel) {
+				stored.add(executor.submit(task));
+			} else {
+				FutureTask<StoredContent> f = new FutureTask<>(task);
+				f.run();
+				stored.add(f);
+			}
+		}
+
+		List<String> digests = new ArrayList<>(uploads.size());
+		for (int i = 0; i < uploads.size(); i++) {
+			Upload upload = uploads.get(i);
+			StoredContent content = get(stored.get(i));
+			if (cardDataService.attachFile(upload.getName(), content.digest, cardId, user, time).getLeft()) {
+				LOG.debug("file uploaded! size: {}, original name: {}, content-type: {}", content.size,
+						upload.getName(), upload.getContentType());
+				digests.add(content.digest);
+			}
+		}
+		return digests;
+	}
+
+	private static StoredContent get(Future<StoredContent> f) throws IOException {
+		try {
+			return f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while storing the uploaded files", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			} else if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private static class StoredContent {
+		private final String digest;
+		private final long size;
+
+		StoredContent(String digest, long size) {
+			this.digest = digest;
+			this.size = size;
+		}
+	}
+
+	private class StoreContent implements Callable<StoredContent> {
+
+		private final Upload upload;
+
+		StoreContent(Upload upload) {
+			this.upload = upload;
+		}
+
+		@Override
+		public StoredContent call() throws IOException {
+			StoredContent content = digest(upload);
+			if (!cardDataRepository.fileExists(content.digest)) {
+				try (InputStream is = upload.getInputStream()) {
+					cardDataRepository.addUploadContentInSavepoint(content.digest, content.size, is,
+							upload.getContentType());
+				} catch (DuplicateKeyException e) {
+					// the same content has been stored concurrently: only the insert has been rolled back
+					LOG.debug("content {} already stored", content.digest);
+				}
+			}
+			return content;
+		}
+	}
+
+	private static StoredContent digest(Upload upload) throws IOException {
+		byte[] buffer = new byte[64 * 1024];
+		long size = 0;
+		try (DigestInputStream is = new DigestInputStream(upload.getInputStream(),
+				MessageDigest.getInstance("SHA-256"))) {
+			for (int read; (read = is.read(buffer)) != -1;) {
+				size += read;
+			}
+			return new StoredContent(Hex.encodeHexString(is.getMessageDigest().digest()), size);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
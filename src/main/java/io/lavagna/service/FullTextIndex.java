@@ -0,0 +1,334 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In memory inverted index of the searchable text of the cards: their name and the content of their comments,
+ * descriptions and action items.
+ *
+ * Each text is a field of the card. A card matches a query if each word of the query is the prefix of a token of the
+ * same field, or if the whole query is the prefix of its sequence number. The tokens are lower cased and without
+ * accents.
+ *
+ * The fields are identified by a dense int (the ids of the removed fields are reused) so a query can be resolved with
+ * a {@link BitSet} for each word.
+ */
+class FullTextIndex {
+
+	private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+	private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+	// longer tokens are truncated: they are usually links or encoded content
+	private static final int MAX_TOKEN_LENGTH = 64;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final NavigableMap<String, Postings> tokens = new TreeMap<>();
+	private final NavigableMap<String, Postings> sequenceNumbers = new TreeMap<>();
+	private final Map<Integer, IndexedCard> cards = new HashMap<>();
+
+	private int[] fieldToCard = new int[1024];
+	private int fieldCount;
+	private final Deque<Integer> freeFields = new ArrayDeque<>();
+
+	/**
+	 * Replace the indexed text of the card.
+	 */
+	void put(int cardId, int sequenceNumber, Collection<String> texts) {
+		List<String[]> fields = new ArrayList<>(texts.size());
+		for (String text : texts) {
+			Set<String> t = tokenize(text);
+			if (!t.isEmpty()) {
+				fields.add(t.toArray(new String[t.size()]));
+			}
+		}
+
+		lock.writeLock().lock();
+		try {
+			removeCard(cardId);
+			add(cardId, Integer.toString(sequenceNumber), fields);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	void remove(int cardId) {
+		lock.writeLock().lock();
+		try {
+			removeCard(cardId);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	int size() {
+		lock.readLock().lock();
+		try {
+			return cards.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return the ids of the matching cards, the same semantic of {@link SearchFilter.FilterType#FREETEXT}
+	 */
+	Set<Integer> search(String query) {
+		String trimmed = query.trim();
+		if (trimmed.isEmpty()) {
+			return new HashSet<>();
+		}
+		Set<String> words = tokenize(trimmed);
+
+		lock.readLock().lock();
+		try {
+			Set<Integer> res = new HashSet<>();
+			for (Postings p : withPrefix(sequenceNumbers, trimmed).values()) {
+				p.addTo(res);
+			}
+
+			if (words.isEmpty()) {
+				return res;
+			}
+
+			BitSet matching = null;
+			for (String word : words) {
+				BitSet fields = new BitSet(fieldCount);
+				for (Postings p : withPrefix(tokens, word).values()) {
+					p.addTo(fields);
+				}
+				if (matching == null) {
+					matching = fields;
+				} else {
+					matching.and(fields);
+				}
+				if (matching.isEmpty()) {
+					return res;
+				}
+			}
+
+			for (int field = matching.nextSetBit(0); field >= 0; field = matching.nextSetBit(field + 1)) {
+				res.add(fieldToCard[field]);
+			}
+			return res;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Write the tokens of all the cards: the index can be read back with {@link #readFrom(DataInput)} without going
+	 * through the database.
+	 */
+	void writeTo(DataOutput out) throws IOException {
+		lock.readLock().lock();
+		try {
+			out.writeInt(cards.size());
+			for (IndexedCard card : cards.values()) {
+				out.writeInt(card.id);
+				out.writeUTF(card.sequenceNumber);
+				out.writeInt(card.fields.length);
+				for (int i = 0; i < card.fields.length; i++) {
+					String[] fieldTokens = card.tokens.get(i);
+					out.writeInt(fieldTokens.length);
+					for (String token : fieldTokens) {
+						out.writeUTF(token);
+					}
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	static FullTextIndex readFrom(DataInput in) throws IOException {
+		FullTextIndex index = new FullTextIndex();
+		int cardCount = in.readInt();
+		for (int c = 0; c < cardCount; c++) {
+			int cardId = in.readInt();
+			String sequenceNumber = in.readUTF();
+			int fieldCount = in.readInt();
+			List<String[]> fields = new ArrayList<>(fieldCount);
+			for (int f = 0; f < fieldCount; f++) {
+				String[] fieldTokens = new String[in.readInt()];
+				for (int t = 0; t < fieldTokens.length; t++) {
+					fieldTokens[t] = in.readUTF();
+				}
+				fields.add(fieldTokens);
+			}
+			index.add(cardId, sequenceNumber, fields);
+		}
+		return index;
+	}
+
+	static Set<String> tokenize(String text) {
+		String normalized = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+				.toLowerCase(Locale.ENGLISH);
+		Set<String> res = new LinkedHashSet<>();
+		for (String token : SEPARATORS.split(normalized)) {
+			if (!token.isEmpty()) {
+				res.add(token.length() > MAX_TOKEN_LENGTH ? token.substring(0, MAX_TOKEN_LENGTH) : token);
+			}
+		}
+		return res;
+	}
+
+	private static NavigableMap<String, Postings> withPrefix(NavigableMap<String, Postings> map, String prefix) {
+		return map.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+	}
+
+	private void add(int cardId, String sequenceNumber, List<String[]> fields) {
+		int[] fieldIds = new int[fields.size()];
+		for (int i = 0; i < fieldIds.length; i++) {
+			int field = allocateField(cardId);
+			fieldIds[i] = field;
+			for (String token : fields.get(i)) {
+				postingsOf(tokens, token).add(field);
+			}
+		}
+		postingsOf(sequenceNumbers, sequenceNumber).add(cardId);
+		cards.put(cardId, new IndexedCard(cardId, sequenceNumber, fieldIds, fields));
+	}
+
+	private void removeCard(int cardId) {
+		IndexedCard card = cards.remove(cardId);
+		if (card == null) {
+			return;
+		}
+		for (int i = 0; i < card.fields.length; i++) {
+			for (String token : card.tokens.get(i)) {
+				removeFromPostings(tokens, token, card.fields[i]);
+			}
+			freeFields.push(card.fields[i]);
+		}
+		removeFromPostings(sequenceNumbers, card.sequenceNumber, cardId);
+	}
+
+	private int allocateField(int cardId) {
+		int field;
+		if (freeFields.isEmpty()) {
+			field = fieldCount++;
+			if (field == fieldToCard.length) {
+				fieldToCard = Arrays.copyOf(fieldToCard, fieldToCard.length * 2);
+			}
+		} else {
+			field = freeFields.pop();
+		}
+		fieldToCard[field] = cardId;
+		return field;
+	}
+
+	private static Postings postingsOf(Map<String, Postings> map, String key) {
+		Postings p = map.get(key);
+		if (p == null) {
+			p = new Postings();
+			map.put(key, p);
+		}
+		return p;
+	}
+
+	private static void removeFromPostings(Map<String, Postings> map, String key, int id) {
+		Postings p = map.get(key);
+		if (p != null && p.remove(id) && p.isEmpty()) {
+			map.remove(key);
+		}
+	}
+
+	private static class IndexedCard {
+		private final int id;
+		private final String sequenceNumber;
+		private final int[] fields;
+		private final List<String[]> tokens;
+
+		IndexedCard(int id, String sequenceNumber, int[] fields, List<String[]> tokens) {
+			this.id = id;
+			this.sequenceNumber = sequenceNumber;
+			this.fields = fields;
+			this.tokens = tokens;
+		}
+	}
+
+	/**
+	 * Sorted set of ids, backed by an int array.
+	 */
+	private static class Postings {
+		private int[] ids = new int[2];
+		private int size;
+
+		void add(int id) {
+			int pos = Arrays.binarySearch(ids, 0, size, id);
+			if (pos >= 0) {
+				return;
+			}
+			pos = -pos - 1;
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+			}
+			System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+			ids[pos] = id;
+			size++;
+		}
+
+		boolean remove(int id) {
+			int pos = Arrays.binarySearch(ids, 0, size, id);
+			if (pos < 0) {
+				return false;
+			}
+			System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+			size--;
+			return true;
+		}
+
+		boolean isEmpty() {
+			return size == 0;
+		}
+
+		void addTo(BitSet bits) {
+			for (int i = 0; i < size; i++) {
+				bits.set(ids[i]);
+			}
+		}
+
+		void addTo(Set<Integer> set) {
+			for (int i = 0; i < size; i++) {
+				set.add(ids[i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,376 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.common.RowCallback;
+import io.lavagna.model.Card;
+import io.lavagna.model.CardData;
+import io.lavagna.model.Event;
+import io.lavagna.model.Event.EventType;
+import io.lavagna.query.FullTextIndexQuery;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keep a {@link FullTextIndex} of the cards, used for resolving the {@link SearchFilter.FilterType#FREETEXT} filters
+ * when the property "search.index.enabled" is true.
+ *
+ * The index is kept current by following LA_EVENT: the cards referenced by the events added since the last refresh
+ * are indexed again. The ids of the events are assigned before the commit, so the missing ids are checked again
+ * until they appear or {@link #GAP_TIMEOUT} has passed. The few writes that don't add an event must call
+ * {@link #cardDataChanged(int)}.
+ *
+ * If "search.index.snapshot" is defined, the index is saved in that file on shutdown and loaded back on startup:
+ * only the events added meanwhile need to be read. Until the index is loaded the search use the database.
+ */
+@Service
+public class FullTextIndexService implements DisposableBean {
+
+	private static final Logger LOG = LogManager.getLogger();
+
+	private static final int SNAPSHOT_VERSION = 1;
+	private static final int CARDS_PER_BATCH = 500;
+	private static final int MAX_GAPS = 1000;
+	private static final long GAP_TIMEOUT = 10 * 60 * 1000;
+
+	// the events that don't modify the indexed text
+	private static final Set<EventType> IGNORED_EVENTS = EnumSet.of(EventType.CARD_MOVE, EventType.CARD_ARCHIVE,
+			EventType.CARD_BACKLOG, EventType.CARD_TRASH, EventType.ACTION_ITEM_CHECK, EventType.ACTION_ITEM_UNCHECK,
+			EventType.FILE_UPLOAD, EventType.FILE_DELETE, EventType.LABEL_CREATE, EventType.LABEL_DELETE);
+
+	private final FullTextIndexQuery queries;
+	private final boolean enabled;
+	private final Path snapshot;
+
+	private final Lock refreshLock = new ReentrantLock();
+	private volatile FullTextIndex index;
+	// guarded by refreshLock
+	private int lastEventId;
+	private final Map<Integer, Long> gaps = new TreeMap<>();
+	private boolean modifiedSinceSnapshot;
+	//
+	private final Set<Integer> changedCardData = Collections.synchronizedSet(new HashSet<Integer>());
+
+	@Autowired
+	public FullTextIndexService(FullTextIndexQuery queries, Environment env) {
+		this(queries, Boolean.parseBoolean(env.getProperty("search.index.enabled")), env
+				.getProperty("search.index.snapshot") != null ? Paths.get(env.getProperty("search.index.snapshot"))
+				: null);
+	}
+
+	FullTextIndexService(FullTextIndexQuery queries, boolean enabled, Path snapshot) {
+		this.queries = queries;
+		this.enabled = enabled;
+		this.snapshot = snapshot;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * The index is refreshed before the search so the last changes are found, unless a refresh is already running:
+	 * in that case the search does not wait for it and reads the current index.
+	 *
+	 * @return the ids of the cards matching the free text, null if the index is disabled or not loaded yet
+	 */
+	public Set<Integer> findCardIds(String freeText) {
+		if (index == null) {
+			return null;
+		}
+		if (refreshLock.tryLock()) {
+			try {
+				doRefresh();
+			} finally {
+				refreshLock.unlock();
+			}
+		}
+		return index.search(freeText);
+	}
+
+	/**
+	 * Load the snapshot, if present, or build the index from the database.
+	 */
+	public void load() throws IOException {
+		if (!enabled) {
+			return;
+		}
+		if (snapshot != null && Files.exists(snapshot)) {
+			try {
+				readSnapshot();
+				refresh();
+				return;
+			} catch (IOException e) {
+				LOG.warn("cannot read the search index snapshot " + snapshot + ", rebuilding it", e);
+			}
+		}
+		rebuild();
+	}
+
+	/**
+	 * Index again all the cards.
+	 *
+	 * @return the number of indexed cards
+	 */
+	public int rebuild() throws IOException {
+		if (!enabled) {
+			return 0;
+		}
+		long start = System.currentTimeMillis();
+		Integer last = queries.findLastEventId();
+		FullTextIndex rebuilt = new FullTextIndex();
+		List<Integer> cardIds = queries.findAllCardIds();
+		for (int i = 0; i < cardIds.size(); i += CARDS_PER_BATCH) {
+			index(rebuilt, cardIds.subList(i, Math.min(cardIds.size(), i + CARDS_PER_BATCH)));
+		}
+		refreshLock.lock();
+		try {
+			index = rebuilt;
+			// the last events are read again: the ones not yet committed are tracked as gaps
+			lastEventId = last == null ? 0 : Math.max(0, last - MAX_GAPS);
+			gaps.clear();
+			modifiedSinceSnapshot = true;
+		} finally {
+			refreshLock.unlock();
+		}
+		refresh();
+		saveSnapshot();
+		LOG.info("search index rebuilt with {} cards in {}ms", index.size(), System.currentTimeMillis() - start);
+		return index.size();
+	}
+
+	/**
+	 * Index again the cards referenced by the events added since the last refresh.
+	 */
+	public void refresh() {
+		if (index == null) {
+			return;
+		}
+		refreshLock.lock();
+		try {
+			doRefresh();
+		} finally {
+			refreshLock.unlock();
+		}
+	}
+
+	// must be called holding refreshLock
+	private void doRefresh() {
+		final Set<Integer> cardIds = new HashSet<>();
+		final int from = lastEventId;
+		final BitSet seen = new BitSet();
+		final int[] max = { from };
+
+		queries.findEventsAfter(from, new RowCallback<Event>() {
+			@Override
+			public void processRow(Event event) {
+				seen.set(event.getId() - from);
+				max[0] = Math.max(max[0], event.getId());
+				if (!IGNORED_EVENTS.contains(event.getEvent())) {
+					cardIds.add(event.getCardId());
+				}
+			}
+		});
+
+		if (!gaps.isEmpty()) {
+			queries.findEventsByIds(new ArrayList<>(gaps.keySet()), new RowCallback<Event>() {
+				@Override
+				public void processRow(Event event) {
+					gaps.remove(event.getId());
+					if (!IGNORED_EVENTS.contains(event.getEvent())) {
+						cardIds.add(event.getCardId());
+					}
+				}
+			});
+		}
+		updateGaps(from, max[0], seen);
+		lastEventId = max[0];
+
+		Set<Integer> cardDataIds = drainChangedCardData();
+		if (!cardDataIds.isEmpty()) {
+			cardIds.addAll(queries.findCardIdsByCardDataIds(cardDataIds));
+		}
+
+		if (!cardIds.isEmpty()) {
+			List<Integer> toIndex = new ArrayList<>(cardIds);
+			for (int i = 0; i < toIndex.size(); i += CARDS_PER_BATCH) {
+				index(index, toIndex.subList(i, Math.min(toIndex.size(), i + CARDS_PER_BATCH)));
+			}
+			modifiedSinceSnapshot = true;
+			LOG.debug("refresh: indexed {} cards", toIndex.size());
+		}
+	}
+
+	/**
+	 * Must be called when the searchable content of a card data has been modified without adding an event: the
+	 * card is indexed again at the next refresh after the commit.
+	 */
+	public void cardDataChanged(final int cardDataId) {
+		if (!enabled) {
+			return;
+		}
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					changedCardData.add(cardDataId);
+				}
+			});
+		} else {
+			changedCardData.add(cardDataId);
+		}
+	}
+
+	public void saveSnapshot() throws IOException {
+		if (snapshot == null || index == null) {
+			return;
+		}
+		refreshLock.lock();
+		try {
+			if (!modifiedSinceSnapshot) {
+				return;
+			}
+			Path tmp = Files.createTempFile(snapshot.toAbsolutePath().getParent(), snapshot.getFileName().toString(),
+					".tmp");
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(
+					Files.newOutputStream(tmp))))) {
+				out.writeInt(SNAPSHOT_VERSION);
+				out.writeInt(lastEventId);
+				out.writeInt(gaps.size());
+				for (Entry<Integer, Long> gap : gaps.entrySet()) {
+					out.writeInt(gap.getKey());
+					out.writeLong(gap.getValue());
+				}
+				index.writeTo(out);
+			}
+			Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			modifiedSinceSnapshot = false;
+		} finally {
+			refreshLock.unlock();
+		}
+	}
+
+	@Override
+	public void destroy() throws IOException {
+		saveSnapshot();
+	}
+
+	private void readSnapshot() throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(
+				Files.newInputStream(snapshot))))) {
+			int version = in.readInt();
+			if (version != SNAPSHOT_VERSION) {
+				throw new IOException("unsupported snapshot version " + version);
+			}
+			refreshLock.lock();
+			try {
+				lastEventId = in.readInt();
+				gaps.clear();
+				int gapCount = in.readInt();
+				for (int i = 0; i < gapCount; i++) {
+					gaps.put(in.readInt(), in.readLong());
+				}
+				index = FullTextIndex.readFrom(in);
+				modifiedSinceSnapshot = false;
+			} finally {
+				refreshLock.unlock();
+			}
+		}
+		LOG.info("search index loaded from {} with {} cards", snapshot, index.size());
+	}
+
+	private void updateGaps(int from, int max, BitSet seen) {
+		long now = System.currentTimeMillis();
+		for (int id = from + 1; id <= max && gaps.size() < MAX_GAPS; id++) {
+			if (!seen.get(id - from)) {
+				gaps.put(id, now);
+			}
+		}
+		for (Iterator<Long> it = gaps.values().iterator(); it.hasNext();) {
+			if (now - it.next() > GAP_TIMEOUT) {
+				it.remove();
+			}
+		}
+	}
+
+	private Set<Integer> drainChangedCardData() {
+		synchronized (changedCardData) {
+			Set<Integer> res = new HashSet<>(changedCardData);
+			changedCardData.clear();
+			return res;
+		}
+	}
+
+	private void index(FullTextIndex target, Collection<Integer> cardIds) {
+		Map<Integer, List<String>> texts = new HashMap<>();
+		for (CardData data : queries.findSearchableDataByCardIds(cardIds)) {
+			if (!texts.containsKey(data.getCardId())) {
+				texts.put(data.getCardId(), new ArrayList<String>());
+			}
+			texts.get(data.getCardId()).add(data.getContent());
+		}
+
+		Set<Integer> missing = new HashSet<>(cardIds);
+		for (Card card : queries.findCardsByIds(cardIds)) {
+			List<String> cardTexts = new ArrayList<>();
+			cardTexts.add(card.getName());
+			if (texts.containsKey(card.getId())) {
+				cardTexts.addAll(texts.get(card.getId()));
+			}
+			target.put(card.getId(), card.getSequence(), cardTexts);
+			missing.remove(card.getId());
+		}
+
+		for (Integer cardId : missing) {
+			target.remove(cardId);
+		}
+	}
+}
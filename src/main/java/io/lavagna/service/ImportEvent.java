@@ -16,11 +16,10 @@
  */
 package io.lavagna.service;
 
+import io.lavagna.common.ZipReader;
 import io.lavagna.model.EventFull;
 import io.lavagna.model.ImportContext;
 
-import java.nio.file.Path;
-
 public interface ImportEvent {
-	void processEvent(EventFull e, ImportContext context, Path tempFile);
+	void processEvent(EventFull e, ImportContext context, ZipReader zip);
 }
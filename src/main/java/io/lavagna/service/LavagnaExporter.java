@@ -17,14 +17,18 @@
 package io.lavagna.service;
 
 import io.lavagna.common.Json;
+import io.lavagna.common.RowCallback;
 import io.lavagna.model.Board;
+import io.lavagna.model.BoardColumn;
 import io.lavagna.model.BoardInfo;
 import io.lavagna.model.Card;
 import io.lavagna.model.CardData;
 import io.lavagna.model.CardDataUploadContentInfo;
+import io.lavagna.model.CardFull;
 import io.lavagna.model.CardLabel;
 import io.lavagna.model.CardType;
 import io.lavagna.model.Event;
+import io.lavagna.model.Event.EventType;
 import io.lavagna.model.EventFull;
 import io.lavagna.model.LabelListValue;
 import io.lavagna.model.Pair;
@@ -32,22 +36,60 @@ import io.lavagna.model.Project;
 import io.lavagna.model.User;
 import io.lavagna.query.StatisticsQuery;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Export the whole database in a zip archive.
+ *
+ * The archive is built in sections (global data, files, one section for each project, groups of event pages), then
+ * copied in a deterministic order in the response by a single writer.
+ *
+ * By default the sections are built by the calling thread, inside the transaction of the export, so the archive is a
+ * consistent snapshot. With "export.parallel" they are serialized and compressed concurrently on a bounded pool, but
+ * each thread reads with its own connection: the rows written during the export can be seen by some sections and
+ * not by others (e.g. the events of a card missing from its project), and such an archive may fail to import. Enable
+ * it only when nothing is written during the export.
+ */
 @Component
-class LavagnaExporter {
+class LavagnaExporter implements DisposableBean {
+
+	private static final int EVENTS_PER_PAGE = 100;
+	private static final int PAGES_PER_SECTION = 10;
 
 	private final ConfigurationRepository configurationRepository;
 	private final UserRepository userRepository;
@@ -60,13 +102,16 @@ class LavagnaExporter {
 	private final CardRepository cardRepository;
 	private final CardDataRepository cardDataRepository;
 	private final StatisticsQuery statisticsQuery;
+	private final boolean parallelEnabled;
+	private final ThreadPoolExecutor executor;
 
 	@Autowired
 	public LavagnaExporter(ConfigurationRepository configurationRepository, UserRepository userRepository,
 			PermissionService permissionService, ProjectService projectService,
 			CardLabelRepository cardLabelRepository, BoardRepository boardRepository,
 			BoardColumnRepository boardColumnRepository, EventRepository eventRepository,
-			CardRepository cardRepository, CardDataRepository cardDataRepository, StatisticsQuery statisticsQuery) {
+			CardRepository cardRepository, CardDataRepository cardDataRepository, StatisticsQuery statisticsQuery,
+			Environment env) {
 		this.configurationRepository = configurationRepository;
 		this.userRepository = userRepository;
 		this.permissionService = permissionService;
@@ -78,143 +123,460 @@ class LavagnaExporter {
 		this.cardRepository = cardRepository;
 		this.cardDataRepository = cardDataRepository;
 		this.statisticsQuery = statisticsQuery;
+		this.parallelEnabled = env.getProperty("export.parallel", Boolean.class, false);
+
+		int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("lavagna-export-");
+		threadFactory.setDaemon(true);
+		// when the queue is full the section is built by the calling thread
+		this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(threads * 2), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdownNow();
 	}
 
 	public void exportData(OutputStream os) throws IOException {
-		try (ZipOutputStream zf = new ZipOutputStream(os);
-				OutputStreamWriter osw = new OutputStreamWriter(zf, StandardCharsets.UTF_8)) {
-			writeEntry("config.json", configurationRepository.findAll(), zf, osw);
-			writeEntry("users.json", userRepository.findAll(), zf, osw);
-			writeEntry("permissions.json", permissionService.findAllRolesAndRelatedPermissionWithUsers(), zf, osw);
 
-			exportFiles(zf, osw);
+		// when the export joins a read-write transaction (e.g. right after an import), the uncommitted rows are
+		// visible only from this connection: the sections must be built by the calling thread.
+		boolean parallel = parallelEnabled
+				&& (!TransactionSynchronizationManager.isActualTransactionActive() || TransactionSynchronizationManager
+						.isCurrentTransactionReadOnly());
 
-			for (Project p : projectService.findAll()) {
-				exportProject(zf, osw, p);
-			}
+		try (Sections sections = new Sections(new ZipSectionsWriter(os, new Date()), parallel)) {
 
-			//
-			final int amountPerPage = 100;
-			int pages = (eventRepository.count() + amountPerPage - 1) / amountPerPage;
+			final List<User> users = userRepository.findAll();
+			sections.submit(new SectionTask() {
+				@Override
+				void write(ZipSection zs, OutputStreamWriter osw) {
+					writeEntry("config.json", configurationRepository.findAll(), zs, osw);
+					writeEntry("users.json", users, zs, osw);
+					writeEntry("permissions.json", permissionService.findAllRolesAndRelatedPermissionWithUsers(), zs,
+							osw);
+				}
+			});
 
-			writeEntry("events-page-count.json", pages, zf, osw);
-			for (int i = 0; i < pages; i++) {
-				writeEntry("events-" + i + ".json", toEventFull(eventRepository.find(i * 100, 100)), zf, osw);
+			sections.submit(new SectionTask() {
+				@Override
+				void write(ZipSection zs, OutputStreamWriter osw) {
+					exportFiles(zs, osw);
+				}
+			});
+
+			for (final Project p : projectService.findAll()) {
+				sections.submit(new SectionTask() {
+					@Override
+					void write(ZipSection zs, OutputStreamWriter osw) {
+						exportProject(zs, osw, p);
+					}
+				});
 			}
+
 			//
-			writeEntry("card-data-types-order.json", cardDataRepository.findAllByTypes(EnumSet.of(CardType.ACTION_LIST,
-					CardType.ACTION_CHECKED, CardType.ACTION_UNCHECKED)), zf, osw);
+			final EventPageWriter eventPageWriter = new EventPageWriter(users, sections);
+			eventRepository.findAll(eventPageWriter);
+			eventPageWriter.flush();
+			sections.submit(new SectionTask() {
+				@Override
+				void write(ZipSection zs, OutputStreamWriter osw) {
+					writeEntry("events-page-count.json", eventPageWriter.pages, zs, osw);
+					//
+					writeEntry("card-data-types-order.json", cardDataRepository.findAllByTypes(EnumSet.of(
+							CardType.ACTION_LIST, CardType.ACTION_CHECKED, CardType.ACTION_UNCHECKED)), zs, osw);
+				}
+			});
+
+			sections.finish();
 		}
 	}
 
-	private void exportFiles(ZipOutputStream zf, OutputStreamWriter osw) throws IOException {
-		osw.flush();
-		for (CardDataUploadContentInfo fileData : cardDataRepository.findAllDataUploadContentInfo()) {
-			zf.putNextEntry(new ZipEntry("files/" + fileData.getDigest()));
-			cardDataRepository.outputFileContent(fileData.getDigest(), zf);
-			writeEntry("files/" + fileData.getDigest() + ".json", fileData, zf, osw);
+	/**
+	 * Build the sections on the pool (or on the calling thread) and write them as soon as all the previous ones have
+	 * been written.
+	 *
+	 * The sections are written in order: while the first one is slow (e.g. the files), the following ones wait in
+	 * their temporary files. At most twice the threads of the pool are submitted and not yet written, so the disk
+	 * used does not grow up to the size of the whole export.
+	 */
+	private class Sections implements Closeable {
+
+		private final ZipSectionsWriter writer;
+		private final boolean parallel;
+		private final Deque<Future<ZipSection>> pending = new ArrayDeque<>();
+
+		Sections(ZipSectionsWriter writer, boolean parallel) {
+			this.writer = writer;
+			this.parallel = parallel;
+		}
+
+		void submit(SectionTask task) {
+			try {
+				// too many sections in flight: wait for the first one
+				while (pending.size() >= executor.getMaximumPoolSize() * 2) {
+					writeNext();
+				}
+
+				if (parallel) {
+					pending.add(executor.submit(task));
+				} else {
+					FutureTask<ZipSection> f = new FutureTask<>(task);
+					f.run();
+					pending.add(f);
+				}
+
+				while (!pending.isEmpty() && pending.peek().isDone()) {
+					writeNext();
+				}
+			} catch (IOException ioe) {
+				throw new IllegalStateException("error while writing the export", ioe);
+			}
+		}
+
+		void finish() throws IOException {
+			while (!pending.isEmpty()) {
+				writeNext();
+			}
+			writer.finish();
+		}
+
+		private void writeNext() throws IOException {
+			ZipSection section = get(pending.poll());
+			try {
+				writer.add(section);
+			} finally {
+				section.delete();
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			// only in case of error: wait for the remaining sections for removing their temporary files
+			for (Future<ZipSection> f : pending) {
+				try {
+					f.get().delete();
+				} catch (ExecutionException | InterruptedException e) {
+					// the section has not been created
+				}
+			}
+			pending.clear();
+			writer.close();
 		}
 	}
 
-	private List<EventFull> toEventFull(List<Event> events) {
-		List<EventFull> res = new ArrayList<>(events.size());
-		for (Event e : events) {
-			// TODO not optimal
+	private static ZipSection get(Future<ZipSection> f) throws IOException {
+		try {
+			return f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while exporting", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			} else if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException("error while exporting", e.getCause());
+		}
+	}
 
-			User u = userRepository.findById(e.getUserId());
-			ImmutablePair<Board, Card> bc = findByCardId(e.getCardId());
-			//
-			String content = handleContent(e);
+	private abstract static class SectionTask implements Callable<ZipSection> {
 
-			User labelUser = e.getValueUser() != null ? userRepository.findById(e.getValueUser()) : null;
-			ImmutablePair<Board, Card> labelCard = e.getValueCard() != null ? findByCardId(e.getValueCard()) : null;
+		abstract void write(ZipSection zs, OutputStreamWriter osw) throws IOException;
 
-			//
-			res.add(new EventFull(e, u, bc, content, labelCard, labelUser));
+		@Override
+		public ZipSection call() throws IOException {
+			ZipSection zs = new ZipSection();
+			try (OutputStreamWriter osw = new OutputStreamWriter(zs, StandardCharsets.UTF_8)) {
+				write(zs, osw);
+			} catch (IOException | RuntimeException e) {
+				zs.delete();
+				throw e;
+			}
+			return zs;
 		}
-		return res;
 	}
 
-	private ImmutablePair<Board, Card> findByCardId(int id) {
-		Card c = cardRepository.findBy(id);
-		Board b = boardRepository.findBoardById(boardColumnRepository.findById(c.getColumnId()).getBoardId());
-		return ImmutablePair.of(b, c);
+	private void exportFiles(final ZipSection zs, final OutputStreamWriter osw) {
+		cardDataRepository.findAllDataUploadContentInfo(new RowCallback<CardDataUploadContentInfo>() {
+			@Override
+			public void processRow(CardDataUploadContentInfo fileData) {
+				try {
+					zs.putNextEntry("files/" + fileData.getDigest());
+					cardDataRepository.outputFileContent(fileData.getDigest(), zs);
+				} catch (IOException ioe) {
+					throw new IllegalStateException("error while exporting file " + fileData.getDigest(), ioe);
+				}
+				writeEntry("files/" + fileData.getDigest() + ".json", fileData, zs, osw);
+			}
+		});
 	}
 
-	// TODO CLEANUP
-	private String handleContent(Event e) {
-		if (e.getDataId() == null) {
-			return null;
-		}
-
-		switch (e.getEvent()) {
-		case COMMENT_CREATE:
-			return extractFirstContent(e, CardType.COMMENT_HISTORY);
-		case DESCRIPTION_CREATE:
-			return extractFirstContent(e, CardType.DESCRIPTION_HISTORY);
-		case DESCRIPTION_UPDATE:
-		case COMMENT_UPDATE:
-			List<Event> nextEvent = eventRepository.findNextEventFor(e);
-			return cardDataRepository.getDataLightById(
-					nextEvent.isEmpty() ? e.getDataId() : nextEvent.get(0).getPreviousDataId()).getContent();
-		case ACTION_ITEM_CREATE:
-		case ACTION_LIST_CREATE:
-			return cardDataRepository.getDataLightById(e.getDataId()).getContent();
-		case FILE_UPLOAD:
-		case FILE_DELETE:
-			return cardDataRepository.getDataLightById(e.getDataId()).getContent();
-		default:
-			return null;
+	/**
+	 * Receive the events from a cursor and submit them in sections of {@link #PAGES_PER_SECTION} pages of
+	 * {@link #EVENTS_PER_PAGE} events. The data referenced by the events of a page is loaded with a few bulk queries,
+	 * the users and the boards are loaded once.
+	 */
+	private class EventPageWriter implements RowCallback<Event> {
+
+		private final Map<Integer, User> users = new HashMap<>();
+		private final Map<Integer, Board> boards = new HashMap<>();
+		private final ConcurrentMap<Integer, Integer> boardIdByColumnId = new ConcurrentHashMap<>();
+		private final Sections sections;
+
+		private List<List<Event>> pagesOfSection = new ArrayList<>(PAGES_PER_SECTION);
+		private List<Event> page = new ArrayList<>(EVENTS_PER_PAGE);
+		private int pages;
+
+		EventPageWriter(List<User> users, Sections sections) {
+			for (User u : users) {
+				this.users.put(u.getId(), u);
+			}
+			for (Board b : boardRepository.findAll()) {
+				boards.put(b.getId(), b);
+			}
+			this.sections = sections;
+		}
+
+		@Override
+		public void processRow(Event e) {
+			page.add(e);
+			if (page.size() == EVENTS_PER_PAGE) {
+				pagesOfSection.add(page);
+				page = new ArrayList<>(EVENTS_PER_PAGE);
+				if (pagesOfSection.size() == PAGES_PER_SECTION) {
+					submitSection();
+				}
+			}
+		}
+
+		void flush() {
+			if (!page.isEmpty()) {
+				pagesOfSection.add(page);
+				page = new ArrayList<>(EVENTS_PER_PAGE);
+			}
+			if (!pagesOfSection.isEmpty()) {
+				submitSection();
+			}
+		}
+
+		private void submitSection() {
+			final List<List<Event>> toWrite = pagesOfSection;
+			final int firstPage = pages;
+			pages += toWrite.size();
+			pagesOfSection = new ArrayList<>(PAGES_PER_SECTION);
+			sections.submit(new SectionTask() {
+				@Override
+				void write(ZipSection zs, OutputStreamWriter osw) {
+					for (int i = 0; i < toWrite.size(); i++) {
+						writeEntry("events-" + (firstPage + i) + ".json", toEventFull(toWrite.get(i)), zs, osw);
+					}
+				}
+			});
+		}
+
+		private List<EventFull> toEventFull(List<Event> events) {
+
+			Set<Integer> cardIds = new HashSet<>();
+			for (Event e : events) {
+				cardIds.add(e.getCardId());
+				addIfNotNull(cardIds, e.getValueCard());
+			}
+			Map<Integer, ImmutablePair<Board, Card>> cards = findByCardIds(cardIds);
+			Map<Integer, String> contents = handleContent(events);
+
+			List<EventFull> res = new ArrayList<>(events.size());
+			for (Event e : events) {
+				User labelUser = e.getValueUser() != null ? users.get(e.getValueUser()) : null;
+				ImmutablePair<Board, Card> labelCard = e.getValueCard() != null ? cards.get(e.getValueCard()) : null;
+				res.add(new EventFull(e, users.get(e.getUserId()), cards.get(e.getCardId()), contents.get(e.getId()),
+						labelCard, labelUser));
+			}
+			return res;
+		}
+
+		private Map<Integer, ImmutablePair<Board, Card>> findByCardIds(Set<Integer> ids) {
+			List<Card> cards = cardRepository.findByIds(ids);
+
+			Set<Integer> missingColumnIds = new HashSet<>();
+			for (Card c : cards) {
+				if (!boardIdByColumnId.containsKey(c.getColumnId())) {
+					missingColumnIds.add(c.getColumnId());
+				}
+			}
+			if (!missingColumnIds.isEmpty()) {
+				for (BoardColumn bc : boardColumnRepository.findByIds(missingColumnIds)) {
+					boardIdByColumnId.put(bc.getId(), bc.getBoardId());
+				}
+			}
+
+			Map<Integer, ImmutablePair<Board, Card>> res = new HashMap<>();
+			for (Card c : cards) {
+				res.put(c.getId(), ImmutablePair.of(boards.get(boardIdByColumnId.get(c.getColumnId())), c));
+			}
+			return res;
+		}
+
+		/**
+		 * Return the content related to each event, by event id.
+		 */
+		private Map<Integer, String> handleContent(List<Event> events) {
+
+			Set<Integer> updatedDataIds = new HashSet<>();
+			Set<Integer> commentIds = new HashSet<>();
+			Set<Integer> descriptionIds = new HashSet<>();
+			for (Event e : events) {
+				if (e.getDataId() == null) {
+					continue;
+				}
+				switch (e.getEvent()) {
+				case COMMENT_CREATE:
+					commentIds.add(e.getDataId());
+					break;
+				case DESCRIPTION_CREATE:
+					descriptionIds.add(e.getDataId());
+					break;
+				case DESCRIPTION_UPDATE:
+				case COMMENT_UPDATE:
+					updatedDataIds.add(e.getDataId());
+					break;
+				default:
+					break;
+				}
+			}
+
+			Map<Integer, Integer> firstHistoryIdByDataId = new HashMap<>();
+			findFirstHistory(commentIds, CardType.COMMENT_HISTORY, firstHistoryIdByDataId);
+			findFirstHistory(descriptionIds, CardType.DESCRIPTION_HISTORY, firstHistoryIdByDataId);
+
+			List<Event> updates = eventRepository.findByCardDataIdsAndTypes(updatedDataIds,
+					EnumSet.of(EventType.DESCRIPTION_UPDATE, EventType.COMMENT_UPDATE));
+
+			// the id of the card data containing the content of each event
+			Map<Integer, Integer> contentIdByEventId = new HashMap<>();
+			for (Event e : events) {
+				if (e.getDataId() == null) {
+					continue;
+				}
+				switch (e.getEvent()) {
+				case COMMENT_CREATE:
+				case DESCRIPTION_CREATE:
+					contentIdByEventId.put(e.getId(),
+							ObjectUtils.firstNonNull(firstHistoryIdByDataId.get(e.getDataId()), e.getDataId()));
+					break;
+				case DESCRIPTION_UPDATE:
+				case COMMENT_UPDATE:
+					Event next = findNextEventFor(e, updates);
+					contentIdByEventId.put(e.getId(), next == null ? e.getDataId() : next.getPreviousDataId());
+					break;
+				case ACTION_ITEM_CREATE:
+				case ACTION_LIST_CREATE:
+				case FILE_UPLOAD:
+				case FILE_DELETE:
+					contentIdByEventId.put(e.getId(), e.getDataId());
+					break;
+				default:
+					break;
+				}
+			}
+
+			Map<Integer, String> contentById = cardDataRepository.findDataByIds(new HashSet<>(contentIdByEventId
+					.values()));
+			Map<Integer, String> res = new HashMap<>();
+			for (Entry<Integer, Integer> kv : contentIdByEventId.entrySet()) {
+				res.put(kv.getKey(), contentById.get(kv.getValue()));
+			}
+			return res;
+		}
+
+		private void findFirstHistory(Set<Integer> dataIds, CardType type, Map<Integer, Integer> res) {
+			// ordered by reference id and order: keep the first for each reference id
+			for (CardData history : cardDataRepository.findAllDataLightByReferenceIdsAndType(dataIds, type)) {
+				if (!res.containsKey(history.getReferenceId())) {
+					res.put(history.getReferenceId(), history.getId());
+				}
+			}
 		}
+	}
 
+	private static Event findNextEventFor(Event e, List<Event> candidates) {
+		for (Event c : candidates) {
+			if (c.getId() > e.getId() && c.getEvent() == e.getEvent() && e.getDataId().equals(c.getDataId())) {
+				return c;
+			}
+		}
+		return null;
 	}
 
-	private String extractFirstContent(Event e, CardType type) {
-		CardData cd = cardDataRepository.getDataLightById(e.getDataId());
-		List<CardData> history = cardDataRepository.findAllDataLightByReferenceIdAndType(cd.getId(), type);
-		return (history.isEmpty() ? cd : history.get(0)).getContent();
+	private static <T> void addIfNotNull(Set<T> s, T v) {
+		if (v != null) {
+			s.add(v);
+		}
 	}
 
-	private static void writeEntry(String entryName, Object toSerialize, ZipOutputStream zf, OutputStreamWriter osw) {
+	private static void writeEntry(String entryName, Object toSerialize, ZipSection zs, OutputStreamWriter osw) {
 		try {
-			zf.putNextEntry(new ZipEntry(entryName));
+			zs.putNextEntry(entryName);
 			Json.GSON.toJson(toSerialize, osw);
 			osw.flush();
-			zf.flush();
-			zf.closeEntry();
+			zs.closeEntry();
 		} catch (IOException ioe) {
 			throw new IllegalStateException("error while serializing entry " + entryName, ioe);
 		}
 	}
 
-	private void exportProject(ZipOutputStream zf, OutputStreamWriter osw, Project p) {
+	private void exportProject(ZipSection zs, OutputStreamWriter osw, Project p) {
 
 		String projectNameDir = "projects/" + p.getShortName();
-		writeEntry(projectNameDir + ".json", p, zf, osw);
+		writeEntry(projectNameDir + ".json", p, zs, osw);
 		writeEntry(projectNameDir + "/permissions.json",
-				permissionService.findAllRolesAndRelatedPermissionWithUsersInProjectId(p.getId()), zf, osw);
+				permissionService.findAllRolesAndRelatedPermissionWithUsersInProjectId(p.getId()), zs, osw);
 
 		List<Pair<CardLabel, List<LabelListValue>>> labels = new ArrayList<>();
 		for (CardLabel cl : cardLabelRepository.findLabelsByProject(p.getId())) {
 			labels.add(Pair.of(cl, cardLabelRepository.findListValuesByLabelId(cl.getId())));
 		}
-		writeEntry(projectNameDir + "/labels.json", labels, zf, osw);
+		writeEntry(projectNameDir + "/labels.json", labels, zs, osw);
 		writeEntry(projectNameDir + "/column-definitions.json",
-				projectService.findMappedColumnDefinitionsByProjectId(p.getId()), zf, osw);
+				projectService.findMappedColumnDefinitionsByProjectId(p.getId()), zs, osw);
 
 		for (BoardInfo boardInfo : boardRepository.findBoardInfo(p.getId())) {
-			exportBoard(boardInfo, p, zf, osw);
+			exportBoard(boardInfo, p, zs, osw);
 		}
 	}
 
-	private void exportBoard(BoardInfo boardInfo, Project p, ZipOutputStream zf, OutputStreamWriter osw) {
+	private void exportBoard(BoardInfo boardInfo, Project p, ZipSection zs, OutputStreamWriter osw) {
 		String boardNameDir = "boards/" + boardInfo.getShortName();
-		writeEntry(boardNameDir + ".json", Pair.of(p.getShortName(), boardInfo), zf, osw);
+		writeEntry(boardNameDir + ".json", Pair.of(p.getShortName(), boardInfo), zs, osw);
 		int boardId = boardRepository.findBoardIdByShortName(boardInfo.getShortName());
 
-		writeEntry(boardNameDir + "/columns.json", boardColumnRepository.findAllColumnsFor(boardId), zf, osw);
-		writeEntry(boardNameDir + "/cards.json", cardRepository.findAllByBoardShortName(boardInfo.getShortName()), zf,
-				osw);
-		writeEntry(boardNameDir + "/statistics.json", statisticsQuery.findForBoard(boardId), zf, osw);
+		writeEntry(boardNameDir + "/columns.json", boardColumnRepository.findAllColumnsFor(boardId), zs, osw);
+		writeCards(boardNameDir + "/cards.json", boardInfo.getShortName(), zs, osw);
+		writeEntry(boardNameDir + "/statistics.json", statisticsQuery.findForBoard(boardId), zs, osw);
+	}
+
+	/**
+	 * Stream the cards of the board in a json array, without loading them all in memory.
+	 */
+	private void writeCards(String entryName, String boardShortName, ZipSection zs, OutputStreamWriter osw) {
+		try {
+			zs.putNextEntry(entryName);
+			// the writer must not be closed: it would close the section
+			final JsonWriter writer = new JsonWriter(osw);
+			writer.beginArray();
+			cardRepository.findAllByBoardShortName(boardShortName, new RowCallback<CardFull>() {
+				@Override
+				public void processRow(CardFull card) {
+					Json.GSON.toJson(card, CardFull.class, writer);
+				}
+			});
+			writer.endArray();
+			writer.flush();
+			zs.closeEntry();
+		} catch (IOException ioe) {
+			throw new IllegalStateException("error while serializing entry " + entryName, ioe);
+		}
 	}
 }
@@ -16,9 +16,8 @@
  */
 package io.lavagna.service;
 
-import static io.lavagna.common.Read.readMatchingObjects;
-import static io.lavagna.common.Read.readObject;
 import static java.util.Collections.singletonList;
+import io.lavagna.common.ZipReader;
 import io.lavagna.model.Board;
 import io.lavagna.model.BoardColumn;
 import io.lavagna.model.BoardColumnDefinition;
@@ -41,11 +40,14 @@ import io.lavagna.model.RoleAndPermission;
 import io.lavagna.model.StatisticForExport;
 import io.lavagna.model.User;
 import io.lavagna.model.UserIdentifier;
-import io.lavagna.query.StatisticsQuery;
 import io.lavagna.service.PermissionService.RoleAndPermissionsWithUsers;
 
+import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -55,9 +57,15 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang3.builder.CompareToBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
 
 import com.google.gson.reflect.TypeToken;
@@ -65,6 +73,8 @@ import com.google.gson.reflect.TypeToken;
 @Component
 class LavagnaImporter {
 
+	private static final int EVENT_PAGES_READ_AHEAD = 2;
+
 	private final ConfigurationRepository configurationRepository;
 	private final UserRepository userRepository;
 	private final PermissionService permissionService;
@@ -74,7 +84,8 @@ class LavagnaImporter {
 	private final CardLabelRepository cardLabelRepository;
 	private final CardRepository cardRepository;
 	private final CardDataRepository cardDataRepository;
-	private final StatisticsQuery statisticsQuery;
+	private final StatisticsService statisticsService;
+	private final MySqlFullTextSupportService mySqlFullTextSupportService;
 
 	private final ImportEvent importEvent;
 
@@ -83,7 +94,7 @@ class LavagnaImporter {
 			PermissionService permissionService, ProjectService projectService, BoardRepository boardRepository,
 			BoardColumnRepository boardColumnRepository, CardLabelRepository cardLabelRepository,
 			CardDataRepository cardDataRepository, CardRepository cardRepository, ImportEvent importEvent,
-			StatisticsQuery statisticsQuery) {
+			StatisticsService statisticsService, MySqlFullTextSupportService mySqlFullTextSupportService) {
 		this.configurationRepository = configurationRepository;
 		this.userRepository = userRepository;
 		this.permissionService = permissionService;
@@ -94,43 +105,100 @@ class LavagnaImporter {
 		this.importEvent = importEvent;
 		this.cardRepository = cardRepository;
 		this.cardDataRepository = cardDataRepository;
-		this.statisticsQuery = statisticsQuery;
+		this.statisticsService = statisticsService;
+		this.mySqlFullTextSupportService = mySqlFullTextSupportService;
 	}
 
 	public void importData(boolean overrideConfiguration, Path tempFile) {
+		mySqlFullTextSupportService.suspend();
+		try (ZipReader zip = new ZipReader(tempFile)) {
+			importData(overrideConfiguration, zip);
+		} catch (IOException ioe) {
+			throw new IllegalStateException("error while reading the archive", ioe);
+		} finally {
+			mySqlFullTextSupportService.resume();
+		}
+	}
 
-		importConfiguration(overrideConfiguration, tempFile);
+	private void importData(boolean overrideConfiguration, ZipReader zip) {
 
-		importMissingUsers(tempFile);
-		importBasePermissions(tempFile);
+		importConfiguration(overrideConfiguration, zip);
+
+		importMissingUsers(zip);
+		importBasePermissions(zip);
 
 		ImportContext context = new ImportContext();
 
-		importProjects(tempFile, context);
+		importProjects(zip, context);
 
-		importBoards(tempFile, context);
+		importBoards(zip, context);
 
 		//
 
-		int eventPages = readObject("events-page-count.json", tempFile, new TypeToken<Integer>() {
+		importEvents(zip, context);
+
+		orderAll(zip, context);
+	}
+
+	/**
+	 * The event pages are parsed by a background thread while the events of the previous page are imported, at most
+	 * {@link #EVENT_PAGES_READ_AHEAD} pages ahead.
+	 */
+	private void importEvents(final ZipReader zip, ImportContext context) {
+		int eventPages = zip.readObject("events-page-count.json", new TypeToken<Integer>() {
 		});
 
-		for (int i = 0; i < eventPages; i++) {
-			processEvents(readObject("events-" + i + ".json", tempFile, new TypeToken<List<EventFull>>() {
-			}), context, tempFile);
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("lavagna-import-");
+		threadFactory.setDaemon(true);
+		ExecutorService reader = Executors.newSingleThreadExecutor(threadFactory);
+		try {
+			Deque<Future<List<EventFull>>> pages = new ArrayDeque<>();
+			int next = 0;
+			for (int i = 0; i < eventPages; i++) {
+				for (; next < eventPages && next <= i + EVENT_PAGES_READ_AHEAD; next++) {
+					pages.add(reader.submit(readEventPage(zip, next)));
+				}
+				processEvents(get(pages.poll()), context, zip);
+			}
+		} finally {
+			reader.shutdownNow();
 		}
+	}
 
-		orderAll(tempFile, context);
+	private static Callable<List<EventFull>> readEventPage(final ZipReader zip, final int page) {
+		return new Callable<List<EventFull>>() {
+			@Override
+			public List<EventFull> call() {
+				return zip.readObject("events-" + page + ".json", new TypeToken<List<EventFull>>() {
+				});
+			}
+		};
+	}
+
+	private static <T> T get(Future<T> f) {
+		try {
+			return f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while importing", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException("error while importing", e.getCause());
+		}
 	}
 
-	private void orderAll(Path tempFile, ImportContext context) {
+	private void orderAll(ZipReader zip, ImportContext context) {
 
 		for (String shortName : context.getImportedBoard()) {
-			orderCards(readObject("boards/" + shortName + "/cards.json", tempFile, new TypeToken<List<CardFull>>() {
-			}));
+			orderCards(shortName, zip.readObject("boards/" + shortName + "/cards.json",
+					new TypeToken<List<CardFull>>() {
+					}));
 		}
 
-		for (CardDataIdAndOrder idOrder : readObject("card-data-types-order.json", tempFile,
+		Map<Integer, Integer> orderById = new HashMap<>();
+		for (CardDataIdAndOrder idOrder : zip.readObject("card-data-types-order.json",
 				new TypeToken<List<CardDataIdAndOrder>>() {
 				})) {
 
@@ -138,30 +206,36 @@ class LavagnaImporter {
 			int order = idOrder.getSecond();
 
 			if (context.getActionItemId().containsKey(oldId)) {
-				cardDataRepository.updateOrderById(context.getActionItemId().get(oldId), order);
+				orderById.put(context.getActionItemId().get(oldId), order);
 			} else if (context.getActionListId().containsKey(oldId)) {
-				cardDataRepository.updateOrderById(context.getActionListId().get(oldId), order);
+				orderById.put(context.getActionListId().get(oldId), order);
 			}
 		}
+		cardDataRepository.updateOrderByIds(orderById);
 	}
 
-	private void orderCards(List<CardFull> cards) {
+	private void orderCards(String boardShortName, List<CardFull> cards) {
+		Map<Integer, Integer> cardIdsBySequence = cardRepository.findCardIdsBySequenceNumber(boardShortName);
+		Map<Integer, Integer> orderByCardId = new HashMap<>();
 		for (CardFull cf : cards) {
-			int cardId = cardRepository.findCardIdByBoardNameAndSeq(cf.getBoardShortName(), cf.getSequence());
-			cardRepository.updateCardOrder(cardId, cf.getOrder());
+			Integer cardId = cardIdsBySequence.get(cf.getSequence());
+			if (cardId != null) {
+				orderByCardId.put(cardId, cf.getOrder());
+			}
 		}
+		cardRepository.updateCardsOrder(orderByCardId);
 	}
 
-	private void importConfiguration(boolean overrideConfiguration, Path tempFile) {
+	private void importConfiguration(boolean overrideConfiguration, ZipReader zip) {
 		if (overrideConfiguration) {
-			configurationRepository.updateOrCreate(readObject("config.json", tempFile,
+			configurationRepository.updateOrCreate(zip.readObject("config.json",
 					new TypeToken<List<ConfigurationKeyValue>>() {
 					}));
 		}
 	}
 
-	private void importBoards(Path tempFile, ImportContext context) {
-		for (Pair<String, BoardInfo> p : readMatchingObjects("boards/[^/]+\\.json", tempFile,
+	private void importBoards(ZipReader zip, ImportContext context) {
+		for (Pair<String, BoardInfo> p : zip.readMatchingObjects("boards/[^/]+\\.json",
 				new TypeToken<Pair<String, BoardInfo>>() {
 				})) {
 			String projectShortName = p.getFirst();
@@ -169,41 +243,41 @@ class LavagnaImporter {
 			if (context.getImportedProject().contains(projectShortName)) {
 				Project project = projectService.findByShortName(projectShortName);
 				if (!boardRepository.existsWithShortName(boardInfo.getShortName())) {
-					importMissingBoard(project, boardInfo, tempFile, context);
+					importMissingBoard(project, boardInfo, zip, context);
 					context.getImportedBoard().add(boardInfo.getShortName());
 				}
 			}
 		}
 	}
 
-	private void importProjects(Path tempFile, ImportContext context) {
-		for (Project project : readMatchingObjects("projects/[^/]+\\.json", tempFile, new TypeToken<Project>() {
+	private void importProjects(ZipReader zip, ImportContext context) {
+		for (Project project : zip.readMatchingObjects("projects/[^/]+\\.json", new TypeToken<Project>() {
 		})) {
-			if (importProject(project, tempFile)) {
+			if (importProject(project, zip)) {
 				context.getImportedProject().add(project.getShortName());
 			}
 		}
 	}
 
-	private void processEvents(List<EventFull> events, ImportContext idMapping, Path tempFile) {
+	private void processEvents(List<EventFull> events, ImportContext idMapping, ZipReader zip) {
 		for (EventFull e : events) {
-			processEvent(idMapping, e, tempFile);
+			processEvent(idMapping, e, zip);
 		}
 	}
 
-	private void processEvent(ImportContext context, EventFull e, Path tempFile) {
+	private void processEvent(ImportContext context, EventFull e, ZipReader zip) {
 
 		if (!context.getImportedBoard().contains(e.getBoardShortName())) {
 			return;
 		}
 
-		importEvent.processEvent(e, context, tempFile);
+		importEvent.processEvent(e, context, zip);
 	}
 
-	private void importBasePermissions(Path tempFile) {
+	private void importBasePermissions(ZipReader zip) {
 
 		// add missing base permissions
-		Map<String, RoleAndPermissionsWithUsers> permissions = readObject("permissions.json", tempFile,
+		Map<String, RoleAndPermissionsWithUsers> permissions = zip.readObject("permissions.json",
 				new TypeToken<Map<String, RoleAndPermissionsWithUsers>>() {
 				});
 
@@ -249,8 +323,8 @@ class LavagnaImporter {
 	/**
 	 * Import only the users that are not present in the system.
 	 */
-	private void importMissingUsers(Path tempFile) {
-		List<User> users = readObject("users.json", tempFile, new TypeToken<List<User>>() {
+	private void importMissingUsers(ZipReader zip) {
+		List<User> users = zip.readObject("users.json", new TypeToken<List<User>>() {
 		});
 
 		SortedSet<User> usersToImport = new TreeSet<>(new Comparator<User>() {
@@ -266,16 +340,16 @@ class LavagnaImporter {
 		userRepository.createUsers(usersToImport);
 	}
 
-	private boolean importProject(Project project, Path tempFile) {
+	private boolean importProject(Project project, ZipReader zip) {
 		boolean created = projectService.createMissing(singletonList(project)).getRight().isEmpty();
 		if (created) {
 			Project createdProject = projectService.findByShortName(project.getShortName());
 
 			String projectNameDir = "projects/" + project.getShortName();
 
-			importColumnDefinitionColor(tempFile, createdProject, projectNameDir);
-			importLabels(tempFile, createdProject, projectNameDir);
-			importProjectPermissions(tempFile, createdProject, projectNameDir);
+			importColumnDefinitionColor(zip, createdProject, projectNameDir);
+			importLabels(zip, createdProject, projectNameDir);
+			importProjectPermissions(zip, createdProject, projectNameDir);
 
 			return true;
 		} else {
@@ -283,9 +357,9 @@ class LavagnaImporter {
 		}
 	}
 
-	private void importProjectPermissions(Path tempFile, Project createdProject, String projectNameDir) {
-		Map<String, RoleAndPermissionsWithUsers> permissions = readObject(projectNameDir + "/permissions.json",
-				tempFile, new TypeToken<Map<String, RoleAndPermissionsWithUsers>>() {
+	private void importProjectPermissions(ZipReader zip, Project createdProject, String projectNameDir) {
+		Map<String, RoleAndPermissionsWithUsers> permissions = zip.readObject(projectNameDir + "/permissions.json",
+				new TypeToken<Map<String, RoleAndPermissionsWithUsers>>() {
 				});
 		permissionService.createMissingRolesWithPermissionForProject(createdProject.getId(), from(permissions));
 		// add users to roles
@@ -304,8 +378,8 @@ class LavagnaImporter {
 		return userIds;
 	}
 
-	private void importLabels(Path tempFile, Project createdProject, String projectNameDir) {
-		List<Pair<CardLabel, List<LabelListValue>>> labels = readObject(projectNameDir + "/labels.json", tempFile,
+	private void importLabels(ZipReader zip, Project createdProject, String projectNameDir) {
+		List<Pair<CardLabel, List<LabelListValue>>> labels = zip.readObject(projectNameDir + "/labels.json",
 				new TypeToken<List<Pair<CardLabel, List<LabelListValue>>>>() {
 				});
 
@@ -321,16 +395,18 @@ class LavagnaImporter {
 			if (label.getType() == LabelType.LIST && !pLabel.getSecond().isEmpty()) {
 				CardLabel importedCl = cardLabelRepository.findLabelByName(createdProject.getId(), label.getName(),
 						label.getDomain());
+				List<String> values = new ArrayList<>(pLabel.getSecond().size());
 				for (LabelListValue llv : pLabel.getSecond()) {
-					cardLabelRepository.addLabelListValue(importedCl.getId(), llv.getValue());
+					values.add(llv.getValue());
 				}
+				cardLabelRepository.addLabelListValues(importedCl.getId(), values);
 			}
 		}
 	}
 
-	private void importColumnDefinitionColor(Path tempFile, Project createdProject, String projectNameDir) {
-		Map<ColumnDefinition, BoardColumnDefinition> importedColDef = readObject(projectNameDir
-				+ "/column-definitions.json", tempFile, new TypeToken<Map<ColumnDefinition, BoardColumnDefinition>>() {
+	private void importColumnDefinitionColor(ZipReader zip, Project createdProject, String projectNameDir) {
+		Map<ColumnDefinition, BoardColumnDefinition> importedColDef = zip.readObject(projectNameDir
+				+ "/column-definitions.json", new TypeToken<Map<ColumnDefinition, BoardColumnDefinition>>() {
 		});
 		Map<ColumnDefinition, BoardColumnDefinition> currentColDef = projectService
 				.findMappedColumnDefinitionsByProjectId(createdProject.getId());
@@ -341,11 +417,11 @@ class LavagnaImporter {
 		}
 	}
 
-	private void importMissingBoard(Project project, BoardInfo boardInfo, Path tempFile, ImportContext idMapping) {
+	private void importMissingBoard(Project project, BoardInfo boardInfo, ZipReader zip, ImportContext idMapping) {
 		Board createdBoard = boardRepository.createEmptyBoard(boardInfo.getName(), boardInfo.getShortName(), boardInfo.getDescription(),
 				project.getId());
 		boardRepository.updateBoard(createdBoard.getId(), createdBoard.getName(), createdBoard.getDescription(), boardInfo.isArchived());
-		List<BoardColumn> boardColumns = readObject("boards/" + boardInfo.getShortName() + "/columns.json", tempFile,
+		List<BoardColumn> boardColumns = zip.readObject("boards/" + boardInfo.getShortName() + "/columns.json",
 				new TypeToken<List<BoardColumn>>() {
 				});
 		int boardId = boardRepository.findBoardIdByShortName(boardInfo.getShortName());
@@ -362,15 +438,10 @@ class LavagnaImporter {
 			idMapping.getColumns().put(bc.getId(), added.getId());
 		}
 
-		List<StatisticForExport> stats = readObject("boards/" + boardInfo.getShortName() + "/statistics.json",
-				tempFile, new TypeToken<List<StatisticForExport>>() {
+		List<StatisticForExport> stats = zip.readObject("boards/" + boardInfo.getShortName() + "/statistics.json",
+				new TypeToken<List<StatisticForExport>>() {
 				});
-
-		// TODO: not optimal in term of performance, use a bulk insert
-		for (StatisticForExport stat : stats) {
-			statisticsQuery.addFromImport(stat.getDate(), boardId, colsDef.get(stat.getColumnDefinition()).getId(),
-					stat.getLocation().toString(), stat.getCount());
-		}
+		statisticsService.addFromImport(boardId, stats, colsDef);
 	}
 
 }
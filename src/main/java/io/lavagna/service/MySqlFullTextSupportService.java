@@ -16,8 +16,15 @@
  */
 package io.lavagna.service;
 
+import io.lavagna.model.FullTextSyncStatistics;
 import io.lavagna.query.MySqlFullTextSupportQuery;
 
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,9 +33,11 @@ import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
- * Service for handling the asynchronous copy of text data from INNODB tables to MYSAM ones.
- * <p>
- * As we support older version of MySQL, the fulltext search engine is not present in the INNODB tables.
+ * Copy the cards and the card data that have been changed in the MyISAM FTS support tables.
+ *
+ * The changed rows are recorded in LA_FTS_CHANGE_LOG by the triggers on LA_CARD and LA_CARD_DATA: when there are no
+ * changes a sync is a single lookup on the primary key of the log, otherwise only the changed rows are copied, in
+ * batches.
  */
 @Service
 @Transactional(propagation = Propagation.NESTED)
@@ -38,29 +47,58 @@ public class MySqlFullTextSupportService {
 
 	private final MySqlFullTextSupportQuery queries;
 
+	// while an import is running the copy is suspended: it would only compete with the import for the same rows
+	private final AtomicInteger suspended = new AtomicInteger();
+
+	private final AtomicReference<FullTextSyncStatistics> statistics = new AtomicReference<>(
+			new FullTextSyncStatistics(null, 0, 0, 0));
+	private final AtomicLong totalChanges = new AtomicLong();
+
 	@Autowired
 	public MySqlFullTextSupportService(MySqlFullTextSupportQuery queries) {
 		this.queries = queries;
 	}
 
-	public void syncNewCards() {
-		int rowAffected = queries.syncNewCards();
-		LOG.debug("syncNewCards : updated {} row", rowAffected);
+	public void suspend() {
+		suspended.incrementAndGet();
 	}
 
-	public void syncUpdatedCards() {
-		int rowAffected = queries.syncUpdatedCards();
-		LOG.debug("syncUpdatedCards : updated {} row", rowAffected);
+	/**
+	 * Resume the copy: the changes recorded meanwhile are copied by the next scheduled executions.
+	 */
+	public void resume() {
+		suspended.decrementAndGet();
 	}
 
-	public void syncNewCardData() {
-		int rowAffected = queries.syncNewCardData();
-		LOG.debug("syncNewCardData : updated {} row", rowAffected);
-	}
+	/**
+	 * Copy the next batch of changes.
+	 *
+	 * @return the number of changes that have been copied, 0 if there was nothing to do or the copy is suspended
+	 */
+	public int sync() {
+		if (suspended.get() > 0) {
+			return 0;
+		}
+
+		List<Integer> oldestChangeAge = queries.findOldestChangeAge();
+		if (oldestChangeAge.isEmpty()) {
+			statistics.set(new FullTextSyncStatistics(new Date(), 0, totalChanges.get(), 0));
+			return 0;
+		}
 
-	public void syncUpdatedCardData() {
-		int rowAffected = queries.syncUpdatedCardData();
-		LOG.debug("syncUpdatedCardData : updated {} row", rowAffected);
+		int lastChangeId = queries.findLastChangeIdOfNextBatch();
+		int cards = queries.syncChangedCards(lastChangeId);
+		int cardData = queries.syncChangedCardData(lastChangeId);
+		int changes = queries.deleteChangesUntil(lastChangeId);
+
+		statistics.set(new FullTextSyncStatistics(new Date(), changes, totalChanges.addAndGet(changes),
+				oldestChangeAge.get(0)));
+		LOG.debug("sync : copied {} changes, {} card rows and {} card data rows affected", changes, cards, cardData);
+		return changes;
 	}
 
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public FullTextSyncStatistics getStatistics() {
+		return statistics.get();
+	}
 }
@@ -16,6 +16,7 @@
  */
 package io.lavagna.service;
 
+import io.lavagna.model.BoardColumn;
 import io.lavagna.model.CardFull;
 import io.lavagna.model.CardLabel.LabelType;
 import io.lavagna.model.Event;
@@ -24,6 +25,7 @@ import io.lavagna.model.Key;
 import io.lavagna.model.MailConfig;
 import io.lavagna.model.User;
 import io.lavagna.query.NotificationQuery;
+import io.lavagna.service.AsyncMailSender.PreparedMail;
 
 import java.io.IOException;
 import java.io.InputStreamReader;
@@ -31,6 +33,8 @@ import java.nio.charset.StandardCharsets;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -40,6 +44,9 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang3.EnumUtils;
 import org.apache.commons.lang3.ObjectUtils;
@@ -50,18 +57,23 @@ import org.apache.commons.lang3.tuple.ImmutableTriple;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.MessageSource;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
-import org.springframework.mail.MailException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import com.samskivert.mustache.Mustache;
-import com.samskivert.mustache.MustacheException;
+import com.samskivert.mustache.Template;
 
 /**
  * Handle the whole email notification process.
@@ -72,6 +84,11 @@ public class NotificationService {
 
 	private static final Logger LOG = LogManager.getLogger();
 
+	/**
+	 * Maximum count of card or user ids bound in a IN clause: well below the bind parameters limit of the databases.
+	 */
+	private static final int IDS_PER_QUERY = 1000;
+
 	private final ConfigurationRepository configurationRepository;
 	private final BoardColumnRepository boardColumnRepository;
 	private final CardDataRepository cardDataRepository;
@@ -83,11 +100,18 @@ public class NotificationService {
 	private final NamedParameterJdbcTemplate jdbc;
 	private final NotificationQuery queries;
 
+	private final AsyncMailSender asyncMailSender;
+	private final ThreadPoolTaskExecutor renderExecutor;
+
+	private final Template textTemplate;
+	private final Template htmlTemplate;
+
 	@Autowired
 	public NotificationService(ConfigurationRepository configurationRepository, UserRepository userRepository,
 			CardDataRepository cardDataRepository, CardRepository cardRepository,
 			BoardColumnRepository boardColumnRepository, MessageSource messageSource, NamedParameterJdbcTemplate jdbc,
-			NotificationQuery queries) {
+			NotificationQuery queries, AsyncMailSender asyncMailSender,
+			@Qualifier("notificationRenderExecutor") ThreadPoolTaskExecutor renderExecutor) {
 		this.configurationRepository = configurationRepository;
 		this.userRepository = userRepository;
 		this.cardDataRepository = cardDataRepository;
@@ -96,6 +120,21 @@ public class NotificationService {
 		this.messageSource = messageSource;
 		this.jdbc = jdbc;
 		this.queries = queries;
+		this.asyncMailSender = asyncMailSender;
+		this.renderExecutor = renderExecutor;
+
+		com.samskivert.mustache.Mustache.Compiler compiler = Mustache.compiler().escapeHTML(true).defaultValue("");
+		this.textTemplate = compile(compiler, "/io/lavagna/notification/email.txt");
+		this.htmlTemplate = compile(compiler, "/io/lavagna/notification/email.html");
+	}
+
+	private static Template compile(com.samskivert.mustache.Mustache.Compiler compiler, String path) {
+		try (InputStreamReader reader = new InputStreamReader(new ClassPathResource(path).getInputStream(),
+				StandardCharsets.UTF_8)) {
+			return compiler.compile(reader);
+		} catch (IOException e) {
+			throw new IllegalStateException("cannot read the template " + path, e);
+		}
 	}
 
 	/**
@@ -171,8 +210,8 @@ public class NotificationService {
 		return res;
 	}
 
-	private ImmutableTriple<String, String, String> composeEmailForUser(User user, EventsContext context)
-			throws MustacheException, IOException {
+	private Callable<ImmutableTriple<String, String, String>> composeEmailForUser(EventsContext context,
+			String baseApplicationUrl) {
 
 		List<Map<String, Object>> cardsModel = new ArrayList<>();
 
@@ -194,81 +233,307 @@ public class NotificationService {
 			cardsModel.add(cardModel);
 		}
 
-		com.samskivert.mustache.Mustache.Compiler compiler = Mustache.compiler().escapeHTML(true).defaultValue("");
-
-		Map<String, Object> tmplModel = new HashMap<>();
+		final Map<String, Object> tmplModel = new HashMap<>();
 		tmplModel.put("cards", cardsModel);
-		tmplModel.put("baseApplicationUrl",
-				StringUtils.appendIfMissing(configurationRepository.getValue(Key.BASE_APPLICATION_URL), "/"));
-
-		String text = compiler.compile(
-				new InputStreamReader(new ClassPathResource("/io/lavagna/notification/email.txt").getInputStream(),
-						StandardCharsets.UTF_8)).execute(tmplModel);
+		tmplModel.put("baseApplicationUrl", baseApplicationUrl);
 
-		String html = compiler.compile(
-				new InputStreamReader(new ClassPathResource("/io/lavagna/notification/email.html").getInputStream(),
-						StandardCharsets.UTF_8)).execute(tmplModel);
+		final String s = subject.substring(0, subject.length() - ", ".length());
 
-		return ImmutableTriple.of(subject.substring(0, subject.length() - ", ".length()), text, html);
+		// the templates execution does not access the database, it can be done in parallel
+		return new Callable<ImmutableTriple<String, String, String>>() {
+			@Override
+			public ImmutableTriple<String, String, String> call() {
+				return ImmutableTriple.of(s, textTemplate.execute(tmplModel), htmlTemplate.execute(tmplModel));
+			}
+		};
 	}
 
 	/**
-	 * Send email (if all the conditions are met) to the user.
+	 * Send email (if all the conditions are met) to the users. The emails are composed in parallel and handed to the
+	 * {@link AsyncMailSender} once the transaction has been committed.
+	 *
+	 * The sent date is not updated for the users whose email has been discarded (e.g. the queue of the emails is
+	 * full): their events will be sent the next time.
 	 * 
-	 * @param userId
+	 * @param userIds
 	 * @param upTo
 	 * @param emailEnabled
 	 * @param mailConfig
 	 */
-	public void notifyUser(int userId, Date upTo, boolean emailEnabled, MailConfig mailConfig) {
-		Date lastSent = queries.lastEmailSent(userId);
-		List<Event> events = filterEvents(
-				queries.eventsForUser(userId, ObjectUtils.firstNonNull(lastSent, DateUtils.addDays(upTo, -1)), upTo),
-				userId, lastSent);
-
-		User user = userRepository.findById(userId);
-		if (!events.isEmpty() && mailConfig != null && mailConfig.isMinimalConfigurationPresent() && emailEnabled
-				&& user.canSendEmail()) {
-			try {
-				sendEmailToUser(user, events, mailConfig);
-			} catch (MustacheException | IOException | MailException e) {
-				LOG.warn("Error while sending an email to user with id " + user.getId(), e);
-			}
+	public void notifyUsers(Set<Integer> userIds, Date upTo, boolean emailEnabled, MailConfig mailConfig) {
+		if (userIds.isEmpty()) {
+			return;
+		}
+
+		Set<Integer> notified = new HashSet<>(userIds);
+		if (mailConfig != null && mailConfig.isMinimalConfigurationPresent() && emailEnabled) {
+			notified.removeAll(sendEmailToUsers(userIds, upTo, mailConfig));
 		}
 
 		//
-		queries.updateSentEmailDate(upTo, userId);
+		List<Integer> notifiedIds = new ArrayList<>(notified);
+		for (int i = 0; i < notifiedIds.size(); i += IDS_PER_QUERY) {
+			queries.updateSentEmailDate(upTo, notifiedIds.subList(i, Math.min(notifiedIds.size(), i + IDS_PER_QUERY)));
+		}
 	}
 
-	private void sendEmailToUser(User user, List<Event> events, MailConfig mailConfig) throws MustacheException,
-			IOException {
+	/**
+	 * @return the ids of the users whose email has been discarded
+	 */
+	private Set<Integer> sendEmailToUsers(Set<Integer> userIds, Date upTo, MailConfig mailConfig) {
+
+		List<Integer> ids = new ArrayList<>(userIds);
+		List<User> users = new ArrayList<>();
+		for (int i = 0; i < ids.size(); i += IDS_PER_QUERY) {
+			for (User user : userRepository.findByIds(ids.subList(i, Math.min(ids.size(), i + IDS_PER_QUERY)))) {
+				if (user.canSendEmail()) {
+					users.add(user);
+				}
+			}
+		}
+		if (users.isEmpty()) {
+			return Collections.emptySet();
+		}
 
-		Set<Integer> userIds = new HashSet<>();
-		userIds.add(user.getId());
+		Map<Integer, List<Event>> eventsByUser = eventsForUsers(users, upTo);
+		if (eventsByUser.isEmpty()) {
+			return Collections.emptySet();
+		}
+
+		// load in bulk all the data referenced by the events
+		Set<Integer> relatedUserIds = new HashSet<>(eventsByUser.keySet());
 		Set<Integer> cardIds = new HashSet<>();
 		Set<Integer> cardDataIds = new HashSet<>();
 		Set<Integer> columnIds = new HashSet<>();
 
-		for (Event e : events) {
-			cardIds.add(e.getCardId());
-			userIds.add(e.getUserId());
+		for (List<Event> events : eventsByUser.values()) {
+			for (Event e : events) {
+				cardIds.add(e.getCardId());
+				relatedUserIds.add(e.getUserId());
+
+				addIfNotNull(relatedUserIds, e.getValueUser());
+				addIfNotNull(cardIds, e.getValueCard());
+
+				addIfNotNull(cardDataIds, e.getDataId());
+				addIfNotNull(cardDataIds, e.getPreviousDataId());
+
+				addIfNotNull(columnIds, e.getColumnId());
+				addIfNotNull(columnIds, e.getPreviousColumnId());
+			}
+		}
+
+		Map<Integer, User> relatedUsers = new HashMap<>();
+		for (User u : userRepository.findByIds(relatedUserIds)) {
+			relatedUsers.put(u.getId(), u);
+		}
+		Map<Integer, CardFull> cards = new HashMap<>();
+		for (CardFull c : cardRepository.findAllByIds(cardIds)) {
+			cards.put(c.getId(), c);
+		}
+		Map<Integer, String> cardData = cardDataIds.isEmpty() ? new HashMap<Integer, String>() : cardDataRepository
+				.findDataByIds(cardDataIds);
+		Map<Integer, BoardColumn> columns = new HashMap<>();
+		if (!columnIds.isEmpty()) {
+			for (BoardColumn bc : boardColumnRepository.findByIds(columnIds)) {
+				columns.put(bc.getId(), bc);
+			}
+		}
+
+		String baseApplicationUrl = StringUtils.appendIfMissing(
+				configurationRepository.getValue(Key.BASE_APPLICATION_URL), "/");
+
+		List<User> recipients = new ArrayList<>();
+		List<Callable<ImmutableTriple<String, String, String>>> emails = new ArrayList<>();
+		for (User user : users) {
+			if (eventsByUser.containsKey(user.getId())) {
+				recipients.add(user);
+				emails.add(composeEmailForUser(new EventsContext(eventsByUser.get(user.getId()), relatedUsers, cards,
+						cardData, columns), baseApplicationUrl));
+			}
+		}
+
+		Set<Integer> discarded = new HashSet<>();
+		List<Future<ImmutableTriple<String, String, String>>> composed = new ArrayList<>(emails.size());
+		for (Callable<ImmutableTriple<String, String, String>> email : emails) {
+			composed.add(renderExecutor.submit(email));
+		}
+
+		List<PreparedMail> mails = new ArrayList<>();
+		for (int i = 0; i < recipients.size(); i++) {
+			User user = recipients.get(i);
+			try {
+				ImmutableTriple<String, String, String> subjectAndText = composed.get(i).get();
+				PreparedMail mail = asyncMailSender.prepare(mailConfig, user.getEmail(),
+						StringUtils.substring("Lavagna: " + subjectAndText.getLeft(), 0, 78),
+						subjectAndText.getMiddle(), subjectAndText.getRight());
+				if (mail == null) {
+					discarded.add(user.getId());
+				} else {
+					mails.add(mail);
+				}
+			} catch (ExecutionException e) {
+				LOG.warn("Error while composing an email to user with id " + user.getId(), e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				for (PreparedMail mail : mails) {
+					mail.discard();
+				}
+				for (User u : recipients) {
+					discarded.add(u.getId());
+				}
+				return discarded;
+			}
+		}
+		sendAfterCommit(mails);
+		return discarded;
+	}
+
+	/**
+	 * The emails are sent only if the sent date update is committed: a rollback would send them again at the next
+	 * check.
+	 */
+	private static void sendAfterCommit(final List<PreparedMail> mails) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			for (PreparedMail mail : mails) {
+				mail.send();
+			}
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCommit() {
+				for (PreparedMail mail : mails) {
+					mail.send();
+				}
+			}
 
-			addIfNotNull(userIds, e.getValueUser());
-			addIfNotNull(cardIds, e.getValueCard());
+			@Override
+			public void afterCompletion(int status) {
+				if (status != TransactionSynchronization.STATUS_COMMITTED) {
+					for (PreparedMail mail : mails) {
+						mail.discard();
+					}
+				}
+			}
+		});
+	}
 
-			addIfNotNull(cardDataIds, e.getDataId());
-			addIfNotNull(cardDataIds, e.getPreviousDataId());
+	/**
+	 * Load with a few queries the events of all the cards assigned or watched by the given users, the users being
+	 * read in chunks of {@link #IDS_PER_QUERY}.
+	 */
+	private Map<Integer, List<Event>> eventsForUsers(List<User> users, Date upTo) {
 
-			addIfNotNull(columnIds, e.getColumnId());
-			addIfNotNull(columnIds, e.getPreviousColumnId());
+		List<Integer> ids = new ArrayList<>(users.size());
+		for (User user : users) {
+			ids.add(user.getId());
 		}
 
-		final ImmutableTriple<String, String, String> subjectAndText = composeEmailForUser(user,
-				new EventsContext(events, userRepository.findByIds(userIds), cardRepository.findAllByIds(cardIds),
-						cardDataRepository.findDataByIds(cardDataIds), boardColumnRepository.findByIds(columnIds)));
+		final Map<Integer, Date> lastSentByUser = new HashMap<>();
+		final Map<Integer, Set<Integer>> cardIdsByUser = new HashMap<>();
+		final Set<Integer> cardIds = new HashSet<>();
+		for (int i = 0; i < ids.size(); i += IDS_PER_QUERY) {
+			MapSqlParameterSource userIdsParam = new MapSqlParameterSource("userIds", ids.subList(i,
+					Math.min(ids.size(), i + IDS_PER_QUERY)));
+
+			jdbc.query(queries.lastEmailSentForUsers(), userIdsParam, new RowCallbackHandler() {
+				@Override
+				public void processRow(ResultSet rs) throws SQLException {
+					lastSentByUser.put(rs.getInt("USER_ID"), rs.getTimestamp("USER_LAST_EMAIL_SENT"));
+				}
+			});
+
+			jdbc.query(queries.cardsForUsers(), userIdsParam, new RowCallbackHandler() {
+				@Override
+				public void processRow(ResultSet rs) throws SQLException {
+					int userId = rs.getInt("CARD_LABEL_VALUE_USER_FK");
+					int cardId = rs.getInt("CARD_ID_FK");
+					if (!cardIdsByUser.containsKey(userId)) {
+						cardIdsByUser.put(userId, new HashSet<Integer>());
+					}
+					cardIdsByUser.get(userId).add(cardId);
+					cardIds.add(cardId);
+				}
+			});
+		}
+
+		Map<Integer, List<Event>> res = new HashMap<>();
+		if (cardIds.isEmpty()) {
+			return res;
+		}
 
-		mailConfig.send(user.getEmail(), StringUtils.substring("Lavagna: " + subjectAndText.getLeft(), 0, 78),
-				subjectAndText.getMiddle(), subjectAndText.getRight());
+		// for each card, the oldest date among the users assigned to or watching it
+		Date defaultFrom = DateUtils.addDays(upTo, -1);
+		final Map<Integer, Date> fromByCard = new HashMap<>();
+		for (User user : users) {
+			Set<Integer> userCardIds = cardIdsByUser.get(user.getId());
+			if (userCardIds == null) {
+				continue;
+			}
+			Date userFrom = ObjectUtils.firstNonNull(lastSentByUser.get(user.getId()), defaultFrom);
+			for (Integer cardId : userCardIds) {
+				Date from = fromByCard.get(cardId);
+				if (from == null || userFrom.before(from)) {
+					fromByCard.put(cardId, userFrom);
+				}
+			}
+		}
+
+		Map<Integer, List<Event>> eventsByCard = eventsForCards(fromByCard, upTo);
+
+		for (User user : users) {
+			Set<Integer> userCardIds = cardIdsByUser.get(user.getId());
+			if (userCardIds == null) {
+				continue;
+			}
+			Date lastSent = lastSentByUser.get(user.getId());
+			Date userFrom = ObjectUtils.firstNonNull(lastSent, defaultFrom);
+			List<Event> userEvents = new ArrayList<>();
+			for (Integer cardId : userCardIds) {
+				List<Event> cardEvents = eventsByCard.get(cardId);
+				if (cardEvents == null) {
+					continue;
+				}
+				for (Event e : cardEvents) {
+					if (!e.getTime().before(userFrom)) {
+						userEvents.add(e);
+					}
+				}
+			}
+			List<Event> filtered = filterEvents(userEvents, user.getId(), lastSent);
+			if (!filtered.isEmpty()) {
+				res.put(user.getId(), filtered);
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Load the events of the cards in chunks of {@link #IDS_PER_QUERY}. The cards are sorted by date, so a user not
+	 * notified since long makes only the chunks with their cards read a long history.
+	 *
+	 * @return the events by card id, in chronological order
+	 */
+	private Map<Integer, List<Event>> eventsForCards(final Map<Integer, Date> fromByCard, Date upTo) {
+		List<Integer> cardIds = new ArrayList<>(fromByCard.keySet());
+		Collections.sort(cardIds, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return fromByCard.get(o1).compareTo(fromByCard.get(o2));
+			}
+		});
+
+		Map<Integer, List<Event>> res = new HashMap<>();
+		for (int i = 0; i < cardIds.size(); i += IDS_PER_QUERY) {
+			List<Integer> chunk = cardIds.subList(i, Math.min(cardIds.size(), i + IDS_PER_QUERY));
+			for (Event e : queries.eventsForCards(chunk, fromByCard.get(chunk.get(0)), upTo)) {
+				if (!res.containsKey(e.getCardId())) {
+					res.put(e.getCardId(), new ArrayList<Event>());
+				}
+				res.get(e.getCardId()).add(e);
+			}
+		}
+		return res;
 	}
 
 	private static <T> void addIfNotNull(Set<T> s, T v) {
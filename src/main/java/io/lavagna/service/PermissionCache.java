@@ -0,0 +1,157 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.model.CacheStatistics;
+import io.lavagna.model.UserWithPermission;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Bounded cache of the {@link UserWithPermission}, keyed by user id.
+ *
+ * <p>
+ * Each entry is tagged with the permission epoch at load time. The epoch is incremented by each modification of the
+ * roles, the permissions or the users done by this node, and when the version stored in LA_CACHE_VERSION, checked at
+ * most every {@link #VERSION_CHECK_INTERVAL} ms, has been changed by another node: older entries are then ignored.
+ * </p>
+ */
+@Service
+public class PermissionCache {
+
+	static final String CACHE_NAME = "PERMISSION";
+	static final long VERSION_CHECK_INTERVAL = 1000;
+	static final int MAX_SIZE = 1024;
+
+	private final CacheVersionRepository cacheVersionRepository;
+	private final long versionCheckInterval;
+
+	private final AtomicLong epoch = new AtomicLong();
+	private volatile long lastVersion = -1;
+	private volatile long checkedAt;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	private final Map<Integer, CachedUser> cache = new LinkedHashMap<Integer, CachedUser>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Entry<Integer, CachedUser> eldest) {
+			return size() > MAX_SIZE;
+		}
+	};
+
+	@Autowired
+	public PermissionCache(CacheVersionRepository cacheVersionRepository) {
+		this(cacheVersionRepository, VERSION_CHECK_INTERVAL);
+	}
+
+	PermissionCache(CacheVersionRepository cacheVersionRepository, long versionCheckInterval) {
+		this.cacheVersionRepository = cacheVersionRepository;
+		this.versionCheckInterval = versionCheckInterval;
+	}
+
+	/**
+	 * Return the cached value or null if absent or stale.
+	 *
+	 * @param userId
+	 * @return
+	 */
+	public UserWithPermission get(int userId) {
+		if (cacheVersionRepository.isModifiedInCurrentTransaction(CACHE_NAME)) {
+			misses.incrementAndGet();
+			return null;
+		}
+
+		long currentEpoch = currentEpoch();
+		CachedUser cached;
+		synchronized (cache) {
+			cached = cache.get(userId);
+		}
+
+		if (cached != null && cached.epoch == currentEpoch) {
+			hits.incrementAndGet();
+			return cached.user;
+		}
+		misses.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Must be called <strong>before</strong> loading the value to put in the cache.
+	 *
+	 * @return
+	 */
+	public long currentEpoch() {
+		long now = System.currentTimeMillis();
+		if (now - checkedAt >= versionCheckInterval) {
+			long version = cacheVersionRepository.getVersion(CACHE_NAME);
+			if (version != lastVersion) {
+				lastVersion = version;
+				epoch.incrementAndGet();
+			}
+			checkedAt = now;
+		}
+		return epoch.get();
+	}
+
+	/**
+	 * @param user
+	 * @param loadEpoch
+	 *            the value returned by {@link #currentEpoch()} before loading the user.
+	 */
+	public void put(UserWithPermission user, long loadEpoch) {
+		if (cacheVersionRepository.isModifiedInCurrentTransaction(CACHE_NAME)) {
+			return;
+		}
+
+		synchronized (cache) {
+			cache.put(user.getId(), new CachedUser(user, loadEpoch));
+		}
+	}
+
+	/**
+	 * To be called by each modification of the data contained in a {@link UserWithPermission}.
+	 */
+	public void permissionsModified() {
+		cacheVersionRepository.increment(CACHE_NAME, new Runnable() {
+			@Override
+			public void run() {
+				epoch.incrementAndGet();
+			}
+		});
+	}
+
+	public CacheStatistics getCacheStatistics() {
+		return new CacheStatistics(CACHE_NAME, hits.get(), misses.get());
+	}
+
+	private static class CachedUser {
+		private final UserWithPermission user;
+		private final long epoch;
+
+		CachedUser(UserWithPermission user, long epoch) {
+			this.user = user;
+			this.epoch = epoch;
+		}
+	}
+}
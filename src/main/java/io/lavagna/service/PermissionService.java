@@ -53,12 +53,15 @@ public class PermissionService {
 	private final NamedParameterJdbcTemplate jdbc;
 	private final PermissionQuery queries;
 	private final UserRepository userRepository;
+	private final PermissionCache permissionCache;
 
 	@Autowired
-	public PermissionService(NamedParameterJdbcTemplate jdbc, PermissionQuery queries, UserRepository userRepository) {
+	public PermissionService(NamedParameterJdbcTemplate jdbc, PermissionQuery queries, UserRepository userRepository,
+			PermissionCache permissionCache) {
 		this.jdbc = jdbc;
 		this.queries = queries;
 		this.userRepository = userRepository;
+		this.permissionCache = permissionCache;
 	}
 
 	/**
@@ -216,12 +219,14 @@ public class PermissionService {
 	@Transactional(readOnly = false)
 	public int deleteRole(Role role) {
 		Objects.requireNonNull(role);
+		permissionCache.permissionsModified();
 		return queries.deleteRole(role.getName());
 	}
 
 	@Transactional(readOnly = false)
 	public int deleteRoleInProjectId(Role role, int projectId) {
 		Objects.requireNonNull(role);
+		permissionCache.permissionsModified();
 		return queries.deleteRoleInProjectId(role.getName(), projectId);
 	}
 
@@ -234,6 +239,7 @@ public class PermissionService {
 		queries.deletePermissions(role.getName());
 		// step 2: add the enabled permission
 		jdbc.batchUpdate(queries.addPermission(), from(role, enabledPermissions));
+		permissionCache.permissionsModified();
 	}
 
 	@Transactional(readOnly = false)
@@ -246,6 +252,7 @@ public class PermissionService {
 		queries.deletePermissionsInProjectId(role.getName(), projectId);
 		// step 2: add the enabled permission
 		jdbc.batchUpdate(queries.addPermissionInProjectId(), addProjectId(from(role, permissions), projectId));
+		permissionCache.permissionsModified();
 	}
 
 	private void checkRoleCondition(String roleName, Set<Integer> usersId) {
@@ -270,6 +277,7 @@ public class PermissionService {
 		checkRoleCondition(role.getName(), userIds);
 
 		jdbc.batchUpdate(queries.assignRoleToUser(), fromUserIdAndRoleName(role, userIds));
+		permissionCache.permissionsModified();
 	}
 
 	@Transactional(readOnly = false)
@@ -281,6 +289,7 @@ public class PermissionService {
 
 		jdbc.batchUpdate(queries.assignRoleToUsersInProjectId(),
 				addProjectId(fromUserIdAndRoleName(role, userIds), projectId));
+		permissionCache.permissionsModified();
 	}
 
 	@Transactional(readOnly = false)
@@ -291,6 +300,7 @@ public class PermissionService {
 		checkRoleCondition(role.getName(), userIds);
 
 		jdbc.batchUpdate(queries.removeRoleToUsers(), fromUserIdAndRoleName(role, userIds));
+		permissionCache.permissionsModified();
 	}
 
 	@Transactional(readOnly = false)
@@ -302,6 +312,7 @@ public class PermissionService {
 
 		jdbc.batchUpdate(queries.removeRoleToUsersInProjectId(),
 				addProjectId(fromUserIdAndRoleName(role, userIds), projectId));
+		permissionCache.permissionsModified();
 	}
 
 	public List<User> findUserByRole(Role role) {
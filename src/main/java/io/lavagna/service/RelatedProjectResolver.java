@@ -0,0 +1,257 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.model.CacheStatistics;
+import io.lavagna.query.ProjectQuery;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Resolve in a single query the short names of the projects related to a set of resources.
+ *
+ * <p>
+ * The resolved mappings are cached: the relation between a resource and its project is immutable, with the exception
+ * of the cards (and of their data and events) that can be moved to a column of another project. The cached mappings of
+ * those resources are tagged with an epoch that is incremented by each card move done by this node, and when the
+ * version stored in LA_CACHE_VERSION, checked at most every {@link #VERSION_CHECK_INTERVAL} ms, has been changed by
+ * another node.
+ * </p>
+ */
+@Service
+@Transactional(readOnly = true)
+public class RelatedProjectResolver {
+
+	static final String CACHE_NAME = "RELATED_PROJECT";
+	static final long VERSION_CHECK_INTERVAL = 1000;
+	static final int MAX_SIZE = 4096;
+
+	public enum ResourceType {
+		PROJECT(null, false), //
+		BOARD("boardShortNames", false), //
+		CARD("cardIds", true), //
+		COLUMN("columnIds", false), //
+		CARD_DATA("cardDataIds", true), //
+		EVENT("eventIds", true), //
+		LABEL("labelIds", false), //
+		LABEL_VALUE("labelValueIds", false), //
+		COLUMN_DEFINITION("columnDefinitionIds", false);
+
+		private final String paramName;
+		private final boolean followsCardMoves;
+
+		private ResourceType(String paramName, boolean followsCardMoves) {
+			this.paramName = paramName;
+			this.followsCardMoves = followsCardMoves;
+		}
+	}
+
+	private final NamedParameterJdbcTemplate jdbc;
+	private final CacheVersionRepository cacheVersionRepository;
+	private final long versionCheckInterval;
+	private final Map<ResourceType, String> templates = new EnumMap<>(ResourceType.class);
+
+	private final AtomicLong epoch = new AtomicLong();
+	private volatile long lastVersion = -1;
+	private volatile long checkedAt;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	private final Map<String, CachedProject> cache = new LinkedHashMap<String, CachedProject>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Entry<String, CachedProject> eldest) {
+			return size() > MAX_SIZE;
+		}
+	};
+
+	@Autowired
+	public RelatedProjectResolver(NamedParameterJdbcTemplate jdbc, ProjectQuery queries,
+			CacheVersionRepository cacheVersionRepository) {
+		this(jdbc, queries, cacheVersionRepository, VERSION_CHECK_INTERVAL);
+	}
+
+	RelatedProjectResolver(NamedParameterJdbcTemplate jdbc, ProjectQuery queries,
+			CacheVersionRepository cacheVersionRepository, long versionCheckInterval) {
+		this.jdbc = jdbc;
+		this.cacheVersionRepository = cacheVersionRepository;
+		this.versionCheckInterval = versionCheckInterval;
+
+		templates.put(ResourceType.BOARD, queries.findRelatedProjectShortNameByBoardShortNames());
+		templates.put(ResourceType.CARD, queries.findRelatedProjectShortNameByCardIds());
+		templates.put(ResourceType.COLUMN, queries.findRelatedProjectShortNameByColumnIds());
+		templates.put(ResourceType.CARD_DATA, queries.findRelatedProjectShortNameByCardDataIds());
+		templates.put(ResourceType.EVENT, queries.findRelatedProjectShortNameByEventIds());
+		templates.put(ResourceType.LABEL, queries.findRelatedProjectShortNameByLabelIds());
+		templates.put(ResourceType.LABEL_VALUE, queries.findRelatedProjectShortNameByLabelValueIds());
+		templates.put(ResourceType.COLUMN_DEFINITION, queries.findRelatedProjectShortNameByColumnDefinitionIds());
+	}
+
+	/**
+	 * Return the short names of the projects related to the given resources. The resources that do not exist are
+	 * ignored, as the ids that are not a number when the resource type expect one.
+	 *
+	 * @param resources
+	 *            the resource ids (or short names for {@link ResourceType#PROJECT} and {@link ResourceType#BOARD}),
+	 *            grouped by type
+	 * @return
+	 */
+	public Set<String> findRelatedProjectShortNames(Map<ResourceType, Set<String>> resources) {
+
+		boolean useCache = !cacheVersionRepository.isModifiedInCurrentTransaction(CACHE_NAME);
+		long loadEpoch = currentEpoch();
+
+		Set<String> res = new HashSet<>();
+		Map<ResourceType, Set<Object>> toLoad = new EnumMap<>(ResourceType.class);
+
+		for (Entry<ResourceType, Set<String>> kv : resources.entrySet()) {
+			ResourceType type = kv.getKey();
+			if (type == ResourceType.PROJECT) {
+				res.addAll(kv.getValue());
+				continue;
+			}
+			for (String id : kv.getValue()) {
+				Object key = type == ResourceType.BOARD ? id : toInteger(id);
+				if (key == null) {
+					continue;
+				}
+				String projectShortName = useCache ? getCached(type, key, loadEpoch) : null;
+				if (projectShortName != null) {
+					res.add(projectShortName);
+				} else {
+					if (!toLoad.containsKey(type)) {
+						toLoad.put(type, new HashSet<>());
+					}
+					toLoad.get(type).add(key);
+				}
+			}
+		}
+
+		if (!toLoad.isEmpty()) {
+			load(toLoad, res, useCache, loadEpoch);
+		}
+		return res;
+	}
+
+	/**
+	 * To be called by each move of one or more cards to a column of another project.
+	 */
+	public void cardsMoved() {
+		cacheVersionRepository.increment(CACHE_NAME, new Runnable() {
+			@Override
+			public void run() {
+				epoch.incrementAndGet();
+			}
+		});
+	}
+
+	public CacheStatistics getCacheStatistics() {
+		return new CacheStatistics(CACHE_NAME, hits.get(), misses.get());
+	}
+
+	private void load(Map<ResourceType, Set<Object>> toLoad, final Set<String> res, final boolean useCache,
+			final long loadEpoch) {
+		StringBuilder sb = new StringBuilder();
+		MapSqlParameterSource params = new MapSqlParameterSource();
+		for (Entry<ResourceType, Set<Object>> kv : toLoad.entrySet()) {
+			if (sb.length() > 0) {
+				sb.append(" UNION ALL ");
+			}
+			sb.append(templates.get(kv.getKey()));
+			params.addValue(kv.getKey().paramName, kv.getValue());
+		}
+
+		jdbc.query(sb.toString(), params, new RowCallbackHandler() {
+			@Override
+			public void processRow(ResultSet rs) throws SQLException {
+				ResourceType type = ResourceType.valueOf(rs.getString("RESOURCE_TYPE").trim());
+				Object key = type == ResourceType.BOARD ? rs.getString("RESOURCE_SHORT_NAME") : rs
+						.getInt("RESOURCE_ID");
+				String projectShortName = rs.getString("PROJECT_SHORT_NAME");
+				res.add(projectShortName);
+				if (useCache) {
+					synchronized (cache) {
+						cache.put(cacheKey(type, key), new CachedProject(projectShortName, loadEpoch));
+					}
+				}
+			}
+		});
+	}
+
+	private String getCached(ResourceType type, Object key, long currentEpoch) {
+		CachedProject cached;
+		synchronized (cache) {
+			cached = cache.get(cacheKey(type, key));
+		}
+		if (cached != null && (!type.followsCardMoves || cached.epoch == currentEpoch)) {
+			hits.incrementAndGet();
+			return cached.projectShortName;
+		}
+		misses.incrementAndGet();
+		return null;
+	}
+
+	private long currentEpoch() {
+		long now = System.currentTimeMillis();
+		if (now - checkedAt >= versionCheckInterval) {
+			long version = cacheVersionRepository.getVersion(CACHE_NAME);
+			if (version != lastVersion) {
+				lastVersion = version;
+				epoch.incrementAndGet();
+			}
+			checkedAt = now;
+		}
+		return epoch.get();
+	}
+
+	private static String cacheKey(ResourceType type, Object key) {
+		return type.name() + "/" + key;
+	}
+
+	private static Integer toInteger(String id) {
+		try {
+			return Integer.valueOf(id);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private static class CachedProject {
+		private final String projectShortName;
+		private final long epoch;
+
+		CachedProject(String projectShortName, long epoch) {
+			this.projectShortName = projectShortName;
+			this.epoch = epoch;
+		}
+	}
+}
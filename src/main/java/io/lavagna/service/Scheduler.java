@@ -21,8 +21,11 @@ import io.lavagna.common.Json;
 import io.lavagna.model.Key;
 import io.lavagna.model.MailConfig;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -31,41 +34,84 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.context.ApplicationListener;
 import org.springframework.core.env.Environment;
-import org.springframework.mail.MailException;
+import org.springframework.messaging.MessageChannel;
 import org.springframework.scheduling.TaskScheduler;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronTrigger;
 
 /**
- * Simple scheduler. Note: it's not cluster aware.
+ * Simple scheduler.
+ *
+ * The jobs run on dedicated schedulers, so a slow job (e.g. a slow SMTP server) does not delay the others.
+ *
+ * When more than one node share the database, the jobs writing to it (notifications, statistics, MySQL full text
+ * copy) run only on the node holding their lease (see {@link SchedulerLeaseService}); the other ones maintain a state
+ * local to the node and run everywhere.
  */
 public class Scheduler implements ApplicationListener<DatabaseMigrationDoneEvent> {
 
 	private static final Logger LOG = LogManager.getLogger();
 
 	private final TaskScheduler taskScheduler;
+	private final TaskScheduler notificationScheduler;
+	private final TaskScheduler fullTextScheduler;
+	private final TaskScheduler statisticsScheduler;
 	private final Environment env;
 	private final ConfigurationRepository configurationRepository;
 	private final MySqlFullTextSupportService mySqlFullTextSupportService;
+	private final FullTextIndexService fullTextIndexService;
 	private final NotificationService notificationService;
 	private final StatisticsService statisticsService;
-
-	public Scheduler(TaskScheduler taskScheduler, Environment env, ConfigurationRepository configurationRepository,
-			MySqlFullTextSupportService mySqlFullTextSupportService, NotificationService notificationService,
-			StatisticsService statisticsService) {
+	private final EventFanoutService eventFanoutService;
+	private final MessageChannel brokerChannel;
+	private final SchedulerLeaseService schedulerLeaseService;
+
+	public Scheduler(TaskScheduler taskScheduler, TaskScheduler notificationScheduler,
+			TaskScheduler fullTextScheduler, TaskScheduler statisticsScheduler, Environment env,
+			ConfigurationRepository configurationRepository,
+			MySqlFullTextSupportService mySqlFullTextSupportService, FullTextIndexService fullTextIndexService,
+			NotificationService notificationService, StatisticsService statisticsService,
+			EventFanoutService eventFanoutService, MessageChannel brokerChannel,
+			SchedulerLeaseService schedulerLeaseService) {
 
 		this.taskScheduler = taskScheduler;
+		this.notificationScheduler = notificationScheduler;
+		this.fullTextScheduler = fullTextScheduler;
+		this.statisticsScheduler = statisticsScheduler;
 		this.env = env;
 		this.configurationRepository = configurationRepository;
 		this.mySqlFullTextSupportService = mySqlFullTextSupportService;
+		this.fullTextIndexService = fullTextIndexService;
 		this.notificationService = notificationService;
 		this.statisticsService = statisticsService;
+		this.eventFanoutService = eventFanoutService;
+		this.brokerChannel = brokerChannel;
+		this.schedulerLeaseService = schedulerLeaseService;
 	}
-	
-	@Scheduled(cron = "30 59 23,5,11,17 * * *")
-	public void snapshotCardsStatus() {
-		statisticsService.snapshotCardsStatus();
+
+	/**
+	 * Run the job only if this node holds the lease.
+	 */
+	private static class LeasedJob implements Runnable {
+
+		private final SchedulerLeaseService schedulerLeaseService;
+		private final String lease;
+		private final Runnable job;
+
+		private LeasedJob(SchedulerLeaseService schedulerLeaseService, String lease, Runnable job) {
+			this.schedulerLeaseService = schedulerLeaseService;
+			this.lease = lease;
+			this.job = job;
+		}
+
+		@Override
+		public void run() {
+			if (schedulerLeaseService.isHeld(lease)) {
+				job.run();
+			}
+		}
 	}
 
+
 	private static class EmailNotificationHandler implements Runnable {
 
 		private final ConfigurationRepository configurationRepository;
@@ -87,32 +133,94 @@ public class Scheduler implements ApplicationListener<DatabaseMigrationDoneEvent
 
 			boolean enabled = Boolean.parseBoolean(ObjectUtils.firstNonNull(conf.get(Key.SMTP_ENABLED), "false"));
 			MailConfig mailConfig = Json.GSON.fromJson(conf.get(Key.SMTP_CONFIG), MailConfig.class);
-			for (int userId : usersToNotify) {
-				try {
-					notificationService.notifyUser(userId, upTo, enabled, mailConfig);
-				} catch (MailException me) {
-					LOG.error("Error while sending email to userId " + userId, me);
-				}
-			}
+			// the emails are sent in background: a slow SMTP server does not block the next checks
+			notificationService.notifyUsers(usersToNotify, upTo, enabled, mailConfig);
 		}
 	}
 
 	@Override
 	public void onApplicationEvent(DatabaseMigrationDoneEvent event) {
+		final List<String> leases = new ArrayList<>();
+
+		leases.add("statistics");
+		statisticsScheduler.schedule(new LeasedJob(schedulerLeaseService, "statistics", new Runnable() {
+			@Override
+			public void run() {
+				statisticsService.snapshotCardsStatus();
+			}
+		}), new CronTrigger("30 59 23,5,11,17 * * *"));
+
 		if ("MYSQL".equals(env.getProperty("datasource.dialect"))) {
-			taskScheduler.scheduleAtFixedRate(new Runnable() {
+			leases.add("mysql-full-text");
+			fullTextScheduler.scheduleAtFixedRate(new LeasedJob(schedulerLeaseService, "mysql-full-text",
+					new Runnable() {
+						@Override
+						public void run() {
+							mySqlFullTextSupportService.sync();
+						}
+					}), 2 * 1000);
+		}
 
+		if (fullTextIndexService.isEnabled()) {
+			scheduleSearchIndex();
+		}
+
+		if (eventFanoutService.isEnabled()) {
+			taskScheduler.scheduleWithFixedDelay(new Runnable() {
 				@Override
 				public void run() {
-					mySqlFullTextSupportService.syncNewCards();
-					mySqlFullTextSupportService.syncUpdatedCards();
-					mySqlFullTextSupportService.syncNewCardData();
-					mySqlFullTextSupportService.syncUpdatedCardData();
+					eventFanoutService.exchange(brokerChannel);
 				}
-			}, 2 * 1000);
+			}, env.getProperty("events.broker.database.poll", Long.class, 500L));
 		}
 
-		taskScheduler.scheduleAtFixedRate(new EmailNotificationHandler(configurationRepository, notificationService),
-				30 * 1000);
+		leases.add("notification");
+		notificationScheduler.scheduleAtFixedRate(new LeasedJob(schedulerLeaseService, "notification",
+				new EmailNotificationHandler(configurationRepository, notificationService)), 30 * 1000);
+
+		// not on the schedulers of the jobs: the renewal must not wait behind a long job
+		taskScheduler.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				for (String lease : leases) {
+					schedulerLeaseService.renew(lease);
+				}
+			}
+		}, schedulerLeaseService.getRenewalInterval());
+	}
+
+	/**
+	 * The index is loaded in background (meanwhile the search use the database), then kept current and saved
+	 * periodically.
+	 */
+	private void scheduleSearchIndex() {
+		fullTextScheduler.schedule(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					fullTextIndexService.load();
+				} catch (IOException e) {
+					LOG.error("cannot load the search index", e);
+				}
+			}
+		}, new Date());
+
+		fullTextScheduler.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				fullTextIndexService.refresh();
+			}
+		}, 2 * 1000);
+
+		fullTextScheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					fullTextIndexService.saveSnapshot();
+				} catch (IOException e) {
+					LOG.warn("cannot save the search index snapshot", e);
+				}
+			}
+		}, 10 * 60 * 1000);
 	}
 }
@@ -0,0 +1,136 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.query.SchedulerLeaseQuery;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+/**
+ * Leases stored in LA_SCHEDULER_LEASE, for running a scheduled job on only one of the nodes sharing the database.
+ *
+ * A node holds a lease until its expiration, and must renew it before (see {@link #getRenewalInterval()}); an
+ * expired lease is taken over by the first node trying to renew it. As the expiration is written with the clock of the
+ * holder, the clocks of the nodes must be synchronized.
+ */
+@Service
+public class SchedulerLeaseService implements DisposableBean {
+
+	private static final Logger LOG = LogManager.getLogger();
+
+	private final SchedulerLeaseQuery queries;
+	private final long duration;
+	private final String node = UUID.randomUUID().toString();
+
+	/**
+	 * Lease name -> local time until which this node holds it.
+	 */
+	private final ConcurrentMap<String, Long> held = new ConcurrentHashMap<>();
+
+	@Autowired
+	public SchedulerLeaseService(SchedulerLeaseQuery queries, Environment env) {
+		this(queries, env.getProperty("scheduler.lease.duration", Long.class, 10 * 1000L));
+	}
+
+	SchedulerLeaseService(SchedulerLeaseQuery queries, long duration) {
+		this.queries = queries;
+		this.duration = duration;
+	}
+
+	/**
+	 * @return the interval between two renewals: a third of the lease duration, so that a lease survives a failed
+	 *         renewal.
+	 */
+	public long getRenewalInterval() {
+		return Math.max(1, duration / 3);
+	}
+
+	/**
+	 * Renew the lease, or acquire it if it's free or expired.
+	 *
+	 * @param name
+	 * @return true if this node holds the lease
+	 */
+	public boolean renew(String name) {
+		long now = System.currentTimeMillis();
+		Date expiration = new Date(now + duration);
+		try {
+			boolean acquired = queries.renewOrTakeOver(name, node, new Date(now), expiration) == 1
+					|| (queries.count(name) == 0 && insert(name, expiration));
+			if (acquired) {
+				if (held.put(name, expiration.getTime()) == null) {
+					LOG.info("node {} acquired the lease {}", node, name);
+				}
+				return true;
+			}
+		} catch (DataAccessException e) {
+			LOG.warn("cannot renew the lease " + name, e);
+		}
+		if (held.remove(name) != null) {
+			LOG.info("node {} lost the lease {}", node, name);
+		}
+		return false;
+	}
+
+	private boolean insert(String name, Date expiration) {
+		try {
+			return queries.insert(name, node, expiration) == 1;
+		} catch (DuplicateKeyException e) {
+			// acquired concurrently by another node
+			return false;
+		}
+	}
+
+	/**
+	 * @param name
+	 * @return true if this node holds the lease and it has not expired, without accessing the database.
+	 */
+	public boolean isHeld(String name) {
+		Long until = held.get(name);
+		return until != null && until > System.currentTimeMillis();
+	}
+
+	/**
+	 * Release the leases held by this node, so that the other nodes take them over without waiting for the
+	 * expiration.
+	 */
+	public void release() {
+		held.clear();
+		queries.release(node);
+	}
+
+	@Override
+	public void destroy() {
+		try {
+			release();
+		} catch (DataAccessException e) {
+			LOG.warn("cannot release the leases", e);
+		}
+	}
+}
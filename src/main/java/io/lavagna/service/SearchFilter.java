@@ -30,11 +30,14 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
+import org.apache.commons.lang3.StringUtils;
+
 public class SearchFilter {
 
 	private final FilterType type;
@@ -61,18 +64,39 @@ public class SearchFilter {
 		private final UserWithPermission currentUser;
 		private final Map<String, Integer> userNameToId;
 		private final Map<String, Integer> cardNameToId;
+		/**
+		 * The cards matching the free text, if already resolved by the {@link FullTextIndexService}.
+		 */
+		private final Set<Integer> freeTextCardIds;
 
 		public SearchContext(UserWithPermission currentUser, Map<String, Integer> userNameToId,
 				final Map<String, Integer> cardNameToId) {
+			this(currentUser, userNameToId, cardNameToId, null);
+		}
+
+		public SearchContext(UserWithPermission currentUser, Map<String, Integer> userNameToId,
+				final Map<String, Integer> cardNameToId, Set<Integer> freeTextCardIds) {
 			this.currentUser = currentUser;
 			this.userNameToId = userNameToId;
 			this.cardNameToId = cardNameToId;
+			this.freeTextCardIds = freeTextCardIds;
 		}
 	}
 
 	public enum FilterType {
 
-		USER_LABEL {
+		USER_LABEL(50) {
+			@Override
+			public String toPredicate(SearchFilter sf, SearchQuery queries, List<Object> params,
+					SearchContext context) {
+				params.add(sf.name);
+				if (sf.value == null) {
+					return queries.predicateExistsUserLabel() + queries.predicateEnd();
+				}
+				addLabelValueParams(sf, params, context);
+				return queries.predicateExistsUserLabel() + queries.andLabelValueString() + queries.predicateEnd();
+			}
+
 			@Override
 			public String toBaseQuery(SearchFilter sf, SearchQuery queries, List<Object> params,
 					SearchContext context) {
@@ -82,25 +106,18 @@ public class SearchFilter {
 					return r;
 				}
 
-				String val = sf.value.value.toString();
-				// string
-				params.add(val);
-				// int
-				params.add(tryParse(val));
-				// timestamp from/to
-				addDateParams(sf, params);
-				// user
-				params.add(from(context.userNameToId, val));
-				// card
-				params.add(from(context.cardNameToId, val));
-				// list value
-				params.add(val);
-
+				addLabelValueParams(sf, params, context);
 				return r + " " + queries.andLabelValueString();
 			}
 
 		},
-		ASSIGNED {
+		ASSIGNED(20) {
+			@Override
+			public String toPredicate(SearchFilter sf, SearchQuery queries, List<Object> params,
+					SearchContext context) {
+				return systemLabelUserPredicate("ASSIGNED", sf, queries, params, context);
+			}
+
 			@Override
 			public String toBaseQuery(SearchFilter sf, SearchQuery queries, List<Object> params,
 					SearchContext context) {
@@ -116,7 +133,14 @@ public class SearchFilter {
 				}
 			}
 		},
-		CREATED_BY {
+		CREATED_BY(10) {
+			@Override
+			public String toPredicate(SearchFilter sf, SearchQuery queries, List<Object> params,
+					SearchContext context) {
+				addUserToParam(context.currentUser, params, context.userNameToId, sf);
+				return queries.predicateByCardCreationEventUser();
+			}
+
 			@Override
 			public String toBaseQuery(SearchFilter sf, SearchQuery queries, List<Object> params,
 					SearchContext context) {
@@ -124,7 +148,14 @@ public class SearchFilter {
 				return queries.findByCardCreationEventUser();
 			}
 		},
-		CREATED {
+		CREATED(40) {
+			@Override
+			public String toPredicate(SearchFilter sf, SearchQuery queries, List<Object> params,
+					SearchContext context) {
+				addDateParams(sf, params);
+				return queries.predicateByCardCreationEventDate();
+			}
+
 			@Override
 			public String toBaseQuery(SearchFilter sf, SearchQuery queries, List<Object> params,
 					SearchContext context) {
@@ -134,7 +165,13 @@ public class SearchFilter {
 				return queries.findByCardCreationEventDate();
 			}
 		},
-		WATCHED_BY {
+		WATCHED_BY(20) {
+			@Override
+			public String toPredicate(SearchFilter sf, SearchQuery queries, List<Object> params,
+					SearchContext context) {
+				return systemLabelUserPredicate("WATCHED_BY", sf, queries, params, context);
+			}
+
 			@Override
 			public String toBaseQuery(SearchFilter sf, SearchQuery queries, List<Object> params,
 					SearchContext context) {
@@ -149,7 +186,19 @@ public class SearchFilter {
 				}
 			}
 		},
-		MILESTONE {
+		MILESTONE(50) {
+			@Override
+			public String toPredicate(SearchFilter sf, SearchQuery queries, List<Object> params,
+					SearchContext context) {
+				params.add("MILESTONE");
+				if (sf.value.type == ValueType.UNASSIGNED) {
+					return queries.predicateNot() + queries.predicateExistsSystemLabel() + queries.predicateEnd();
+				} else {
+					params.add(sf.value.value);
+					return queries.predicateExistsSystemLabel() + queries.andLabelListValueEq() + queries.predicateEnd();
+				}
+			}
+
 			@Override
 			public String toBaseQuery(SearchFilter sf, SearchQuery queries, List<Object> params,
 					SearchContext context) {
@@ -168,7 +217,15 @@ public class SearchFilter {
 
 		},
 
-		DUE_DATE {
+		DUE_DATE(30) {
+			@Override
+			public String toPredicate(SearchFilter sf, SearchQuery queries, List<Object> params,
+					SearchContext context) {
+				params.add("DUE_DATE");
+				addDateParams(sf, params);
+				return queries.predicateExistsSystemLabel() + queries.andLabelValueDate() + queries.predicateEnd();
+			}
+
 			@Override
 			public String toBaseQuery(SearchFilter sf, SearchQuery queries, List<Object> params,
 					SearchContext context) {
@@ -182,7 +239,14 @@ public class SearchFilter {
 
 		},
 
-		STATUS {
+		STATUS(80) {
+			@Override
+			public String toPredicate(SearchFilter sf, SearchQuery queries, List<Object> params,
+					SearchContext context) {
+				params.add(sf.value.value);
+				return queries.predicateByStatus();
+			}
+
 			@Override
 			public String toBaseQuery(SearchFilter sf, SearchQuery queries, List<Object> params,
 					SearchContext context) {
@@ -191,7 +255,14 @@ public class SearchFilter {
 			}
 		},
 
-		LOCATION {
+		LOCATION(90) {
+			@Override
+			public String toPredicate(SearchFilter sf, SearchQuery queries, List<Object> params,
+					SearchContext context) {
+				params.add(sf.value.value);
+				return queries.predicateByLocation();
+			}
+
 			@Override
 			public String toBaseQuery(SearchFilter sf, SearchQuery queries, List<Object> params,
 					SearchContext context) {
@@ -200,7 +271,14 @@ public class SearchFilter {
 			}
 		},
 
-		UPDATED {
+		UPDATED(40) {
+			@Override
+			public String toPredicate(SearchFilter sf, SearchQuery queries, List<Object> params,
+					SearchContext context) {
+				addDateParams(sf, params);
+				return queries.predicateByUpdated();
+			}
+
 			@Override
 			public String toBaseQuery(SearchFilter sf, SearchQuery queries, List<Object> params,
 					SearchContext context) {
@@ -210,7 +288,14 @@ public class SearchFilter {
 
 		},
 
-		UPDATED_BY {
+		UPDATED_BY(10) {
+			@Override
+			public String toPredicate(SearchFilter sf, SearchQuery queries, List<Object> params,
+					SearchContext context) {
+				addUserToParam(context.currentUser, params, context.userNameToId, sf);
+				return queries.predicateByUpdatedBy();
+			}
+
 			@Override
 			public String toBaseQuery(SearchFilter sf, SearchQuery queries, List<Object> params,
 					SearchContext context) {
@@ -219,7 +304,14 @@ public class SearchFilter {
 			}
 		},
 
-		BOARD_STATUS {
+		BOARD_STATUS(90) {
+			@Override
+			public String toPredicate(SearchFilter sf, SearchQuery queries, List<Object> params,
+					SearchContext context) {
+				params.add(sf.value.value);
+				return queries.predicateByBoardStatus();
+			}
+
 			@Override
 			public String toBaseQuery(SearchFilter sf, SearchQuery queries, List<Object> params,
 					SearchContext context) {
@@ -228,10 +320,22 @@ public class SearchFilter {
 			}
 		},
 
-		FREETEXT {
+		FREETEXT(30) {
+			@Override
+			public String toPredicate(SearchFilter sf, SearchQuery queries, List<Object> params,
+					SearchContext context) {
+				if (context.freeTextCardIds != null) {
+					return queries.predicateCardIdIn() + cardIds(context.freeTextCardIds) + queries.predicateEnd();
+				}
+				return queries.predicateCardIdIn() + toBaseQuery(sf, queries, params, context) + queries.predicateEnd();
+			}
+
 			@Override
 			public String toBaseQuery(SearchFilter sf, SearchQuery queries, List<Object> params,
 					SearchContext context) {
+				if (context.freeTextCardIds != null) {
+					return queries.findByCardIdIn() + cardIds(context.freeTextCardIds) + queries.predicateEnd();
+				}
 				params.add(sf.value.value);// for card sequence number
 				params.add(sf.value.value);// for card name
 				params.add(sf.value.value);// for card data
@@ -239,9 +343,67 @@ public class SearchFilter {
 			}
 		};
 
+		private final int estimatedSelectivity;
+
+		private FilterType(int estimatedSelectivity) {
+			this.estimatedSelectivity = estimatedSelectivity;
+		}
+
+		/**
+		 * Subquery returning the CARD_ID of the matching cards.
+		 */
 		public abstract String toBaseQuery(SearchFilter sf, SearchQuery queries, List<Object> params,
 				SearchContext context);
 
+		/**
+		 * Condition to be applied on the cards selected by {@link SearchQuery#findFrom()}.
+		 */
+		public abstract String toPredicate(SearchFilter sf, SearchQuery queries, List<Object> params,
+				SearchContext context);
+
+		/**
+		 * Rough estimation of how many cards will be kept by the filter: the lower the value, the fewer the cards.
+		 * Used for ordering the predicates.
+		 */
+		public int getEstimatedSelectivity() {
+			return estimatedSelectivity;
+		}
+
+	}
+
+	/**
+	 * The ids are integers, so they can be safely inlined: the bind parameters would be limited in number. Their
+	 * count is bounded by {@link SearchService}.
+	 */
+	private static String cardIds(Set<Integer> ids) {
+		return ids.isEmpty() ? "NULL" : StringUtils.join(ids, ',');
+	}
+
+	private static String systemLabelUserPredicate(String labelName, SearchFilter sf, SearchQuery queries,
+			List<Object> params, SearchContext context) {
+		params.add(labelName);
+		if (sf.value.type == ValueType.UNASSIGNED) {
+			return queries.predicateNot() + queries.predicateExistsSystemLabel() + queries.predicateEnd();
+		} else {
+			addUserToParam(context.currentUser, params, context.userNameToId, sf);
+			return queries.predicateExistsSystemLabel() + queries.andLabelValueUser() + queries.predicateEnd();
+		}
+	}
+
+	private static void addLabelValueParams(SearchFilter sf, List<Object> params, SearchContext context) {
+		String val = sf.value.value.toString();
+		// string
+		params.add(val);
+		// int
+		params.add(tryParse(val));
+		// timestamp from/to
+		addDateParams(sf, params);
+		// user
+		params.add(from(context.userNameToId, val));
+		// card
+		params.add(from(context.cardNameToId, val));
+		// list value
+		params.add(val);
 	}
 
 	private static void addDateParams(SearchFilter sf, List<Object> params) {
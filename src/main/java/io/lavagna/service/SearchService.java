@@ -17,11 +17,11 @@
 package io.lavagna.service;
 
 import static io.lavagna.service.SearchFilter.filter;
-import static io.lavagna.service.SearchFilter.filterByColumnDefinition;
 import io.lavagna.model.BoardColumn;
 import io.lavagna.model.CardFull;
 import io.lavagna.model.CardFullWithCounts;
 import io.lavagna.model.ColumnDefinition;
+import io.lavagna.model.ContinuationToken;
 import io.lavagna.model.Permission;
 import io.lavagna.model.SearchResults;
 import io.lavagna.model.UserWithPermission;
@@ -35,10 +35,12 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.sql.Clob;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
@@ -50,6 +52,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -65,6 +68,11 @@ public class SearchService {
 	private static final Logger LOG = LogManager.getLogger();
 
 	private static final int CARDS_PER_PAGE = 50;
+	/**
+	 * Above this count the ids found by the search index are not inlined in the query: the statement would grow
+	 * without bounds (and some databases limit the IN list to 1000 elements).
+	 */
+	private static final int MAX_FREE_TEXT_CARD_IDS = 1000;
 
 	private final NamedParameterJdbcTemplate jdbc;
 	private final CardRepository cardRepository;
@@ -73,11 +81,12 @@ public class SearchService {
 	private final ProjectService projectService;
 	private final BoardRepository boardRepository;
 	private final SearchQuery queries;
+	private final FullTextIndexService fullTextIndexService;
 
 	@Autowired
 	public SearchService(CardRepository cardRepository, CardService cardService, UserRepository userRepository,
 			ProjectService projectService, BoardRepository boardRepository, NamedParameterJdbcTemplate jdbc,
-			SearchQuery queries) {
+			SearchQuery queries, FullTextIndexService fullTextIndexService) {
 		this.cardRepository = cardRepository;
 		this.cardService = cardService;
 		this.userRepository = userRepository;
@@ -85,48 +94,153 @@ public class SearchService {
 		this.boardRepository = boardRepository;
 		this.jdbc = jdbc;
 		this.queries = queries;
+		this.fullTextIndexService = fullTextIndexService;
 	}
 
-	private List<SearchFilter> filtersAsList(SearchFilter locationFilter,
-			SearchFilter statusOpen, boolean excludeArchivedBoards) {
-		return excludeArchivedBoards ?
-				Arrays.asList(statusOpen, locationFilter,
-						filter(FilterType.BOARD_STATUS, SearchFilter.ValueType.BOOLEAN, Boolean.FALSE)) :
-				Arrays.asList(statusOpen, locationFilter);
-	}
-
+	/**
+	 * Count the cards in the board location, grouped by their {@link ColumnDefinition}. The counts are calculated
+	 * with a single query.
+	 */
 	public Map<ColumnDefinition, Integer> findTaksByColumnDefinition(Integer projectId, Integer boardId,
 			boolean excludeArchivedBoards, UserWithPermission user) {
 		SearchFilter locationFilter = filter(SearchFilter.FilterType.LOCATION, SearchFilter.ValueType.STRING,
 				BoardColumn.BoardColumnLocation.BOARD.toString());
 
-		Map<ColumnDefinition, Integer> results = new EnumMap<>(ColumnDefinition.class);
+		List<SearchFilter> filters = excludeArchivedBoards ? Arrays.asList(locationFilter,
+				filter(FilterType.BOARD_STATUS, SearchFilter.ValueType.BOOLEAN, Boolean.FALSE)) : Collections
+				.singletonList(locationFilter);
 
-		SearchFilter statusOpen = filterByColumnDefinition(ColumnDefinition.OPEN);
-		SearchResults openTasks = find(filtersAsList(locationFilter, statusOpen, excludeArchivedBoards), projectId,
-				boardId, user, 0);
-		results.put(ColumnDefinition.OPEN, openTasks.getCount());
+		return countByColumnDefinition(filters, projectId, boardId, user);
+	}
 
-		SearchFilter statusClosed = filterByColumnDefinition(ColumnDefinition.CLOSED);
-		SearchResults closedTasks = find(filtersAsList(locationFilter, statusClosed, excludeArchivedBoards), projectId,
-				boardId, user, 0);
-		results.put(ColumnDefinition.CLOSED, closedTasks.getCount());
+	/**
+	 * Count the cards matching the given filters, grouped by their {@link ColumnDefinition}. Each
+	 * {@link ColumnDefinition} is always present in the returned map.
+	 *
+	 * The permission checks are the same as the ones applied in
+	 * {@link #find(List, Integer, Integer, UserWithPermission, int)}.
+	 */
+	public Map<ColumnDefinition, Integer> countByColumnDefinition(List<SearchFilter> unmergedSearchFilter,
+			Integer projectId, Integer boardId, UserWithPermission currentUser) {
+
+		final Map<ColumnDefinition, Integer> results = new EnumMap<>(ColumnDefinition.class);
+		for (ColumnDefinition cd : ColumnDefinition.values()) {
+			results.put(cd, 0);
+		}
 
-		SearchFilter statusBacklog = filterByColumnDefinition(ColumnDefinition.BACKLOG);
-		SearchResults backlogTasks = find(filtersAsList(locationFilter, statusBacklog, excludeArchivedBoards),
-				projectId, boardId, user, 0);
-		results.put(ColumnDefinition.BACKLOG, backlogTasks.getCount());
+		BaseQuery baseQuery = prepareBaseQuery(unmergedSearchFilter, projectId, boardId, currentUser);
+		if (baseQuery == null) {
+			return results;
+		}
+
+		String countQuery = queries.findFirstSelectCountByColumnDefinition() + baseQuery.query
+				+ queries.findSeventhGroupByColumnDefinition();
 
-		SearchFilter statusDeferred = filterByColumnDefinition(ColumnDefinition.DEFERRED);
-		SearchResults deferredTasks = find(filtersAsList(locationFilter, statusDeferred, excludeArchivedBoards),
-				projectId, boardId, user, 0);
-		results.put(ColumnDefinition.DEFERRED, deferredTasks.getCount());
+		jdbc.getJdbcOperations().query(countQuery, baseQuery.params.toArray(), new RowCallbackHandler() {
+			@Override
+			public void processRow(ResultSet rs) throws SQLException {
+				results.put(ColumnDefinition.valueOf(rs.getString("BOARD_COLUMN_DEFINITION_VALUE")),
+						rs.getInt("CARD_COUNT"));
+			}
+		});
 
 		return results;
 	}
 
 	public SearchResults find(List<SearchFilter> unmergedSearchFilter, Integer projectId, Integer boardId,
 			UserWithPermission currentUser, int page) {
+		return find(unmergedSearchFilter, projectId, boardId, currentUser, page, SearchPlan.PREDICATES);
+	}
+
+	SearchResults find(List<SearchFilter> unmergedSearchFilter, Integer projectId, Integer boardId,
+			UserWithPermission currentUser, int page, SearchPlan plan) {
+
+		BaseQuery baseQuery = prepareBaseQuery(unmergedSearchFilter, projectId, boardId, currentUser, plan);
+		if (baseQuery == null) {
+			return new SearchResults(Collections.<CardFullWithCounts>emptyList(), 0, page, CARDS_PER_PAGE);
+		}
+
+		List<Object> params = new ArrayList<>(baseQuery.params);
+		params.add(CARDS_PER_PAGE + 1);// limit
+		params.add(page * CARDS_PER_PAGE);// offset
+
+		String findCardsQuery = queries.findFirstSelect() + baseQuery.query + queries.findSeventhOrderByAndLimit();
+
+		List<Integer> sr = jdbc.getJdbcOperations().queryForList(findCardsQuery, params.toArray(), Integer.class);
+
+		//
+
+		int count = sr.size();
+		if (page == 0 && sr.size() == (CARDS_PER_PAGE + 1) || page > 0) {
+			String countCardsQuery = queries.findFirstSelectCount() + baseQuery.query;
+			count = jdbc.getJdbcOperations().queryForObject(countCardsQuery, baseQuery.params.toArray(),
+					Integer.class);
+		}
+
+		//
+		return new SearchResults(cardFullWithCounts(sr), count, page, CARDS_PER_PAGE);
+	}
+
+	/**
+	 * Keyset paginated search: return the cards after the given token, ordered by last update.
+	 *
+	 * @param after
+	 *            null for the first page
+	 * @param withCount
+	 *            if the total count must be calculated, if false the returned count will be -1
+	 */
+	public SearchResults find(List<SearchFilter> unmergedSearchFilter, Integer projectId, Integer boardId,
+			UserWithPermission currentUser, ContinuationToken after, boolean withCount) {
+
+		BaseQuery baseQuery = prepareBaseQuery(unmergedSearchFilter, projectId, boardId, currentUser);
+		if (baseQuery == null) {
+			return new SearchResults(Collections.<CardFullWithCounts>emptyList(), 0, CARDS_PER_PAGE, null);
+		}
+
+		StringBuilder findCardsQuery = new StringBuilder(queries.findFirstSelect()).append(baseQuery.query);
+		List<Object> params = new ArrayList<>(baseQuery.params);
+		if (after != null) {
+			findCardsQuery.append(baseQuery.hasWhere ? queries.predicateAnd() : queries.findThirdWhere()).append(
+					queries.predicateBefore());
+			params.add(after.getTime());
+			params.add(after.getTime());
+			params.add(after.getId());
+		}
+		findCardsQuery.append(queries.findSeventhOrderByKeysetAndLimit());
+		params.add(CARDS_PER_PAGE + 1);
+
+		List<Integer> sr = jdbc.getJdbcOperations().queryForList(findCardsQuery.toString(), params.toArray(),
+				Integer.class);
+
+		int count = -1;
+		if (withCount) {
+			boolean isComplete = after == null && sr.size() <= CARDS_PER_PAGE;
+			count = isComplete ? sr.size() : jdbc.getJdbcOperations().queryForObject(
+					queries.findFirstSelectCount() + baseQuery.query, baseQuery.params.toArray(), Integer.class);
+		}
+
+		boolean hasMore = sr.size() > CARDS_PER_PAGE;
+		List<CardFullWithCounts> found = cardFullWithCounts(hasMore ? sr.subList(0, CARDS_PER_PAGE) : sr);
+		ContinuationToken next = null;
+		if (hasMore) {
+			CardFullWithCounts last = found.get(found.size() - 1);
+			next = new ContinuationToken(last.getLastUpdateTime(), last.getId());
+		}
+		return new SearchResults(found, count, CARDS_PER_PAGE, next);
+	}
+
+	private BaseQuery prepareBaseQuery(List<SearchFilter> unmergedSearchFilter, Integer projectId, Integer boardId,
+			UserWithPermission currentUser) {
+		return prepareBaseQuery(unmergedSearchFilter, projectId, boardId, currentUser, SearchPlan.PREDICATES);
+	}
+
+	/**
+	 * Build the FROM/WHERE part shared by the search queries.
+	 *
+	 * @return null if the user cannot see any result for the given project/board
+	 */
+	private BaseQuery prepareBaseQuery(List<SearchFilter> unmergedSearchFilter, Integer projectId, Integer boardId,
+			UserWithPermission currentUser, SearchPlan plan) {
 
 		// if a user don't have access to the specified project id we skip the
 		// whole search
@@ -144,16 +258,12 @@ public class SearchService {
 				&& boardRepository.findBoardById(boardId).getProjectId() != projectId;
 
 		if (userHasNotProjectAccess || userHasNoReadAccess || noProjectIdForBoardId || boardIsntInProject) {
-			return new SearchResults(Collections.<CardFullWithCounts>emptyList(), 0, page, CARDS_PER_PAGE);
+			return null;
 		}
 
 		List<SearchFilter> searchFilters = mergeFreeTextFilters(unmergedSearchFilter);
 		//
 
-		List<Object> params = new ArrayList<>();
-		int filteringConditionsCount = 0;
-		//
-
 		List<String> usersOrCardToSearch = new ArrayList<>();
 		// fetch all possible user->id, card->id in the value types with string
 		// (thus unknown use)
@@ -167,10 +277,73 @@ public class SearchService {
 		Map<String, Integer> cardNameToId = cardRepository.findCardsIds(usersOrCardToSearch);
 		Map<String, Integer> userNameToId = userRepository.findUsersId(usersOrCardToSearch);
 
-		SearchContext searchContext = new SearchContext(currentUser, userNameToId, cardNameToId);
+		SearchContext searchContext = new SearchContext(currentUser, userNameToId, cardNameToId,
+				findFreeTextCardIds(searchFilters));
 
 		//
 
+		List<Object> params = new ArrayList<>();
+		StringBuilder baseQuery = plan == SearchPlan.PREDICATES ? compilePredicates(searchFilters, params,
+				searchContext) : compileUnionAll(searchFilters, params, searchContext);
+
+		String scope = null;
+		if (boardId != null) {
+			scope = queries.findFourthInBoardId();
+			params.add(boardId);
+		} else if (projectId != null) {
+			scope = queries.findInFifthProjectId();
+			params.add(projectId);
+		} else if (!currentUser.getBasePermissions().containsKey(Permission.READ)) {
+
+			Set<Integer> projectsWithPermission = currentUser.projectsIdWithPermission(Permission.READ);
+			scope = queries.findSixthRestrictedReadAccess() + " ("
+					+ StringUtils.repeat("?", " , ", projectsWithPermission.size()) + " ) ";
+
+			params.addAll(projectsWithPermission);
+		}
+
+		boolean hasWhere = plan == SearchPlan.PREDICATES && !searchFilters.isEmpty();
+		if (scope != null) {
+			baseQuery.append(hasWhere ? queries.predicateAnd() : queries.findThirdWhere()).append(scope);
+			hasWhere = true;
+		}
+
+		return new BaseQuery(baseQuery.toString(), params, hasWhere);
+	}
+
+	/**
+	 * Translate the filters in a single WHERE clause, the most selective predicates first.
+	 */
+	private StringBuilder compilePredicates(List<SearchFilter> searchFilters, List<Object> params,
+			SearchContext searchContext) {
+
+		List<SearchFilter> ordered = new ArrayList<>(searchFilters);
+		Collections.sort(ordered, new Comparator<SearchFilter>() {
+			@Override
+			public int compare(SearchFilter o1, SearchFilter o2) {
+				return Integer.compare(o1.getType().getEstimatedSelectivity(), o2.getType()
+						.getEstimatedSelectivity());
+			}
+		});
+
+		StringBuilder baseQuery = new StringBuilder(queries.findFrom());
+		for (int i = 0; i < ordered.size(); i++) {
+			SearchFilter searchFilter = ordered.get(i);
+			baseQuery.append(i == 0 ? queries.findThirdWhere() : queries.predicateAnd());
+			baseQuery.append(searchFilter.getType().toPredicate(searchFilter, queries, params, searchContext));
+		}
+		return baseQuery;
+	}
+
+	/**
+	 * Previous search plan: each filter is a subquery, a card match if it's present in all of them. Kept for
+	 * comparing the results of the two plans.
+	 */
+	private StringBuilder compileUnionAll(List<SearchFilter> searchFilters, List<Object> params,
+			SearchContext searchContext) {
+
+		int filteringConditionsCount = 0;
+
 		StringBuilder baseQuery = new StringBuilder(queries.findFirstFrom()).append("SELECT CARD_ID FROM ( ");
 
 		// add filter conditions
@@ -191,40 +364,30 @@ public class SearchService {
 		/* AS CARD_IDS -> table alias for mysql */
 		baseQuery.append(" ) AS CARD_IDS GROUP BY CARD_ID HAVING COUNT(CARD_ID) = ?").append(queries.findSecond());
 		params.add(filteringConditionsCount);
+		return baseQuery;
+	}
 
-		if (boardId != null) {
-			baseQuery.append(queries.findThirdWhere()).append(queries.findFourthInBoardId());
-			params.add(boardId);
-		} else if (projectId != null) {
-			baseQuery.append(queries.findThirdWhere()).append(queries.findInFifthProjectId());
-			params.add(projectId);
-		} else if (!currentUser.getBasePermissions().containsKey(Permission.READ)) {
-
-			Set<Integer> projectsWithPermission = currentUser.projectsIdWithPermission(Permission.READ);
-			baseQuery.append(queries.findThirdWhere()).append(queries.findSixthRestrictedReadAccess()).append(" (")
-					.append(StringUtils.repeat("?", " , ", projectsWithPermission.size())).append(" ) ");
-
-			params.addAll(projectsWithPermission);
-		}
-
-		params.add(CARDS_PER_PAGE + 1);// limit
-		params.add(page * CARDS_PER_PAGE);// offset
-
-		String findCardsQuery = queries.findFirstSelect() + baseQuery.toString() + queries.findSeventhOrderByAndLimit();
-
-		List<Integer> sr = jdbc.getJdbcOperations().queryForList(findCardsQuery, params.toArray(), Integer.class);
+	enum SearchPlan {
+		/**
+		 * All the filters are translated in a single WHERE clause.
+		 */
+		PREDICATES,
+		/**
+		 * Each filter is a subquery, the results are merged with UNION ALL/GROUP BY/HAVING COUNT.
+		 */
+		UNION_ALL
+	}
 
-		//
+	private static class BaseQuery {
+		private final String query;
+		private final List<Object> params;
+		private final boolean hasWhere;
 
-		int count = sr.size();
-		if (page == 0 && sr.size() == (CARDS_PER_PAGE + 1) || page > 0) {
-			String countCardsQuery = queries.findFirstSelectCount() + baseQuery.toString();
-			count = jdbc.getJdbcOperations().queryForObject(countCardsQuery,
-					params.subList(0, params.size() - 2).toArray(), Integer.class);
+		BaseQuery(String query, List<Object> params, boolean hasWhere) {
+			this.query = query;
+			this.params = params;
+			this.hasWhere = hasWhere;
 		}
-
-		//
-		return new SearchResults(cardFullWithCounts(sr), count, page, CARDS_PER_PAGE);
 	}
 
 	private List<CardFullWithCounts> cardFullWithCounts(List<Integer> sr) {
@@ -249,6 +412,20 @@ public class SearchService {
 		return cardService.fetchCardFull(Arrays.asList(orderedCf));
 	}
 
+	/**
+	 * @return the cards matching the free text filter, null if there is no such filter, the search index is not
+	 *         available or it matches too many cards: the filter is then applied by the database
+	 */
+	private Set<Integer> findFreeTextCardIds(List<SearchFilter> searchFilters) {
+		for (SearchFilter sf : searchFilters) {
+			if (sf.getType() == FilterType.FREETEXT) {
+				Set<Integer> cardIds = fullTextIndexService.findCardIds(sf.getValue().getValue().toString());
+				return cardIds == null || cardIds.size() > MAX_FREE_TEXT_CARD_IDS ? null : cardIds;
+			}
+		}
+		return null;
+	}
+
 	private static List<SearchFilter> mergeFreeTextFilters(List<SearchFilter> unmergedSearchFilter) {
 		List<SearchFilter> merged = new ArrayList<>(unmergedSearchFilter.size());
 		StringBuilder sb = new StringBuilder();
@@ -16,6 +16,7 @@
  */
 package io.lavagna.service;
 
+import io.lavagna.model.BoardColumnDefinition;
 import io.lavagna.model.CardFull;
 import io.lavagna.model.ColumnDefinition;
 import io.lavagna.model.EventsCount;
@@ -23,6 +24,7 @@ import io.lavagna.model.LabelAndValueWithCount;
 import io.lavagna.model.LabelListValue;
 import io.lavagna.model.MilestoneCount;
 import io.lavagna.model.Pair;
+import io.lavagna.model.StatisticForExport;
 import io.lavagna.model.StatisticsResult;
 import io.lavagna.query.StatisticsQuery;
 
@@ -34,6 +36,9 @@ import java.util.Map;
 
 import org.apache.commons.lang3.ObjectUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -42,10 +47,12 @@ import org.springframework.transaction.annotation.Transactional;
 public class StatisticsService {
 
 	private final StatisticsQuery queries;
+	private final NamedParameterJdbcTemplate jdbc;
 
 	@Autowired
-	public StatisticsService(StatisticsQuery queries) {
+	public StatisticsService(StatisticsQuery queries, NamedParameterJdbcTemplate jdbc) {
 		this.queries = queries;
+		this.jdbc = jdbc;
 	}
 
 	@Transactional(readOnly = false)
@@ -56,6 +63,26 @@ public class StatisticsService {
 		queries.cleanOldCardsStatusSnapshots();
 	}
 
+	/**
+	 * Insert the exported statistics of a board in a single batch.
+	 *
+	 * @param boardId
+	 * @param stats
+	 * @param columnDefinitions
+	 */
+	@Transactional(readOnly = false)
+	public void addFromImport(int boardId, List<StatisticForExport> stats,
+			Map<ColumnDefinition, BoardColumnDefinition> columnDefinitions) {
+		SqlParameterSource[] params = new SqlParameterSource[stats.size()];
+		for (int i = 0; i < stats.size(); i++) {
+			StatisticForExport stat = stats.get(i);
+			params[i] = new MapSqlParameterSource("date", stat.getDate()).addValue("boardId", boardId)
+					.addValue("boardColumnDefinitionId", columnDefinitions.get(stat.getColumnDefinition()).getId())
+					.addValue("location", stat.getLocation().toString()).addValue("count", stat.getCount());
+		}
+		jdbc.batchUpdate(queries.addFromImport(), params);
+	}
+
 	private Map<Long, Map<ColumnDefinition, Long>> toStatusByDay(List<StatisticsResult> results) {
 		Map<Long, Map<ColumnDefinition, Long>> statusByDay = new HashMap<>();
 		for (StatisticsResult result : results) {
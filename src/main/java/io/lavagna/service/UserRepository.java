@@ -53,11 +53,13 @@ public class UserRepository {
 
 	private final NamedParameterJdbcTemplate jdbc;
 	private final UserQuery queries;
+	private final PermissionCache permissionCache;
 
 	@Autowired
-	public UserRepository(NamedParameterJdbcTemplate jdbc, UserQuery queries) {
+	public UserRepository(NamedParameterJdbcTemplate jdbc, UserQuery queries, PermissionCache permissionCache) {
 		this.jdbc = jdbc;
 		this.queries = queries;
+		this.permissionCache = permissionCache;
 	}
 
 	public User findUserByName(String provider, String name) {
@@ -112,11 +114,13 @@ public class UserRepository {
 
 	@Transactional(readOnly = false)
 	public int updateProfile(User user, String email, String displayName, boolean emailNotification) {
+		permissionCache.permissionsModified();
 		return queries.updateProfile(trimToNull(email), trimToNull(displayName), emailNotification, user.getId());
 	}
 
 	@Transactional(readOnly = false)
 	public int toggle(int userId, boolean enabled) {
+		permissionCache.permissionsModified();
 		return queries.toggle(enabled, userId);
 	}
 
@@ -41,11 +41,14 @@ public class UserService {
 
 	private final UserRepository userRepository;
 	private final PermissionService permissionService;
+	private final PermissionCache permissionCache;
 
 	@Autowired
-	public UserService(UserRepository userRepository, PermissionService permissionService) {
+	public UserService(UserRepository userRepository, PermissionService permissionService,
+			PermissionCache permissionCache) {
 		this.userRepository = userRepository;
 		this.permissionService = permissionService;
+		this.permissionCache = permissionCache;
 	}
 
 	@Transactional(readOnly = false)
@@ -69,6 +72,18 @@ public class UserService {
 	}
 
 	public UserWithPermission findUserWithPermission(int userId) {
+		UserWithPermission cached = permissionCache.get(userId);
+		if (cached != null) {
+			return cached;
+		}
+
+		long epoch = permissionCache.currentEpoch();
+		UserWithPermission res = loadUserWithPermission(userId);
+		permissionCache.put(res, epoch);
+		return res;
+	}
+
+	private UserWithPermission loadUserWithPermission(int userId) {
 		User user = userRepository.findById(userId);
 
 		Set<Permission> permissions = permissionService.findBasePermissionByUserId(user.getId());
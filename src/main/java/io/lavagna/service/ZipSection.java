@@ -0,0 +1,149 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A group of zip entries compressed in a temporary file, independently from the other sections of the same archive.
+ * The entries are then copied without recompression by {@link ZipSectionsWriter}.
+ *
+ * Like {@link java.util.zip.ZipOutputStream}, the content of an entry is written between
+ * {@link #putNextEntry(String)} and {@link #closeEntry()}. A section is not thread safe.
+ */
+class ZipSection extends OutputStream {
+
+	private final Path file;
+	private final OutputStream out;
+	private final List<Entry> entries = new ArrayList<>();
+	private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+	private final CRC32 crc = new CRC32();
+	private final byte[] buffer = new byte[8192];
+
+	private long written;
+	private Entry current;
+
+	ZipSection() throws IOException {
+		this.file = Files.createTempFile("lavagna-export", ".section");
+		this.out = new BufferedOutputStream(Files.newOutputStream(file));
+	}
+
+	void putNextEntry(String name) throws IOException {
+		if (current != null) {
+			closeEntry();
+		}
+		current = new Entry(name, written);
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (current == null) {
+			throw new IOException("no current entry");
+		}
+		if (len == 0) {
+			return;
+		}
+		crc.update(b, off, len);
+		current.size += len;
+		deflater.setInput(b, off, len);
+		while (!deflater.needsInput()) {
+			deflate();
+		}
+	}
+
+	void closeEntry() throws IOException {
+		if (current == null) {
+			return;
+		}
+		deflater.finish();
+		while (!deflater.finished()) {
+			deflate();
+		}
+		current.crc = crc.getValue();
+		current.compressedSize = written - current.offset;
+		entries.add(current);
+		current = null;
+		deflater.reset();
+		crc.reset();
+	}
+
+	private void deflate() throws IOException {
+		int len = deflater.deflate(buffer, 0, buffer.length);
+		if (len > 0) {
+			out.write(buffer, 0, len);
+			written += len;
+		}
+	}
+
+	/**
+	 * Close the current entry and the temporary file. The section can only be read after this call.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			closeEntry();
+			out.close();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	List<Entry> getEntries() {
+		return Collections.unmodifiableList(entries);
+	}
+
+	InputStream openCompressedData() throws IOException {
+		return Files.newInputStream(file);
+	}
+
+	void delete() {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			// the file is in the temporary directory anyway
+		}
+	}
+
+	static class Entry {
+		final byte[] name;
+		final long offset;
+		long size;
+		long compressedSize;
+		long crc;
+
+		Entry(String name, long offset) {
+			this.name = name.getBytes(StandardCharsets.UTF_8);
+			this.offset = offset;
+		}
+	}
+}
@@ -0,0 +1,257 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Write a zip archive by concatenating already compressed {@link ZipSection}s, in the order they are added. The
+ * compressed data is copied as is: only the headers and the central directory are written here.
+ *
+ * Zip64 records are used only when the sizes, the offsets or the number of entries require them.
+ */
+class ZipSectionsWriter implements Closeable {
+
+	private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+	private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+	private static final int UTF8_FLAG = 0x0800;
+	private static final int DEFLATED = 8;
+
+	private final OutputStream out;
+	private final int dosTime;
+	private final int dosDate;
+	private final List<CentralDirectoryEntry> written = new ArrayList<>();
+	private long offset;
+	private boolean finished;
+
+	ZipSectionsWriter(OutputStream out, Date time) {
+		this.out = new BufferedOutputStream(out);
+		Calendar c = Calendar.getInstance();
+		c.setTime(time);
+		this.dosTime = c.get(Calendar.HOUR_OF_DAY) << 11 | c.get(Calendar.MINUTE) << 5 | c.get(Calendar.SECOND) >> 1;
+		this.dosDate = (Math.max(c.get(Calendar.YEAR), 1980) - 1980) << 9 | (c.get(Calendar.MONTH) + 1) << 5
+				| c.get(Calendar.DAY_OF_MONTH);
+	}
+
+	/**
+	 * Copy all the entries of the given section. The section must be closed.
+	 */
+	void add(ZipSection section) throws IOException {
+		try (InputStream data = section.openCompressedData()) {
+			long position = 0;
+			for (ZipSection.Entry e : section.getEntries()) {
+				skip(data, e.offset - position);
+				long headerOffset = offset;
+				writeLocalHeader(e);
+				copy(data, e.compressedSize);
+				position = e.offset + e.compressedSize;
+				written.add(new CentralDirectoryEntry(e, headerOffset));
+			}
+		}
+	}
+
+	/**
+	 * Write the central directory. No section can be added after this call.
+	 */
+	void finish() throws IOException {
+		if (finished) {
+			return;
+		}
+		finished = true;
+		long centralDirectoryOffset = offset;
+		for (CentralDirectoryEntry cd : written) {
+			writeCentralDirectoryHeader(cd);
+		}
+		long centralDirectorySize = offset - centralDirectoryOffset;
+		int count = written.size();
+
+		boolean zip64 = count >= ZIP64_MAGIC_COUNT || centralDirectoryOffset >= ZIP64_MAGIC
+				|| centralDirectorySize >= ZIP64_MAGIC;
+		if (zip64) {
+			long zip64EndOffset = offset;
+			// zip64 end of central directory record
+			writeInt(0x06064b50L);
+			writeLong(44);
+			writeShort(45);
+			writeShort(45);
+			writeInt(0);
+			writeInt(0);
+			writeLong(count);
+			writeLong(count);
+			writeLong(centralDirectorySize);
+			writeLong(centralDirectoryOffset);
+			// zip64 end of central directory locator
+			writeInt(0x07064b50L);
+			writeInt(0);
+			writeLong(zip64EndOffset);
+			writeInt(1);
+		}
+		// end of central directory record
+		writeInt(0x06054b50L);
+		writeShort(0);
+		writeShort(0);
+		writeShort(Math.min(count, ZIP64_MAGIC_COUNT));
+		writeShort(Math.min(count, ZIP64_MAGIC_COUNT));
+		writeInt(Math.min(centralDirectorySize, ZIP64_MAGIC));
+		writeInt(Math.min(centralDirectoryOffset, ZIP64_MAGIC));
+		writeShort(0);
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			finish();
+		} finally {
+			out.close();
+		}
+	}
+
+	private void writeLocalHeader(ZipSection.Entry e) throws IOException {
+		boolean zip64 = e.size >= ZIP64_MAGIC || e.compressedSize >= ZIP64_MAGIC;
+		writeInt(0x04034b50L);
+		writeShort(zip64 ? 45 : 20);
+		writeShort(UTF8_FLAG);
+		writeShort(DEFLATED);
+		writeShort(dosTime);
+		writeShort(dosDate);
+		writeInt(e.crc);
+		writeInt(zip64 ? ZIP64_MAGIC : e.compressedSize);
+		writeInt(zip64 ? ZIP64_MAGIC : e.size);
+		writeShort(e.name.length);
+		writeShort(zip64 ? 20 : 0);
+		writeBytes(e.name);
+		if (zip64) {
+			writeShort(0x0001);
+			writeShort(16);
+			writeLong(e.size);
+			writeLong(e.compressedSize);
+		}
+	}
+
+	private void writeCentralDirectoryHeader(CentralDirectoryEntry cd) throws IOException {
+		ZipSection.Entry e = cd.entry;
+
+		// the zip64 extra field contains only the values that do not fit
+		ByteArrayOutputStream extra = new ByteArrayOutputStream();
+		if (e.size >= ZIP64_MAGIC) {
+			writeLong(extra, e.size);
+		}
+		if (e.compressedSize >= ZIP64_MAGIC) {
+			writeLong(extra, e.compressedSize);
+		}
+		if (cd.headerOffset >= ZIP64_MAGIC) {
+			writeLong(extra, cd.headerOffset);
+		}
+		boolean zip64 = extra.size() > 0;
+
+		writeInt(0x02014b50L);
+		writeShort(zip64 ? 45 : 20);
+		writeShort(zip64 ? 45 : 20);
+		writeShort(UTF8_FLAG);
+		writeShort(DEFLATED);
+		writeShort(dosTime);
+		writeShort(dosDate);
+		writeInt(e.crc);
+		writeInt(Math.min(e.compressedSize, ZIP64_MAGIC));
+		writeInt(Math.min(e.size, ZIP64_MAGIC));
+		writeShort(e.name.length);
+		writeShort(zip64 ? extra.size() + 4 : 0);
+		writeShort(0); // comment length
+		writeShort(0); // disk number
+		writeShort(0); // internal attributes
+		writeInt(0); // external attributes
+		writeInt(Math.min(cd.headerOffset, ZIP64_MAGIC));
+		writeBytes(e.name);
+		if (zip64) {
+			writeShort(0x0001);
+			writeShort(extra.size());
+			writeBytes(extra.toByteArray());
+		}
+	}
+
+	private void copy(InputStream in, long length) throws IOException {
+		byte[] buffer = new byte[8192];
+		long remaining = length;
+		while (remaining > 0) {
+			int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+			if (read == -1) {
+				throw new IOException("unexpected end of section");
+			}
+			out.write(buffer, 0, read);
+			remaining -= read;
+		}
+		offset += length;
+	}
+
+	private static void skip(InputStream in, long length) throws IOException {
+		long remaining = length;
+		while (remaining > 0) {
+			long skipped = in.skip(remaining);
+			if (skipped <= 0) {
+				throw new IOException("unexpected end of section");
+			}
+			remaining -= skipped;
+		}
+	}
+
+	private void writeShort(int v) throws IOException {
+		out.write(v & 0xFF);
+		out.write((v >>> 8) & 0xFF);
+		offset += 2;
+	}
+
+	private void writeInt(long v) throws IOException {
+		writeShort((int) (v & 0xFFFF));
+		writeShort((int) ((v >>> 16) & 0xFFFF));
+	}
+
+	private void writeLong(long v) throws IOException {
+		writeInt(v & ZIP64_MAGIC);
+		writeInt(v >>> 32);
+	}
+
+	private void writeBytes(byte[] b) throws IOException {
+		out.write(b);
+		offset += b.length;
+	}
+
+	private static void writeLong(ByteArrayOutputStream os, long v) {
+		for (int i = 0; i < 8; i++) {
+			os.write((int) (v >>> (8 * i)) & 0xFF);
+		}
+	}
+
+	private static class CentralDirectoryEntry {
+		final ZipSection.Entry entry;
+		final long headerOffset;
+
+		CentralDirectoryEntry(ZipSection.Entry entry, long headerOffset) {
+			this.entry = entry;
+			this.headerOffset = headerOffset;
+		}
+	}
+}
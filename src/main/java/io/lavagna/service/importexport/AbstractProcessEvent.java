@@ -16,6 +16,7 @@
  */
 package io.lavagna.service.importexport;
 
+import io.lavagna.common.ZipReader;
 import io.lavagna.model.Event;
 import io.lavagna.model.EventFull;
 import io.lavagna.model.ImportContext;
@@ -24,7 +25,6 @@ import io.lavagna.service.CardDataService;
 import io.lavagna.service.CardRepository;
 import io.lavagna.service.UserRepository;
 
-import java.nio.file.Path;
 import java.util.Date;
 
 abstract class AbstractProcessEvent {
@@ -39,13 +39,18 @@ abstract class AbstractProcessEvent {
 		this.cardDataService = cardDataService;
 	}
 
-	abstract void process(EventFull e, Event event, Date time, User user, ImportContext context, Path tempFile);
-
-	protected int cardId(EventFull e) {
-		return cardRepository.findCardIdByBoardNameAndSeq(e.getBoardShortName(), e.getCardSequenceNumber());
-	}
-
-	protected User toUser(EventFull e) {
-		return userRepository.findUserByName(e.getUserProvider(), e.getUsername());
+	abstract void process(EventFull e, Event event, Date time, User user, ImportContext context, ZipReader zip);
+
+	/**
+	 * The card ids are cached in the context, as each card is referenced by many events.
+	 */
+	protected int cardId(EventFull e, ImportContext context) {
+		String identifier = e.getBoardShortName() + "-" + e.getCardSequenceNumber();
+		Integer cardId = context.getCardIds().get(identifier);
+		if (cardId == null) {
+			cardId = cardRepository.findCardIdByBoardNameAndSeq(e.getBoardShortName(), e.getCardSequenceNumber());
+			context.getCardIds().put(identifier, cardId);
+		}
+		return cardId;
 	}
 }
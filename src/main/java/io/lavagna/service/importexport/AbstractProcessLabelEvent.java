@@ -24,7 +24,9 @@ import io.lavagna.model.CardLabel;
 import io.lavagna.model.CardLabelValue;
 import io.lavagna.model.Event;
 import io.lavagna.model.EventFull;
+import io.lavagna.model.ImportContext;
 import io.lavagna.model.LabelListValue;
+import io.lavagna.model.User;
 import io.lavagna.model.CardLabel.LabelDomain;
 import io.lavagna.model.CardLabel.LabelType;
 import io.lavagna.model.CardLabelValue.LabelValue;
@@ -54,14 +56,14 @@ abstract class AbstractProcessLabelEvent extends AbstractProcessEvent {
 		this.eventRepository = eventRepository;
 	}
 
-	protected CardLabelValue findCardLabelValueBy(EventFull e) {
+	protected CardLabelValue findCardLabelValueBy(EventFull e, ImportContext context) {
 		CardLabel cl = findLabelByEvent(e);
 		if (cl != null) {
 			LabelValue lv = labelValue(cl, e);
 			if(lv == null) {
 				return null;
 			}
-			List<CardLabelValue> r = cardLabelRepository.findLabelValueByLabelAndValue(cardId(e), cl, lv);
+			List<CardLabelValue> r = cardLabelRepository.findLabelValueByLabelAndValue(cardId(e, context), cl, lv);
 			return r.size() == 1 ? r.get(0) : null;
 		}
 		return null;
@@ -111,7 +113,8 @@ abstract class AbstractProcessLabelEvent extends AbstractProcessEvent {
 		return null;
 	}
 
-	protected void insertLabelEvent(EventFull e, Event event, Date time, EventType eventType) {
+	protected void insertLabelEvent(EventFull e, Event event, Date time, User user, EventType eventType,
+			ImportContext context) {
 		Integer labelCardId = fromLabelCardToCardId(e);
 		Integer labeUserId = fromLabelUsernameToUserId(e);
 
@@ -123,7 +126,7 @@ abstract class AbstractProcessLabelEvent extends AbstractProcessEvent {
 			return;
 		}
 
-		eventRepository.insertLabelEvent(event.getLabelName(), cardId(e), toUser(e).getId(), eventType, labelValue,
+		eventRepository.insertLabelEvent(event.getLabelName(), cardId(e, context), user.getId(), eventType, labelValue,
 				event.getLabelType(), time);
 	}
 
@@ -16,6 +16,7 @@
  */
 package io.lavagna.service.importexport;
 
+import io.lavagna.common.ZipReader;
 import io.lavagna.model.CardData;
 import io.lavagna.model.Event;
 import io.lavagna.model.EventFull;
@@ -25,7 +26,6 @@ import io.lavagna.service.CardDataService;
 import io.lavagna.service.CardRepository;
 import io.lavagna.service.UserRepository;
 
-import java.nio.file.Path;
 import java.util.Date;
 
 class ActionItemCreate extends AbstractProcessEvent {
@@ -36,8 +36,8 @@ class ActionItemCreate extends AbstractProcessEvent {
 	}
 
 	@Override
-	void process(EventFull e, Event event, Date time, User user, ImportContext context, Path tempFile) {
-		CardData cd = cardDataService.createActionItem(cardId(e),
+	void process(EventFull e, Event event, Date time, User user, ImportContext context, ZipReader zip) {
+		CardData cd = cardDataService.createActionItem(cardId(e, context),
 				context.getActionListId().get(event.getPreviousDataId()), e.getContent(), user, time);
 		context.getActionItemId().put(event.getDataId(), cd.getId());
 	}
@@ -16,6 +16,7 @@
  */
 package io.lavagna.service.importexport;
 
+import io.lavagna.common.ZipReader;
 import io.lavagna.model.Event;
 import io.lavagna.model.EventFull;
 import io.lavagna.model.ImportContext;
@@ -24,7 +25,6 @@ import io.lavagna.service.CardDataService;
 import io.lavagna.service.CardRepository;
 import io.lavagna.service.UserRepository;
 
-import java.nio.file.Path;
 import java.util.Collections;
 import java.util.Date;
 
@@ -35,9 +35,9 @@ class ActionItemMove extends AbstractProcessEvent {
 	}
 
 	@Override
-	void process(EventFull e, Event event, Date time, User user, ImportContext context, Path tempFile) {
+	void process(EventFull e, Event event, Date time, User user, ImportContext context, ZipReader zip) {
 		int actionItemId = context.getActionItemId().get(event.getDataId());
-		cardDataService.moveActionItem(cardId(e), actionItemId, context.getActionListId().get(event.getNewDataId()),
+		cardDataService.moveActionItem(cardId(e, context), actionItemId, context.getActionListId().get(event.getNewDataId()),
 				Collections.singletonList(actionItemId), user, time);
 	}
 
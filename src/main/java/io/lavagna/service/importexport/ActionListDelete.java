@@ -16,6 +16,7 @@
  */
 package io.lavagna.service.importexport;
 
+import io.lavagna.common.ZipReader;
 import io.lavagna.model.Event;
 import io.lavagna.model.EventFull;
 import io.lavagna.model.ImportContext;
@@ -24,7 +25,6 @@ import io.lavagna.service.CardDataService;
 import io.lavagna.service.CardRepository;
 import io.lavagna.service.UserRepository;
 
-import java.nio.file.Path;
 import java.util.Date;
 
 class ActionListDelete extends AbstractProcessEvent {
@@ -34,7 +34,7 @@ class ActionListDelete extends AbstractProcessEvent {
 	}
 
 	@Override
-	void process(EventFull e, Event event, Date time, User user, ImportContext context, Path tempFile) {
+	void process(EventFull e, Event event, Date time, User user, ImportContext context, ZipReader zip) {
 		cardDataService.deleteActionList(context.getActionListId().get(event.getDataId()), user, time);
 	}
 
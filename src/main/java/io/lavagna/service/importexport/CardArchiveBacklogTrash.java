@@ -17,6 +17,7 @@
 package io.lavagna.service.importexport;
 
 import static java.util.Collections.singletonList;
+import io.lavagna.common.ZipReader;
 import io.lavagna.model.Event;
 import io.lavagna.model.EventFull;
 import io.lavagna.model.ImportContext;
@@ -27,7 +28,6 @@ import io.lavagna.service.CardService;
 import io.lavagna.service.EventRepository;
 import io.lavagna.service.UserRepository;
 
-import java.nio.file.Path;
 import java.util.Date;
 
 class CardArchiveBacklogTrash extends AbstractProcessEvent {
@@ -43,14 +43,14 @@ class CardArchiveBacklogTrash extends AbstractProcessEvent {
 	}
 
 	@Override
-	void process(EventFull e, Event event, Date time, User user, ImportContext context, Path tempFile) {
+	void process(EventFull e, Event event, Date time, User user, ImportContext context, ZipReader zip) {
 		int columnId = context.getColumns().get(e.getEvent().getColumnId());
 
 		if (event.getPreviousColumnId() == null) {
-			eventRepository.insertCardEvent(singletonList(cardId(e)), columnId, user.getId(), event.getEvent(), time);
+			eventRepository.insertCardEvent(singletonList(cardId(e, context)), columnId, user.getId(), event.getEvent(), time);
 		} else {
 			int previousColumnId = context.getColumns().get(event.getPreviousColumnId());
-			cardService.moveCardsToColumn(singletonList(cardId(e)), previousColumnId, columnId, user.getId(),
+			cardService.moveCardsToColumn(singletonList(cardId(e, context)), previousColumnId, columnId, user.getId(),
 					event.getEvent(), time);
 		}
 
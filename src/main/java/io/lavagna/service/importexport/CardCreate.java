@@ -16,9 +16,9 @@
  */
 package io.lavagna.service.importexport;
 
-import java.nio.file.Path;
 import java.util.Date;
 
+import io.lavagna.common.ZipReader;
 import io.lavagna.model.Event;
 import io.lavagna.model.EventFull;
 import io.lavagna.model.ImportContext;
@@ -39,7 +39,7 @@ class CardCreate extends AbstractProcessEvent {
 	}
 
 	@Override
-	void process(EventFull e, Event event, Date time, User user, ImportContext context, Path tempFile) {
+	void process(EventFull e, Event event, Date time, User user, ImportContext context, ZipReader zip) {
 		Integer columnId = context.getColumns().get(e.getEvent().getColumnId());
 		if (columnId != null) {
 			cardService.createCard(event.getValueString(), columnId, time, user);
@@ -16,6 +16,7 @@
  */
 package io.lavagna.service.importexport;
 
+import io.lavagna.common.ZipReader;
 import io.lavagna.model.Event;
 import io.lavagna.model.EventFull;
 import io.lavagna.model.ImportContext;
@@ -25,7 +26,6 @@ import io.lavagna.service.CardRepository;
 import io.lavagna.service.CardService;
 import io.lavagna.service.UserRepository;
 
-import java.nio.file.Path;
 import java.util.Date;
 
 class CardMove extends AbstractProcessEvent {
@@ -39,13 +39,13 @@ class CardMove extends AbstractProcessEvent {
 	}
 
 	@Override
-	void process(EventFull e, Event event, Date time, User user, ImportContext context, Path tempFile) {
+	void process(EventFull e, Event event, Date time, User user, ImportContext context, ZipReader zip) {
 		Integer columnId = null;
 		if (event.getPreviousColumnId() == null || (columnId = context.getColumns().get(event.getColumnId())) == null) {
 			return;
 		}
 		int previousColumnId = context.getColumns().get(event.getPreviousColumnId());
-		cardService.moveCardToColumn(cardId(e), previousColumnId, columnId, user.getId(), time);
+		cardService.moveCardToColumn(cardId(e, context), previousColumnId, columnId, user.getId(), time);
 	}
 
 }
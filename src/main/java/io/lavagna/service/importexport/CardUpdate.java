@@ -16,6 +16,7 @@
  */
 package io.lavagna.service.importexport;
 
+import io.lavagna.common.ZipReader;
 import io.lavagna.model.Event;
 import io.lavagna.model.EventFull;
 import io.lavagna.model.ImportContext;
@@ -25,7 +26,6 @@ import io.lavagna.service.CardRepository;
 import io.lavagna.service.CardService;
 import io.lavagna.service.UserRepository;
 
-import java.nio.file.Path;
 import java.util.Date;
 
 class CardUpdate extends AbstractProcessEvent {
@@ -39,8 +39,8 @@ class CardUpdate extends AbstractProcessEvent {
 	}
 
 	@Override
-	void process(EventFull e, Event event, Date time, User user, ImportContext context, Path tempFile) {
-		cardService.updateCard(cardId(e), event.getValueString(), user, time);
+	void process(EventFull e, Event event, Date time, User user, ImportContext context, ZipReader zip) {
+		cardService.updateCard(cardId(e, context), event.getValueString(), user, time);
 	}
 
 }
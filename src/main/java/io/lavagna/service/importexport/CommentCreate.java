@@ -16,6 +16,7 @@
  */
 package io.lavagna.service.importexport;
 
+import io.lavagna.common.ZipReader;
 import io.lavagna.model.CardData;
 import io.lavagna.model.Event;
 import io.lavagna.model.EventFull;
@@ -25,7 +26,6 @@ import io.lavagna.service.CardDataService;
 import io.lavagna.service.CardRepository;
 import io.lavagna.service.UserRepository;
 
-import java.nio.file.Path;
 import java.util.Date;
 
 class CommentCreate extends AbstractProcessEvent {
@@ -35,8 +35,8 @@ class CommentCreate extends AbstractProcessEvent {
 	}
 
 	@Override
-	void process(EventFull e, Event event, Date time, User user, ImportContext context, Path tempFile) {
-		CardData cd = cardDataService.createComment(cardId(e), e.getContent(), time, user);
+	void process(EventFull e, Event event, Date time, User user, ImportContext context, ZipReader zip) {
+		CardData cd = cardDataService.createComment(cardId(e, context), e.getContent(), time, user);
 		context.getCommentsId().put(event.getDataId(), cd.getId());
 	}
 
@@ -16,9 +16,9 @@
  */
 package io.lavagna.service.importexport;
 
-import java.nio.file.Path;
 import java.util.Date;
 
+import io.lavagna.common.ZipReader;
 import io.lavagna.model.Event;
 import io.lavagna.model.EventFull;
 import io.lavagna.model.ImportContext;
@@ -34,7 +34,7 @@ class FileDelete extends AbstractProcessEvent {
 	}
 
 	@Override
-	void process(EventFull e, Event event, Date time, User user, ImportContext context, Path tempFile) {
+	void process(EventFull e, Event event, Date time, User user, ImportContext context, ZipReader zip) {
 		Integer cardDataId;
 		if ((cardDataId = context.getFileId().get(event.getDataId())) != null) {
 			cardDataService.deleteFile(cardDataId, user, time);
@@ -16,6 +16,7 @@
  */
 package io.lavagna.service.importexport;
 
+import io.lavagna.common.ZipReader;
 import io.lavagna.model.Event;
 import io.lavagna.model.Event.EventType;
 import io.lavagna.model.EventFull;
@@ -31,7 +32,6 @@ import io.lavagna.service.ImportEvent;
 import io.lavagna.service.LabelService;
 import io.lavagna.service.UserRepository;
 
-import java.nio.file.Path;
 import java.util.Collections;
 import java.util.Date;
 import java.util.EnumMap;
@@ -99,14 +99,24 @@ public class ImportEventProcessor implements ImportEvent {
 		eventProcessors = Collections.unmodifiableMap(mapping);
 	}
 
-	public void processEvent(EventFull e, ImportContext context, Path tempFile) {
+	public void processEvent(EventFull e, ImportContext context, ZipReader zip) {
 		Event event = e.getEvent();
 
 		if (eventProcessors.containsKey(event.getEvent())) {
-			User user = userRepository.findUserByName(e.getUserProvider(), e.getUsername());
+			User user = findUser(e, context);
 			Date time = event.getTime();
 
-			eventProcessors.get(event.getEvent()).process(e, event, time, user, context, tempFile);
+			eventProcessors.get(event.getEvent()).process(e, event, time, user, context, zip);
 		}
 	}
+
+	private User findUser(EventFull e, ImportContext context) {
+		String key = e.getUserProvider() + ":" + e.getUsername();
+		User user = context.getUsers().get(key);
+		if (user == null) {
+			user = userRepository.findUserByName(e.getUserProvider(), e.getUsername());
+			context.getUsers().put(key, user);
+		}
+		return user;
+	}
 }
@@ -16,6 +16,7 @@
  */
 package io.lavagna.service.importexport;
 
+import io.lavagna.common.ZipReader;
 import io.lavagna.model.CardLabel;
 import io.lavagna.model.CardLabelValue.LabelValue;
 import io.lavagna.model.Event;
@@ -31,7 +32,6 @@ import io.lavagna.service.EventRepository;
 import io.lavagna.service.LabelService;
 import io.lavagna.service.UserRepository;
 
-import java.nio.file.Path;
 import java.util.Date;
 
 class LabelCreate extends AbstractProcessLabelEvent {
@@ -44,13 +44,13 @@ class LabelCreate extends AbstractProcessLabelEvent {
 	}
 
 	@Override
-	void process(EventFull e, Event event, Date time, User user, ImportContext context, Path tempFile) {
+	void process(EventFull e, Event event, Date time, User user, ImportContext context, ZipReader zip) {
 		CardLabel cl = findLabelByEvent(e);
 		LabelValue lv;
 		if (cl != null && (lv = labelValue(cl, e)) != null) {
-			labelService.addLabelValueToCard(cl.getId(), cardId(e), lv, user, time);
+			labelService.addLabelValueToCard(cl.getId(), cardId(e, context), lv, user, time);
 		} else {
-			insertLabelEvent(e, event, time, EventType.LABEL_CREATE);
+			insertLabelEvent(e, event, time, user, EventType.LABEL_CREATE, context);
 		}
 	}
 
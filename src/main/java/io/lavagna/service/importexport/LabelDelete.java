@@ -16,6 +16,7 @@
  */
 package io.lavagna.service.importexport;
 
+import io.lavagna.common.ZipReader;
 import io.lavagna.model.CardLabelValue;
 import io.lavagna.model.Event;
 import io.lavagna.model.Event.EventType;
@@ -30,7 +31,6 @@ import io.lavagna.service.EventRepository;
 import io.lavagna.service.LabelService;
 import io.lavagna.service.UserRepository;
 
-import java.nio.file.Path;
 import java.util.Date;
 
 class LabelDelete extends AbstractProcessLabelEvent {
@@ -43,12 +43,12 @@ class LabelDelete extends AbstractProcessLabelEvent {
 	}
 
 	@Override
-	void process(EventFull e, Event event, Date time, User user, ImportContext context, Path tempFile) {
-		CardLabelValue clv = findCardLabelValueBy(e);
+	void process(EventFull e, Event event, Date time, User user, ImportContext context, ZipReader zip) {
+		CardLabelValue clv = findCardLabelValueBy(e, context);
 		if (clv != null) {
 			labelService.removeLabelValue(clv, user, time);
 		} else {
-			insertLabelEvent(e, event, time, EventType.LABEL_DELETE);
+			insertLabelEvent(e, event, time, user, EventType.LABEL_DELETE, context);
 		}
 	}
 }
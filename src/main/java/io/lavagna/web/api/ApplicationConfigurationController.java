@@ -18,17 +18,28 @@ package io.lavagna.web.api;
 
 import static java.lang.String.format;
 import static java.util.EnumSet.of;
+import io.lavagna.model.CacheStatistics;
 import io.lavagna.model.ConfigurationKeyValue;
+import io.lavagna.model.ExecutorStatistics;
+import io.lavagna.model.FullTextSyncStatistics;
 import io.lavagna.model.Key;
 import io.lavagna.model.MailConfig;
 import io.lavagna.model.Pair;
 import io.lavagna.model.Permission;
+import io.lavagna.service.BlobStoreMigrationService;
 import io.lavagna.service.ConfigurationRepository;
+import io.lavagna.service.ExecutorStatisticsService;
+import io.lavagna.service.FullTextIndexService;
 import io.lavagna.service.Ldap;
+import io.lavagna.service.MySqlFullTextSupportService;
+import io.lavagna.service.PermissionCache;
+import io.lavagna.service.RelatedProjectResolver;
 import io.lavagna.web.api.model.Conf;
 import io.lavagna.web.helper.ExpectPermission;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
@@ -49,11 +60,27 @@ public class ApplicationConfigurationController {
 
 	private final ConfigurationRepository configurationRepository;
 	private final Ldap ldap;
+	private final PermissionCache permissionCache;
+	private final RelatedProjectResolver relatedProjectResolver;
+	private final BlobStoreMigrationService blobStoreMigrationService;
+	private final MySqlFullTextSupportService mySqlFullTextSupportService;
+	private final FullTextIndexService fullTextIndexService;
+	private final ExecutorStatisticsService executorStatisticsService;
 
 	@Autowired
-	public ApplicationConfigurationController(ConfigurationRepository configurationRepository, Ldap ldap) {
+	public ApplicationConfigurationController(ConfigurationRepository configurationRepository, Ldap ldap,
+			PermissionCache permissionCache, RelatedProjectResolver relatedProjectResolver,
+			BlobStoreMigrationService blobStoreMigrationService,
+			MySqlFullTextSupportService mySqlFullTextSupportService, FullTextIndexService fullTextIndexService,
+			ExecutorStatisticsService executorStatisticsService) {
 		this.configurationRepository = configurationRepository;
 		this.ldap = ldap;
+		this.permissionCache = permissionCache;
+		this.relatedProjectResolver = relatedProjectResolver;
+		this.blobStoreMigrationService = blobStoreMigrationService;
+		this.mySqlFullTextSupportService = mySqlFullTextSupportService;
+		this.fullTextIndexService = fullTextIndexService;
+		this.executorStatisticsService = executorStatisticsService;
 	}
 
 	@RequestMapping(value = "/api/check-https-config", method = RequestMethod.GET)
@@ -105,6 +132,38 @@ public class ApplicationConfigurationController {
 		configurationRepository.updateOrCreate(conf.getToUpdateOrCreate());
 	}
 
+	@RequestMapping(value = "/api/admin/cache-statistics", method = RequestMethod.GET)
+	public List<CacheStatistics> getCacheStatistics() {
+		return Arrays.asList(configurationRepository.getCacheStatistics(), permissionCache.getCacheStatistics(),
+				relatedProjectResolver.getCacheStatistics());
+	}
+
+	@RequestMapping(value = "/api/admin/executor-statistics", method = RequestMethod.GET)
+	public List<ExecutorStatistics> getExecutorStatistics() {
+		return executorStatisticsService.findAll();
+	}
+
+	@RequestMapping(value = "/api/admin/full-text-sync-statistics", method = RequestMethod.GET)
+	public FullTextSyncStatistics getFullTextSyncStatistics() {
+		return mySqlFullTextSupportService.getStatistics();
+	}
+
+	/**
+	 * Move the uploaded files still stored in the database to the configured blob store.
+	 */
+	@RequestMapping(value = "/api/admin/blob-store/migrate", method = RequestMethod.POST)
+	public int migrateBlobStore() throws IOException {
+		return blobStoreMigrationService.moveDatabaseContentToBlobStore();
+	}
+
+	/**
+	 * Index again all the cards, when the search index is enabled.
+	 */
+	@RequestMapping(value = "/api/admin/search-index/rebuild", method = RequestMethod.POST)
+	public int rebuildSearchIndex() throws IOException {
+		return fullTextIndexService.rebuild();
+	}
+
 	@RequestMapping(value = "/api/check-ldap/", method = RequestMethod.POST)
 	public Pair<Boolean, List<String>> checkLdap(@RequestBody Map<String, String> r) {
 		return ldap.authenticateWithParams(r.get("serverUrl"), r.get("managerDn"), r.get("managerPassword"),
@@ -29,6 +29,8 @@ import io.lavagna.model.CardFullWithCounts;
 import io.lavagna.model.CardFullWithCountsHolder;
 import io.lavagna.model.CardLabel;
 import io.lavagna.model.ColumnDefinition;
+import io.lavagna.model.ContinuationPage;
+import io.lavagna.model.ContinuationToken;
 import io.lavagna.model.Event;
 import io.lavagna.model.LabelListValue;
 import io.lavagna.model.MilestoneCount;
@@ -64,6 +66,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.servlet.http.HttpServletResponse;
+
 import lombok.Getter;
 import lombok.Setter;
 import org.apache.commons.lang3.Validate;
@@ -73,11 +77,17 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
 public class CardController {
 
+	/**
+	 * Version of the cards of the column, see {@link EventEmitter#columnVersion(int)}.
+	 */
+	static final String COLUMN_VERSION_HEADER = "X-Lavagna-Column-Version";
+
 	private static final int CARDS_PER_PAGE = 20;
 	private final CardRepository cardRepository;
 	private final CardService cardService;
@@ -107,7 +117,10 @@ public class CardController {
 
 	@ExpectPermission(Permission.READ)
 	@RequestMapping(value = "/api/column/{columnId}/card", method = RequestMethod.GET)
-	public List<CardFullWithCounts> fetchAllInColumn(@PathVariable("columnId") int columnId) {
+	public List<CardFullWithCounts> fetchAllInColumn(@PathVariable("columnId") int columnId,
+			HttpServletResponse resp) {
+		// read before the cards: the deltas with a greater version must be applied on them
+		resp.setHeader(COLUMN_VERSION_HEADER, Long.toString(eventEmitter.columnVersion(columnId)));
 		return cardService.fetchAllInColumn(columnId);
 	}
 
@@ -196,6 +209,19 @@ public class CardController {
 		return cardRepository.fetchPaginatedByBoardIdAndLocation(boardId, location, page);
 	}
 
+	/**
+	 * Keyset paginated variant of {@link #fetchPaginatedIn(String, BoardColumnLocation, int)}: return 10 cards and
+	 * the token for fetching the next ones.
+	 */
+	@ExpectPermission(Permission.READ)
+	@RequestMapping(value = "/api/board/{shortName}/cards-in/{location}", method = RequestMethod.GET)
+	public ContinuationPage<CardFull> fetchIn(@PathVariable("shortName") String shortName,
+			@PathVariable("location") BoardColumnLocation location,
+			@RequestParam(value = "after", required = false) String after) {
+		int boardId = boardRepository.findBoardIdByShortName(shortName);
+		return cardRepository.fetchPaginatedByBoardIdAndLocation(boardId, location, ContinuationToken.decode(after));
+	}
+
 	private void emitCreateCard(int columnId, Card createdCard) {
 		ProjectAndBoard projectAndBoard = boardRepository.findProjectAndBoardByColumnId(columnId);
 		eventEmitter.emitCreateCard(projectAndBoard.getProject().getShortName(), projectAndBoard.getBoard()
@@ -266,7 +292,7 @@ public class CardController {
 
 		//
 		eventEmitter.emitUpdateCardPosition(previousColumnId);
-		eventEmitter.emitUpdateCardPosition(newColumnId);
+		eventEmitter.emitUpdateCardPosition(newColumnId, Collections.singletonList(id));
 		//
 
 		Board board = boardRepository.findBoardById(prevCol.getBoardId());
@@ -326,6 +352,14 @@ public class CardController {
 		return cardService.getAllOpenCards(user, page, CARDS_PER_PAGE);
 	}
 
+	@ExpectPermission(Permission.SEARCH)
+	@RequestMapping(value = "/api/self/cards", method = RequestMethod.GET)
+	public ContinuationPage<CardFullWithCounts> getOpenCards(
+			@RequestParam(value = "after", required = false) String after,
+			@RequestParam(value = "count", required = false, defaultValue = "true") boolean count, User user) {
+		return cardService.getAllOpenCards(user, ContinuationToken.decode(after), CARDS_PER_PAGE, count);
+	}
+
 	@ExpectPermission(Permission.SEARCH)
 	@RequestMapping(value = "/api/self/project/{projectShortName}/cards/{page}", method = RequestMethod.GET)
 	public CardFullWithCountsHolder getOpenCardsByProjectShortName(
@@ -17,7 +17,7 @@
 package io.lavagna.web.api;
 
 import io.lavagna.model.CardData;
-import io.lavagna.model.CardDataFull;
+import io.lavagna.model.CardDataHistory;
 import io.lavagna.model.CardType;
 import io.lavagna.model.Event;
 import io.lavagna.model.Event.EventType;
@@ -31,28 +31,26 @@ import io.lavagna.service.CardRepository;
 import io.lavagna.service.ConfigurationRepository;
 import io.lavagna.service.EventEmitter;
 import io.lavagna.service.EventRepository;
+import io.lavagna.service.FileUploadService;
+import io.lavagna.service.FileUploadService.Upload;
 import io.lavagna.web.helper.CardCommentOwnershipChecker;
 import io.lavagna.web.helper.ExpectPermission;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.servlet.http.HttpServletResponse;
 
 import lombok.Getter;
 import lombok.Setter;
 
-import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.logging.log4j.LogManager;
@@ -61,6 +59,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -71,6 +70,7 @@ import org.springframework.web.multipart.MultipartFile;
 public class CardDataController {
 
 	private static final Logger LOG = LogManager.getLogger();
+	private static final Pattern BYTE_RANGE = Pattern.compile("^bytes=(\\d*)-(\\d*)$");
 
 	private final CardDataService cardDataService;
 	private final CardDataRepository cardDataRepository;
@@ -78,17 +78,19 @@ public class CardDataController {
 	private final EventRepository eventRepository;
 	private final EventEmitter eventEmitter;
 	private final ConfigurationRepository configurationRepository;
+	private final FileUploadService fileUploadService;
 
 	@Autowired
 	public CardDataController(CardDataService cardDataService, CardDataRepository cardDataRepository,
 			CardRepository cardRepository, ConfigurationRepository configurationRepository,
-			EventRepository eventRepository, EventEmitter eventEmitter) {
+			EventRepository eventRepository, EventEmitter eventEmitter, FileUploadService fileUploadService) {
 		this.cardDataService = cardDataService;
 		this.cardDataRepository = cardDataRepository;
 		this.cardRepository = cardRepository;
 		this.eventRepository = eventRepository;
 		this.eventEmitter = eventEmitter;
 		this.configurationRepository = configurationRepository;
+		this.fileUploadService = fileUploadService;
 	}
 
 	@ExpectPermission(Permission.READ)
@@ -98,34 +100,22 @@ public class CardDataController {
 		return cardDataRepository.findAllDataLightByCardId(cardId);
 	}
 
+	/**
+	 * Version of the data of the card, see {@link EventEmitter#cardDataVersion(int)}: must be fetched <b>before</b>
+	 * the data.
+	 */
+	@ExpectPermission(Permission.READ)
+	@RequestMapping(value = "/api/card/{cardId}/data-version", method = RequestMethod.GET)
+	@ResponseBody
+	public long dataVersion(@PathVariable("cardId") int cardId) {
+		return eventEmitter.cardDataVersion(cardId);
+	}
+
 	@ExpectPermission(Permission.READ)
 	@RequestMapping(value = "/api/card/{cardId}/description", method = RequestMethod.GET)
 	@ResponseBody
 	public CardDataHistory description(@PathVariable("cardId") int cardId) {
-		List<CardDataFull> descriptions = cardDataService.findDescriptionByCardId(cardId);
-		// look for duplicates, the event model will keep the entire history of
-		// the description
-		CardDataHistory description = null;
-		for (CardDataFull des : descriptions) {
-			if (description == null) {
-				description = new CardDataHistory(des.getId(), des.getContent(), des.getOrder(), des.getUserId(),
-						des.getTime(), des.getUserId(), des.getTime());
-			}
-
-			if (des.getEventType() == EventType.DESCRIPTION_CREATE) {
-				description.userId = des.getUserId();
-				description.time = des.getTime();
-			}
-			if (des.getEventType() == EventType.DESCRIPTION_UPDATE) {
-				description.updatedCount++;
-				// never null because the object's fields are always initialized
-				if (des.getTime().getTime() > description.getUpdateDate().getTime()) {
-					description.updateUser = des.getUserId();
-					description.updateDate = des.getTime();
-				}
-			}
-		}
-		return description;
+		return cardDataService.findDescriptionHistoryByCardId(cardId);
 	}
 
 	@ExpectPermission(Permission.UPDATE_CARD)
@@ -141,34 +131,7 @@ public class CardDataController {
 	@RequestMapping(value = "/api/card/{cardId}/comments", method = RequestMethod.GET)
 	@ResponseBody
 	public List<CardDataHistory> findAllComments(@PathVariable("cardId") int cardId) {
-		List<CardDataFull> comments = cardDataService.findAllCommentsByCardId(cardId);
-		// look for duplicates, the event model will keep the entire history of
-		// the comment
-		Map<Integer, CardDataHistory> duplicates = new HashMap<>();
-		for (CardDataFull comment : comments) {
-			if (!duplicates.containsKey(comment.getId())) {
-				CardDataHistory newComment = new CardDataHistory(comment.getId(), comment.getContent(),
-						comment.getOrder(), comment.getUserId(), comment.getTime(), comment.getUserId(),
-						comment.getTime());
-				duplicates.put(comment.getId(), newComment);
-			}
-			CardDataHistory instance = duplicates.get(comment.getId());
-
-			if (comment.getEventType() == EventType.COMMENT_CREATE) {
-				instance.userId = comment.getUserId();
-				instance.time = comment.getTime();
-			}
-			if (comment.getEventType() == EventType.COMMENT_UPDATE) {
-				instance.updatedCount++;
-				// never null because the object's fields are always initialized
-				if (comment.getTime().getTime() > instance.updateDate.getTime()) {
-					instance.updateUser = comment.getUserId();
-					instance.updateDate = comment.getTime();
-				}
-			}
-			duplicates.put(comment.getId(), instance);
-		}
-		return new ArrayList<CardDataHistory>(duplicates.values());
+		return cardDataService.findAllCommentsHistoryByCardId(cardId);
 	}
 
 	@ExpectPermission(Permission.READ)
@@ -361,25 +324,26 @@ public class CardDataController {
 			return Collections.emptyList();
 		}
 
-		List<String> digests = new ArrayList<>();
-		for (MultipartFile file : files) {
-			Path p = Files.createTempFile("lavagna", "upload");
-			try (InputStream fileIs = file.getInputStream()) {
-				Files.copy(fileIs, p, StandardCopyOption.REPLACE_EXISTING);
-
-				String digest = DigestUtils.sha256Hex(Files.newInputStream(p));
-				boolean result = cardDataService.createFile(file.getOriginalFilename(), digest, file.getSize(), cardId,
-						Files.newInputStream(p), file.getContentType(), user, new Date()).getLeft();
-				if (result) {
-					LOG.debug("file uploaded! size: {}, original name: {}, content-type: {}", file.getSize(),
-							file.getOriginalFilename(), file.getContentType());
-					digests.add(digest);
+		List<Upload> uploads = new ArrayList<>(files.size());
+		for (final MultipartFile file : files) {
+			uploads.add(new Upload() {
+				@Override
+				public String getName() {
+					return file.getOriginalFilename();
 				}
-			} finally {
-				Files.delete(p);
-				LOG.debug("deleted temp file {}", p);
-			}
+
+				@Override
+				public String getContentType() {
+					return file.getContentType();
+				}
+
+				@Override
+				public InputStream getInputStream() throws IOException {
+					return file.getInputStream();
+				}
+			});
 		}
+		List<String> digests = fileUploadService.uploadFiles(cardId, uploads, user, new Date());
 		eventEmitter.emitUploadFile(cardRepository.findBy(cardId).getColumnId(), cardId);
 		return digests;
 	}
@@ -401,18 +365,65 @@ public class CardDataController {
 	// TODO: fix exception handling
 	@ExpectPermission(Permission.READ)
 	@RequestMapping(value = "/api/card-data/file/{fileId}", method = RequestMethod.GET)
-	public void getFile(@PathVariable("fileId") int fileId, HttpServletResponse response) {
+	public void getFile(@PathVariable("fileId") int fileId,
+			@RequestHeader(value = "Range", required = false) String range, HttpServletResponse response) {
 		FileDataLight fileData = cardDataRepository.getUndeletedFileByCardDataId(fileId);
+		long size = fileData.getSize();
+		long[] bounds = parseRange(range, size);
+
+		response.addHeader("Accept-Ranges", "bytes");
+		if (bounds != null && bounds[0] >= size) {
+			response.addHeader("Content-Range", "bytes */" + size);
+			response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+			return;
+		}
+
+		long offset = bounds == null ? 0 : bounds[0];
+		long length = bounds == null ? size : bounds[1] - bounds[0] + 1;
 		response.addHeader("Content-Disposition", "attachment;filename=\"" + fileData.getName() + "\"");
+		response.setContentType(fileData.getContentType());
+		response.setHeader("Content-Length", Long.toString(length));
+		if (bounds != null) {
+			response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+			response.addHeader("Content-Range", "bytes " + bounds[0] + "-" + bounds[1] + "/" + size);
+		}
 		try (OutputStream out = response.getOutputStream()) {
-			cardDataRepository.outputFileContent(fileData.getDigest(), out);
-			response.setContentType(fileData.getContentType());
+			cardDataRepository.outputFileContent(fileData.getDigest(), offset, length, out);
 		} catch (IOException e) {
 			LOG.error("error getting file", e);
 			response.setStatus(500);
 		}
 	}
 
+	/**
+	 * Handle a single "bytes=first-last" range (RFC 7233). A malformed or multiple range is ignored, as allowed by the
+	 * specification, and the whole file is sent.
+	 *
+	 * @return the first and the last position (inclusive), or null when the whole file must be sent. A first position
+	 *         greater or equal to the size means that the range cannot be satisfied.
+	 */
+	static long[] parseRange(String range, long size) {
+		Matcher m = range == null ? null : BYTE_RANGE.matcher(range.trim());
+		if (m == null || !m.matches() || (m.group(1).isEmpty() && m.group(2).isEmpty())) {
+			return null;
+		}
+		try {
+			if (m.group(1).isEmpty()) {
+				long suffix = Long.parseLong(m.group(2));
+				return suffix == 0 ? new long[] { size, size - 1 } : new long[] { Math.max(0, size - suffix),
+						size - 1 };
+			}
+			long first = Long.parseLong(m.group(1));
+			long last = m.group(2).isEmpty() ? Long.MAX_VALUE : Long.parseLong(m.group(2));
+			if (last < first) {
+				return null;
+			}
+			return new long[] { first, Math.min(last, size - 1) };
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
 	@ExpectPermission(Permission.DELETE_FILE)
 	@RequestMapping(value = "/api/card-data/file/{fileId}", method = RequestMethod.DELETE)
 	@ResponseBody
@@ -468,30 +479,4 @@ public class CardDataController {
 		private MultipartFile file;
 	}
 
-	@Getter
-	@Setter
-	public static class CardDataHistory {
-		private final int id;
-		private int userId;
-		private Date time;
-		private final String content;
-		private int updatedCount = 0;
-		private int updateUser;
-		private Date updateDate;
-		private final int order;
-
-		public CardDataHistory(int id, String content, int order, int createUser, Date createDate, int updateUser,
-				Date updatedDate) {
-			this.id = id;
-			this.content = content;
-			this.order = order;
-
-			this.userId = createUser;
-			this.time = createDate;
-
-			this.updateUser = updateUser;
-			this.updateDate = updatedDate;
-		}
-	}
-
 }
@@ -37,7 +37,6 @@ import io.lavagna.web.helper.ExpectPermission;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.TreeMap;
 
 import lombok.Getter;
@@ -84,7 +83,7 @@ public class CardLabelController {
 	@ExpectPermission(Permission.READ)
 	@RequestMapping(value = "/api/card/{cardId}/label-values", method = RequestMethod.GET)
 	public Map<Integer, List<CardLabelValue>> findCardLabelValuesByCardId(@PathVariable("cardId") int cardId) {
-		return from(cardLabelRepository.findCardLabelValuesByCardId(cardId));
+		return cardLabelRepository.findCardLabelValuesByLabelIdForCardId(cardId);
 	}
 
 	@ExpectPermission(Permission.CREATE_LABEL)
@@ -253,12 +252,4 @@ public class CardLabelController {
 		private int first;
 		private int second;
 	}
-
-	private static Map<Integer, List<CardLabelValue>> from(Map<CardLabel, List<CardLabelValue>> from) {
-		Map<Integer, List<CardLabelValue>> res = new TreeMap<>();
-		for (Entry<CardLabel, List<CardLabelValue>> kv : from.entrySet()) {
-			res.put(kv.getKey().getId(), kv.getValue());
-		}
-		return res;
-	}
 }
@@ -20,6 +20,7 @@ import io.lavagna.common.Json;
 import io.lavagna.model.CardFull;
 import io.lavagna.model.CardLabel.LabelDomain;
 import io.lavagna.model.Permission;
+import io.lavagna.model.ContinuationToken;
 import io.lavagna.model.SearchResults;
 import io.lavagna.model.User;
 import io.lavagna.model.UserWithPermission;
@@ -101,13 +102,23 @@ public class SearchController {
 		return cardLabelRepository.findLabelListValueMapping(labelValues);
 	}
 
+	/**
+	 * Search the cards. If the "after" parameter is present (an empty value for the first page), the keyset
+	 * pagination is used: the "page" parameter is ignored and the total count is calculated only if "count" is true.
+	 */
 	@RequestMapping(value = "/api/search/card", method = RequestMethod.GET)
 	public SearchResults search(@RequestParam("q") String queryAsJson,
 			@RequestParam(value = "projectName", required = false) String projectName,
 			@RequestParam(value = "page", required = false, defaultValue = "0") int page,
+			@RequestParam(value = "after", required = false) String after,
+			@RequestParam(value = "count", required = false, defaultValue = "true") boolean count,
 			UserWithPermission userWithPermission) {
 		List<SearchFilter> searchFilters = Json.GSON.fromJson(queryAsJson, LIST_OF_SEARCH_FILTERS);
 		Integer projectId = toProjectId(projectName);
+		if (after != null) {
+			return searchService.find(searchFilters, projectId, null, userWithPermission,
+					ContinuationToken.decode(after), count);
+		}
 		return searchService.find(searchFilters, projectId, null, userWithPermission, page);
 	}
 
@@ -16,6 +16,8 @@
  */
 package io.lavagna.web.api;
 
+import io.lavagna.model.ContinuationPage;
+import io.lavagna.model.ContinuationToken;
 import io.lavagna.model.Event;
 import io.lavagna.model.EventsCount;
 import io.lavagna.model.Permission;
@@ -78,6 +80,13 @@ public class UserController {
 		return eventRepository.getUserFeedByPage(user.getId(), page);
 	}
 
+	@RequestMapping(value = "/api/self/feed", method = RequestMethod.GET)
+	// user is resolved through UserArgumentResolver
+	public ContinuationPage<Event> userFeed(@RequestParam(value = "after", required = false) String after,
+			UserWithPermission user) {
+		return eventRepository.getUserFeed(user.getId(), ContinuationToken.decode(after));
+	}
+
 	@ExpectPermission(Permission.UPDATE_PROFILE)
 	@RequestMapping(value = "/api/self", method = RequestMethod.POST)
 	public int updateUserProfile(UserWithPermission user, @RequestBody DisplayNameEmail toUpdate) {
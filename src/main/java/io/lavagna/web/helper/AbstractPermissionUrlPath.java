@@ -16,214 +16,94 @@
  */
 package io.lavagna.web.helper;
 
-import io.lavagna.service.ProjectService;
-
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
+import io.lavagna.service.RelatedProjectResolver.ResourceType;
 
 public abstract class AbstractPermissionUrlPath {
 
-	private static final Logger LOG = LogManager.getLogger();
-
 	private final String path;
-	private final Pattern pattern;
+	private final String regex;
+	private final ResourceType resourceType;
 
-	AbstractPermissionUrlPath(String path, String paramName) {
+	AbstractPermissionUrlPath(String path, String paramName, ResourceType resourceType) {
 		this.path = path;
+		this.resourceType = resourceType;
 
 		// we have an internal regex
 		if (paramName.contains(":")) {
-			this.pattern = Pattern.compile(path.replace("{" + paramName + "}", "(" + (paramName.split(":")[1]) + ")"));
+			this.regex = path.replace("{" + paramName + "}", "(" + (paramName.split(":")[1]) + ")");
 		} else {
-			this.pattern = Pattern.compile(path.replace("{" + paramName + "}", "([^/]+)"));
-		}
-	}
-
-	Set<String> tryToFetchProjectShortNames(String requestUri, ProjectService projectService) {
-		LOG.trace("tryToFetchProjectShortNames : uri : {}, pattern: {}", requestUri, pattern);
-		Set<String> e = extractAll(requestUri);
-		if (e.isEmpty()) {
-			return Collections.emptySet();
+			this.regex = path.replace("{" + paramName + "}", "([^/]+)");
 		}
-		return tryToFetchProjectShortName(e, projectService);
 	}
 
 	/**
-	 * Most of the cases the url has a single id, should not be a performance issue
-	 * 
-	 * @param ids
-	 * @param projectService
+	 * The regex matching the path, with a single capturing group for the resource identifier.
+	 *
 	 * @return
 	 */
-	protected abstract Set<String> tryToFetchProjectShortName(Set<String> ids, ProjectService projectService);
-
-	private Set<String> extractAll(String uri) {
-		Matcher m = pattern.matcher(uri);
-		Set<String> groups = new HashSet<>();
-		while (m.find()) {
-			groups.add(m.group(1));
-		}
-
-		LOG.trace("extract all : uri : {}, pattern: {}, groups: {}", uri, pattern, groups);
-		return groups;
-	}
-
-	private static void addIfNotNull(Set<String> s, String i) {
-		if (i != null) {
-			s.add(i);
-		}
+	String getRegex() {
+		return regex;
 	}
 
-	private static Set<Integer> from(Set<String> ids) {
-		Set<Integer> res = new HashSet<>();
-		for (String id : ids) {
-			try {
-				res.add(Integer.parseInt(id));
-			} catch (NumberFormatException e) {
-				// nope
-			}
-		}
-		return res;
+	ResourceType getResourceType() {
+		return resourceType;
 	}
 
 	static class ProjectShortNameUrlPath extends AbstractPermissionUrlPath {
 		ProjectShortNameUrlPath(String path, String paramName) {
-			super(path, paramName);
-		}
-
-		@Override
-		public Set<String> tryToFetchProjectShortName(Set<String> shortName, ProjectService projectService) {
-			return shortName;
+			super(path, paramName, ResourceType.PROJECT);
 		}
 	}
 
 	static class BoardShortNameUrlPath extends AbstractPermissionUrlPath {
 		BoardShortNameUrlPath(String path, String paramName) {
-			super(path, paramName);
-		}
-
-		@Override
-		public Set<String> tryToFetchProjectShortName(Set<String> ids, ProjectService projectService) {
-			Set<String> res = new HashSet<>();
-			for (String shortName : ids) {
-				addIfNotNull(res, projectService.findRelatedProjectShortNameByBoardShortname(shortName));
-			}
-			return res;
+			super(path, paramName, ResourceType.BOARD);
 		}
 	}
 
 	static class CardIdUrlPath extends AbstractPermissionUrlPath {
 		CardIdUrlPath(String path, String paramName) {
-			super(path, paramName);
-		}
-
-		@Override
-		public Set<String> tryToFetchProjectShortName(Set<String> ids, ProjectService projectService) {
-			Set<String> res = new HashSet<>();
-			for (int cardId : from(ids)) {
-				addIfNotNull(res, projectService.findRelatedProjectShortNameByCardId(cardId));
-			}
-			return res;
+			super(path, paramName, ResourceType.CARD);
 		}
 	}
 
 	static class EventIdUrlPath extends AbstractPermissionUrlPath {
-		public EventIdUrlPath(String path, String paramName) {
-			super(path, paramName);
-		}
-
-		@Override
-		protected Set<String> tryToFetchProjectShortName(Set<String> ids, ProjectService projectService) {
-			Set<String> res = new HashSet<>();
-			for (int eventId : from(ids)) {
-				addIfNotNull(res, projectService.findRelatedProjectShortNameByEventId(eventId));
-			}
-			return res;
+		EventIdUrlPath(String path, String paramName) {
+			super(path, paramName, ResourceType.EVENT);
 		}
 	}
 
 	static class CardDataIdUrlPath extends AbstractPermissionUrlPath {
 		CardDataIdUrlPath(String path, String paramName) {
-			super(path, paramName);
-		}
-
-		@Override
-		public Set<String> tryToFetchProjectShortName(Set<String> ids, ProjectService projectService) {
-			Set<String> res = new HashSet<>();
-			for (int cardDataId : from(ids)) {
-				addIfNotNull(res, projectService.findRelatedProjectShortNameByCardDataId(cardDataId));
-			}
-			return res;
+			super(path, paramName, ResourceType.CARD_DATA);
 		}
 	}
 
 	static class ColumnIdUrlPath extends AbstractPermissionUrlPath {
 		ColumnIdUrlPath(String path, String paramName) {
-			super(path, paramName);
-		}
-
-		@Override
-		public Set<String> tryToFetchProjectShortName(Set<String> ids, ProjectService projectService) {
-			Set<String> res = new HashSet<>();
-			for (Integer columnId : from(ids)) {
-				addIfNotNull(res, projectService.findRelatedProjectShortNameByColumnId(columnId));
-			}
-			return res;
+			super(path, paramName, ResourceType.COLUMN);
 		}
 	}
 
 	static class LabelIdUrlPath extends AbstractPermissionUrlPath {
 		LabelIdUrlPath(String path, String paramName) {
-			super(path, paramName);
-		}
-
-		@Override
-		public Set<String> tryToFetchProjectShortName(Set<String> ids, ProjectService projectService) {
-			Set<String> res = new HashSet<>();
-			for (Integer columnId : from(ids)) {
-				addIfNotNull(res, projectService.findRelatedProjectShortNameByLabelId(columnId));
-			}
-			return res;
+			super(path, paramName, ResourceType.LABEL);
 		}
 	}
 
 	static class LabelValueIdUrlPath extends AbstractPermissionUrlPath {
 		LabelValueIdUrlPath(String path, String paramName) {
-			super(path, paramName);
-		}
-
-		@Override
-		public Set<String> tryToFetchProjectShortName(Set<String> ids, ProjectService projectService) {
-			Set<String> res = new HashSet<>();
-			for (Integer columnId : from(ids)) {
-				addIfNotNull(res, projectService.findRelatedProjectShortNameByLabelValueId(columnId));
-			}
-			return res;
+			super(path, paramName, ResourceType.LABEL_VALUE);
 		}
 	}
 
 	static class ColumnDefinitionIdUrlPath extends AbstractPermissionUrlPath {
 		ColumnDefinitionIdUrlPath(String path, String paramName) {
-			super(path, paramName);
-		}
-
-		@Override
-		public Set<String> tryToFetchProjectShortName(Set<String> ids, ProjectService projectService) {
-			Set<String> res = new HashSet<>();
-			for (Integer id : from(ids)) {
-				addIfNotNull(res, projectService.findRelatedProjectShortNameByColumnDefinitionId(id));
-			}
-			return res;
+			super(path, paramName, ResourceType.COLUMN_DEFINITION);
 		}
 	}
 
 	public String getPath() {
 		return path;
 	}
-}
\ No newline at end of file
+}
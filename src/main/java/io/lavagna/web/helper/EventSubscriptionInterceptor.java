@@ -0,0 +1,84 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.web.helper;
+
+import io.lavagna.model.Permission;
+import io.lavagna.model.UserWithPermission;
+import io.lavagna.service.RelatedProjectResolver;
+import io.lavagna.service.RelatedProjectResolver.ResourceType;
+import io.lavagna.service.UserService;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptorAdapter;
+
+/**
+ * Check the subscriptions to the events as {@link PermissionMethodInterceptor} checks the requests: the events of a
+ * project, board, column or card ("/event/card/{cardId}/card-data", ...) carry their data, so they can be received
+ * only by the users that can read the related projects.
+ *
+ * The user is the one of the http session that opened the websocket, see {@link UserSession#getUserId(Map)}.
+ */
+public class EventSubscriptionInterceptor extends ChannelInterceptorAdapter {
+
+	private final UserService userService;
+	private final RelatedProjectResolver relatedProjectResolver;
+
+	public EventSubscriptionInterceptor(UserService userService, RelatedProjectResolver relatedProjectResolver) {
+		this.userService = userService;
+		this.relatedProjectResolver = relatedProjectResolver;
+	}
+
+	@Override
+	public Message<?> preSend(Message<?> message, MessageChannel channel) {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+		if (accessor.getMessageType() == SimpMessageType.SUBSCRIBE
+				&& !canSubscribe(accessor.getSessionAttributes(), accessor.getDestination())) {
+			throw new MessagingException(message, "cannot subscribe to " + accessor.getDestination());
+		}
+		return message;
+	}
+
+	private boolean canSubscribe(Map<String, Object> sessionAttributes, String destination) {
+		if (destination == null || !destination.startsWith("/event/")) {
+			return true;
+		}
+
+		// the destinations that are not related to a project are not checked, as the urls
+		Map<ResourceType, Set<String>> resources = PermissionMethodInterceptor
+				.extractResourcesFromRequestUri(destination);
+		if (resources.isEmpty()) {
+			return true;
+		}
+
+		Integer userId = UserSession.getUserId(sessionAttributes);
+		if (userId == null) {
+			return false;
+		}
+
+		UserWithPermission user = userService.findUserWithPermission(userId);
+		return user.getBasePermissions().containsKey(Permission.READ)
+				|| PermissionMethodInterceptor.allProjectsIdsHavePermission(
+						relatedProjectResolver.findRelatedProjectShortNames(resources), user, Permission.READ);
+	}
+}
@@ -16,6 +16,7 @@
  */
 package io.lavagna.web.helper;
 
+import io.lavagna.model.ContinuationToken.InvalidContinuationTokenException;
 import io.lavagna.web.api.model.ValidationException;
 
 import java.util.LinkedHashMap;
@@ -42,6 +43,7 @@ public class GeneralHandlerExceptionResolver implements HandlerExceptionResolver
 		// add the exceptions from the less generic to the more one
 		statusCodeResolver.put(EmptyResultDataAccessException.class, HttpStatus.NOT_FOUND.value());
 		statusCodeResolver.put(ValidationException.class, HttpStatus.UNPROCESSABLE_ENTITY.value());
+		statusCodeResolver.put(InvalidContinuationTokenException.class, HttpStatus.UNPROCESSABLE_ENTITY.value());
 	}
 
 	@Override
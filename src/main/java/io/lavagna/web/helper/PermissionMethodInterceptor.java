@@ -18,12 +18,19 @@ package io.lavagna.web.helper;
 
 import io.lavagna.model.Permission;
 import io.lavagna.model.UserWithPermission;
-import io.lavagna.service.ProjectService;
+import io.lavagna.service.RelatedProjectResolver;
+import io.lavagna.service.RelatedProjectResolver.ResourceType;
 import io.lavagna.service.UserService;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -45,13 +52,20 @@ public class PermissionMethodInterceptor extends HandlerInterceptorAdapter {
 	private UserService userService;
 
 	@Autowired
-	private ProjectService projectService;
+	private RelatedProjectResolver relatedProjectResolver;
 
 	@Autowired
 	private WebApplicationContext context;
 
 	public static final Set<AbstractPermissionUrlPath> URL_PATTERNS_TO_CHECK;
 
+	/**
+	 * All the {@link #URL_PATTERNS_TO_CHECK} combined in a single alternation: the n-th capturing group belong to the
+	 * n-th element of {@link #URL_PATTERNS_BY_GROUP}.
+	 */
+	private static final Pattern URL_PATTERN;
+	private static final List<AbstractPermissionUrlPath> URL_PATTERNS_BY_GROUP;
+
 	static {
 		Set<AbstractPermissionUrlPath> p = new HashSet<>();
 
@@ -85,6 +99,13 @@ public class PermissionMethodInterceptor extends HandlerInterceptorAdapter {
 		p.add(new AbstractPermissionUrlPath.ColumnDefinitionIdUrlPath("/redefine/{newDefinitionId}", "newDefinitionId"));
 
 		URL_PATTERNS_TO_CHECK = Collections.unmodifiableSet(p);
+
+		URL_PATTERNS_BY_GROUP = new ArrayList<>(p);
+		StringBuilder sb = new StringBuilder();
+		for (AbstractPermissionUrlPath path : URL_PATTERNS_BY_GROUP) {
+			sb.append(sb.length() == 0 ? "" : "|").append("(?:").append(path.getRegex()).append(")");
+		}
+		URL_PATTERN = Pattern.compile(sb.toString());
 	}
 
 	@Override
@@ -117,7 +138,7 @@ public class PermissionMethodInterceptor extends HandlerInterceptorAdapter {
 		// right filter.
 
 		// project level check
-		Set<String> projectIds = extractProjectIdsFromRequestUri(request.getRequestURI(), projectService);
+		Set<String> projectIds = extractProjectIdsFromRequestUri(request.getRequestURI());
 		if (allProjectsIdsHavePermission(projectIds, user, expectPermission.value())) {
 			return true;
 		}
@@ -133,13 +154,38 @@ public class PermissionMethodInterceptor extends HandlerInterceptorAdapter {
 		return false;
 	}
 
-	private static Set<String> extractProjectIdsFromRequestUri(String requestUri, ProjectService projectService) {
-		Set<String> projectIds = new HashSet<>();
-		for (AbstractPermissionUrlPath p : URL_PATTERNS_TO_CHECK) {
-			Set<String> extracted = p.tryToFetchProjectShortNames(requestUri, projectService);
-			projectIds.addAll(extracted);
+	/**
+	 * Extract the resource identifiers present in the uri, grouped by type.
+	 *
+	 * @param requestUri
+	 * @return
+	 */
+	static Map<ResourceType, Set<String>> extractResourcesFromRequestUri(String requestUri) {
+		Map<ResourceType, Set<String>> resources = new EnumMap<>(ResourceType.class);
+		Matcher m = URL_PATTERN.matcher(requestUri);
+		// the patterns can overlap: restart from the character following the beginning of the last match
+		int from = 0;
+		while (from < requestUri.length() && m.find(from)) {
+			for (int group = 1; group <= m.groupCount(); group++) {
+				if (m.group(group) != null) {
+					ResourceType type = URL_PATTERNS_BY_GROUP.get(group - 1).getResourceType();
+					if (!resources.containsKey(type)) {
+						resources.put(type, new HashSet<String>());
+					}
+					resources.get(type).add(m.group(group));
+				}
+			}
+			from = m.start() + 1;
+		}
+		return resources;
+	}
+
+	private Set<String> extractProjectIdsFromRequestUri(String requestUri) {
+		Map<ResourceType, Set<String>> resources = extractResourcesFromRequestUri(requestUri);
+		if (resources.isEmpty()) {
+			return Collections.emptySet();
 		}
-		return projectIds;
+		return relatedProjectResolver.findRelatedProjectShortNames(resources);
 	}
 
 	/***
@@ -150,7 +196,7 @@ public class PermissionMethodInterceptor extends HandlerInterceptorAdapter {
 	 * @param expectedPermission
 	 * @return
 	 */
-	private boolean allProjectsIdsHavePermission(Set<String> projectIds, UserWithPermission user,
+	static boolean allProjectsIdsHavePermission(Set<String> projectIds, UserWithPermission user,
 			Permission expectedPermission) {
 
 		if (projectIds.isEmpty()) {
@@ -21,6 +21,7 @@ import io.lavagna.model.UserWithPermission;
 import io.lavagna.service.UserRepository;
 import io.lavagna.service.UserService;
 
+import java.util.Map;
 import java.util.Objects;
 
 import javax.servlet.http.Cookie;
@@ -77,6 +78,17 @@ public final class UserSession {
 		return (int) o;
 	}
 
+	/**
+	 * The id of the user saved in the attributes of a session, as copied in the websocket sessions by the handshake.
+	 * Null if the user is not authenticated.
+	 */
+	public static Integer getUserId(Map<String, Object> sessionAttributes) {
+		if (sessionAttributes == null || !Boolean.TRUE.equals(sessionAttributes.get(AUTH_KEY))) {
+			return null;
+		}
+		return (Integer) sessionAttributes.get(AUTH_USER_ID);
+	}
+
 	public static void invalidate(HttpServletRequest req, HttpServletResponse resp, UserRepository userRepository) {
 		req.getSession().invalidate();
 		Cookie c = getCookie(req, "LAVAGNA_REMEMBER_ME");
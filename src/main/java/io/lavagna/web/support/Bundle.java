@@ -0,0 +1,130 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.web.support;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * A static payload served by {@link ResourceController}: the content, its gzip compressed version and a hash of the
+ * content, used as ETag and as fingerprint in the url.
+ */
+class Bundle {
+
+	static final String CACHE_IMMUTABLE = "public, max-age=31536000, immutable";
+	static final String CACHE_REVALIDATE = "no-cache";
+
+	private final byte[] content;
+	private final byte[] gzipped;
+	private final String hash;
+	private final String contentType;
+
+	Bundle(byte[] content, String contentType) throws IOException {
+		this(content, gzip(content), DigestUtils.sha256Hex(content).substring(0, 16), contentType);
+	}
+
+	/**
+	 * A bundle prepared at build time, see {@link BundleGenerator}.
+	 */
+	Bundle(byte[] content, byte[] gzipped, String hash, String contentType) {
+		this.content = content;
+		this.gzipped = gzipped;
+		this.hash = hash;
+		this.contentType = contentType;
+	}
+
+	private static byte[] gzip(byte[] content) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 3);
+		try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+			gz.write(content);
+		}
+		return out.toByteArray();
+	}
+
+	String getHash() {
+		return hash;
+	}
+
+	byte[] getContent() {
+		return content;
+	}
+
+	byte[] getGzipped() {
+		return gzipped;
+	}
+
+	/**
+	 * Write the bundle, compressed if the client accepts it, or only a 304 if the client already has it.
+	 */
+	void writeTo(HttpServletRequest request, HttpServletResponse response, String cacheControl) throws IOException {
+		boolean gzip = acceptsGzip(request.getHeader("Accept-Encoding"));
+		String etag = gzip ? "\"" + hash + "-gz\"" : "\"" + hash + "\"";
+
+		response.setContentType(contentType);
+		response.setHeader("Cache-Control", cacheControl);
+		response.setHeader("Vary", "Accept-Encoding");
+		response.setHeader("ETag", etag);
+
+		if (isNotModified(request.getHeader("If-None-Match"))) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+
+		byte[] body = gzip ? gzipped : content;
+		if (gzip) {
+			response.setHeader("Content-Encoding", "gzip");
+		}
+		response.setContentLength(body.length);
+		try (OutputStream os = response.getOutputStream()) {
+			os.write(body);
+		}
+	}
+
+	private boolean isNotModified(String ifNoneMatch) {
+		if (ifNoneMatch == null) {
+			return false;
+		}
+		for (String tag : StringUtils.split(ifNoneMatch, ',')) {
+			String t = StringUtils.removeStart(tag.trim(), "W/");
+			if ("*".equals(t) || ("\"" + hash + "\"").equals(t) || ("\"" + hash + "-gz\"").equals(t)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean acceptsGzip(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return false;
+		}
+		for (String enc : StringUtils.split(acceptEncoding, ',')) {
+			String[] parts = StringUtils.split(enc, ';');
+			if (parts.length > 0 && "gzip".equalsIgnoreCase(parts[0].trim())) {
+				return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+			}
+		}
+		return false;
+	}
+}
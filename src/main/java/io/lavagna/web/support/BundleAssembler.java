@@ -0,0 +1,250 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.web.support;
+
+import io.lavagna.common.Json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.util.StreamUtils;
+
+import com.samskivert.mustache.Mustache;
+
+/**
+ * Assemble the index, the js and the css bundles from the files of the web application.
+ */
+class BundleAssembler {
+
+	static final List<String> JS_LIBRARIES = Arrays.asList("/js/d3.v3.min.js", "/js/cal-heatmap.min.js",//
+			"/js/jquery.min.js", "/js/jquery-ui.min.js",//
+			"/js/jquery.ui.touch-punch.min.js",//
+			"/js/highlight.pack.js",//
+			"/js/marked.js",//
+			"/js/sockjs.min.js", "/js/stomp.min.js",//
+			"/js/angular-file-upload-html5-shim.js",//
+			"/js/angular.min.js", "/js/angular-sanitize.min.js",//
+			"/js/angular-ui-router.min.js",//
+			"/js/angular-uuid2.min.js",//
+			"/js/angular-file-upload.min.js",//
+			"/js/bindonce.min.js",//
+			"/js/angular-translate.min.js",//
+			"/js/sortable.js", //
+			"/js/spectrum.js", //
+			"/js/codemirror-compressed.js",//
+			"/js/peg-0.8.0.min.js",//
+			"/js/moment.min.js",//
+			"/js/Chart.min.js",//
+			"/js/ui-bootstrap-tpls-0.11.0.min.js",//
+			"/js/df-tab-menu.min.js",//
+			"/js/df-autocomplete.js");
+
+	static final List<String> CSS = Arrays.asList("/css/bootstrap.css",//
+			"/css/highlight-default.css",//
+			"/css/jquery-ui.css",//
+			"/css/spectrum.css",//
+			"/css/codemirror.css",//
+			"/css/font-awesome.css",//
+			"/css/df-tab-menu.css",//
+			"/css/df-autocomplete.css",//
+			"/css/lvg-general.css",//
+			"/css/lvg-navigation.css",//
+			"/css/lvg-project.css",//
+			"/css/lvg-board.css",//
+			"/css/lvg-card.css",//
+			"/css/lvg-admin.css",//
+			"/css/lvg-user.css",//
+			"/css/lvg-search.css",//
+			"/css/lvg-login.css");
+
+	private final WebResources resources;
+
+	BundleAssembler(WebResources resources) {
+		this.resources = resources;
+	}
+
+	byte[] index(String contextPath, String jsBundle, String cssBundle) throws IOException {
+		ByteArrayOutputStream index = new ByteArrayOutputStream();
+		output("/index.html", index, new BeforeAfter());
+
+		Map<String, Object> data = new HashMap<>();
+		data.put("contextPath", contextPath);
+		data.put("inlineTemplates", prepareTemplates("/partials/"));
+		data.put("jsBundle", jsBundle);
+		data.put("cssBundle", cssBundle);
+
+		return Mustache.compiler().escapeHTML(false).compile(index.toString(StandardCharsets.UTF_8.displayName()))
+				.execute(data).getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Load and concatenate the js present in the configured directories.
+	 */
+	byte[] js() throws IOException {
+		BeforeAfter ba = new JS();
+		ByteArrayOutputStream allJs = new ByteArrayOutputStream();
+
+		for (String res : JS_LIBRARIES) {
+			output(res, allJs, ba);
+		}
+
+		addMessages(allJs, ba);
+
+		output("/app/app.js", allJs, ba);
+		concatenateOutput("/app/controllers/", ".js", allJs, ba);
+		concatenateOutput("/app/controllers/admin/", ".js", allJs, ba);
+		concatenateOutput("/app/controllers/project/", ".js", allJs, ba);
+		concatenateOutput("/app/directives/", ".js", allJs, ba);
+		concatenateOutput("/app/filters/", ".js", allJs, ba);
+		concatenateOutput("/app/services/", ".js", allJs, ba);
+
+		return allJs.toByteArray();
+	}
+
+	byte[] css() throws IOException {
+		ByteArrayOutputStream cssOs = new ByteArrayOutputStream();
+		BeforeAfter ba = new BeforeAfter();
+		for (String res : CSS) {
+			output(res, cssOs, ba);
+		}
+		return cssOs.toByteArray();
+	}
+
+	private List<String> prepareTemplates(String initialPath) throws IOException {
+		List<String> r = new ArrayList<>();
+		BeforeAfter ba = new AngularTemplate();
+		for (String file : allFilesWithExtension(initialPath, ".html")) {
+			ByteArrayOutputStream os = new ByteArrayOutputStream();
+			output(file, os, ba);
+			r.add(os.toString(StandardCharsets.UTF_8.displayName()));
+		}
+		return r;
+	}
+
+	private Set<String> allFilesWithExtension(String initialPath, String extension) {
+		Set<String> res = new TreeSet<>();
+		extractFilesWithExtensionRec(initialPath, extension, res);
+		return res;
+	}
+
+	private void extractFilesWithExtensionRec(String initialPath, String extension, Set<String> res) {
+		for (String s : resources.getResourcePaths(initialPath)) {
+			if (s.endsWith("/")) {
+				extractFilesWithExtensionRec(s, extension, res);
+			} else if (s.endsWith(extension)) {
+				res.add(s);
+			}
+		}
+	}
+
+	private void concatenateOutput(String directory, String fileExtension, OutputStream os, BeforeAfter ba)
+			throws IOException {
+		for (String res : new TreeSet<>(resources.getResourcePaths(directory))) {
+			if (res.endsWith(fileExtension)) {
+				output(res, os, ba);
+			}
+		}
+	}
+
+	private void output(String file, OutputStream os, BeforeAfter ba) throws IOException {
+		ba.before(file, os);
+		try (InputStream is = resources.getResourceAsStream(file)) {
+			StreamUtils.copy(is, os);
+		}
+		ba.after(file, os);
+		os.flush();
+	}
+
+	private static void addMessages(OutputStream os, BeforeAfter ba) throws IOException {
+		ba.before("i18n", os);
+		//
+		ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+		Resource[] resources = resolver.getResources("classpath:io/lavagna/i18n/messages_*.properties");
+		//
+		os.write(("window.io_lavagna=window.io_lavagna||{};window.io_lavagna.i18n=" + Json.GSON
+				.toJson(fromResources(resources))).getBytes(StandardCharsets.UTF_8));
+		ba.after("i18n", os);
+	}
+
+	private static Map<String, Map<Object, Object>> fromResources(Resource[] resources) throws IOException {
+
+		Pattern extractLanguage = Pattern.compile("^messages_(.*)\\.properties$");
+
+		Map<String, Map<Object, Object>> langs = new HashMap<>();
+
+		for (Resource res : resources) {
+			Matcher matcher = extractLanguage.matcher(res.getFilename());
+			matcher.find();
+			String lang = matcher.group(1);
+			Properties p = new Properties();
+			p.load(res.getInputStream());
+			langs.put(lang, new HashMap<Object, Object>(p));
+		}
+		return langs;
+	}
+
+	private static class BeforeAfter {
+		void before(String file, OutputStream os) throws IOException {
+		}
+
+		void after(String file, OutputStream os) throws IOException {
+		}
+	}
+
+	private static class JS extends BeforeAfter {
+
+		@Override
+		public void before(String file, OutputStream os) throws IOException {
+			os.write((";\n\n /* begin " + file + " */ \n\n").getBytes(StandardCharsets.UTF_8));
+		}
+
+		@Override
+		public void after(String file, OutputStream os) throws IOException {
+			os.write((";\n\n /* end " + file + " */ \n\n").getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	private static class AngularTemplate extends BeforeAfter {
+		@Override
+		void before(String file, OutputStream os) throws IOException {
+			os.write(("<script type=\"text/ng-template\" id=\"" + StringUtils.stripStart(file, "/") + "\">")
+					.getBytes(StandardCharsets.UTF_8));
+		}
+
+		@Override
+		void after(String file, OutputStream os) throws IOException {
+			os.write("</script>".getBytes(StandardCharsets.UTF_8));
+		}
+	}
+}
@@ -0,0 +1,85 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.web.support;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * Build the index, js and css bundles from the webapp directory, at packaging time (see the exec-maven-plugin
+ * configuration in the pom). The files are then served as they are by {@link ResourceController}.
+ *
+ * Usage: <code>BundleGenerator webappDirectory outputDirectory</code>
+ */
+public final class BundleGenerator {
+
+	static final String BUNDLES_DIRECTORY = "/WEB-INF/bundles/";
+	static final String MANIFEST = "bundles.properties";
+	static final String INDEX = "index.html";
+	/**
+	 * The context path is known only at runtime: the generated index contains this placeholder instead.
+	 */
+	static final String CONTEXT_PATH_PLACEHOLDER = "@@lavagna.contextPath@@";
+
+	private BundleGenerator() {
+	}
+
+	static String jsName(String hash) {
+		return "app-" + hash + ".js";
+	}
+
+	static String cssName(String hash) {
+		return "all-" + hash + ".css";
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			throw new IllegalArgumentException("Usage: BundleGenerator webappDirectory outputDirectory");
+		}
+		generate(new File(args[0]), new File(args[1]).toPath());
+	}
+
+	static void generate(File webapp, Path output) throws IOException {
+		BundleAssembler assembler = new BundleAssembler(WebResources.of(webapp));
+		Bundle js = new Bundle(assembler.js(), ResourceController.JS_CONTENT_TYPE);
+		Bundle css = new Bundle(assembler.css(), ResourceController.CSS_CONTENT_TYPE);
+		byte[] index = assembler.index(CONTEXT_PATH_PLACEHOLDER, "resource/" + jsName(js.getHash()),
+				"css/" + cssName(css.getHash()));
+
+		Files.createDirectories(output);
+		write(output, jsName(js.getHash()), js);
+		write(output, cssName(css.getHash()), css);
+		Files.write(output.resolve(INDEX), index);
+
+		Properties manifest = new Properties();
+		manifest.setProperty("js", js.getHash());
+		manifest.setProperty("css", css.getHash());
+		try (OutputStream os = Files.newOutputStream(output.resolve(MANIFEST))) {
+			manifest.store(os, "generated by " + BundleGenerator.class.getName());
+		}
+		System.out.println("Generated " + jsName(js.getHash()) + " and " + cssName(css.getHash()) + " in " + output);
+	}
+
+	private static void write(Path output, String name, Bundle bundle) throws IOException {
+		Files.write(output.resolve(name), bundle.getContent());
+		Files.write(output.resolve(name + ".gz"), bundle.getGzipped());
+	}
+}
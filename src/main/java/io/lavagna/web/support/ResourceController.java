@@ -17,102 +17,164 @@
 package io.lavagna.web.support;
 
 import static org.apache.commons.lang3.ArrayUtils.contains;
-import io.lavagna.common.Json;
 import io.lavagna.model.Permission;
 import io.lavagna.web.helper.ExpectPermission;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 import java.util.Properties;
-import java.util.Set;
-import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.env.Environment;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
-import org.springframework.core.io.support.ResourcePatternResolver;
 import org.springframework.stereotype.Controller;
 import org.springframework.util.StreamUtils;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
-
-import com.samskivert.mustache.Mustache;
+import org.springframework.web.context.ServletContextAware;
 
 @Controller
-public class ResourceController {
+public class ResourceController implements ServletContextAware {
+
+	private static final Logger LOG = LogManager.getLogger();
+
+	static final String JS_CONTENT_TYPE = "text/javascript";
+	static final String CSS_CONTENT_TYPE = "text/css";
+	private static final String INDEX_CONTENT_TYPE = "text/html; charset=UTF-8";
 
 	private static final String PROJ_SHORT_NAME = "{projectShortName:[A-Z0-9_]+}";
 	private static final String BOARD_SHORT_NAME = "{shortName:[A-Z0-9_]+}";
 	private static final String CARD_SEQ = "{cardId:[0-9]+}";
 	private final Environment env;
-	// we don't care if the values are set more than one time
-	private final AtomicReference<byte[]> indexCache = new AtomicReference<>();
-	private final AtomicReference<byte[]> jsCache = new AtomicReference<>();
-	private final AtomicReference<byte[]> cssCache = new AtomicReference<>();
+	// we don't care if the value is set more than one time
+	private final AtomicReference<Bundles> bundlesCache = new AtomicReference<>();
 
 	@Autowired
 	public ResourceController(Environment env) {
 		this.env = env;
 	}
 
-	private static List<String> prepareTemplates(ServletContext context, String initialPath) throws IOException {
-		List<String> r = new ArrayList<>();
-		BeforeAfter ba = new AngularTemplate();
-		for (String file : allFilesWithExtension(context, initialPath, ".html")) {
-			ByteArrayOutputStream os = new ByteArrayOutputStream();
-			output(file, context, os, ba);
-			r.add(os.toString(StandardCharsets.UTF_8.displayName()));
+	/**
+	 * Outside the dev profile, load the bundles at startup instead of on the first request.
+	 */
+	@Override
+	public void setServletContext(ServletContext servletContext) {
+		if (isDev()) {
+			return;
 		}
-		return r;
+		try {
+			bundles(servletContext);
+		} catch (IOException | RuntimeException e) {
+			LOG.warn("Error while preparing the static bundles, they will be loaded on the first request", e);
+		}
+	}
+
+	private boolean isDev() {
+		return contains(env.getActiveProfiles(), "dev");
 	}
 
-	private static Set<String> allFilesWithExtension(ServletContext context, String initialPath, String extension) {
-		Set<String> res = new TreeSet<>();
-		extractFilesWithExtensionRec(context, initialPath, extension, res);
-		return res;
+	private static class Bundles {
+		private final Bundle index;
+		private final Bundle js;
+		private final Bundle css;
+
+		Bundles(Bundle index, Bundle js, Bundle css) {
+			this.index = index;
+			this.js = js;
+			this.css = css;
+		}
 	}
 
-	private static void extractFilesWithExtensionRec(ServletContext context, String initialPath, String extension,
-			Set<String> res) {
-		for (String s : context.getResourcePaths(initialPath)) {
-			if (s.endsWith("/")) {
-				extractFilesWithExtensionRec(context, s, extension, res);
-			} else if (s.endsWith(extension)) {
-				res.add(s);
+	/**
+	 * The bundles generated at build time by {@link BundleGenerator}. When they are missing (e.g. when the webapp is
+	 * not run from the packaged war) they are assembled once from the webapp files.
+	 */
+	private Bundles bundles(ServletContext context) throws IOException {
+		if (bundlesCache.get() == null) {
+			Properties manifest = new Properties();
+			try (InputStream is = context.getResourceAsStream(BundleGenerator.BUNDLES_DIRECTORY
+					+ BundleGenerator.MANIFEST)) {
+				if (is == null) {
+					LOG.warn("No prebuilt bundles in {}, assembling them from the webapp files",
+							BundleGenerator.BUNDLES_DIRECTORY);
+					bundlesCache.set(assemble(context));
+					return bundlesCache.get();
+				}
+				manifest.load(is);
 			}
+			String jsHash = manifest.getProperty("js");
+			String cssHash = manifest.getProperty("css");
+			Bundle js = prebuilt(context, BundleGenerator.jsName(jsHash), jsHash, JS_CONTENT_TYPE);
+			Bundle css = prebuilt(context, BundleGenerator.cssName(cssHash), cssHash, CSS_CONTENT_TYPE);
+			String index = new String(read(context, BundleGenerator.INDEX), StandardCharsets.UTF_8);
+			index = StringUtils.replaceOnce(index, BundleGenerator.CONTEXT_PATH_PLACEHOLDER, contextPath(context));
+			bundlesCache.set(new Bundles(new Bundle(index.getBytes(StandardCharsets.UTF_8), INDEX_CONTENT_TYPE), js,
+					css));
 		}
+		return bundlesCache.get();
 	}
 
-	private static void concatenateOutput(String directory, String fileExtension, ServletContext context,
-			OutputStream os, BeforeAfter ba) throws IOException {
-		for (String res : new TreeSet<>(context.getResourcePaths(directory))) {
-			if (res.endsWith(fileExtension)) {
-				output(res, context, os, ba);
+	private static Bundle prebuilt(ServletContext context, String name, String hash, String contentType)
+			throws IOException {
+		return new Bundle(read(context, name), read(context, name + ".gz"), hash, contentType);
+	}
+
+	private static byte[] read(ServletContext context, String name) throws IOException {
+		try (InputStream is = context.getResourceAsStream(BundleGenerator.BUNDLES_DIRECTORY + name)) {
+			if (is == null) {
+				throw new IOException("Missing bundle " + name);
 			}
+			return StreamUtils.copyToByteArray(is);
 		}
 	}
 
-	private static void output(String file, ServletContext context, OutputStream os, BeforeAfter ba) throws IOException {
-		ba.before(file, context, os);
-		StreamUtils.copy(context.getResourceAsStream(file), os);
-		ba.after(file, context, os);
-		os.flush();
+	private static String contextPath(ServletContext context) {
+		return context.getContextPath() + "/";
+	}
+
+	private static Bundles assemble(ServletContext context) throws IOException {
+		BundleAssembler assembler = new BundleAssembler(WebResources.of(context));
+		Bundle js = new Bundle(assembler.js(), JS_CONTENT_TYPE);
+		Bundle css = new Bundle(assembler.css(), CSS_CONTENT_TYPE);
+		Bundle index = new Bundle(assembler.index(contextPath(context),
+				"resource/" + BundleGenerator.jsName(js.getHash()), "css/" + BundleGenerator.cssName(css.getHash())),
+				INDEX_CONTENT_TYPE);
+		return new Bundles(index, js, css);
+	}
+
+	/**
+	 * In the dev profile the bundles are assembled again on each request.
+	 */
+	private Bundle index(ServletContext context) throws IOException {
+		return isDev() ? assemble(context).index : bundles(context).index;
+	}
+
+	private Bundle js(ServletContext context) throws IOException {
+		return isDev() ? new Bundle(new BundleAssembler(WebResources.of(context)).js(), JS_CONTENT_TYPE)
+				: bundles(context).js;
+	}
+
+	private Bundle css(ServletContext context) throws IOException {
+		return isDev() ? new Bundle(new BundleAssembler(WebResources.of(context)).css(), CSS_CONTENT_TYPE)
+				: bundles(context).css;
+	}
+
+	/**
+	 * Serve a bundle: when requested through its current fingerprinted url it can be cached without revalidation.
+	 */
+	private static void serve(Bundle bundle, String hash, HttpServletRequest request, HttpServletResponse response)
+			throws IOException {
+		bundle.writeTo(request, response, bundle.getHash().equals(hash) ? Bundle.CACHE_IMMUTABLE
+				: Bundle.CACHE_REVALIDATE);
 	}
 
 	@ExpectPermission(Permission.ADMINISTRATION)
@@ -156,189 +218,29 @@ public class ResourceController {
 			PROJ_SHORT_NAME + "/milestones/" + BOARD_SHORT_NAME + "-" + CARD_SEQ,//
 			PROJ_SHORT_NAME + "/" + BOARD_SHORT_NAME + "-" + CARD_SEQ }, method = RequestMethod.GET)
 	public void handleIndex(HttpServletRequest request, HttpServletResponse response) throws IOException {
-
-		ServletContext context = request.getServletContext();
-
-		if (contains(env.getActiveProfiles(), "dev") || indexCache.get() == null) {
-
-			ByteArrayOutputStream index = new ByteArrayOutputStream();
-			output("/index.html", context, index, new BeforeAfter());
-
-			Map<String, Object> data = new HashMap<>();
-			data.put("contextPath", request.getServletContext().getContextPath() + "/");
-			data.put("inlineTemplates", prepareTemplates(context, "/partials/"));
-
-			indexCache.set(Mustache.compiler().escapeHTML(false)
-					.compile(index.toString(StandardCharsets.UTF_8.displayName())).execute(data)
-					.getBytes(StandardCharsets.UTF_8));
-		}
-
-		try (OutputStream os = response.getOutputStream()) {
-			response.setContentType("text/html; charset=UTF-8");
-			StreamUtils.copy(indexCache.get(), os);
-		}
+		// the index references the js and css bundles by their fingerprinted url, so it must be revalidated
+		index(request.getServletContext()).writeTo(request, response, Bundle.CACHE_REVALIDATE);
 	}
 
-	/**
-	 * Dynamically load and concatenate the js present in the configured directories
-	 *
-	 * @param request
-	 * @param response
-	 * @throws IOException
-	 */
 	@RequestMapping(value = "/resource/app.js", method = RequestMethod.GET)
 	public void handleJs(HttpServletRequest request, HttpServletResponse response) throws IOException {
-
-		if (contains(env.getActiveProfiles(), "dev") || jsCache.get() == null) {
-			ServletContext context = request.getServletContext();
-			response.setContentType("text/javascript");
-			BeforeAfter ba = new JS();
-			ByteArrayOutputStream allJs = new ByteArrayOutputStream();
-
-			//
-			for (String res : Arrays.asList("/js/d3.v3.min.js", "/js/cal-heatmap.min.js",//
-					"/js/jquery.min.js", "/js/jquery-ui.min.js",//
-					"/js/jquery.ui.touch-punch.min.js",//
-					"/js/highlight.pack.js",//
-					"/js/marked.js",//
-					"/js/sockjs.min.js", "/js/stomp.min.js",//
-					"/js/angular-file-upload-html5-shim.js",//
-					"/js/angular.min.js", "/js/angular-sanitize.min.js",//
-					"/js/angular-ui-router.min.js",//
-					"/js/angular-uuid2.min.js",//
-					"/js/angular-file-upload.min.js",//
-					"/js/bindonce.min.js",//
-					"/js/angular-translate.min.js",//
-					"/js/sortable.js", //
-					"/js/spectrum.js", //
-					"/js/codemirror-compressed.js",//
-					"/js/peg-0.8.0.min.js",//
-					"/js/moment.min.js",//
-					"/js/Chart.min.js",//
-					"/js/ui-bootstrap-tpls-0.11.0.min.js",//
-					"/js/df-tab-menu.min.js",//
-					"/js/df-autocomplete.js")) {
-				output(res, context, allJs, ba);
-			}
-			//
-
-			//
-			addMessages(context, allJs, ba);
-			//
-
-			output("/app/app.js", context, allJs, ba);
-			concatenateOutput("/app/controllers/", ".js", context, allJs, ba);
-			concatenateOutput("/app/controllers/admin/", ".js", context, allJs, ba);
-			concatenateOutput("/app/controllers/project/", ".js", context, allJs, ba);
-			concatenateOutput("/app/directives/", ".js", context, allJs, ba);
-			concatenateOutput("/app/filters/", ".js", context, allJs, ba);
-			concatenateOutput("/app/services/", ".js", context, allJs, ba);
-
-			jsCache.set(allJs.toByteArray());
-
-		}
-
-		try (OutputStream os = response.getOutputStream()) {
-			response.setContentType("text/javascript");
-			StreamUtils.copy(jsCache.get(), os);
-		}
+		serve(js(request.getServletContext()), null, request, response);
 	}
 
-	private void addMessages(ServletContext context, OutputStream os, BeforeAfter ba) throws IOException {
-		ba.before("i18n", context, os);
-		//
-		ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
-		Resource[] resources = resolver.getResources("classpath:io/lavagna/i18n/messages_*.properties");
-		//
-		os.write(("window.io_lavagna=window.io_lavagna||{};window.io_lavagna.i18n=" + Json.GSON
-				.toJson(fromResources(resources))).getBytes(StandardCharsets.UTF_8));
-		ba.after("i18n", context, os);
-	}
-
-	private static Map<String, Map<Object, Object>> fromResources(Resource[] resources) throws IOException {
-
-		Pattern extractLanguage = Pattern.compile("^messages_(.*)\\.properties$");
-
-		Map<String, Map<Object, Object>> langs = new HashMap<>();
-
-		for (Resource res : resources) {
-			Matcher matcher = extractLanguage.matcher(res.getFilename());
-			matcher.find();
-			String lang = matcher.group(1);
-			Properties p = new Properties();
-			p.load(res.getInputStream());
-			langs.put(lang, new HashMap<Object, Object>(p));
-		}
-		return langs;
+	@RequestMapping(value = "/resource/app-{hash:[0-9a-f]+}.js", method = RequestMethod.GET)
+	public void handleFingerprintedJs(@PathVariable("hash") String hash, HttpServletRequest request,
+			HttpServletResponse response) throws IOException {
+		serve(js(request.getServletContext()), hash, request, response);
 	}
 
 	@RequestMapping(value = "/css/all.css", method = RequestMethod.GET)
 	public void handleCss(HttpServletRequest request, HttpServletResponse response) throws IOException {
-
-		if (contains(env.getActiveProfiles(), "dev") || cssCache.get() == null) {
-			ByteArrayOutputStream cssOs = new ByteArrayOutputStream();
-			ServletContext context = request.getServletContext();
-			BeforeAfter ba = new BeforeAfter();
-			for (String res : Arrays.asList("/css/bootstrap.css",//
-					"/css/highlight-default.css",//
-					"/css/jquery-ui.css",//
-					"/css/spectrum.css",//
-					"/css/codemirror.css",//
-					"/css/font-awesome.css",//
-					"/css/df-tab-menu.css",//
-					"/css/df-autocomplete.css",//
-					"/css/lvg-general.css",//
-					"/css/lvg-navigation.css",//
-					"/css/lvg-project.css",//
-					"/css/lvg-board.css",//
-					"/css/lvg-card.css",//
-					"/css/lvg-admin.css",//
-					"/css/lvg-user.css",//
-					"/css/lvg-search.css",
-					"/css/lvg-login.css")) {
-				output(res, context, cssOs, ba);
-			}
-
-			cssCache.set(cssOs.toByteArray());
-		}
-
-		try (OutputStream os = response.getOutputStream()) {
-			response.setContentType("text/css");
-			StreamUtils.copy(cssCache.get(), os);
-		}
-	}
-
-	private static class BeforeAfter {
-		void before(String file, ServletContext context, OutputStream os) throws IOException {
-		}
-
-		void after(String file, ServletContext context, OutputStream os) throws IOException {
-		}
+		serve(css(request.getServletContext()), null, request, response);
 	}
 
-	private static class JS extends BeforeAfter {
-
-		@Override
-		public void before(String file, ServletContext context, OutputStream os) throws IOException {
-			os.write((";\n\n /* begin " + file + " */ \n\n").getBytes(StandardCharsets.UTF_8));
-		}
-
-		@Override
-		public void after(String file, ServletContext context, OutputStream os) throws IOException {
-			os.write((";\n\n /* end " + file + " */ \n\n").getBytes(StandardCharsets.UTF_8));
-		}
-	}
-
-	private static class AngularTemplate extends BeforeAfter {
-		@Override
-		void before(String file, ServletContext context, OutputStream os) throws IOException {
-			os.write(("<script type=\"text/ng-template\" id=\"" + StringUtils.stripStart(file, "/") + "\">")
-					.getBytes(StandardCharsets.UTF_8));
-		}
-
-		@Override
-		void after(String file, ServletContext context, OutputStream os) throws IOException {
-			os.write("</script>".getBytes(StandardCharsets.UTF_8));
-		}
+	@RequestMapping(value = "/css/all-{hash:[0-9a-f]+}.css", method = RequestMethod.GET)
+	public void handleFingerprintedCss(@PathVariable("hash") String hash, HttpServletRequest request,
+			HttpServletResponse response) throws IOException {
+		serve(css(request.getServletContext()), hash, request, response);
 	}
 }
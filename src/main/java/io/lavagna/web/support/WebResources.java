@@ -0,0 +1,78 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.web.support;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.servlet.ServletContext;
+
+/**
+ * The web application files used to assemble the bundles: the servlet context at runtime, the webapp source directory
+ * at build time. The paths follow the {@link ServletContext} conventions: they start with "/" and the directories end
+ * with "/".
+ */
+abstract class WebResources {
+
+	abstract Set<String> getResourcePaths(String path);
+
+	abstract InputStream getResourceAsStream(String path);
+
+	static WebResources of(final ServletContext context) {
+		return new WebResources() {
+			@Override
+			Set<String> getResourcePaths(String path) {
+				return context.getResourcePaths(path);
+			}
+
+			@Override
+			InputStream getResourceAsStream(String path) {
+				return context.getResourceAsStream(path);
+			}
+		};
+	}
+
+	static WebResources of(final File root) {
+		return new WebResources() {
+			@Override
+			Set<String> getResourcePaths(String path) {
+				File[] files = new File(root, path).listFiles();
+				if (files == null) {
+					return null;
+				}
+				Set<String> res = new TreeSet<>();
+				for (File f : files) {
+					res.add(path + f.getName() + (f.isDirectory() ? "/" : ""));
+				}
+				return res;
+			}
+
+			@Override
+			InputStream getResourceAsStream(String path) {
+				try {
+					return new FileInputStream(new File(root, path));
+				} catch (FileNotFoundException e) {
+					return null;
+				}
+			}
+		};
+	}
+}
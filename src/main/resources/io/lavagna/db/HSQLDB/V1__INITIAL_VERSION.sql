@@ -21,6 +21,33 @@ CREATE TABLE LA_CONF (
 	CONF_VALUE CLOB NOT NULL
 );
 
+-- CACHE VERSION: incremented at each modification of the cached data, used for keeping coherent the caches of multiple nodes
+CREATE TABLE LA_CACHE_VERSION (
+	CACHE_NAME VARCHAR(64) PRIMARY KEY NOT NULL,
+	CACHE_VERSION BIGINT NOT NULL
+);
+INSERT INTO LA_CACHE_VERSION(CACHE_NAME, CACHE_VERSION) VALUES ('CONFIGURATION', 0);
+INSERT INTO LA_CACHE_VERSION(CACHE_NAME, CACHE_VERSION) VALUES ('PERMISSION', 0);
+INSERT INTO LA_CACHE_VERSION(CACHE_NAME, CACHE_VERSION) VALUES ('RELATED_PROJECT', 0);
+
+-- EVENT FANOUT: the events sent to the browsers, forwarded to the other nodes when the "database" broker is used
+CREATE TABLE LA_EVENT_FANOUT (
+	EVENT_FANOUT_ID INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY NOT NULL,
+	EVENT_FANOUT_NODE VARCHAR(36) NOT NULL,
+	EVENT_FANOUT_DESTINATION VARCHAR(255) NOT NULL,
+	EVENT_FANOUT_CONTENT_TYPE VARCHAR(255),
+	EVENT_FANOUT_PAYLOAD CLOB NOT NULL,
+	EVENT_FANOUT_TIME TIMESTAMP NOT NULL
+);
+CREATE INDEX "EVENT_FANOUT_TIME_IDX" ON LA_EVENT_FANOUT(EVENT_FANOUT_TIME);
+
+-- SCHEDULER LEASE: the node running each of the scheduled jobs that must run only once in a cluster
+CREATE TABLE LA_SCHEDULER_LEASE (
+	SCHEDULER_LEASE_NAME VARCHAR(64) PRIMARY KEY NOT NULL,
+	SCHEDULER_LEASE_NODE VARCHAR(36) NOT NULL,
+	SCHEDULER_LEASE_EXPIRATION TIMESTAMP NOT NULL
+);
+
 -- USER
 CREATE TABLE LA_USER (
 	USER_ID INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY NOT NULL,
@@ -181,7 +208,7 @@ CREATE INDEX "CARD_DATA_REFERENCE_ID_IDX" ON LA_CARD_DATA(CARD_DATA_REFERENCE_ID
 CREATE TABLE LA_CARD_DATA_UPLOAD_CONTENT (
 	DIGEST CHAR(64) NOT NULL,
 	SIZE INTEGER NOT NULL,
-	CONTENT BLOB NOT NULL,
+	CONTENT BLOB,
 	CONTENT_TYPE VARCHAR(255) NOT NULL
 );
 ALTER TABLE LA_CARD_DATA_UPLOAD_CONTENT ADD CONSTRAINT "UNIQUE_LA_CARD_UPLOAD_CONTENT" UNIQUE(DIGEST);
@@ -21,6 +21,33 @@ CREATE TABLE LA_CONF (
 	CONF_VALUE MEDIUMTEXT NOT NULL
 ) ENGINE=InnoDB CHARACTER SET=utf8 COLLATE utf8_bin;
 
+-- CACHE VERSION: incremented at each modification of the cached data, used for keeping coherent the caches of multiple nodes
+CREATE TABLE LA_CACHE_VERSION (
+	CACHE_NAME VARCHAR(64) PRIMARY KEY NOT NULL,
+	CACHE_VERSION BIGINT NOT NULL
+) ENGINE=InnoDB CHARACTER SET=utf8 COLLATE utf8_bin;
+INSERT INTO LA_CACHE_VERSION(CACHE_NAME, CACHE_VERSION) VALUES ('CONFIGURATION', 0);
+INSERT INTO LA_CACHE_VERSION(CACHE_NAME, CACHE_VERSION) VALUES ('PERMISSION', 0);
+INSERT INTO LA_CACHE_VERSION(CACHE_NAME, CACHE_VERSION) VALUES ('RELATED_PROJECT', 0);
+
+-- EVENT FANOUT: the events sent to the browsers, forwarded to the other nodes when the "database" broker is used
+CREATE TABLE LA_EVENT_FANOUT (
+	EVENT_FANOUT_ID INTEGER AUTO_INCREMENT PRIMARY KEY NOT NULL,
+	EVENT_FANOUT_NODE VARCHAR(36) NOT NULL,
+	EVENT_FANOUT_DESTINATION VARCHAR(255) NOT NULL,
+	EVENT_FANOUT_CONTENT_TYPE VARCHAR(255),
+	EVENT_FANOUT_PAYLOAD MEDIUMTEXT NOT NULL,
+	EVENT_FANOUT_TIME TIMESTAMP NOT NULL,
+	INDEX EVENT_FANOUT_TIME_IDX (EVENT_FANOUT_TIME)
+) ENGINE=InnoDB CHARACTER SET=utf8 COLLATE utf8_bin;
+
+-- SCHEDULER LEASE: the node running each of the scheduled jobs that must run only once in a cluster
+CREATE TABLE LA_SCHEDULER_LEASE (
+	SCHEDULER_LEASE_NAME VARCHAR(64) PRIMARY KEY NOT NULL,
+	SCHEDULER_LEASE_NODE VARCHAR(36) NOT NULL,
+	SCHEDULER_LEASE_EXPIRATION TIMESTAMP NOT NULL
+) ENGINE=InnoDB CHARACTER SET=utf8 COLLATE utf8_bin;
+
 -- USER
 CREATE TABLE LA_USER (
 	USER_ID INTEGER AUTO_INCREMENT PRIMARY KEY NOT NULL,
@@ -224,12 +251,51 @@ CREATE TRIGGER CHECK_LA_CARD_DATA_UPDATE BEFORE UPDATE ON LA_CARD_DATA
 
 DELIMITER ;
 
+-- change log for the FTS support tables: the rows to copy are recorded by the triggers below, see MySqlFullTextSupportService
+CREATE TABLE LA_FTS_CHANGE_LOG (
+	FTS_CHANGE_ID INTEGER AUTO_INCREMENT PRIMARY KEY NOT NULL,
+	FTS_CHANGE_TYPE ENUM('CARD', 'CARD_DATA') NOT NULL,
+	FTS_CHANGE_REF_ID INTEGER NOT NULL,
+	FTS_CHANGE_TIME TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+) ENGINE=InnoDB CHARACTER SET=utf8 COLLATE utf8_bin;
+
+DELIMITER //
+CREATE TRIGGER TRIG_FTS_LA_CARD_INS AFTER INSERT ON LA_CARD
+	FOR EACH ROW
+		BEGIN
+			INSERT INTO LA_FTS_CHANGE_LOG(FTS_CHANGE_TYPE, FTS_CHANGE_REF_ID) VALUES ('CARD', NEW.CARD_ID);
+		END//
+
+CREATE TRIGGER TRIG_FTS_LA_CARD_UPD AFTER UPDATE ON LA_CARD
+	FOR EACH ROW
+		BEGIN
+			IF (NEW.CARD_NAME <> OLD.CARD_NAME) THEN
+				INSERT INTO LA_FTS_CHANGE_LOG(FTS_CHANGE_TYPE, FTS_CHANGE_REF_ID) VALUES ('CARD', NEW.CARD_ID);
+			END IF;
+		END//
+
+CREATE TRIGGER TRIG_FTS_LA_CARD_DATA_INS AFTER INSERT ON LA_CARD_DATA
+	FOR EACH ROW
+		BEGIN
+			INSERT INTO LA_FTS_CHANGE_LOG(FTS_CHANGE_TYPE, FTS_CHANGE_REF_ID) VALUES ('CARD_DATA', NEW.CARD_DATA_ID);
+		END//
+
+CREATE TRIGGER TRIG_FTS_LA_CARD_DATA_UPD AFTER UPDATE ON LA_CARD_DATA
+	FOR EACH ROW
+		BEGIN
+			IF (NEW.CARD_DATA_CONTENT <> OLD.CARD_DATA_CONTENT) THEN
+				INSERT INTO LA_FTS_CHANGE_LOG(FTS_CHANGE_TYPE, FTS_CHANGE_REF_ID) VALUES ('CARD_DATA', NEW.CARD_DATA_ID);
+			END IF;
+		END//
+
+DELIMITER ;
+
 
 -- DATA UPLOAD
 CREATE TABLE LA_CARD_DATA_UPLOAD_CONTENT (
 	DIGEST CHAR(64) NOT NULL,
 	SIZE INTEGER NOT NULL,
-	CONTENT MEDIUMBLOB NOT NULL,
+	CONTENT MEDIUMBLOB,
 	CONTENT_TYPE VARCHAR(255) NOT NULL
 )  ENGINE=InnoDB CHARACTER SET=utf8 COLLATE utf8_bin;
 ALTER TABLE LA_CARD_DATA_UPLOAD_CONTENT ADD CONSTRAINT UNIQUE_LA_CARD_UPLOAD_CONTENT UNIQUE(DIGEST);
@@ -8,15 +8,84 @@
 
 		$scope.initializeColumnCtrl = function(columnId) {
 
+			//version of the cards in the column, null while loading
+			var version = null;
+			//deltas received while loading
+			var pendingDeltas = [];
+			//only the response of the last request is used
+			var lastRequest = 0;
+
+			var setCards = function(cards) {
+				$("[data-lvg-column-id="+columnId+"] .lavagna-to-be-cleaned-up").remove();
+				$scope.cardsInColumn = cards;
+				$scope.loaded = true;
+				$scope.foundCards[columnId] = cards;
+			};
+
+			//return false if the delta cannot be applied on the current cards
+			var applyDelta = function(delta) {
+				if(delta.version <= version) {
+					return true;
+				}
+				if(delta.version !== version + 1) {
+					return false;
+				}
+				var cardsById = {};
+				angular.forEach($scope.cardsInColumn, function(c) {
+					cardsById[c.id] = c;
+				});
+				angular.forEach(delta.cards, function(c) {
+					cardsById[c.id] = c;
+				});
+				var cards = [];
+				if(delta.order) {
+					for(var i = 0; i < delta.order.length; i++) {
+						if(cardsById[delta.order[i]] === undefined) {
+							return false;
+						}
+						cards.push(cardsById[delta.order[i]]);
+					}
+				} else {
+					angular.forEach($scope.cardsInColumn, function(c) {
+						cards.push(cardsById[c.id]);
+					});
+				}
+				version = delta.version;
+				setCards(cards);
+				return true;
+			};
+
 			var loadCards = function() {
-				Card.findByColumn(columnId).then(function(res) {
-					$("[data-lvg-column-id="+columnId+"] .lavagna-to-be-cleaned-up").remove();
-					$scope.cardsInColumn = res;
-					$scope.loaded = true;
-					$scope.foundCards[columnId] = res;
+				version = null;
+				pendingDeltas = [];
+				var request = ++lastRequest;
+				Card.findByColumnWithVersion(columnId).then(function(res) {
+					if(request !== lastRequest) {
+						return;
+					}
+					version = isNaN(res.version) ? 0 : res.version;
+					setCards(res.cards);
+					var deltas = pendingDeltas;
+					pendingDeltas = [];
+					for(var i = 0; i < deltas.length; i++) {
+						if(!applyDelta(deltas[i])) {
+							loadCards();
+							return;
+						}
+					}
 				});
 			};
-			StompClient.subscribe($scope, '/event/column/'+columnId+'/card', loadCards);
+
+			StompClient.subscribe($scope, '/event/column/'+columnId+'/card', function(message) {
+				var delta = JSON.parse(message.body).payload;
+				if(!delta || delta.version === undefined) {
+					loadCards();
+				} else if(version === null) {
+					pendingDeltas.push(delta);
+				} else if(!applyDelta(delta)) {
+					loadCards();
+				}
+			});
 
 			$scope.$on('loadcards', loadCards);
 
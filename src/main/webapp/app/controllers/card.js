@@ -82,6 +82,15 @@
 			loadActivity();
 		};
 
+		var applyCard = function(c) {
+			var columnChanged = c.columnId !== $scope.card.columnId;
+			$scope.card = c;
+			refreshTitle();
+			if(columnChanged) {
+				loadColumn(c.columnId);
+			}
+		};
+
 		var unbindCardCache = $rootScope.$on('refreshCardCache-' + card.id, reloadCard);
 		$scope.$on('$destroy', unbindCardCache);
 
@@ -91,8 +100,6 @@
 			});
 		};
 
-		loadDescription();
-
 		$scope.updateDescription = function(description) {
 			Card.updateDescription(card.id, description).then(function() {
 				description.content = null;
@@ -105,8 +112,6 @@
 			});
 		};
 
-		loadComments();
-
 		$scope.labelNameToId = {};
 
 		var loadLabel = function() {
@@ -132,46 +137,41 @@
 				$scope.labelValues = labelValues;
 			});
 		};
-		loadLabelValues();
 
 		//----------------------
-		var loadActionListsAndRefresh = function() {
-			loadActionLists();
-			reloadCard();
-		};
+		var applyActionLists = function(actionLists) {
+			$scope.actionLists = [];
+			$scope.actionListsById = {};
+			$scope.actionListsId = [];
+			for(var i = 0; i < actionLists.lists.length; i++) {
+				$scope.actionListsId.push(actionLists.lists[i].id);
+				$scope.actionListsById[actionLists.lists[i].id] = actionLists.lists[i];
+				$scope.actionLists.push(actionLists.lists[i]);
+			}
 
-		var loadActionLists = function() {
-			Card.actionLists(card.id).then(function(actionLists) {
-				$scope.actionLists = [];
-				$scope.actionListsById = {};
-				$scope.actionListsId = [];
-				for(var i = 0; i < actionLists.lists.length; i++) {
-					$scope.actionListsId.push(actionLists.lists[i].id);
-					$scope.actionListsById[actionLists.lists[i].id] = actionLists.lists[i];
-					$scope.actionLists.push(actionLists.lists[i]);
+			$scope.actionItems = actionLists.items;
+			$scope.actionItemsMap = {};
+			$scope.actionListsStats = {};
+			for(var i = 0; i < $scope.actionListsId.length; i++) {
+				var currentListID = $scope.actionListsId[i];
+				//there could be a list without elements
+				$scope.actionListsStats[currentListID] = 0;
+				if(actionLists.items[currentListID] === undefined)
+					continue;
+				var checkedItems = 0;
+				for(var e = 0; e < actionLists.items[currentListID].length; e++) {
+					var item = actionLists.items[currentListID][e];
+					if(item.type === 'ACTION_CHECKED')
+						checkedItems++;
+					$scope.actionItemsMap[item.id] = item;
 				}
+				$scope.actionListsStats[currentListID] = parseInt((checkedItems/actionLists.items[currentListID].length) * 100, 10);
+			}
+		};
 
-				$scope.actionItems = actionLists.items;
-				$scope.actionItemsMap = {};
-				$scope.actionListsStats = {};
-				for(var i = 0; i < $scope.actionListsId.length; i++) {
-					var currentListID = $scope.actionListsId[i];
-					//there could be a list without elements
-					$scope.actionListsStats[currentListID] = 0;
-					if(actionLists.items[currentListID] === undefined)
-						continue;
-					var checkedItems = 0;
-					for(var e = 0; e < actionLists.items[currentListID].length; e++) {
-						var item = actionLists.items[currentListID][e];
-						if(item.type === 'ACTION_CHECKED')
-							checkedItems++;
-						$scope.actionItemsMap[item.id] = item;
-					}
-					$scope.actionListsStats[currentListID] = parseInt((checkedItems/actionLists.items[currentListID].length) * 100, 10);
-				}
-			});
+		var loadActionLists = function() {
+			Card.actionLists(card.id).then(applyActionLists);
 		};
-		loadActionLists();
 
 		User.hasPermission('ORDER_ACTION_LIST', $stateParams.projectName).then(function() {
 			$scope.sortableActionListOptions = {
@@ -362,17 +362,17 @@
 		};
 
 		//-- file upload
-		var loadFiles = function() {
-			Card.files(card.id).then(function(files) {
-				$scope.files = {};
-				for(var f = 0; f < files.length; f++) {
-					var file = files[f];
-					$scope.files[file.cardDataId] = file;
-				}
-			});
+		var applyFiles = function(files) {
+			$scope.files = {};
+			for(var f = 0; f < files.length; f++) {
+				var file = files[f];
+				$scope.files[file.cardDataId] = file;
+			}
 		};
 
-		loadFiles();
+		var loadFiles = function() {
+			Card.files(card.id).then(applyFiles);
+		};
 
 		var processUploadingFile = function(icon, status) {
 			$timeout(function() {
@@ -488,8 +488,6 @@
 			});
 		};
 
-		loadActivity();
-
 		$scope.hasActivity = function() {
 			return ($scope.comments !== undefined && $scope.actionLists !== undefined && $scope.actionItems !== undefined && $scope.files !== undefined);
 		};
@@ -538,23 +536,80 @@
 		}
 
 
-		//the /card-data has various card data related event that are pushed from the server that we must react
-		StompClient.subscribe($scope, '/event/card/' + card.id + '/card-data', function(e) {
-			var type = JSON.parse(e.body).type;
-			if(type === 'UPDATE_DESCRIPTION') {
+		//version of the data of the card, null while loading
+		var dataVersion = null;
+		//deltas received while loading
+		var pendingDeltas = [];
+		//only the response of the last request is used
+		var lastDataRequest = 0;
+
+		//return false if the delta cannot be applied on the current data
+		var applyDelta = function(delta) {
+			if(delta.version <= dataVersion) {
+				return true;
+			}
+			if(delta.version !== dataVersion + 1) {
+				return false;
+			}
+			dataVersion = delta.version;
+			applyCard(delta.card);
+			$scope.activities = delta.activity;
+			//the parts of the data that have not been modified are null
+			if(delta.description !== null) {
+				$scope.description = delta.description;
+			}
+			if(delta.comments !== null) {
+				$scope.comments = delta.comments;
+			}
+			if(delta.actionLists !== null) {
+				applyActionLists(Card.splitActionLists(delta.actionLists));
+			}
+			if(delta.files !== null) {
+				applyFiles(delta.files);
+			}
+			if(delta.labelValues !== null) {
+				$scope.labelValues = delta.labelValues;
+			}
+			return true;
+		};
+
+		var loadCardData = function() {
+			dataVersion = null;
+			pendingDeltas = [];
+			var request = ++lastDataRequest;
+			//the version is read before the data: the deltas with a greater version must be applied on it
+			Card.dataVersion(card.id).then(function(version) {
+				if(request !== lastDataRequest) {
+					return;
+				}
 				loadDescription();
-				reloadCard();
-			} else if(type.match(/COMMENT/g) !== null) {
 				loadComments();
-				reloadCard();
-			} else if(type.match(/ACTION_ITEM$/g) !== null || type.match(/ACTION_LIST$/g)) {
-				loadActionListsAndRefresh();
-			} else if(type.indexOf('LABEL') > -1) {
+				loadActionLists();
 				loadLabelValues();
-				reloadCard();
-			} else if(type.match(/FILE$/g)) {
 				loadFiles();
+				loadActivity();
+				dataVersion = version;
+				var deltas = pendingDeltas;
+				pendingDeltas = [];
+				for(var i = 0; i < deltas.length; i++) {
+					if(!applyDelta(deltas[i])) {
+						reloadCard();
+						loadCardData();
+						return;
+					}
+				}
+			});
+		};
+		loadCardData();
+
+		//the /card-data events carry the new state of the modified data of the card
+		StompClient.subscribe($scope, '/event/card/' + card.id + '/card-data', function(e) {
+			var delta = JSON.parse(e.body).payload;
+			if(dataVersion === null) {
+				pendingDeltas.push(delta);
+			} else if(!applyDelta(delta)) {
 				reloadCard();
+				loadCardData();
 			}
 		});
 	});
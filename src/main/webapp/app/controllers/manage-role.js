@@ -44,7 +44,8 @@
 		StompClient.subscribe($scope, route , function(event) {
 			var b = JSON.parse(event.body);
 			if(b.type === 'REMOVE_ROLE_TO_USERS' || b.type === 'ASSIGN_ROLE_TO_USERS') {
-				reloadUserWithRole(b.payload);
+				//the events raised together are merged: the payload can be a list of roles
+				angular.forEach(angular.isArray(b.payload) ? b.payload : [b.payload], reloadUserWithRole);
 			} else {
 				reloadRoles();
 			}
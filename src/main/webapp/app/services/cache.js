@@ -13,8 +13,12 @@
 				$rootScope.$emit(emitPrefix + id, {});
 			},
 			parseEventAndEmitUpdate: function (message, cache, emitPrefix) {
-				var id = JSON.parse(message.body)["payload"];
-				this.removeFromCacheAndEmit(id, cache, emitPrefix);
+				var payload = JSON.parse(message.body)["payload"];
+				//the events raised together are merged: the payload can be a list of ids
+				var ids = angular.isArray(payload) ? payload : [payload];
+				for (var i = 0; i < ids.length; i++) {
+					this.removeFromCacheAndEmit(ids[i], cache, emitPrefix);
+				}
 			}
 		}
 	});
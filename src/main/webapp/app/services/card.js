@@ -8,8 +8,8 @@
 		return data.data
 	};
 
-	var extractActionLists = function (data) {
-		var rawData = data.data;
+	//split the action lists and their items, the items are grouped by list id
+	var splitActionLists = function (rawData) {
 		var actionLists = {lists: [], items: {}};
 		for (var i = 0; i < rawData.length; i++) {
 			//if it's a list, push it to the array
@@ -24,6 +24,10 @@
 		}
 		return actionLists;
 	};
+
+	var extractActionLists = function (data) {
+		return splitActionLists(data.data);
+	};
 	
 	var isInCardLabels = function(cardLabels, labelName, currentUserId) {
 		if (cardLabels === undefined || cardLabels.length === 0)
@@ -54,12 +58,21 @@
 			findByColumn: function (columnId) {
 				return $http.get('api/column/' + columnId + '/card').then(extractData);
 			},
+			findByColumnWithVersion: function (columnId) {
+				return $http.get('api/column/' + columnId + '/card').then(function (res) {
+					return {cards: res.data, version: parseInt(res.headers('X-Lavagna-Column-Version'), 10)};
+				});
+			},
 			moveAllFromColumnToLocation: function (columnId, cardIds, location) {
 				return $http.post('api/card/from-column/' + columnId + '/to-location/' + location, {cardIds: cardIds}).then(extractData);
 			},
 			update: function (id, name) {
 				return $http.post('api/card/' + id, {name: name}).then(extractData);
 			},
+			dataVersion: function (id) {
+				return $http.get('api/card/' + id + '/data-version').then(extractData);
+			},
+			splitActionLists: splitActionLists,
 			description: function (id) {
 				return $http.get('api/card/' + id + '/description').then(extractData);
 			},
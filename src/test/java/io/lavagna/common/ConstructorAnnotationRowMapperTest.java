@@ -26,6 +26,7 @@ import java.sql.SQLException;
 import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.springframework.jdbc.core.RowMapper;
 
 public class ConstructorAnnotationRowMapperTest {
 
@@ -76,10 +77,69 @@ public class ConstructorAnnotationRowMapperTest {
 
 	private ResultSet prepareRS(Object returnValue) throws SQLException {
 		ResultSet rs1 = Mockito.mock(ResultSet.class);
-		Mockito.when(rs1.getObject("test")).thenReturn(returnValue);
+		Mockito.when(rs1.findColumn("test")).thenReturn(1);
+		Mockito.when(rs1.getObject(1)).thenReturn(returnValue);
 		return rs1;
 	}
 
+	@Test
+	public void testMapRow() throws SQLException {
+		ResultSet rs = mappingResultSet();
+		Mockito.when(rs.getString(1)).thenReturn("value");
+		Mockito.when(rs.getInt(2)).thenReturn(42);
+
+		Mapping3 m = new ConstructorAnnotationRowMapper<>(Mapping3.class).mapRow(rs, 0);
+		Assert.assertEquals("value", m.a);
+		Assert.assertEquals(42, m.b);
+		Assert.assertNull(m.c);
+	}
+
+	@Test
+	public void testIndexedRowMapperResolveColumnsOnce() throws SQLException {
+		ResultSet rs = mappingResultSet();
+		Mockito.when(rs.getString(1)).thenReturn("value");
+		Mockito.when(rs.getInt(2)).thenReturn(42);
+		Mockito.when(rs.getInt(3)).thenReturn(0, 3);
+		Mockito.when(rs.wasNull()).thenReturn(false, true, false);
+
+		RowMapper<Mapping3> mapper = new ConstructorAnnotationRowMapper<>(Mapping3.class).newIndexedRowMapper();
+		Assert.assertNull(mapper.mapRow(rs, 0).c);
+		Assert.assertEquals(Integer.valueOf(3), mapper.mapRow(rs, 1).c);
+
+		Mockito.verify(rs).findColumn("COL_1");
+		Mockito.verify(rs).findColumn("COL_2");
+		Mockito.verify(rs).findColumn("COL_3");
+	}
+
+	@Test(expected = SQLException.class)
+	public void testNullForPrimitiveType() throws SQLException {
+		ResultSet rs = mappingResultSet();
+		Mockito.when(rs.wasNull()).thenReturn(true);
+		new ConstructorAnnotationRowMapper<>(Mapping3.class).mapRow(rs, 0);
+	}
+
+	@Test
+	public void testExceptionInConstructorIsNotATypeMismatch() throws SQLException {
+		ResultSet rs = mappingResultSet();
+		Mockito.when(rs.getString(1)).thenReturn(null);
+		try {
+			new ConstructorAnnotationRowMapper<>(Mapping4.class).mapRow(rs, 0);
+			Assert.fail();
+		} catch (SQLException e) {
+			Assert.assertTrue(e.getCause() instanceof NullPointerException);
+			Assert.assertFalse(e.getMessage().contains("type mismatch"));
+		}
+	}
+
+	private ResultSet mappingResultSet() throws SQLException {
+		ResultSet rs = Mockito.mock(ResultSet.class);
+		Mockito.when(rs.findColumn("COL_1")).thenReturn(1);
+		Mockito.when(rs.findColumn("COL_2")).thenReturn(2);
+		Mockito.when(rs.findColumn("COL_3")).thenReturn(3);
+		Mockito.when(rs.wasNull()).thenReturn(false, true);
+		return rs;
+	}
+
 	public static class Mapping {
 		public Mapping(@Column("COL_1") String a, @Column("COL_2") int b) {
 		}
@@ -90,6 +150,26 @@ public class ConstructorAnnotationRowMapperTest {
 		}
 	}
 
+	static class Mapping3 {
+		private final String a;
+		private final int b;
+		private final Integer c;
+
+		public Mapping3(@Column("COL_1") String a, @Column("COL_2") int b, @Column("COL_3") Integer c) {
+			this.a = a;
+			this.b = b;
+			this.c = c;
+		}
+	}
+
+	static class Mapping4 {
+		private final int length;
+
+		public Mapping4(@Column("COL_1") String a) {
+			this.length = a.length();
+		}
+	}
+
 	public static class MultiplePublicConstructor {
 		public MultiplePublicConstructor() {
 		}
@@ -16,12 +16,23 @@
  */
 package io.lavagna.common;
 
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 
 @RunWith(MockitoJUnitRunner.class)
 public class QueryFactoryTest {
@@ -36,6 +47,14 @@ public class QueryFactoryTest {
 		@Query(type = QueryType.TEMPLATE, value = "SELECT * FROM LA_BOARD_COLUMN_FULL WHERE BOARD_COLUMN_ID = :columnId")
 		@QueriesOverride(@QueryOverride(db = "MYSQL", value = "SELECT * FROM LA_BOARD_COLUMN_FULL_MYSQL WHERE BOARD_COLUMN_ID = :columnId"))
 		String overrideQuery();
+
+		@Query("UPDATE LA_BOARD SET BOARD_NAME = :name WHERE BOARD_ID = :id")
+		int update(@Bind("id") int id, @Bind("name") String name, String notBound);
+
+		@Query("SELECT BOARD_NAME FROM LA_BOARD")
+		List<String> findAllNames();
+
+		String missingAnnotation();
 	}
 
 	@Test
@@ -59,4 +78,37 @@ public class QueryFactoryTest {
 				qtMysql.overrideQuery());
 	}
 
+	@Test
+	public void testExecuteUpdate() {
+		QueryTest qt = new QueryFactory("HSQLDB", jdbc).from(QueryTest.class);
+		when(jdbc.update(eq("UPDATE LA_BOARD SET BOARD_NAME = :name WHERE BOARD_ID = :id"),
+				any(SqlParameterSource.class))).thenReturn(1);
+
+		Assert.assertEquals(1, qt.update(42, "name", "ignored"));
+
+		ArgumentCaptor<SqlParameterSource> captor = ArgumentCaptor.forClass(SqlParameterSource.class);
+		verify(jdbc).update(eq("UPDATE LA_BOARD SET BOARD_NAME = :name WHERE BOARD_ID = :id"), captor.capture());
+		SqlParameterSource ps = captor.getValue();
+		Assert.assertEquals(42, ps.getValue("id"));
+		Assert.assertEquals(Types.INTEGER, ps.getSqlType("id"));
+		Assert.assertEquals("name", ps.getValue("name"));
+		Assert.assertEquals(Types.VARCHAR, ps.getSqlType("name"));
+		Assert.assertFalse(ps.hasValue("notBound"));
+	}
+
+	@Test
+	public void testExecuteQueryForList() {
+		QueryTest qt = new QueryFactory("HSQLDB", jdbc).from(QueryTest.class);
+		when(jdbc.queryForList(eq("SELECT BOARD_NAME FROM LA_BOARD"), any(SqlParameterSource.class),
+						eq(String.class))).thenReturn(Arrays.asList("a", "b"));
+
+		Assert.assertEquals(Arrays.asList("a", "b"), qt.findAllNames());
+		Assert.assertEquals(Arrays.asList("a", "b"), qt.findAllNames());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMissingQueryAnnotation() {
+		QueryTest qt = new QueryFactory("HSQLDB", jdbc).from(QueryTest.class);
+		qt.missingAnnotation();
+	}
 }
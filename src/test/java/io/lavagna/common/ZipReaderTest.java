@@ -0,0 +1,98 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.util.StreamUtils;
+
+import com.google.gson.reflect.TypeToken;
+
+public class ZipReaderTest {
+
+	private Path file;
+
+	@Before
+	public void prepare() throws IOException {
+		file = Files.createTempFile(null, null);
+		try (OutputStream os = Files.newOutputStream(file); ZipOutputStream zos = new ZipOutputStream(os)) {
+			write(zos, "boards/B.json", "\"B\"");
+			write(zos, "boards/B/cards.json", "[1,2]");
+			write(zos, "boards/A.json", "\"A\"");
+			write(zos, "files/abc", "binary");
+		}
+	}
+
+	private static void write(ZipOutputStream zos, String name, String content) throws IOException {
+		zos.putNextEntry(new ZipEntry(name));
+		zos.write(content.getBytes(StandardCharsets.UTF_8));
+		zos.closeEntry();
+	}
+
+	@After
+	public void cleanup() throws IOException {
+		Files.delete(file);
+	}
+
+	@Test
+	public void testReadObject() throws IOException {
+		try (ZipReader zip = new ZipReader(file)) {
+			List<Integer> cards = zip.readObject("boards/B/cards.json", new TypeToken<List<Integer>>() {
+			});
+			Assert.assertEquals(Arrays.asList(1, 2), cards);
+			Assert.assertTrue(zip.contains("files/abc"));
+			Assert.assertFalse(zip.contains("files/def"));
+		}
+	}
+
+	@Test
+	public void testReadMatchingObjectsInArchiveOrder() throws IOException {
+		try (ZipReader zip = new ZipReader(file)) {
+			Assert.assertEquals(Arrays.asList("B", "A"), zip.readMatchingObjects("boards/[^/]+\\.json",
+					new TypeToken<String>() {
+					}));
+		}
+	}
+
+	@Test
+	public void testGetInputStream() throws IOException {
+		try (ZipReader zip = new ZipReader(file); InputStream is = zip.getInputStream("files/abc")) {
+			Assert.assertEquals("binary", StreamUtils.copyToString(is, StandardCharsets.UTF_8));
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testMissingEntry() throws IOException {
+		try (ZipReader zip = new ZipReader(file)) {
+			zip.readObject("missing.json", new TypeToken<String>() {
+			});
+		}
+	}
+}
@@ -0,0 +1,84 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.loader;
+
+import io.lavagna.config.PersistenceAndServiceConfig;
+import io.lavagna.service.EventRepository;
+import io.lavagna.service.ExportImportService;
+import io.lavagna.service.config.TestServiceConfig;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+/**
+ * <p>
+ * Measure the time and the heap used by {@link ExportImportService#exportData(OutputStream)}. The export is written
+ * in a stream that discard the content, so only the database access and the serialization are measured.
+ * </p>
+ * Run {@link Loader} first for having the ~300k cards dataset.
+ */
+public class ExportBenchmark {
+
+	private static final int ITERATIONS = 3;
+
+	public static void main(String[] args) throws IOException {
+
+		System.setProperty("datasource.dialect", System.getProperty("datasource.dialect", "MYSQL"));
+
+		try (AnnotationConfigApplicationContext ac = new AnnotationConfigApplicationContext(TestServiceConfig.class,
+				PersistenceAndServiceConfig.class)) {
+
+			ExportImportService exportImportService = ac.getBean(ExportImportService.class);
+			int events = ac.getBean(EventRepository.class).count();
+			System.out.println("events: " + events);
+
+			Runtime rt = Runtime.getRuntime();
+			for (int i = 0; i < ITERATIONS; i++) {
+				System.gc();
+				long usedBefore = rt.totalMemory() - rt.freeMemory();
+				CountingOutputStream os = new CountingOutputStream();
+
+				long start = System.nanoTime();
+				exportImportService.exportData(os);
+				long elapsed = (System.nanoTime() - start) / 1000000;
+
+				long usedAfter = rt.totalMemory() - rt.freeMemory();
+				System.out.println("export: " + elapsed + "ms, " + (events * 1000L / Math.max(1, elapsed))
+						+ " events/s, " + os.count / 1024 + "KB written, heap delta "
+						+ (usedAfter - usedBefore) / (1024 * 1024) + "MB, max heap " + rt.maxMemory() / (1024 * 1024)
+						+ "MB");
+			}
+		}
+	}
+
+	private static class CountingOutputStream extends OutputStream {
+
+		private long count;
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+	}
+}
@@ -0,0 +1,67 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.loader;
+
+import io.lavagna.config.PersistenceAndServiceConfig;
+import io.lavagna.service.BoardRepository;
+import io.lavagna.service.ExportImportService;
+import io.lavagna.service.config.TestServiceConfig;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+/**
+ * <p>
+ * Export the 500 boards of the {@link Loader} dataset and measure the time needed for importing the archive in an
+ * empty database (by default an in memory HSQLDB, can be changed with -Dimport.dialect).
+ * </p>
+ * Run {@link Loader} first for having the ~300k cards dataset.
+ */
+public class ImportBenchmark {
+
+	public static void main(String[] args) throws IOException {
+
+		Path export = Files.createTempFile("lavagna-benchmark", ".zip");
+		try {
+			System.setProperty("datasource.dialect", System.getProperty("datasource.dialect", "MYSQL"));
+			try (AnnotationConfigApplicationContext ac = new AnnotationConfigApplicationContext(
+					TestServiceConfig.class, PersistenceAndServiceConfig.class);
+					OutputStream os = Files.newOutputStream(export)) {
+				System.out.println("boards: " + ac.getBean(BoardRepository.class).findAll().size());
+				long start = System.nanoTime();
+				ac.getBean(ExportImportService.class).exportData(os);
+				System.out.println("export: " + (System.nanoTime() - start) / 1000000 + "ms, "
+						+ Files.size(export) / 1024 + "KB");
+			}
+
+			System.setProperty("datasource.dialect", System.getProperty("import.dialect", "HSQLDB"));
+			try (AnnotationConfigApplicationContext ac = new AnnotationConfigApplicationContext(
+					TestServiceConfig.class, PersistenceAndServiceConfig.class)) {
+				long start = System.nanoTime();
+				ac.getBean(ExportImportService.class).importData(true, export);
+				System.out.println("import: " + (System.nanoTime() - start) / 1000000 + "ms, boards imported: "
+						+ ac.getBean(BoardRepository.class).findAll().size());
+			}
+		} finally {
+			Files.delete(export);
+		}
+	}
+}
@@ -0,0 +1,114 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.loader;
+
+import io.lavagna.config.PersistenceAndServiceConfig;
+import io.lavagna.model.Permission;
+import io.lavagna.model.Project;
+import io.lavagna.model.Role;
+import io.lavagna.model.User;
+import io.lavagna.model.UserWithPermission;
+import io.lavagna.service.PermissionService;
+import io.lavagna.service.PermissionService.ProjectRoleAndPermissionFullHolder;
+import io.lavagna.service.ProjectService;
+import io.lavagna.service.UserRepository;
+import io.lavagna.service.UserService;
+import io.lavagna.service.config.TestServiceConfig;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+/**
+ * <p>
+ * Compare the per request cost of {@link UserService#findUserWithPermission(int)} (cached) against the previous
+ * strategy: the user and the permissions loaded from the database at each request.
+ * </p>
+ * Use the in memory HSQLDB database by default.
+ */
+public class PermissionCacheBenchmark {
+
+	private static final int PROJECTS = 20;
+	private static final int WARMUP = 2_000;
+	private static final int ITERATIONS = 20_000;
+
+	public static void main(String[] args) {
+
+		System.setProperty("datasource.dialect", System.getProperty("datasource.dialect", "HSQLDB"));
+
+		try (AnnotationConfigApplicationContext ac = new AnnotationConfigApplicationContext(TestServiceConfig.class,
+				PersistenceAndServiceConfig.class)) {
+
+			UserService userService = ac.getBean(UserService.class);
+			UserRepository userRepository = ac.getBean(UserRepository.class);
+			PermissionService permissionService = ac.getBean(PermissionService.class);
+			int userId = prepare(userRepository, permissionService, ac.getBean(ProjectService.class));
+
+			for (int i = 0; i < WARMUP; i++) {
+				uncached(userRepository, permissionService, userId);
+				userService.findUserWithPermission(userId);
+			}
+
+			long start = System.nanoTime();
+			for (int i = 0; i < ITERATIONS; i++) {
+				uncached(userRepository, permissionService, userId);
+			}
+			long uncached = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for (int i = 0; i < ITERATIONS; i++) {
+				userService.findUserWithPermission(userId);
+			}
+			long cached = System.nanoTime() - start;
+
+			System.out.println(String.format("%d requests, uncached: %.1f us/request, cached: %.1f us/request",
+					ITERATIONS, uncached / 1000.0 / ITERATIONS, cached / 1000.0 / ITERATIONS));
+		}
+	}
+
+	private static int prepare(UserRepository userRepository, PermissionService permissionService,
+			ProjectService projectService) {
+		userRepository.createUser("bench", "user", null, null, true);
+		int userId = userRepository.findUserByName("bench", "user").getId();
+		Set<Integer> userIds = Collections.singleton(userId);
+
+		permissionService.createRole(new Role("BENCH"));
+		permissionService.updatePermissionsToRole(new Role("BENCH"), EnumSet.of(Permission.READ, Permission.SEARCH));
+		permissionService.assignRoleToUsers(new Role("BENCH"), userIds);
+
+		for (int i = 0; i < PROJECTS; i++) {
+			Project p = projectService.create("bench " + i, "BENCH" + i, null);
+			permissionService.createRoleInProjectId(new Role("BENCH"), p.getId());
+			permissionService.updatePermissionsToRoleInProjectId(new Role("BENCH"),
+					EnumSet.of(Permission.READ, Permission.CREATE_CARD), p.getId());
+			permissionService.assignRoleToUsersInProjectId(new Role("BENCH"), userIds, p.getId());
+		}
+		return userId;
+	}
+
+	private static UserWithPermission uncached(UserRepository userRepository, PermissionService permissionService,
+			int userId) {
+		User user = userRepository.findById(userId);
+		Set<Permission> permissions = permissionService.findBasePermissionByUserId(user.getId());
+		ProjectRoleAndPermissionFullHolder permissionsHolder = permissionService
+				.findPermissionsGroupedByProjectForUserId(user.getId());
+		return new UserWithPermission(user, permissions, permissionsHolder.getPermissionsByProject(),
+				permissionsHolder.getPermissionsByProjectId());
+	}
+}
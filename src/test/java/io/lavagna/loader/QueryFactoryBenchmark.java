@@ -0,0 +1,99 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.loader;
+
+import io.lavagna.common.Bind;
+import io.lavagna.common.QueriesOverride;
+import io.lavagna.common.Query;
+import io.lavagna.common.QueryFactory;
+import io.lavagna.common.QueryOverride;
+import io.lavagna.common.QueryType;
+import io.lavagna.model.Board;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+/**
+ * <p>
+ * Measure the overhead of the {@link QueryFactory} proxies: the jdbc template is a no-op, so only the dispatch (query
+ * resolution, parameters binding and row mapper lookup) is measured.
+ * </p>
+ * No database is required.
+ */
+public class QueryFactoryBenchmark {
+
+	private static final int WARMUP = 200_000;
+	private static final int ITERATIONS = 1_000_000;
+
+	public interface BenchmarkQuery {
+
+		@Query(type = QueryType.TEMPLATE, value = "SELECT * FROM LA_BOARD WHERE BOARD_ID = :id")
+		@QueriesOverride({ @QueryOverride(db = "MYSQL", value = "SELECT * FROM LA_BOARD WHERE BOARD_ID = :id"),
+				@QueryOverride(db = "PGSQL", value = "SELECT * FROM LA_BOARD WHERE BOARD_ID = :id") })
+		String template();
+
+		@Query("SELECT * FROM LA_BOARD WHERE BOARD_ID = :id AND BOARD_NAME = :name")
+		List<Board> select(@Bind("id") int id, @Bind("name") String name);
+
+		@Query("UPDATE LA_BOARD SET BOARD_NAME = :name WHERE BOARD_ID = :id")
+		int update(@Bind("id") int id, @Bind("name") String name);
+	}
+
+	private static class NoOpJdbcTemplate extends NamedParameterJdbcTemplate {
+
+		NoOpJdbcTemplate() {
+			super(new JdbcTemplate());
+		}
+
+		@Override
+		public <T> List<T> query(String sql, SqlParameterSource paramSource, RowMapper<T> rowMapper) {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public int update(String sql, SqlParameterSource paramSource) {
+			return 0;
+		}
+	}
+
+	public static void main(String[] args) {
+		BenchmarkQuery q = new QueryFactory("PGSQL", new NoOpJdbcTemplate()).from(BenchmarkQuery.class);
+
+		for (int i = 0; i < WARMUP; i++) {
+			run(q, i);
+		}
+
+		long start = System.nanoTime();
+		long blackhole = 0;
+		for (int i = 0; i < ITERATIONS; i++) {
+			blackhole += run(q, i);
+		}
+		long elapsed = System.nanoTime() - start;
+
+		System.out.println(String.format("%d iterations (template + select + update): %.1f ns/iteration [%d]",
+				ITERATIONS, (double) elapsed / ITERATIONS, blackhole));
+	}
+
+	private static int run(BenchmarkQuery q, int i) {
+		return q.template().length() + q.select(i, "name").size() + q.update(i, "name");
+	}
+}
@@ -0,0 +1,143 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.loader;
+
+import io.lavagna.common.ConstructorAnnotationRowMapper;
+import io.lavagna.common.ConstructorAnnotationRowMapper.Column;
+import io.lavagna.model.CardFull;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * <p>
+ * Compare the {@link ConstructorAnnotationRowMapper} against the previous reflective implementation (column lookup by
+ * name, boxed arguments list, {@link Constructor#newInstance(Object...)}) when mapping {@link CardFull} rows.
+ * </p>
+ * Use an in memory HSQLDB database, no other setup is required.
+ */
+public class RowMapperBenchmark {
+
+	private static final int ROWS = 300_000;
+	private static final int WARMUP = 5;
+	private static final int ITERATIONS = 10;
+
+	private static final String QUERY = "SELECT * FROM BENCH_CARD";
+
+	public static void main(String[] args) {
+		DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:hsqldb:mem:rowmapperbenchmark", "sa", "");
+		dataSource.setDriverClassName("org.hsqldb.jdbcDriver");
+		JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+		setup(jdbc);
+
+		ConstructorAnnotationRowMapper<CardFull> mapper = new ConstructorAnnotationRowMapper<>(CardFull.class);
+		ReflectiveRowMapper<CardFull> reflective = new ReflectiveRowMapper<>(CardFull.class);
+
+		for (int i = 0; i < WARMUP; i++) {
+			map(jdbc, reflective);
+			map(jdbc, mapper.newIndexedRowMapper());
+		}
+
+		long reflectiveTime = 0;
+		long indexedTime = 0;
+		for (int i = 0; i < ITERATIONS; i++) {
+			long start = System.nanoTime();
+			map(jdbc, reflective);
+			reflectiveTime += System.nanoTime() - start;
+
+			start = System.nanoTime();
+			map(jdbc, mapper.newIndexedRowMapper());
+			indexedTime += System.nanoTime() - start;
+		}
+
+		System.out.println(String.format("%d rows, reflective: %d ms, indexed: %d ms", ROWS, reflectiveTime
+				/ ITERATIONS / 1_000_000, indexedTime / ITERATIONS / 1_000_000));
+	}
+
+	private static void setup(JdbcTemplate jdbc) {
+		jdbc.execute("CREATE TABLE BENCH_CARD (CARD_ID INTEGER, CARD_NAME VARCHAR(255), CARD_SEQ_NUMBER INTEGER,"
+				+ " CARD_ORDER INTEGER, CARD_BOARD_COLUMN_ID_FK INTEGER, CREATE_USER INTEGER, CREATE_TIME TIMESTAMP,"
+				+ " LAST_UPDATE_USER INTEGER, LAST_UPDATE_TIME TIMESTAMP, BOARD_COLUMN_DEFINITION_VALUE VARCHAR(255),"
+				+ " BOARD_SHORT_NAME VARCHAR(255), PROJECT_SHORT_NAME VARCHAR(255))");
+		List<Object[]> rows = new ArrayList<>(ROWS);
+		Timestamp now = new Timestamp(System.currentTimeMillis());
+		for (int i = 0; i < ROWS; i++) {
+			rows.add(new Object[] { i, "card " + i, i, i, i % 10, i % 50, now, i % 50, now, "OPEN", "BOARD", "PROJECT" });
+		}
+		jdbc.batchUpdate("INSERT INTO BENCH_CARD VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+	}
+
+	private static void map(JdbcTemplate jdbc, final RowMapper<CardFull> mapper) {
+		jdbc.query(QUERY, new RowCallbackHandler() {
+			private int rowNum = 0;
+
+			@Override
+			public void processRow(ResultSet rs) throws SQLException {
+				mapper.mapRow(rs, rowNum++);
+			}
+		});
+	}
+
+	/**
+	 * The mapping strategy used before the introduction of the typed column mappers.
+	 */
+	private static class ReflectiveRowMapper<T> implements RowMapper<T> {
+
+		private final Constructor<T> con;
+		private final List<String> names = new ArrayList<>();
+		private final List<Class<?>> types = new ArrayList<>();
+
+		@SuppressWarnings("unchecked")
+		ReflectiveRowMapper(Class<T> clazz) {
+			con = (Constructor<T>) clazz.getConstructors()[0];
+			Annotation[][] annotations = con.getParameterAnnotations();
+			for (int i = 0; i < annotations.length; i++) {
+				names.add(((Column) annotations[i][0]).value());
+				types.add(con.getParameterTypes()[i]);
+			}
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		@Override
+		public T mapRow(ResultSet rs, int rowNum) throws SQLException {
+			List<Object> vals = new ArrayList<>(names.size());
+			for (int i = 0; i < names.size(); i++) {
+				if (types.get(i).isEnum()) {
+					String res = rs.getString(names.get(i));
+					vals.add(res == null ? null : Enum.valueOf((Class<? extends Enum>) types.get(i), res));
+				} else {
+					vals.add(rs.getObject(names.get(i)));
+				}
+			}
+			try {
+				return con.newInstance(vals.toArray(new Object[vals.size()]));
+			} catch (ReflectiveOperationException e) {
+				throw new SQLException(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,115 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.loader;
+
+import static io.lavagna.service.SearchFilter.filter;
+import static io.lavagna.service.SearchFilter.filterByColumnDefinition;
+import io.lavagna.config.PersistenceAndServiceConfig;
+import io.lavagna.model.BoardColumn.BoardColumnLocation;
+import io.lavagna.model.ColumnDefinition;
+import io.lavagna.model.Permission;
+import io.lavagna.model.Project;
+import io.lavagna.model.User;
+import io.lavagna.model.UserWithPermission;
+import io.lavagna.service.ProjectService;
+import io.lavagna.service.SearchFilter;
+import io.lavagna.service.SearchFilter.FilterType;
+import io.lavagna.service.SearchFilter.ValueType;
+import io.lavagna.service.SearchService;
+import io.lavagna.service.UserRepository;
+import io.lavagna.service.config.TestServiceConfig;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+/**
+ * <p>
+ * Compare {@link SearchService#findTaksByColumnDefinition(Integer, Integer, boolean, UserWithPermission)} against
+ * the previous strategy (one search for each {@link ColumnDefinition}).
+ * </p>
+ * Run {@link Loader} first for having the ~300k cards dataset.
+ */
+public class SearchServiceBenchmark {
+
+	private static final int WARMUP = 5;
+	private static final int ITERATIONS = 20;
+
+	public static void main(String[] args) {
+
+		System.setProperty("datasource.dialect", System.getProperty("datasource.dialect", "MYSQL"));
+
+		try (AnnotationConfigApplicationContext ac = new AnnotationConfigApplicationContext(TestServiceConfig.class,
+				PersistenceAndServiceConfig.class)) {
+
+			SearchService searchService = ac.getBean(SearchService.class);
+			User user = ac.getBean(UserRepository.class).findUserByName("loader", "user0");
+			UserWithPermission uwp = new UserWithPermission(user, EnumSet.of(Permission.READ),
+					Collections.<String, Set<Permission>>emptyMap(), Collections.<Integer, Set<Permission>>emptyMap());
+
+			List<Project> projects = ac.getBean(ProjectService.class).findAll();
+			System.out.println("projects: " + projects.size());
+
+			for (Integer projectId : Arrays.asList(null, projects.get(0).getId())) {
+				System.out.println("project: " + (projectId == null ? "all" : projectId));
+
+				// warmup
+				for (int i = 0; i < WARMUP; i++) {
+					perColumnDefinition(searchService, projectId, uwp);
+					searchService.findTaksByColumnDefinition(projectId, null, true, uwp);
+				}
+
+				long start = System.nanoTime();
+				Map<ColumnDefinition, Integer> previous = null;
+				for (int i = 0; i < ITERATIONS; i++) {
+					previous = perColumnDefinition(searchService, projectId, uwp);
+				}
+				long perColumnDefinition = System.nanoTime() - start;
+
+				start = System.nanoTime();
+				Map<ColumnDefinition, Integer> grouped = null;
+				for (int i = 0; i < ITERATIONS; i++) {
+					grouped = searchService.findTaksByColumnDefinition(projectId, null, true, uwp);
+				}
+				long singlePass = System.nanoTime() - start;
+
+				System.out.println("  one search per column definition: " + perColumnDefinition / ITERATIONS
+						/ 1000000 + "ms/op " + previous);
+				System.out.println("  single pass grouped count:        " + singlePass / ITERATIONS / 1000000
+						+ "ms/op " + grouped);
+			}
+		}
+	}
+
+	private static Map<ColumnDefinition, Integer> perColumnDefinition(SearchService searchService,
+			Integer projectId, UserWithPermission uwp) {
+		SearchFilter location = filter(FilterType.LOCATION, ValueType.STRING, BoardColumnLocation.BOARD.toString());
+		SearchFilter notArchived = filter(FilterType.BOARD_STATUS, ValueType.BOOLEAN, Boolean.FALSE);
+		Map<ColumnDefinition, Integer> res = new EnumMap<>(ColumnDefinition.class);
+		for (ColumnDefinition cd : ColumnDefinition.values()) {
+			res.put(cd, searchService.find(Arrays.asList(filterByColumnDefinition(cd), location, notArchived),
+					projectId, null, uwp, 0).getCount());
+		}
+		return res;
+	}
+}
@@ -0,0 +1,61 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.model;
+
+import io.lavagna.model.ContinuationToken.InvalidContinuationTokenException;
+
+import java.sql.Timestamp;
+import java.util.Date;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ContinuationTokenTest {
+
+	@Test
+	public void testEncodeDecode() {
+		Timestamp time = new Timestamp(1420070400123L);
+		time.setNanos(123456789);
+		ContinuationToken decoded = ContinuationToken.decode(new ContinuationToken(time, 42).encode());
+		Assert.assertEquals(time, decoded.getTime());
+		Assert.assertEquals(123456789, decoded.getTime().getNanos());
+		Assert.assertEquals(42, decoded.getId());
+	}
+
+	@Test
+	public void testFromDate() {
+		Date time = new Date(1420070400123L);
+		ContinuationToken decoded = ContinuationToken.decode(new ContinuationToken(time, 1).encode());
+		Assert.assertEquals(time.getTime(), decoded.getTime().getTime());
+	}
+
+	@Test
+	public void testBlank() {
+		Assert.assertNull(ContinuationToken.decode(null));
+		Assert.assertNull(ContinuationToken.decode(""));
+	}
+
+	@Test(expected = InvalidContinuationTokenException.class)
+	public void testInvalid() {
+		ContinuationToken.decode("not-a-token");
+	}
+
+	@Test(expected = InvalidContinuationTokenException.class)
+	public void testInvalidNumbers() {
+		ContinuationToken.decode(new ContinuationToken(new Date(), 1).encode().substring(2));
+	}
+}
@@ -0,0 +1,100 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.model.MailConfig;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+public class AsyncMailSenderTest {
+
+	private FakeSmtpServer smtpServer;
+	private ThreadPoolTaskScheduler taskScheduler;
+	private AsyncMailSender asyncMailSender;
+	private MailConfig mailConfig;
+
+	@Before
+	public void prepare() throws Exception {
+		smtpServer = new FakeSmtpServer();
+		taskScheduler = new ThreadPoolTaskScheduler();
+		taskScheduler.initialize();
+		asyncMailSender = new AsyncMailSender(taskScheduler, 10);
+		mailConfig = new MailConfig("localhost", smtpServer.getPort(), "smtp", null, null, "from@lavagna.io", null);
+	}
+
+	@After
+	public void cleanup() throws Exception {
+		asyncMailSender.destroy();
+		taskScheduler.shutdown();
+		smtpServer.close();
+	}
+
+	@Test
+	public void testSend() throws InterruptedException {
+		Assert.assertTrue(asyncMailSender.send(mailConfig, "to@lavagna.io", "subject", "text", "<p>html</p>"));
+		Assert.assertTrue(asyncMailSender.send(mailConfig, "to2@lavagna.io", "subject 2", "text 2", null));
+
+		List<String> messages = smtpServer.waitForMessages(2, 10000);
+		Assert.assertEquals(2, messages.size());
+		Assert.assertTrue(messages.get(0).contains("Subject: subject") || messages.get(1).contains("Subject: subject"));
+	}
+
+	@Test
+	public void testRetry() throws InterruptedException {
+		smtpServer.failNext(2);
+		Assert.assertTrue(asyncMailSender.send(mailConfig, "to@lavagna.io", "subject", "text", null));
+
+		List<String> messages = smtpServer.waitForMessages(1, 10000);
+		Assert.assertEquals(1, messages.size());
+		Assert.assertTrue(messages.get(0).contains("Subject: subject"));
+	}
+
+	@Test
+	public void testGiveUp() throws InterruptedException {
+		smtpServer.failNext(AsyncMailSender.MAX_ATTEMPTS);
+		Assert.assertTrue(asyncMailSender.send(mailConfig, "to@lavagna.io", "subject", "text", null));
+
+		Assert.assertTrue(smtpServer.waitForMessages(1, 500).isEmpty());
+	}
+
+	@Test
+	public void testPreparedMailKeepsItsPlace() throws InterruptedException {
+		AsyncMailSender sender = new AsyncMailSender(taskScheduler, 10, 1, 1);
+		try {
+			AsyncMailSender.PreparedMail mail = sender.prepare(mailConfig, "to@lavagna.io", "subject", "text", null);
+			Assert.assertNotNull(mail);
+			Assert.assertNull(sender.prepare(mailConfig, "to2@lavagna.io", "subject", "text", null));
+
+			mail.discard();
+			mail.discard();
+			mail = sender.prepare(mailConfig, "to@lavagna.io", "subject", "text", null);
+			Assert.assertNotNull(mail);
+			Assert.assertNull(sender.prepare(mailConfig, "to2@lavagna.io", "subject", "text", null));
+
+			mail.send();
+			Assert.assertEquals(1, smtpServer.waitForMessages(1, 10000).size());
+		} finally {
+			sender.destroy();
+		}
+	}
+}
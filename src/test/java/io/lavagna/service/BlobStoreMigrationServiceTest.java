@@ -0,0 +1,90 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import io.lavagna.config.PersistenceAndServiceConfig;
+import io.lavagna.query.CardDataQuery;
+import io.lavagna.service.config.TestServiceConfig;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = { TestServiceConfig.class, PersistenceAndServiceConfig.class })
+@Transactional
+public class BlobStoreMigrationServiceTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Autowired
+	private NamedParameterJdbcTemplate jdbc;
+
+	@Autowired
+	private CardDataQuery queries;
+
+	@Autowired
+	private DatabaseBlobStore databaseBlobStore;
+
+	@Autowired
+	private CardDataRepository cardDataRepository;
+
+	@Test
+	public void testMoveDatabaseContentToFileSystem() throws IOException {
+		byte[] content = "migrate me".getBytes(StandardCharsets.UTF_8);
+		String digest = DigestUtils.sha256Hex(content);
+		cardDataRepository.addUploadContent(digest, content.length, new ByteArrayInputStream(content), "text");
+		assertTrue(databaseBlobStore.contains(digest));
+
+		FileSystemBlobStore fileSystemBlobStore = new FileSystemBlobStore(folder.getRoot().toPath());
+		CardDataRepository fsRepository = new CardDataRepository(jdbc, queries, fileSystemBlobStore,
+				databaseBlobStore);
+
+		// not yet moved: served from the database
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		fsRepository.outputFileContent(digest, out);
+		assertEquals("migrate me", out.toString("UTF-8"));
+
+		assertEquals(1, new BlobStoreMigrationService(fsRepository).moveDatabaseContentToBlobStore());
+		assertFalse(databaseBlobStore.contains(digest));
+		assertTrue(fileSystemBlobStore.contains(digest));
+		assertTrue(fsRepository.fileExists(digest));
+
+		out = new ByteArrayOutputStream();
+		fsRepository.outputFileContent(digest, 2, 5, out);
+		assertEquals("grate", out.toString("UTF-8"));
+
+		// nothing left to move
+		assertEquals(0, new BlobStoreMigrationService(fsRepository).moveDatabaseContentToBlobStore());
+	}
+}
@@ -26,6 +26,7 @@ import io.lavagna.model.BoardColumn.BoardColumnLocation;
 import io.lavagna.model.BoardColumnDefinition;
 import io.lavagna.model.Card;
 import io.lavagna.model.CardData;
+import io.lavagna.model.CardDataHistory;
 import io.lavagna.model.CardFull;
 import io.lavagna.model.CardType;
 import io.lavagna.model.Event;
@@ -192,6 +193,38 @@ public class CardDataServiceTest {
 		assertEquals("test-update-comment-after-update", updatedCardData.get(0).getContent());
 	}
 
+	@Test
+	public void TestCommentsHistory() {
+		assertTrue(cardDataService.findAllCommentsHistoryByCardId(card1.getId()).isEmpty());
+		CardData comment = cardDataService.createComment(card1.getId(), "comment", new Date(), user);
+		cardDataService.createComment(card1.getId(), "other comment", new Date(), user);
+		cardDataService.updateComment(comment.getId(), "comment-after-update", new Date(), user);
+
+		List<CardDataHistory> history = cardDataService.findAllCommentsHistoryByCardId(card1.getId());
+		assertEquals(2, history.size());
+		for (CardDataHistory h : history) {
+			if (h.getId() == comment.getId()) {
+				assertEquals("comment-after-update", h.getContent());
+				assertEquals(1, h.getUpdatedCount());
+			} else {
+				assertEquals("other comment", h.getContent());
+				assertEquals(0, h.getUpdatedCount());
+			}
+		}
+	}
+
+	@Test
+	public void TestDescriptionHistory() {
+		Assert.assertNull(cardDataService.findDescriptionHistoryByCardId(card1.getId()));
+		cardDataService.updateDescription(card1.getId(), "description", new Date(), user);
+		cardDataService.updateDescription(card1.getId(), "description-after-update", new Date(), user);
+
+		CardDataHistory description = cardDataService.findDescriptionHistoryByCardId(card1.getId());
+		assertEquals("description-after-update", description.getContent());
+		assertEquals(1, description.getUpdatedCount());
+		assertEquals(user.getId(), description.getUserId());
+	}
+
 	@Test
 	public void TestDeleteCommentAndUndo() {
 		assertTrue(cardDataService.findAllCommentsByCardId(card1.getId()).isEmpty());
@@ -29,6 +29,7 @@ import io.lavagna.model.Project;
 import io.lavagna.model.User;
 import io.lavagna.service.config.TestServiceConfig;
 
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
@@ -199,6 +200,23 @@ public class CardLabelRepositoryTest {
 		Assert.assertEquals(1, cardLabelRepository.findListValuesByLabelId(label.getId()).size());
 	}
 
+	@Test()
+	public void testAddLabelListValues() {
+		CardLabel label = cardLabelRepository.addLabel(project.getId(), false, CardLabel.LabelType.LIST,
+				CardLabel.LabelDomain.USER, "listlabel", 0);
+
+		cardLabelRepository.addLabelListValues(label.getId(), Arrays.asList("b", "a", "c"));
+
+		List<LabelListValue> values = cardLabelRepository.findListValuesByLabelId(label.getId());
+		Assert.assertEquals(3, values.size());
+		Assert.assertEquals("b", values.get(0).getValue());
+		Assert.assertEquals("a", values.get(1).getValue());
+		Assert.assertEquals("c", values.get(2).getValue());
+
+		// the next values are added after the imported ones
+		Assert.assertEquals(4, cardLabelRepository.addLabelListValue(label.getId(), "d").getOrder());
+	}
+
 	@Test()
 	public void testFindListValueById() {
 		CardLabel label = cardLabelRepository.addLabel(project.getId(), false, CardLabel.LabelType.LIST,
@@ -16,6 +16,7 @@
  */
 package io.lavagna.service;
 
+import io.lavagna.common.RowCallback;
 import io.lavagna.config.PersistenceAndServiceConfig;
 import io.lavagna.model.Board;
 import io.lavagna.model.BoardColumn;
@@ -23,15 +24,21 @@ import io.lavagna.model.BoardColumn.BoardColumnLocation;
 import io.lavagna.model.BoardColumnDefinition;
 import io.lavagna.model.Card;
 import io.lavagna.model.CardFull;
+import io.lavagna.model.ContinuationPage;
+import io.lavagna.model.ContinuationToken;
 import io.lavagna.model.Event.EventType;
 import io.lavagna.model.User;
 import io.lavagna.service.config.TestServiceConfig;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -211,6 +218,26 @@ public class CardRepositoryTest {
 		checkCard(cardsUpdated.get(2), "card1", 3);
 	}
 
+	@Test
+	public void testUpdateCardsOrderBySequenceNumber() {
+		cardService.createCard("card1", col1.getId(), new Date(), user);
+		cardService.createCard("card2", col1.getId(), new Date(), user);
+
+		List<CardFull> cards = cardRepository.findAllByColumnId(col1.getId());
+		Map<Integer, Integer> cardIdsBySequence = cardRepository.findCardIdsBySequenceNumber("TEST-BRD");
+		Assert.assertEquals(2, cardIdsBySequence.size());
+		Assert.assertEquals(cards.get(0).getId(), cardIdsBySequence.get(cards.get(0).getSequence()).intValue());
+
+		Map<Integer, Integer> orderByCardId = new HashMap<>();
+		orderByCardId.put(cards.get(0).getId(), 2);
+		orderByCardId.put(cards.get(1).getId(), 1);
+		cardRepository.updateCardsOrder(orderByCardId);
+
+		List<CardFull> cardsUpdated = cardRepository.findAllByColumnId(col1.getId());
+		checkCard(cardsUpdated.get(0), "card2", 1);
+		checkCard(cardsUpdated.get(1), "card1", 2);
+	}
+
 	@Test
 	public void testMoveCardToColumnAndReorder() {
 		cardService.createCard("card1", col1.getId(), new Date(), user);
@@ -297,4 +324,58 @@ public class CardRepositoryTest {
 		Assert.assertEquals(res.get("TEST-BRD-" + c2.getSequence()).intValue(), c2.getId());
 		Assert.assertEquals(res.get("TEST-BRD-" + c3.getSequence()).intValue(), c3.getId());
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testFetchPaginatedByBoardIdAndLocationWithContinuationToken() {
+		Set<Integer> created = new HashSet<>();
+		for (int i = 0; i < 25; i++) {
+			created.add(cardService.createCard("card" + i, col1.getId(), new Date(), user).getId());
+		}
+
+		ContinuationPage<CardFull> first = cardRepository.fetchPaginatedByBoardIdAndLocation(board.getId(),
+				BoardColumnLocation.BOARD, (ContinuationToken) null);
+		Assert.assertEquals(10, first.getItems().size());
+		Assert.assertNotNull(first.getContinuationToken());
+
+		Set<Integer> found = new HashSet<>();
+		ContinuationPage<CardFull> page = first;
+		while (true) {
+			for (CardFull c : page.getItems()) {
+				Assert.assertTrue(found.add(c.getId()));
+			}
+			if (page.getContinuationToken() == null) {
+				break;
+			}
+			page = cardRepository.fetchPaginatedByBoardIdAndLocation(board.getId(), BoardColumnLocation.BOARD,
+					ContinuationToken.decode(page.getContinuationToken()));
+		}
+		Assert.assertEquals(5, page.getItems().size());
+		Assert.assertEquals(created, found);
+
+		Assert.assertTrue(cardRepository
+				.fetchPaginatedByBoardIdAndLocation(board.getId(), BoardColumnLocation.ARCHIVE, (ContinuationToken) null)
+				.getItems().isEmpty());
+	}
+
+	@Test
+	public void testFindAllByBoardShortNameWithCallback() {
+		cardService.createCard("card1", col1.getId(), new Date(), user);
+		cardService.createCard("card2", col2.getId(), new Date(), user);
+
+		final List<CardFull> streamed = new ArrayList<>();
+		cardRepository.findAllByBoardShortName(board.getShortName(), new RowCallback<CardFull>() {
+			@Override
+			public void processRow(CardFull row) {
+				streamed.add(row);
+			}
+		});
+
+		List<CardFull> cards = cardRepository.findAllByBoardShortName(board.getShortName());
+		Assert.assertEquals(2, streamed.size());
+		Assert.assertEquals(cards.size(), streamed.size());
+		for (int i = 0; i < cards.size(); i++) {
+			Assert.assertEquals(cards.get(i).getId(), streamed.get(i).getId());
+			Assert.assertEquals(cards.get(i).getColumnDefinition(), streamed.get(i).getColumnDefinition());
+		}
+	}
+}
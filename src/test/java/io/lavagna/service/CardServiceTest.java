@@ -27,12 +27,16 @@ import io.lavagna.model.CardLabel;
 import io.lavagna.model.CardLabel.LabelDomain;
 import io.lavagna.model.CardLabelValue.LabelValue;
 import io.lavagna.model.ColumnDefinition;
+import io.lavagna.model.ContinuationPage;
+import io.lavagna.model.ContinuationToken;
 import io.lavagna.model.Project;
 import io.lavagna.model.User;
 import io.lavagna.service.config.TestServiceConfig;
 
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -144,4 +148,35 @@ public class CardServiceTest {
 		Assert.assertEquals(2, cardService.getAllOpenCardsByProject(project.getShortName(), user, 0, 50)
 				.getTotalCards());
 	}
+
+	@Test
+	public void testGetAllOpenCardsWithContinuationToken() {
+		ContinuationPage<CardFullWithCounts> empty = cardService.getAllOpenCards(user, null, 2, true);
+		Assert.assertEquals(0, empty.getItems().size());
+		Assert.assertEquals(Integer.valueOf(0), empty.getCount());
+		Assert.assertNull(empty.getContinuationToken());
+
+		Set<Integer> created = new HashSet<>();
+		for (int i = 0; i < 5; i++) {
+			Card c = cardService.createCard(Integer.toString(i), col.getId(), new Date(), user);
+			labelService.addLabelValueToCard(assigned.getId(), c.getId(), labelValueToUser, user, new Date());
+			created.add(c.getId());
+		}
+
+		Set<Integer> found = new HashSet<>();
+		ContinuationToken after = null;
+		int pages = 0;
+		do {
+			ContinuationPage<CardFullWithCounts> page = cardService.getAllOpenCards(user, after, 2, pages == 0);
+			Assert.assertEquals(pages == 0 ? Integer.valueOf(5) : null, page.getCount());
+			for (CardFullWithCounts c : page.getItems()) {
+				Assert.assertTrue(found.add(c.getId()));
+			}
+			after = ContinuationToken.decode(page.getContinuationToken());
+			pages++;
+		} while (after != null);
+
+		Assert.assertEquals(3, pages);
+		Assert.assertEquals(created, found);
+	}
 }
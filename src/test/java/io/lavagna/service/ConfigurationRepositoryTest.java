@@ -17,8 +17,10 @@
 package io.lavagna.service;
 
 import io.lavagna.config.PersistenceAndServiceConfig;
+import io.lavagna.model.CacheStatistics;
 import io.lavagna.model.ConfigurationKeyValue;
 import io.lavagna.model.Key;
+import io.lavagna.query.ConfigurationQuery;
 import io.lavagna.service.config.TestServiceConfig;
 
 import java.util.Arrays;
@@ -43,6 +45,12 @@ public class ConfigurationRepositoryTest {
 	@Autowired
 	private ConfigurationRepository configurationRepository;
 
+	@Autowired
+	private ConfigurationQuery configurationQuery;
+
+	@Autowired
+	private CacheVersionRepository cacheVersionRepository;
+
 	@Test
 	public void testHasKeyDefined() {
 		Assert.assertFalse(configurationRepository.hasKeyDefined(Key.TEST_PLACEHOLDER));
@@ -120,4 +128,32 @@ public class ConfigurationRepositoryTest {
 		configurationRepository.update(Key.TEST_PLACEHOLDER, "TEST-UPDATED");
 		Assert.assertEquals("TEST-UPDATED", configurationRepository.getValue(Key.TEST_PLACEHOLDER));
 	}
+
+	@Test
+	public void testCacheHit() {
+		configurationRepository.getValueOrNull(Key.TEST_PLACEHOLDER);
+		CacheStatistics before = configurationRepository.getCacheStatistics();
+		configurationRepository.getValueOrNull(Key.TEST_PLACEHOLDER);
+		configurationRepository.findConfigurationFor(EnumSet.of(Key.SETUP_COMPLETE, Key.USE_HTTPS));
+		CacheStatistics after = configurationRepository.getCacheStatistics();
+		Assert.assertEquals(before.getHits() + 2, after.getHits());
+		Assert.assertEquals(before.getMisses(), after.getMisses());
+	}
+
+	@Test
+	public void testModificationFromAnotherNode() {
+		ConfigurationRepository withCheck = new ConfigurationRepository(configurationQuery, cacheVersionRepository, 0);
+		ConfigurationRepository withoutCheck = new ConfigurationRepository(configurationQuery,
+				cacheVersionRepository, Long.MAX_VALUE);
+		Assert.assertNull(withCheck.getValueOrNull(Key.TEST_PLACEHOLDER));
+		Assert.assertNull(withoutCheck.getValueOrNull(Key.TEST_PLACEHOLDER));
+
+		// what another node does
+		configurationQuery.set(Key.TEST_PLACEHOLDER.toString(), "TEST");
+		cacheVersionRepository.increment(ConfigurationRepository.CACHE_NAME);
+
+		Assert.assertEquals("TEST", withCheck.getValueOrNull(Key.TEST_PLACEHOLDER));
+		// the version is not checked again: the stale value is returned
+		Assert.assertNull(withoutCheck.getValueOrNull(Key.TEST_PLACEHOLDER));
+	}
 }
@@ -17,9 +17,13 @@
 package io.lavagna.service;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import io.lavagna.config.PersistenceAndServiceConfig;
 import io.lavagna.model.Board;
 import io.lavagna.model.BoardColumn;
@@ -42,9 +46,11 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
 
 @RunWith(SpringJUnit4ClassRunner.class)
 @ContextConfiguration(classes = { TestServiceConfig.class, PersistenceAndServiceConfig.class })
@@ -69,9 +75,21 @@ public class EventEmitterTest {
 	@Autowired
 	private ProjectService projectService;
 
+	@Autowired
+	private CardDataService cardDataService;
+
+	@Autowired
+	private CardDataRepository cardDataRepository;
+
+	@Autowired
+	private CardLabelRepository cardLabelRepository;
+
 	@Mock
 	private SimpMessageSendingOperations simpMessageSendingOperations;
 
+	@Mock
+	private TaskScheduler taskScheduler;
+
 	private EventEmitter eventEmitter;
 	private ArgumentCaptor<EventEmitter.Event> argument;
 	private User user;
@@ -81,7 +99,8 @@ public class EventEmitterTest {
 	public void prepare() {
 		MockitoAnnotations.initMocks(this);
 
-		eventEmitter = new EventEmitter(simpMessageSendingOperations);
+		eventEmitter = new EventEmitter(simpMessageSendingOperations, cardService, cardRepository, cardDataService,
+				cardDataRepository, cardLabelRepository, taskScheduler, 0);
 		argument = ArgumentCaptor.forClass(EventEmitter.Event.class);
 
 		Helper.createUser(userRepository, "test", "test-user");
@@ -102,6 +121,7 @@ public class EventEmitterTest {
 	@Test
 	public void emitCreateProjectTest() {
 		eventEmitter.emitCreateProject("TEST");
+		commit();
 
 		verify(simpMessageSendingOperations).convertAndSend(eq("/event/project"), argument.capture());
 		assertEquals("TEST", argument.getValue().getPayload());
@@ -110,6 +130,7 @@ public class EventEmitterTest {
 	@Test
 	public void emitUpdateProjectTest() {
 		eventEmitter.emitUpdateProject("TEST");
+		commit();
 
 		verify(simpMessageSendingOperations).convertAndSend(eq("/event/project"), argument.capture());
 		assertEquals("TEST", argument.getValue().getPayload());
@@ -118,11 +139,20 @@ public class EventEmitterTest {
 	@Test
 	public void emitUpdateUserProfileTest() {
 		eventEmitter.emitUpdateUserProfile(5);
+		commit();
 
 		verify(simpMessageSendingOperations).convertAndSend(eq("/event/user"), argument.capture());
 		assertEquals(5, argument.getValue().getPayload());
 	}
 
+	/**
+	 * Simulate the commit of the test transaction and send the pending events.
+	 */
+	private void commit() {
+		TransactionSynchronizationUtils.triggerAfterCommit();
+		eventEmitter.flush();
+	}
+
 	private void verifyLabelEvents(CardFull cardFull) {
 		verify(simpMessageSendingOperations)
 				.convertAndSend(eq("/event/card/" + cardFull.getId() + "/card-data"), any(EventEmitter.Event.class));
@@ -139,6 +169,7 @@ public class EventEmitterTest {
 		CardFull cardFull = cardRepository.findFullBy(card.getId());
 
 		eventEmitter.emitAddLabelValueToCards(Arrays.asList(cardFull));
+		commit();
 
 		verifyLabelEvents(cardFull);
 	}
@@ -149,6 +180,7 @@ public class EventEmitterTest {
 		CardFull cardFull = cardRepository.findFullBy(card.getId());
 
 		eventEmitter.emitRemoveLabelValueToCards(Arrays.asList(cardFull));
+		commit();
 
 		verifyLabelEvents(cardFull);
 	}
@@ -159,13 +191,125 @@ public class EventEmitterTest {
 		CardFull cardFull = cardRepository.findFullBy(card.getId());
 
 		eventEmitter.emitUpdateOrAddValueToCards(Arrays.asList(cardFull), new ArrayList<CardFull>());
+		commit();
 
 		verifyLabelEvents(cardFull);
 	}
 
+	@Test
+	public void emitCreateCardTest() {
+		Card card1 = cardService.createCard("card1", col1.getId(), new Date(), user);
+		Card card2 = cardService.createCard("card2", col1.getId(), new Date(), user);
+
+		eventEmitter.emitCreateCard("TEST", "TEST-BRD", col1.getId(), card2.getId());
+		commit();
+
+		verify(simpMessageSendingOperations).convertAndSend(eq("/event/column/" + col1.getId() + "/card"),
+				argument.capture());
+		EventEmitter.ColumnDelta delta = (EventEmitter.ColumnDelta) argument.getValue().getPayload();
+		assertEquals(1, delta.getVersion());
+		assertEquals(1, delta.getCards().size());
+		assertEquals(card2.getId(), delta.getCards().get(0).getId());
+		assertEquals(Arrays.asList(card1.getId(), card2.getId()), delta.getOrder());
+		assertEquals(1, eventEmitter.columnVersion(col1.getId()));
+	}
+
+	@Test
+	public void emitUpdateCardTest() {
+		Card card = cardService.createCard("card1", col1.getId(), new Date(), user);
+
+		eventEmitter.emitUpdateCard("TEST", "TEST-BRD", col1.getId(), card.getId());
+		eventEmitter.emitUpdateDescription(col1.getId(), card.getId());
+		commit();
+
+		// merged in a single delta
+		verify(simpMessageSendingOperations).convertAndSend(eq("/event/column/" + col1.getId() + "/card"),
+				argument.capture());
+		EventEmitter.ColumnDelta delta = (EventEmitter.ColumnDelta) argument.getValue().getPayload();
+		assertEquals(1, delta.getVersion());
+		assertEquals(card.getId(), delta.getCards().get(0).getId());
+		assertNull(delta.getOrder());
+	}
+
+	@Test
+	public void emitCreateCommentTest() {
+		Card card = cardService.createCard("card1", col1.getId(), new Date(), user);
+		cardDataService.createComment(card.getId(), "comment", new Date(), user);
+
+		eventEmitter.emitCreateComment(col1.getId(), card.getId());
+		eventEmitter.emitUpdateComment(card.getId());
+		commit();
+
+		// merged in a single delta, with only the comments
+		verify(simpMessageSendingOperations).convertAndSend(eq("/event/card/" + card.getId() + "/card-data"),
+				argument.capture());
+		EventEmitter.CardDataDelta delta = (EventEmitter.CardDataDelta) argument.getValue().getPayload();
+		assertEquals(1, delta.getVersion());
+		assertEquals(card.getId(), delta.getCard().getId());
+		assertNotNull(delta.getActivity());
+		assertEquals(1, delta.getComments().size());
+		assertEquals("comment", delta.getComments().get(0).getContent());
+		assertNull(delta.getDescription());
+		assertNull(delta.getActionLists());
+		assertNull(delta.getFiles());
+		assertNull(delta.getLabelValues());
+		assertEquals(1, eventEmitter.cardDataVersion(card.getId()));
+	}
+
+	@Test
+	public void emitDeleteFileTest() {
+		Card card = cardService.createCard("card1", col1.getId(), new Date(), user);
+
+		eventEmitter.emitDeleteFile(col1.getId(), card.getId());
+		commit();
+
+		verify(simpMessageSendingOperations).convertAndSend(eq("/event/card/" + card.getId() + "/card-data"),
+				argument.capture());
+		EventEmitter.CardDataDelta delta = (EventEmitter.CardDataDelta) argument.getValue().getPayload();
+		assertEquals(1, delta.getVersion());
+		assertEquals(0, delta.getFiles().size());
+		assertNull(delta.getComments());
+	}
+
+	@Test
+	public void emitUpdateCardPositionTest() {
+		Card card = cardService.createCard("card1", col1.getId(), new Date(), user);
+
+		// the card is not inside the column anymore: the delta must carry the order
+		eventEmitter.emitUpdateCardPosition(col1.getId() + 1, Arrays.asList(card.getId()));
+		commit();
+
+		verify(simpMessageSendingOperations).convertAndSend(eq("/event/column/" + (col1.getId() + 1) + "/card"),
+				argument.capture());
+		EventEmitter.ColumnDelta delta = (EventEmitter.ColumnDelta) argument.getValue().getPayload();
+		assertEquals(0, delta.getCards().size());
+		assertEquals(0, delta.getOrder().size());
+		assertEquals(0, eventEmitter.columnVersion(col1.getId()));
+	}
+
+	@Test
+	public void emitCardHasMovedTest() {
+		eventEmitter.emitCardHasMoved("TEST", "TEST-BRD", Arrays.asList(1, 2, 3));
+		commit();
+
+		verify(simpMessageSendingOperations).convertAndSend(eq("/event/TEST/TEST-BRD/card"), argument.capture());
+		assertEquals(Arrays.asList(1, 2, 3), argument.getValue().getPayload());
+		verify(taskScheduler).schedule(any(Runnable.class), any(Date.class));
+	}
+
+	@Test
+	public void notSentBeforeCommitTest() {
+		eventEmitter.emitUpdateBoard("TEST");
+
+		eventEmitter.flush();
+
+		verifyZeroInteractions(simpMessageSendingOperations, taskScheduler);
+	}
+
 	@Test
 	public void emitUpdateBoardTest() {
 		eventEmitter.emitUpdateBoard("TEST");
+		commit();
 
 		verify(simpMessageSendingOperations).convertAndSend(eq("/event/board/TEST"), argument.capture());
 		assertEquals(null, argument.getValue().getPayload());
@@ -0,0 +1,125 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import io.lavagna.config.PersistenceAndServiceConfig;
+import io.lavagna.query.EventFanoutQuery;
+import io.lavagna.service.config.TestServiceConfig;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.MimeTypeUtils;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = { TestServiceConfig.class, PersistenceAndServiceConfig.class })
+@Transactional
+public class EventFanoutServiceTest {
+
+	@Autowired
+	private EventFanoutQuery queries;
+
+	private EventFanoutService node1;
+	private EventFanoutService node2;
+	private MessageChannel broker1;
+	private MessageChannel broker2;
+
+	@Before
+	public void prepare() {
+		node1 = new EventFanoutService(queries, true);
+		node2 = new EventFanoutService(queries, true);
+		broker1 = mock(MessageChannel.class);
+		broker2 = mock(MessageChannel.class);
+		node1.exchange(broker1);
+		node2.exchange(broker2);
+	}
+
+	private static Message<byte[]> message(String destination, String payload) {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+		accessor.setDestination(destination);
+		accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+		return MessageBuilder.createMessage(payload.getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+	}
+
+	@Test
+	public void testForwardToOtherNodes() {
+		node1.preSend(message("/event/project", "{\"type\":\"CREATE_PROJECT\"}"), broker1);
+
+		Assert.assertEquals(0, node1.exchange(broker1));
+		Assert.assertEquals(1, node2.exchange(broker2));
+		// already forwarded
+		Assert.assertEquals(0, node2.exchange(broker2));
+
+		@SuppressWarnings("rawtypes")
+		ArgumentCaptor<Message> sent = ArgumentCaptor.forClass(Message.class);
+		verify(broker2).send(sent.capture());
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(sent.getValue());
+		Assert.assertEquals("/event/project", accessor.getDestination());
+		Assert.assertEquals(MimeTypeUtils.APPLICATION_JSON, accessor.getContentType());
+		Assert.assertEquals("{\"type\":\"CREATE_PROJECT\"}", new String((byte[]) sent.getValue().getPayload(),
+				StandardCharsets.UTF_8));
+		verifyZeroInteractions(broker1);
+	}
+
+	@Test
+	public void testForwardedMessagesAreNotWrittenAgain() {
+		node1.preSend(message("/event/project", "{}"), broker1);
+		node1.exchange(broker1);
+		node2.exchange(broker2);
+
+		@SuppressWarnings("rawtypes")
+		ArgumentCaptor<Message> sent = ArgumentCaptor.forClass(Message.class);
+		verify(broker2).send(sent.capture());
+		node2.preSend(sent.getValue(), broker2);
+
+		Assert.assertEquals(0, node2.exchange(broker2));
+		Assert.assertEquals(0, node1.exchange(broker1));
+	}
+
+	@Test
+	public void testOnlyEventsAreWritten() {
+		node1.preSend(message("/user/queue/errors", "{}"), broker1);
+		node1.exchange(broker1);
+
+		Assert.assertEquals(0, node2.exchange(broker2));
+	}
+
+	@Test
+	public void testDisabled() {
+		EventFanoutService disabled = new EventFanoutService(queries, false);
+		disabled.preSend(message("/event/project", "{}"), broker1);
+		disabled.exchange(broker1);
+
+		Assert.assertEquals(0, node2.exchange(broker2));
+	}
+}
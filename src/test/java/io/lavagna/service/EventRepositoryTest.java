@@ -19,6 +19,7 @@ package io.lavagna.service;
 import static java.util.EnumSet.of;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import io.lavagna.common.RowCallback;
 import io.lavagna.config.PersistenceAndServiceConfig;
 import io.lavagna.model.Board;
 import io.lavagna.model.BoardColumn;
@@ -29,6 +30,8 @@ import io.lavagna.model.CardData;
 import io.lavagna.model.CardFull;
 import io.lavagna.model.CardType;
 import io.lavagna.model.ColumnDefinition;
+import io.lavagna.model.ContinuationPage;
+import io.lavagna.model.ContinuationToken;
 import io.lavagna.model.Event;
 import io.lavagna.model.Event.EventType;
 import io.lavagna.model.EventsCount;
@@ -36,6 +39,7 @@ import io.lavagna.model.Project;
 import io.lavagna.model.User;
 import io.lavagna.service.config.TestServiceConfig;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
@@ -232,4 +236,35 @@ public class EventRepositoryTest {
 		List<Event> events = eventRepository.getLatestActivityByPageAndProjects(user.getId(), 0, Arrays.asList(-1));
 		Assert.assertEquals(0, events.size());
 	}
+
+	@Test
+	public void testGetUserFeedWithContinuationToken() {
+		ContinuationPage<Event> page = eventRepository.getUserFeed(user.getId(), null);
+		Assert.assertEquals(1, page.getItems().size());
+		Assert.assertNull(page.getContinuationToken());
+
+		Event event = page.getItems().get(0);
+		ContinuationPage<Event> after = eventRepository.getUserFeed(user.getId(),
+				new ContinuationToken(event.getTime(), event.getId()));
+		Assert.assertEquals(0, after.getItems().size());
+	}
+
+	@Test
+	public void testFindAllWithCallback() {
+		cardDataService.createComment(card1.getId(), "first", new Date(), user);
+
+		final List<Event> streamed = new ArrayList<>();
+		eventRepository.findAll(new RowCallback<Event>() {
+			@Override
+			public void processRow(Event row) {
+				streamed.add(row);
+			}
+		});
+
+		List<Event> events = eventRepository.find(0, eventRepository.count());
+		Assert.assertEquals(events.size(), streamed.size());
+		for (int i = 0; i < events.size(); i++) {
+			Assert.assertEquals(events.get(i).getId(), streamed.get(i).getId());
+		}
+	}
 }
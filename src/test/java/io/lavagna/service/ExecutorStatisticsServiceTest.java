@@ -0,0 +1,62 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.config.PersistenceAndServiceConfig;
+import io.lavagna.model.ExecutorStatistics;
+import io.lavagna.service.config.TestServiceConfig;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = { TestServiceConfig.class, PersistenceAndServiceConfig.class })
+public class ExecutorStatisticsServiceTest {
+
+	@Autowired
+	private ExecutorStatisticsService executorStatisticsService;
+
+	@Test
+	public void testFindAll() {
+		List<ExecutorStatistics> statistics = executorStatisticsService.findAll();
+
+		Map<String, ExecutorStatistics> byName = new HashMap<>();
+		for (ExecutorStatistics s : statistics) {
+			byName.put(s.getName(), s);
+		}
+		Assert.assertTrue(byName.containsKey("taskScheduler"));
+		Assert.assertTrue(byName.containsKey("notificationScheduler"));
+		Assert.assertTrue(byName.containsKey("fullTextScheduler"));
+		Assert.assertTrue(byName.containsKey("statisticsScheduler"));
+		Assert.assertTrue(byName.containsKey("asyncMailSender"));
+		Assert.assertTrue(byName.containsKey("notificationRenderExecutor"));
+
+		Assert.assertEquals(2, byName.get("taskScheduler").getCoreThreads());
+		Assert.assertEquals(1000, byName.get("asyncMailSender").getQueueRemainingCapacity());
+		for (int i = 1; i < statistics.size(); i++) {
+			Assert.assertTrue(statistics.get(i - 1).getName().compareTo(statistics.get(i).getName()) <= 0);
+		}
+	}
+}
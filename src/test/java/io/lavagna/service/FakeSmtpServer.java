@@ -0,0 +1,128 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal SMTP server listening on localhost, for testing the email delivery. The received messages are kept in
+ * memory.
+ */
+public class FakeSmtpServer implements AutoCloseable {
+
+	private final ServerSocket serverSocket;
+	private final List<String> messages = new ArrayList<>();
+	private final AtomicInteger failuresToSimulate = new AtomicInteger();
+
+	public FakeSmtpServer() throws IOException {
+		serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		Thread acceptor = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				accept();
+			}
+		}, "fake-smtp-server");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * The next n transactions will be refused with a temporary error.
+	 */
+	public void failNext(int n) {
+		failuresToSimulate.set(n);
+	}
+
+	public List<String> getMessages() {
+		synchronized (messages) {
+			return new ArrayList<>(messages);
+		}
+	}
+
+	public List<String> waitForMessages(int count, long timeoutMillis) throws InterruptedException {
+		long end = System.currentTimeMillis() + timeoutMillis;
+		synchronized (messages) {
+			while (messages.size() < count && System.currentTimeMillis() < end) {
+				messages.wait(Math.max(1, end - System.currentTimeMillis()));
+			}
+			return new ArrayList<>(messages);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		serverSocket.close();
+	}
+
+	private void accept() {
+		while (!serverSocket.isClosed()) {
+			try (Socket socket = serverSocket.accept()) {
+				handle(socket);
+			} catch (IOException e) {
+				// closed
+			}
+		}
+	}
+
+	private void handle(Socket socket) throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+		OutputStream out = socket.getOutputStream();
+		reply(out, "220 localhost fake smtp");
+		String line;
+		while ((line = in.readLine()) != null) {
+			String command = line.toUpperCase();
+			if (command.startsWith("MAIL FROM") && failuresToSimulate.getAndDecrement() > 0) {
+				reply(out, "451 try again later");
+			} else if (command.startsWith("DATA")) {
+				reply(out, "354 end data with <CR><LF>.<CR><LF>");
+				StringBuilder message = new StringBuilder();
+				while ((line = in.readLine()) != null && !".".equals(line)) {
+					message.append(line).append("\n");
+				}
+				synchronized (messages) {
+					messages.add(message.toString());
+					messages.notifyAll();
+				}
+				reply(out, "250 OK");
+			} else if (command.startsWith("QUIT")) {
+				reply(out, "221 bye");
+				return;
+			} else {
+				reply(out, "250 OK");
+			}
+		}
+	}
+
+	private static void reply(OutputStream out, String line) throws IOException {
+		out.write((line + "\r\n").getBytes(StandardCharsets.UTF_8));
+		out.flush();
+	}
+}
@@ -0,0 +1,106 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileSystemBlobStoreTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private FileSystemBlobStore store;
+
+	private final byte[] content = "0123456789".getBytes(StandardCharsets.UTF_8);
+	private final String digest = DigestUtils.sha256Hex(content);
+
+	@Before
+	public void prepare() throws IOException {
+		store = new FileSystemBlobStore(folder.getRoot().toPath().resolve("blobs"));
+	}
+
+	private String read(long offset, long length) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		store.read(digest, offset, length, Channels.newChannel(out));
+		return out.toString("UTF-8");
+	}
+
+	@Test
+	public void testStoreAndRead() throws IOException {
+		assertFalse(store.contains(digest));
+		store.store(digest, content.length, new ByteArrayInputStream(content));
+		assertTrue(store.contains(digest));
+
+		Path file = store.pathOf(digest);
+		assertEquals(digest.substring(0, 2), file.getParent().getParent().getFileName().toString());
+		assertArrayEquals(content, Files.readAllBytes(file));
+
+		assertEquals("0123456789", read(0, Long.MAX_VALUE));
+		assertEquals("234", read(2, 3));
+		assertEquals("789", read(7, 100));
+		assertEquals("", read(20, 5));
+	}
+
+	@Test
+	public void testStoreTwice() throws IOException {
+		store.store(digest, content.length, new ByteArrayInputStream(content));
+		store.store(digest, content.length, new ByteArrayInputStream(content));
+		assertEquals("0123456789", read(0, Long.MAX_VALUE));
+		assertEquals(1, store.pathOf(digest).getParent().toFile().list().length);
+	}
+
+	@Test
+	public void testStoreWrongSize() throws IOException {
+		try {
+			store.store(digest, 42, new ByteArrayInputStream(content));
+		} catch (IOException e) {
+			assertFalse(store.contains(digest));
+			assertEquals(0, store.pathOf(digest).getParent().toFile().list().length);
+			return;
+		}
+		throw new AssertionError("expected IOException");
+	}
+
+	@Test
+	public void testRemove() throws IOException {
+		store.store(digest, content.length, new ByteArrayInputStream(content));
+		store.remove(digest);
+		assertFalse(store.contains(digest));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidDigest() {
+		store.contains("../../etc/passwd");
+	}
+}
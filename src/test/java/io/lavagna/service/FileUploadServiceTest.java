@@ -0,0 +1,166 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import io.lavagna.config.PersistenceAndServiceConfig;
+import io.lavagna.model.Board;
+import io.lavagna.model.BoardColumn;
+import io.lavagna.model.BoardColumn.BoardColumnLocation;
+import io.lavagna.model.BoardColumnDefinition;
+import io.lavagna.model.Card;
+import io.lavagna.model.FileDataLight;
+import io.lavagna.model.Project;
+import io.lavagna.model.User;
+import io.lavagna.service.FileUploadService.Upload;
+import io.lavagna.service.config.TestServiceConfig;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = { TestServiceConfig.class, PersistenceAndServiceConfig.class })
+@Transactional
+public class FileUploadServiceTest {
+
+	@Autowired
+	private ProjectService projectService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private BoardRepository boardRepository;
+
+	@Autowired
+	private BoardColumnRepository boardColumnRepository;
+
+	@Autowired
+	private CardService cardService;
+
+	@Autowired
+	private CardDataRepository cardDataRepository;
+
+	@Autowired
+	private FileUploadService fileUploadService;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private User user;
+
+	private Card card;
+
+	private static Upload upload(final String name, final String content) {
+		return new Upload() {
+			@Override
+			public String getName() {
+				return name;
+			}
+
+			@Override
+			public String getContentType() {
+				return "text/plain";
+			}
+
+			@Override
+			public InputStream getInputStream() {
+				return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+			}
+		};
+	}
+
+	@Before
+	public void prepare() {
+		Helper.createUser(userRepository, "test", "test-user");
+		user = userRepository.findUserByName("test", "test-user");
+
+		Project project = projectService.create("test", "TEST", "desc");
+		Board board = boardRepository.createNewBoard("test-board", "TEST-BRD", null, project.getId());
+
+		List<BoardColumnDefinition> definitions = projectService.findColumnDefinitionsByProjectId(project.getId());
+		BoardColumn column = boardColumnRepository.addColumnToBoard("col1", definitions.get(0).getId(),
+				BoardColumnLocation.BOARD, board.getId());
+		card = cardService.createCard("card1", column.getId(), new Date(), user);
+	}
+
+	@Test
+	public void testUploadFiles() throws IOException {
+		String first = DigestUtils.sha256Hex("first");
+		String second = DigestUtils.sha256Hex("second content");
+
+		List<String> digests = fileUploadService.uploadFiles(card.getId(),
+				Arrays.asList(upload("a.txt", "first"), upload("b.txt", "second content"), upload("c.txt", "first")),
+				user, new Date());
+		assertEquals(Arrays.asList(first, second), digests);
+
+		List<FileDataLight> files = cardDataRepository.findAllFilesByCardId(card.getId());
+		assertEquals(2, files.size());
+		assertEquals("a.txt", files.get(0).getName());
+		assertEquals(5, files.get(0).getSize());
+		assertEquals(14, files.get(1).getSize());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		cardDataRepository.outputFileContent(second, out);
+		assertEquals("second content", out.toString("UTF-8"));
+
+		// already attached: nothing is added
+		digests = fileUploadService.uploadFiles(card.getId(), Arrays.asList(upload("d.txt", "first")), user,
+				new Date());
+		assertEquals(0, digests.size());
+	}
+
+	@Test
+	public void testConcurrentlyStoredContentKeepsTheTransaction() {
+		byte[] content = "stored twice".getBytes(StandardCharsets.UTF_8);
+		String digest = DigestUtils.sha256Hex(content);
+		cardDataRepository.addUploadContent(digest, content.length, new ByteArrayInputStream(content), "text/plain");
+		try {
+			cardDataRepository.addUploadContentInSavepoint(digest, content.length, new ByteArrayInputStream(content),
+					"text/plain");
+			fail();
+		} catch (DuplicateKeyException e) {
+			// only the savepoint has been rolled back
+		}
+		TransactionStatus status = transactionManager.getTransaction(new DefaultTransactionDefinition());
+		assertFalse(status.isRollbackOnly());
+		transactionManager.commit(status);
+		assertTrue(cardDataRepository.fileExists(digest));
+	}
+}
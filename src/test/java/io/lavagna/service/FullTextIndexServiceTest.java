@@ -0,0 +1,190 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import static java.util.Collections.singletonList;
+import io.lavagna.config.PersistenceAndServiceConfig;
+import io.lavagna.model.Board;
+import io.lavagna.model.BoardColumn;
+import io.lavagna.model.BoardColumn.BoardColumnLocation;
+import io.lavagna.model.BoardColumnDefinition;
+import io.lavagna.model.Card;
+import io.lavagna.model.CardData;
+import io.lavagna.model.ColumnDefinition;
+import io.lavagna.model.Permission;
+import io.lavagna.model.Project;
+import io.lavagna.model.Role;
+import io.lavagna.model.SearchResults;
+import io.lavagna.model.User;
+import io.lavagna.model.UserWithPermission;
+import io.lavagna.query.FullTextIndexQuery;
+import io.lavagna.query.SearchQuery;
+import io.lavagna.service.SearchFilter.FilterType;
+import io.lavagna.service.SearchFilter.SearchFilterValue;
+import io.lavagna.service.SearchFilter.ValueType;
+import io.lavagna.service.config.TestServiceConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = { TestServiceConfig.class, PersistenceAndServiceConfig.class })
+@Transactional
+public class FullTextIndexServiceTest {
+
+	@Autowired
+	private FullTextIndexQuery queries;
+	@Autowired
+	private SearchQuery searchQuery;
+	@Autowired
+	private NamedParameterJdbcTemplate jdbc;
+	@Autowired
+	private UserRepository userRepository;
+	@Autowired
+	private PermissionService permissionService;
+	@Autowired
+	private ProjectService projectService;
+	@Autowired
+	private BoardRepository boardRepository;
+	@Autowired
+	private BoardColumnRepository boardColumnRepository;
+	@Autowired
+	private CardService cardService;
+	@Autowired
+	private CardRepository cardRepository;
+	@Autowired
+	private CardDataService cardDataService;
+
+	private Path snapshot;
+	private FullTextIndexService fullTextIndexService;
+
+	private User user;
+	private BoardColumn column;
+
+	@Before
+	public void prepare() throws IOException {
+		snapshot = Files.createTempFile("lavagna-search-index", ".bin");
+		Files.delete(snapshot);
+		fullTextIndexService = new FullTextIndexService(queries, true, snapshot);
+
+		userRepository.createUser("test", "test", null, null, true);
+		user = userRepository.findUserByName("test", "test");
+
+		Project project = projectService.create("test index", "TEST-IDX", "desc");
+		Board board = boardRepository.createNewBoard("TEST-IDX", "TEST-IDX", "desc", project.getId());
+		for (BoardColumnDefinition bcd : projectService.findColumnDefinitionsByProjectId(project.getId())) {
+			if (bcd.getValue() == ColumnDefinition.OPEN) {
+				column = boardColumnRepository.addColumnToBoard("test", bcd.getId(), BoardColumnLocation.BOARD,
+						board.getId());
+			}
+		}
+	}
+
+	@After
+	public void cleanup() throws IOException {
+		Files.deleteIfExists(snapshot);
+	}
+
+	@Test
+	public void testNotLoaded() {
+		Assert.assertNull(fullTextIndexService.findCardIds("test"));
+	}
+
+	@Test
+	public void testDisabled() throws IOException {
+		FullTextIndexService disabled = new FullTextIndexService(queries, false, null);
+		disabled.load();
+		Assert.assertNull(disabled.findCardIds("test"));
+	}
+
+	@Test
+	public void testFollowTheEvents() throws IOException {
+		Card before = cardService.createCard("indexed at rebuild", column.getId(), new Date(), user);
+		fullTextIndexService.load();
+		Assert.assertEquals(Collections.singleton(before.getId()), fullTextIndexService.findCardIds("rebuild"));
+
+		Card card = cardService.createCard("quarterly report", column.getId(), new Date(), user);
+		CardData comment = cardDataService.createComment(card.getId(), "needs the Übersicht", new Date(), user);
+		Assert.assertEquals(Collections.singleton(card.getId()), fullTextIndexService.findCardIds("report"));
+		Assert.assertEquals(Collections.singleton(card.getId()), fullTextIndexService.findCardIds("ubersicht"));
+
+		cardDataService.updateComment(comment.getId(), "done", new Date(), user);
+		Assert.assertTrue(fullTextIndexService.findCardIds("ubersicht").isEmpty());
+
+		cardDataService.deleteComment(comment.getId(), user, new Date());
+		Assert.assertTrue(fullTextIndexService.findCardIds("done").isEmpty());
+
+		cardService.updateCard(card.getId(), "yearly report", user, new Date());
+		Assert.assertTrue(fullTextIndexService.findCardIds("quarterly").isEmpty());
+		Assert.assertEquals(Collections.singleton(card.getId()), fullTextIndexService.findCardIds("yearly"));
+	}
+
+	@Test
+	public void testSnapshot() throws IOException {
+		Card card = cardService.createCard("saved in the snapshot", column.getId(), new Date(), user);
+		fullTextIndexService.load();
+		fullTextIndexService.destroy();
+		Assert.assertTrue(Files.exists(snapshot));
+
+		FullTextIndexService loaded = new FullTextIndexService(queries, true, snapshot);
+		loaded.load();
+		Card after = cardService.createCard("created after the snapshot", column.getId(), new Date(), user);
+		Assert.assertEquals(Collections.singleton(card.getId()), loaded.findCardIds("saved"));
+		Assert.assertEquals(Collections.singleton(after.getId()), loaded.findCardIds("after"));
+	}
+
+	@Test
+	public void testSearchWithTheIndex() throws IOException {
+		Role r = new Role("TEST");
+		permissionService.createRole(r);
+		permissionService.updatePermissionsToRole(r, EnumSet.of(Permission.READ));
+		permissionService.assignRolesToUsers(Collections.singletonMap(r, Collections.singleton(user.getId())));
+		UserWithPermission userWithPermissions = new UserWithPermission(user,
+				permissionService.findBasePermissionByUserId(user.getId()),
+				Collections.<String, Set<Permission>>emptyMap(), Collections.<Integer, Set<Permission>>emptyMap());
+
+		SearchService searchService = new SearchService(cardRepository, cardService, userRepository,
+				projectService, boardRepository, jdbc, searchQuery, fullTextIndexService);
+		fullTextIndexService.load();
+
+		SearchFilter fts = new SearchFilter(FilterType.FREETEXT, null, new SearchFilterValue(ValueType.STRING,
+				"indexed"));
+		Assert.assertEquals(0, searchService.find(singletonList(fts), null, null, userWithPermissions, 0)
+				.getCount());
+
+		Card card = cardService.createCard("indexed card", column.getId(), new Date(), user);
+		SearchResults found = searchService.find(singletonList(fts), null, null, userWithPermissions, 0);
+		Assert.assertEquals(1, found.getCount());
+		Assert.assertEquals(card.getId(), found.getFound().get(0).getId());
+	}
+}
@@ -0,0 +1,98 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FullTextIndexTest {
+
+	private FullTextIndex index;
+
+	@Before
+	public void prepare() {
+		index = new FullTextIndex();
+		index.put(1, 11, asList("Fix the login page", "The button is misaligned"));
+		index.put(2, 12, asList("Login with LDAP", "Überprüfen: café"));
+		index.put(3, 112, singletonList("Unrelated"));
+	}
+
+	@Test
+	public void testTokenize() {
+		Assert.assertEquals(new HashSet<>(asList("uberprufen", "cafe", "a1")),
+				FullTextIndex.tokenize("Überprüfen: café, a1... café"));
+	}
+
+	@Test
+	public void testSearchByPrefix() {
+		Assert.assertEquals(new HashSet<>(asList(1, 2)), index.search("log"));
+		Assert.assertEquals(Collections.singleton(1), index.search("login fix"));
+		Assert.assertEquals(Collections.singleton(2), index.search("CAFE uber"));
+		Assert.assertEquals(Collections.emptySet(), index.search("nothing"));
+	}
+
+	@Test
+	public void testAllTheWordsMustBeInTheSameField() {
+		Assert.assertEquals(Collections.emptySet(), index.search("login misaligned"));
+	}
+
+	@Test
+	public void testSearchBySequenceNumber() {
+		Assert.assertEquals(new HashSet<>(asList(1, 3)), index.search("11"));
+		Assert.assertEquals(Collections.singleton(3), index.search("112"));
+	}
+
+	@Test
+	public void testPutReplacesAndRemove() {
+		index.put(1, 11, singletonList("Fix the logout page"));
+		Assert.assertEquals(Collections.singleton(2), index.search("login"));
+		Assert.assertEquals(Collections.singleton(1), index.search("logout"));
+
+		index.remove(2);
+		Assert.assertEquals(Collections.emptySet(), index.search("ldap"));
+		Assert.assertEquals(2, index.size());
+
+		// the ids of the removed fields are reused
+		index.put(4, 14, singletonList("login again"));
+		Assert.assertEquals(Collections.singleton(4), index.search("login"));
+	}
+
+	@Test
+	public void testSnapshot() throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(os)) {
+			index.writeTo(out);
+		}
+
+		FullTextIndex read = FullTextIndex.readFrom(new DataInputStream(new ByteArrayInputStream(os.toByteArray())));
+		Assert.assertEquals(3, read.size());
+		Assert.assertEquals(index.search("log"), read.search("log"));
+		Assert.assertEquals(index.search("11"), read.search("11"));
+	}
+}
@@ -18,7 +18,10 @@ package io.lavagna.service;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.after;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import io.lavagna.config.PersistenceAndServiceConfig;
@@ -35,18 +38,33 @@ import io.lavagna.model.CardLabelValue;
 import io.lavagna.model.MailConfig;
 import io.lavagna.model.Project;
 import io.lavagna.model.User;
+import io.lavagna.query.NotificationQuery;
+import io.lavagna.service.AsyncMailSender.PreparedMail;
 import io.lavagna.service.config.TestServiceConfig;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
 
 @RunWith(SpringJUnit4ClassRunner.class)
 @ContextConfiguration(classes = { TestServiceConfig.class, PersistenceAndServiceConfig.class })
@@ -89,6 +107,15 @@ public class NotificationServiceTest {
 	@Autowired
 	private CardLabelRepository cardLabelRepository;
 
+	@Autowired
+	private AsyncMailSender asyncMailSender;
+
+	@Autowired
+	private NamedParameterJdbcTemplate jdbc;
+
+	@Autowired
+	private NotificationQuery queries;
+
 	private Board board;
 
 	private BoardColumn col1;
@@ -144,9 +171,11 @@ public class NotificationServiceTest {
 		MailConfig mc = mock(MailConfig.class);
 		when(mc.isMinimalConfigurationPresent()).thenReturn(true);
 		when(mc.getFrom()).thenReturn("from@lavagna.io");
-		notificationService.notifyUser(user.getId(), new Date(), true, mc);
+		notificationService.notifyUsers(Collections.singleton(user.getId()), new Date(), true, mc);
+		verify(mc, never()).send(any(String.class), any(String.class), any(String.class), any(String.class));
+		TransactionSynchronizationUtils.triggerAfterCommit();
 
-		verify(mc).send(
+		verify(mc, timeout(5000)).send(
 				eq("test@test.test"),
 				eq("Lavagna: TEST-BRD-1, TEST-BRD-2"),
 				any(String.class), any(String.class));
@@ -161,4 +190,89 @@ public class NotificationServiceTest {
 //				+ "User display name <test@test.test> has added the comment:\n"
 //				+ "first comment on card 2\n\n\n\n")
 	}
+
+	@Test
+	public void sendEmailToMultipleUsersTest() throws Exception {
+
+		userRepository.createUser("test", "test-user-2", "test2@test.test", "display name 2", true);
+		User user2 = userRepository.findUserByName("test", "test-user-2");
+
+		labelService.addLabelValueToCard(assignedLabel.getId(), card1.getId(), new CardLabelValue.LabelValue(null,
+				null, null, null, user.getId(), null), user, new Date());
+		labelService.addLabelValueToCard(watchedLabel.getId(), card1.getId(), new CardLabelValue.LabelValue(null,
+				null, null, null, user2.getId(), null), user2, new Date());
+
+		cardDataService.createComment(card1.getId(), "first comment", new Date(), user);
+
+		try (FakeSmtpServer smtpServer = new FakeSmtpServer()) {
+			MailConfig mc = new MailConfig("localhost", smtpServer.getPort(), "smtp", null, null, "from@lavagna.io",
+					null);
+			notificationService.notifyUsers(new HashSet<>(Arrays.asList(user.getId(), user2.getId())), new Date(),
+					true, mc);
+			TransactionSynchronizationUtils.triggerAfterCommit();
+
+			List<String> messages = smtpServer.waitForMessages(2, 10000);
+			Assert.assertEquals(2, messages.size());
+			for (String message : messages) {
+				Assert.assertTrue(message.contains("Subject: Lavagna: TEST-BRD-1"));
+			}
+		}
+	}
+
+	private MailConfig assignCardAndMockMailConfig() {
+		labelService.addLabelValueToCard(assignedLabel.getId(), card1.getId(), new CardLabelValue.LabelValue(null,
+				null, null, null, user.getId(), null), user, new Date());
+		cardDataService.createComment(card1.getId(), "first comment", new Date(), user);
+
+		MailConfig mc = mock(MailConfig.class);
+		when(mc.isMinimalConfigurationPresent()).thenReturn(true);
+		when(mc.getFrom()).thenReturn("from@lavagna.io");
+		return mc;
+	}
+
+	private Date lastEmailSent() {
+		return jdbc.queryForObject(queries.lastEmailSentForUsers(),
+				new MapSqlParameterSource("userIds", Collections.singleton(user.getId())), new RowMapper<Date>() {
+					@Override
+					public Date mapRow(ResultSet rs, int rowNum) throws SQLException {
+						return rs.getTimestamp("USER_LAST_EMAIL_SENT");
+					}
+				});
+	}
+
+	@Test
+	public void notSentOnRollbackTest() {
+		MailConfig mc = assignCardAndMockMailConfig();
+		notificationService.notifyUsers(Collections.singleton(user.getId()), new Date(), true, mc);
+
+		TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+				TransactionSynchronization.STATUS_ROLLED_BACK);
+
+		verify(mc, after(500).never()).send(any(String.class), any(String.class), any(String.class),
+				any(String.class));
+	}
+
+	@Test
+	public void sentDateNotUpdatedWhenTheQueueIsFullTest() {
+		MailConfig mc = assignCardAndMockMailConfig();
+
+		List<PreparedMail> fillers = new ArrayList<>();
+		try {
+			for (PreparedMail m = asyncMailSender.prepare(mc, "filler@lavagna.io", "", "", null); m != null; m = asyncMailSender
+					.prepare(mc, "filler@lavagna.io", "", "", null)) {
+				fillers.add(m);
+			}
+
+			notificationService.notifyUsers(Collections.singleton(user.getId()), new Date(), true, mc);
+			Assert.assertNull(lastEmailSent());
+		} finally {
+			for (PreparedMail m : fillers) {
+				m.discard();
+			}
+		}
+
+		Date upTo = new Date();
+		notificationService.notifyUsers(Collections.singleton(user.getId()), upTo, true, mc);
+		Assert.assertEquals(upTo.getTime(), lastEmailSent().getTime());
+	}
 }
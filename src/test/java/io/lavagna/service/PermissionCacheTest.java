@@ -0,0 +1,115 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.config.PersistenceAndServiceConfig;
+import io.lavagna.model.CacheStatistics;
+import io.lavagna.model.Permission;
+import io.lavagna.model.Role;
+import io.lavagna.model.User;
+import io.lavagna.model.UserWithPermission;
+import io.lavagna.service.config.TestServiceConfig;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = { TestServiceConfig.class, PersistenceAndServiceConfig.class })
+@Transactional
+public class PermissionCacheTest {
+
+	@Autowired
+	private PermissionCache permissionCache;
+
+	@Autowired
+	private CacheVersionRepository cacheVersionRepository;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private PermissionService permissionService;
+
+	private User user;
+
+	@Before
+	public void prepare() {
+		userRepository.createUser("test", "test-permission-cache", null, null, true);
+		user = userRepository.findUserByName("test", "test-permission-cache");
+	}
+
+	@Test
+	public void testCachedAfterFirstLoad() {
+		UserWithPermission first = userService.findUserWithPermission(user.getId());
+		CacheStatistics before = permissionCache.getCacheStatistics();
+		Assert.assertSame(first, userService.findUserWithPermission(user.getId()));
+		Assert.assertEquals(before.getHits() + 1, permissionCache.getCacheStatistics().getHits());
+	}
+
+	@Test
+	public void testModificationInTransactionIsVisible() {
+		Assert.assertTrue(userService.findUserWithPermission(user.getId()).getBasePermissions().isEmpty());
+
+		permissionService.createRole(new Role("CACHE_TEST"));
+		permissionService.updatePermissionsToRole(new Role("CACHE_TEST"), EnumSet.of(Permission.READ));
+		permissionService.assignRoleToUsers(new Role("CACHE_TEST"), Collections.singleton(user.getId()));
+
+		Assert.assertTrue(userService.findUserWithPermission(user.getId()).getBasePermissions()
+				.containsKey(Permission.READ));
+	}
+
+	@Test
+	public void testEpochChangedByAnotherNode() {
+		PermissionCache otherNode = new PermissionCache(cacheVersionRepository, 0);
+		UserWithPermission uwp = new UserWithPermission(user, Collections.<Permission> emptySet(),
+				Collections.<String, Set<Permission>> emptyMap(), Collections.<Integer, Set<Permission>> emptyMap());
+
+		otherNode.put(uwp, otherNode.currentEpoch());
+		Assert.assertSame(uwp, otherNode.get(user.getId()));
+
+		// what another node does
+		cacheVersionRepository.increment(PermissionCache.CACHE_NAME);
+
+		Assert.assertNull(otherNode.get(user.getId()));
+	}
+
+	@Test
+	public void testStaleLoadIsIgnored() {
+		PermissionCache cache = new PermissionCache(cacheVersionRepository, Long.MAX_VALUE);
+		UserWithPermission uwp = new UserWithPermission(user, Collections.<Permission> emptySet(),
+				Collections.<String, Set<Permission>> emptyMap(), Collections.<Integer, Set<Permission>> emptyMap());
+
+		long epoch = cache.currentEpoch();
+		cache.put(uwp, epoch - 1);
+		Assert.assertNull(cache.get(user.getId()));
+		cache.put(uwp, epoch);
+		Assert.assertSame(uwp, cache.get(user.getId()));
+	}
+}
@@ -0,0 +1,187 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.config.PersistenceAndServiceConfig;
+import io.lavagna.model.Board;
+import io.lavagna.model.BoardColumn;
+import io.lavagna.model.BoardColumn.BoardColumnLocation;
+import io.lavagna.model.BoardColumnDefinition;
+import io.lavagna.model.Card;
+import io.lavagna.model.CardData;
+import io.lavagna.model.CardLabel;
+import io.lavagna.model.CardLabel.LabelDomain;
+import io.lavagna.model.CardLabel.LabelType;
+import io.lavagna.model.CardLabelValue;
+import io.lavagna.model.CardLabelValue.LabelValue;
+import io.lavagna.model.Project;
+import io.lavagna.model.User;
+import io.lavagna.service.RelatedProjectResolver.ResourceType;
+import io.lavagna.service.config.TestServiceConfig;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = { TestServiceConfig.class, PersistenceAndServiceConfig.class })
+@Transactional
+public class RelatedProjectResolverTest {
+
+	@Autowired
+	private RelatedProjectResolver relatedProjectResolver;
+
+	@Autowired
+	private ProjectService projectService;
+	@Autowired
+	private BoardRepository boardRepository;
+	@Autowired
+	private BoardColumnRepository boardColumnRepository;
+	@Autowired
+	private CardService cardService;
+	@Autowired
+	private CardRepository cardRepository;
+	@Autowired
+	private UserRepository userRepository;
+	@Autowired
+	private CardDataService cardDataService;
+	@Autowired
+	private CardLabelRepository cardLabelRepository;
+
+	private Project project;
+	private Board board;
+	private BoardColumn column;
+	private BoardColumnDefinition definition;
+	private Card card;
+	private CardData cardData;
+	private CardLabel cardLabel;
+	private CardLabelValue cardLabelValue;
+
+	@Before
+	public void prepare() {
+		project = projectService.create("test-resolver", "TESTRSLV", "desc");
+		boardRepository.createNewBoard("test", "TESTRSLV", "desc", project.getId());
+		board = boardRepository.findBoardByShortName("TESTRSLV");
+
+		definition = projectService.findColumnDefinitionsByProjectId(project.getId()).get(0);
+		column = boardColumnRepository.addColumnToBoard("test", definition.getId(), BoardColumnLocation.BOARD,
+				board.getId());
+
+		Helper.createUser(userRepository, "test", "test-resolver");
+		User user = userRepository.findUserByName("test", "test-resolver");
+
+		card = cardService.createCard("test", column.getId(), new Date(), user);
+		cardData = cardDataService.createComment(card.getId(), "comment", new Date(), user);
+
+		cardLabel = cardLabelRepository.addLabel(project.getId(), false, LabelType.STRING, LabelDomain.USER, "test",
+				0xffffff);
+		cardLabelRepository.addLabelValueToCard(cardLabel, card.getId(), new LabelValue("test"));
+		cardLabelValue = cardLabelRepository.findCardLabelValuesByBoardId(board.getId(), BoardColumnLocation.BOARD)
+				.get(card.getId()).get(cardLabel).get(0);
+	}
+
+	private static Map<ResourceType, Set<String>> resources(ResourceType type, String... ids) {
+		Map<ResourceType, Set<String>> res = new EnumMap<>(ResourceType.class);
+		res.put(type, new HashSet<>(Arrays.asList(ids)));
+		return res;
+	}
+
+	@Test
+	public void testFindNothing() {
+		Map<ResourceType, Set<String>> res = resources(ResourceType.BOARD, "HAHA-SHORT");
+		res.putAll(resources(ResourceType.CARD, Integer.toString(Integer.MAX_VALUE), "not-a-number"));
+		res.putAll(resources(ResourceType.LABEL_VALUE, Integer.toString(Integer.MAX_VALUE)));
+		Assert.assertTrue(relatedProjectResolver.findRelatedProjectShortNames(res).isEmpty());
+	}
+
+	@Test
+	public void testFindAllTypesInOneCall() {
+		Map<ResourceType, Set<String>> res = resources(ResourceType.BOARD, board.getShortName());
+		res.putAll(resources(ResourceType.CARD, Integer.toString(card.getId())));
+		res.putAll(resources(ResourceType.COLUMN, Integer.toString(column.getId())));
+		res.putAll(resources(ResourceType.CARD_DATA, Integer.toString(cardData.getId())));
+		res.putAll(resources(ResourceType.LABEL, Integer.toString(cardLabel.getId())));
+		res.putAll(resources(ResourceType.LABEL_VALUE, Integer.toString(cardLabelValue.getCardLabelValueId())));
+		res.putAll(resources(ResourceType.COLUMN_DEFINITION, Integer.toString(definition.getId())));
+		res.putAll(resources(ResourceType.PROJECT, "OTHER"));
+
+		Assert.assertEquals(new HashSet<>(Arrays.asList(project.getShortName(), "OTHER")),
+				relatedProjectResolver.findRelatedProjectShortNames(res));
+	}
+
+	@Test
+	public void testCacheHit() {
+		Map<ResourceType, Set<String>> res = resources(ResourceType.COLUMN, Integer.toString(column.getId()));
+		Assert.assertEquals(Collections.singleton(project.getShortName()),
+				relatedProjectResolver.findRelatedProjectShortNames(res));
+
+		long hits = relatedProjectResolver.getCacheStatistics().getHits();
+		Assert.assertEquals(Collections.singleton(project.getShortName()),
+				relatedProjectResolver.findRelatedProjectShortNames(res));
+		Assert.assertEquals(hits + 1, relatedProjectResolver.getCacheStatistics().getHits());
+	}
+
+	@Test
+	public void testCardMovedWithinTheProjectKeepsTheCache() {
+		Map<ResourceType, Set<String>> res = resources(ResourceType.CARD, Integer.toString(card.getId()));
+		relatedProjectResolver.findRelatedProjectShortNames(res);
+
+		BoardColumn otherColumn = boardColumnRepository.addColumnToBoard("other", definition.getId(),
+				BoardColumnLocation.BOARD, board.getId());
+		cardRepository.moveCardToColumn(card.getId(), column.getId(), otherColumn.getId());
+
+		long hits = relatedProjectResolver.getCacheStatistics().getHits();
+		Assert.assertEquals(Collections.singleton(project.getShortName()),
+				relatedProjectResolver.findRelatedProjectShortNames(res));
+		Assert.assertEquals(hits + 1, relatedProjectResolver.getCacheStatistics().getHits());
+	}
+
+	@Test
+	public void testCardMovedToAnotherProject() {
+		Map<ResourceType, Set<String>> res = resources(ResourceType.CARD, Integer.toString(card.getId()));
+		res.putAll(resources(ResourceType.CARD_DATA, Integer.toString(cardData.getId())));
+		Assert.assertEquals(Collections.singleton(project.getShortName()),
+				relatedProjectResolver.findRelatedProjectShortNames(res));
+
+		Project otherProject = projectService.create("test-resolver-other", "TESTRSLO", "desc");
+		boardRepository.createNewBoard("test", "TESTRSLB", "desc", otherProject.getId());
+		Board otherBoard = boardRepository.findBoardByShortName("TESTRSLB");
+		List<BoardColumnDefinition> definitions = projectService.findColumnDefinitionsByProjectId(otherProject
+				.getId());
+		BoardColumn otherColumn = boardColumnRepository.addColumnToBoard("test", definitions.get(0).getId(),
+				BoardColumnLocation.BOARD, otherBoard.getId());
+
+		cardRepository.moveCardToColumn(card.getId(), column.getId(), otherColumn.getId());
+
+		Assert.assertEquals(Collections.singleton(otherProject.getShortName()),
+				relatedProjectResolver.findRelatedProjectShortNames(res));
+	}
+}
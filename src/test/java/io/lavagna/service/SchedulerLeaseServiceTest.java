@@ -0,0 +1,89 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.config.PersistenceAndServiceConfig;
+import io.lavagna.query.SchedulerLeaseQuery;
+import io.lavagna.service.config.TestServiceConfig;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = { TestServiceConfig.class, PersistenceAndServiceConfig.class })
+@Transactional
+public class SchedulerLeaseServiceTest {
+
+	@Autowired
+	private SchedulerLeaseQuery queries;
+
+	private SchedulerLeaseService node1;
+	private SchedulerLeaseService node2;
+
+	@Before
+	public void prepare() {
+		node1 = new SchedulerLeaseService(queries, 60 * 1000);
+		node2 = new SchedulerLeaseService(queries, 60 * 1000);
+	}
+
+	@Test
+	public void testOnlyOneHolder() {
+		Assert.assertFalse(node1.isHeld("notification"));
+
+		Assert.assertTrue(node1.renew("notification"));
+		Assert.assertFalse(node2.renew("notification"));
+		Assert.assertTrue(node1.renew("notification"));
+
+		Assert.assertTrue(node1.isHeld("notification"));
+		Assert.assertFalse(node2.isHeld("notification"));
+	}
+
+	@Test
+	public void testLeasesAreIndependent() {
+		Assert.assertTrue(node1.renew("notification"));
+		Assert.assertTrue(node2.renew("statistics"));
+
+		Assert.assertFalse(node1.isHeld("statistics"));
+		Assert.assertFalse(node2.isHeld("notification"));
+	}
+
+	@Test
+	public void testTakeOverExpired() throws InterruptedException {
+		SchedulerLeaseService shortLived = new SchedulerLeaseService(queries, 1);
+		Assert.assertTrue(shortLived.renew("notification"));
+		Thread.sleep(10);
+
+		Assert.assertFalse(shortLived.isHeld("notification"));
+		Assert.assertTrue(node2.renew("notification"));
+		Assert.assertFalse(shortLived.renew("notification"));
+	}
+
+	@Test
+	public void testRelease() {
+		Assert.assertTrue(node1.renew("notification"));
+		node1.release();
+
+		Assert.assertFalse(node1.isHeld("notification"));
+		Assert.assertTrue(node2.renew("notification"));
+	}
+}
@@ -0,0 +1,323 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import static io.lavagna.service.SearchFilter.filter;
+import io.lavagna.config.PersistenceAndServiceConfig;
+import io.lavagna.model.Board;
+import io.lavagna.model.BoardColumn;
+import io.lavagna.model.BoardColumn.BoardColumnLocation;
+import io.lavagna.model.BoardColumnDefinition;
+import io.lavagna.model.Card;
+import io.lavagna.model.CardFullWithCounts;
+import io.lavagna.model.CardLabel;
+import io.lavagna.model.CardLabel.LabelDomain;
+import io.lavagna.model.CardLabel.LabelType;
+import io.lavagna.model.CardLabelValue.LabelValue;
+import io.lavagna.model.ColumnDefinition;
+import io.lavagna.model.Permission;
+import io.lavagna.model.Project;
+import io.lavagna.model.Role;
+import io.lavagna.model.SearchResults;
+import io.lavagna.model.User;
+import io.lavagna.model.UserWithPermission;
+import io.lavagna.service.PermissionService.ProjectRoleAndPermissionFullHolder;
+import io.lavagna.service.SearchFilter.FilterType;
+import io.lavagna.service.SearchFilter.SearchFilterValue;
+import io.lavagna.service.SearchFilter.ValueType;
+import io.lavagna.service.SearchService.SearchPlan;
+import io.lavagna.service.config.TestServiceConfig;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang3.time.DateUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Check that {@link SearchPlan#PREDICATES} and {@link SearchPlan#UNION_ALL} return the same results.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = { TestServiceConfig.class, PersistenceAndServiceConfig.class })
+@Transactional
+public class SearchServicePlanParityTest {
+
+	@Autowired
+	private Environment env;
+
+	@Autowired
+	private SearchService searchService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private PermissionService permissionService;
+
+	@Autowired
+	private ProjectService projectService;
+
+	@Autowired
+	private BoardRepository boardRepository;
+
+	@Autowired
+	private BoardColumnRepository boardColumnRepository;
+
+	@Autowired
+	private CardService cardService;
+
+	@Autowired
+	private CardDataService cardDataService;
+
+	@Autowired
+	private CardLabelRepository cardLabelRepository;
+
+	@Autowired
+	private MySqlFullTextSupportService mySqlFullTextSupportService;
+
+	private UserWithPermission globalReader;
+	private UserWithPermission projectReader;
+
+	private Project project;
+	private Board board;
+
+	@Before
+	public void prepare() {
+		Helper.createUser(userRepository, "test", "test");
+		Helper.createUser(userRepository, "test", "test2");
+		User user = userRepository.findUserByName("test", "test");
+		User user2 = userRepository.findUserByName("test", "test2");
+
+		Role r = new Role("TEST");
+		permissionService.createRole(r);
+		permissionService.updatePermissionsToRole(r, EnumSet.of(Permission.READ));
+		permissionService.assignRolesToUsers(Collections.singletonMap(r, Collections.singleton(user.getId())));
+
+		globalReader = new UserWithPermission(user, permissionService.findBasePermissionByUserId(user.getId()),
+				Collections.<String, Set<Permission>>emptyMap(), Collections.<Integer, Set<Permission>>emptyMap());
+
+		project = projectService.create("test search", "TEST-SRC", "desc");
+		board = boardRepository.createNewBoard("TEST-SEARCH", "TEST-SRC", "desc", project.getId());
+		Project project2 = projectService.create("test search 2", "TEST-SR2", "desc");
+		Board board2 = boardRepository.createNewBoard("TEST-SEARCH2", "TEST-SR2", "desc", project2.getId());
+		Board board3 = boardRepository.createNewBoard("TEST-SEARCH3", "TEST-SR3", "desc", project.getId());
+
+		Role projectRole = new Role("READ");
+		permissionService.createRoleInProjectId(projectRole, project2.getId());
+		permissionService.assignRoleToUsersInProjectId(projectRole, Collections.singleton(user2.getId()),
+				project2.getId());
+		permissionService.updatePermissionsToRoleInProjectId(projectRole, EnumSet.of(Permission.READ),
+				project2.getId());
+		ProjectRoleAndPermissionFullHolder holder = permissionService.findPermissionsGroupedByProjectForUserId(user2
+				.getId());
+		projectReader = new UserWithPermission(user2, EnumSet.noneOf(Permission.class),
+				holder.getPermissionsByProject(), holder.getPermissionsByProjectId());
+
+		List<BoardColumn> columns = new ArrayList<>();
+		for (Board b : Arrays.asList(board, board2, board3)) {
+			for (BoardColumnDefinition bcd : projectService.findColumnDefinitionsByProjectId(b.getProjectId())) {
+				columns.add(boardColumnRepository.addColumnToBoard("col " + bcd.getId(), bcd.getId(),
+						BoardColumnLocation.BOARD, b.getId()));
+			}
+			columns.add(boardColumnRepository.findDefaultColumnFor(b.getId(), BoardColumnLocation.ARCHIVE));
+			columns.add(boardColumnRepository.findDefaultColumnFor(b.getId(), BoardColumnLocation.BACKLOG));
+		}
+		boardRepository.updateBoard(board3.getId(), board3.getName(), board3.getDescription(), true);
+
+		Date yesterday = DateUtils.addDays(new Date(), -1);
+		for (int i = 0; i < columns.size() * 2; i++) {
+			BoardColumn column = columns.get(i % columns.size());
+			User creator = i % 3 == 0 ? user2 : user;
+			Card card = cardService.createCard("card " + i + (i % 4 == 0 ? " needle" : ""), column.getId(),
+					i % 5 == 0 ? yesterday : new Date(), creator);
+			int projectId = boardRepository.findBoardById(column.getBoardId()).getProjectId();
+			decorate(projectId, card, i, user, user2);
+		}
+
+		if ("MYSQL".equals(env.getProperty("datasource.dialect"))) {
+			while (mySqlFullTextSupportService.sync() > 0) {
+			}
+		}
+	}
+
+	private void decorate(int projectId, Card card, int i, User user, User user2) {
+		if (i % 2 == 0) {
+			CardLabel assigned = cardLabelRepository.findLabelByName(projectId, "ASSIGNED", LabelDomain.SYSTEM);
+			cardLabelRepository.addLabelValueToCard(assigned, card.getId(), new LabelValue(user.getId()));
+		}
+		if (i % 3 == 0) {
+			CardLabel watched = cardLabelRepository.findLabelByName(projectId, "WATCHED_BY", LabelDomain.SYSTEM);
+			cardLabelRepository.addLabelValueToCard(watched, card.getId(), new LabelValue(user2.getId()));
+		}
+		if (i % 4 == 1) {
+			CardLabel milestone = cardLabelRepository.findLabelByName(projectId, "MILESTONE", LabelDomain.SYSTEM);
+			List<Integer> values = new ArrayList<>();
+			if (cardLabelRepository.findListValuesByLabelId(milestone.getId()).isEmpty()) {
+				cardLabelRepository.addLabelListValue(milestone.getId(), "1.0");
+			}
+			values.add(cardLabelRepository.findListValuesByLabelId(milestone.getId()).get(0).getId());
+			cardLabelRepository.addLabelValueToCard(milestone, card.getId(), new LabelValue(null, null, null, null,
+					null, values.get(0)));
+		}
+		if (i % 5 == 2) {
+			CardLabel dueDate = cardLabelRepository.findLabelByName(projectId, "DUE_DATE", LabelDomain.SYSTEM);
+			cardLabelRepository.addLabelValueToCard(dueDate, card.getId(), new LabelValue(new Date()));
+		}
+		if (i % 3 == 1) {
+			CardLabel bug = label(projectId, "bug", LabelType.NULL);
+			cardLabelRepository.addLabelValueToCard(bug, card.getId(), new LabelValue());
+		}
+		if (i % 4 == 2) {
+			CardLabel priority = label(projectId, "priority", LabelType.STRING);
+			cardLabelRepository.addLabelValueToCard(priority, card.getId(), new LabelValue(i % 8 == 2 ? "high"
+					: "low"));
+		}
+		if (i % 6 == 5) {
+			cardDataService.createComment(card.getId(), "a comment with a needle", new Date(), user);
+		}
+	}
+
+	private CardLabel label(int projectId, String name, LabelType type) {
+		List<CardLabel> labels = cardLabelRepository.findLabelsByName(projectId, name, LabelDomain.USER);
+		if (labels.isEmpty()) {
+			return cardLabelRepository.addLabel(projectId, false, type, LabelDomain.USER, name, 0);
+		}
+		return labels.get(0);
+	}
+
+	private static SearchFilter userLabel(String name, String value) {
+		return new SearchFilter(FilterType.USER_LABEL, name, value == null ? null : new SearchFilterValue(
+				ValueType.STRING, value));
+	}
+
+	private static List<List<SearchFilter>> filters() {
+		SearchFilter me = filter(FilterType.CREATED_BY, ValueType.CURRENT_USER, "me");
+		SearchFilter createdByTest2 = filter(FilterType.CREATED_BY, ValueType.STRING, "test:test2");
+		SearchFilter assignedToTest = filter(FilterType.ASSIGNED, ValueType.STRING, "test:test");
+		SearchFilter assignedToMe = filter(FilterType.ASSIGNED, ValueType.CURRENT_USER, "me");
+		SearchFilter unassigned = filter(FilterType.ASSIGNED, ValueType.UNASSIGNED, null);
+		SearchFilter watchedByTest2 = filter(FilterType.WATCHED_BY, ValueType.STRING, "test:test2");
+		SearchFilter notWatched = filter(FilterType.WATCHED_BY, ValueType.UNASSIGNED, null);
+		SearchFilter milestone = filter(FilterType.MILESTONE, ValueType.STRING, "1.0");
+		SearchFilter noMilestone = filter(FilterType.MILESTONE, ValueType.UNASSIGNED, null);
+		SearchFilter dueToday = filter(FilterType.DUE_DATE, ValueType.DATE_IDENTIFIER, "today");
+		SearchFilter dueLate = filter(FilterType.DUE_DATE, ValueType.DATE_IDENTIFIER, "late");
+		SearchFilter open = filter(FilterType.STATUS, ValueType.STRING, ColumnDefinition.OPEN.toString());
+		SearchFilter closed = filter(FilterType.STATUS, ValueType.STRING, ColumnDefinition.CLOSED.toString());
+		SearchFilter inBoard = filter(FilterType.LOCATION, ValueType.STRING, BoardColumnLocation.BOARD.toString());
+		SearchFilter inArchive = filter(FilterType.LOCATION, ValueType.STRING,
+				BoardColumnLocation.ARCHIVE.toString());
+		SearchFilter notArchivedBoard = filter(FilterType.BOARD_STATUS, ValueType.BOOLEAN, Boolean.FALSE);
+		SearchFilter createdToday = filter(FilterType.CREATED, ValueType.DATE_IDENTIFIER, "today");
+		SearchFilter createdYesterday = filter(FilterType.CREATED, ValueType.DATE_IDENTIFIER, "yesterday");
+		SearchFilter updatedThisMonth = filter(FilterType.UPDATED, ValueType.DATE_IDENTIFIER, "last month");
+		SearchFilter updatedByMe = filter(FilterType.UPDATED_BY, ValueType.CURRENT_USER, "me");
+		SearchFilter updatedByUnknown = filter(FilterType.UPDATED_BY, ValueType.STRING, "test:unknown");
+		SearchFilter freeText = filter(FilterType.FREETEXT, ValueType.STRING, "needle");
+
+		List<List<SearchFilter>> res = new ArrayList<>();
+		for (SearchFilter sf : Arrays.asList(me, createdByTest2, assignedToTest, assignedToMe, unassigned,
+				watchedByTest2, notWatched, milestone, noMilestone, dueToday, dueLate, open, closed, inBoard,
+				inArchive, notArchivedBoard, createdToday, createdYesterday, updatedThisMonth, updatedByMe,
+				updatedByUnknown, freeText, userLabel("bug", null), userLabel("priority", "high"),
+				userLabel("priority", "low"), userLabel("missing", null))) {
+			res.add(Collections.singletonList(sf));
+		}
+
+		res.add(Arrays.asList(open, inBoard, notArchivedBoard));
+		res.add(Arrays.asList(closed, inBoard));
+		res.add(Arrays.asList(me, assignedToTest, open));
+		res.add(Arrays.asList(unassigned, notWatched, inBoard));
+		res.add(Arrays.asList(milestone, userLabel("bug", null)));
+		res.add(Arrays.asList(freeText, inBoard, createdToday));
+		res.add(Arrays.asList(freeText, createdByTest2));
+		res.add(Arrays.asList(watchedByTest2, assignedToMe, updatedThisMonth, inArchive));
+		res.add(Arrays.asList(dueToday, userLabel("priority", "high"), notArchivedBoard));
+		res.add(Arrays.asList(noMilestone, createdYesterday, updatedByMe, open, inBoard));
+		return res;
+	}
+
+	@Test
+	public void testSameResults() {
+		int checked = 0;
+		for (List<SearchFilter> filters : filters()) {
+			for (UserWithPermission user : Arrays.asList(globalReader, projectReader)) {
+				assertSameResults(filters, null, null, user);
+				assertSameResults(filters, project.getId(), null, user);
+				assertSameResults(filters, project.getId(), board.getId(), user);
+				checked++;
+			}
+		}
+		Assert.assertEquals(filters().size() * 2, checked);
+	}
+
+	@Test
+	public void testFiltersMatchSomething() {
+		// make sure the dataset is meaningful: at least a filter list return some, but not all, the cards
+		int all = searchService.find(
+				Collections.singletonList(filter(FilterType.UPDATED, ValueType.DATE_IDENTIFIER, "last month")),
+				null, null, globalReader, 0).getCount();
+		Assert.assertTrue(all > 0);
+		boolean partial = false;
+		for (List<SearchFilter> filters : filters()) {
+			int count = searchService.find(filters, null, null, globalReader, 0).getCount();
+			partial = partial || (count > 0 && count < all);
+		}
+		Assert.assertTrue(partial);
+	}
+
+	private void assertSameResults(List<SearchFilter> filters, Integer projectId, Integer boardId,
+			UserWithPermission user) {
+		SearchResults predicates = searchService.find(filters, projectId, boardId, user, 0, SearchPlan.PREDICATES);
+		SearchResults unionAll = searchService.find(filters, projectId, boardId, user, 0, SearchPlan.UNION_ALL);
+		String message = describe(filters) + " project " + projectId + " board " + boardId + " user "
+				+ user.getUsername();
+		Assert.assertEquals(message, unionAll.getCount(), predicates.getCount());
+		Assert.assertEquals(message, ids(unionAll), ids(predicates));
+	}
+
+	private static Set<Integer> ids(SearchResults sr) {
+		Set<Integer> ids = new HashSet<>();
+		for (CardFullWithCounts c : sr.getFound()) {
+			ids.add(c.getId());
+		}
+		return ids;
+	}
+
+	private static String describe(List<SearchFilter> filters) {
+		StringBuilder sb = new StringBuilder();
+		for (SearchFilter sf : filters) {
+			sb.append(sf.getType()).append(' ').append(sf.getName()).append(' ')
+					.append(sf.getValue() == null ? null : sf.getValue().getValue()).append(", ");
+		}
+		return sb.toString();
+	}
+}
@@ -23,7 +23,9 @@ import io.lavagna.model.BoardColumn;
 import io.lavagna.model.BoardColumn.BoardColumnLocation;
 import io.lavagna.model.BoardColumnDefinition;
 import io.lavagna.model.Card;
+import io.lavagna.model.CardFullWithCounts;
 import io.lavagna.model.ColumnDefinition;
+import io.lavagna.model.ContinuationToken;
 import io.lavagna.model.Permission;
 import io.lavagna.model.Project;
 import io.lavagna.model.Role;
@@ -43,6 +45,7 @@ import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
 import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -274,12 +277,26 @@ public class SearchServiceTest {
 		Assert.assertEquals(1, find2.getCount());
 	}
 
+	@Test
+	public void testFTSMatchingManyCards() {
+		SearchFilter fts = new SearchFilter(FilterType.FREETEXT, null, new SearchFilterValue(ValueType.STRING, "test"));
+
+		// more than the ids inlined from the search index: the database applies the filter
+		int cardsToCreate = 1001;
+		for (int i = 0; i < cardsToCreate; i++) {
+			cardService.createCard("test" + i, column.getId(), new Date(), user);
+		}
+
+		syncMYSQLFTS();
+
+		SearchResults find = searchService.find(singletonList(fts), null, null, userWithPermissions, 0);
+		Assert.assertEquals(cardsToCreate, find.getCount());
+	}
+
 	private void syncMYSQLFTS() {
 		if ("MYSQL".equals(env.getProperty("datasource.dialect"))) {
-			mySqlFullTextSupportService.syncNewCards();
-			mySqlFullTextSupportService.syncNewCardData();
-			mySqlFullTextSupportService.syncUpdatedCards();
-			mySqlFullTextSupportService.syncUpdatedCardData();
+			while (mySqlFullTextSupportService.sync() > 0) {
+			}
 		}
 	}
 
@@ -385,4 +402,101 @@ public class SearchServiceTest {
 		Assert.assertEquals(0, tasks.get(ColumnDefinition.BACKLOG).intValue());
 		Assert.assertEquals(0, tasks.get(ColumnDefinition.DEFERRED).intValue());
 	}
+
+	@Test
+	public void testFindTaksByColumnDefinitionExcludeArchivedBoards() {
+
+		cardService.createCard("test", column.getId(), new Date(), user);
+		cardService.createCard("test", closedColumn.getId(), new Date(), user);
+
+		Map<ColumnDefinition, Integer> tasks = searchService.findTaksByColumnDefinition(project.getId(), null, true,
+				userWithPermissions);
+		Assert.assertEquals(1, tasks.get(ColumnDefinition.OPEN).intValue());
+		Assert.assertEquals(1, tasks.get(ColumnDefinition.CLOSED).intValue());
+
+		boardRepository.updateBoard(board.getId(), board.getName(), board.getDescription(), true);
+
+		Map<ColumnDefinition, Integer> tasksExcluded = searchService.findTaksByColumnDefinition(project.getId(),
+				null, true, userWithPermissions);
+		Assert.assertEquals(0, tasksExcluded.get(ColumnDefinition.OPEN).intValue());
+		Assert.assertEquals(0, tasksExcluded.get(ColumnDefinition.CLOSED).intValue());
+
+		Map<ColumnDefinition, Integer> tasksIncluded = searchService.findTaksByColumnDefinition(project.getId(),
+				null, false, userWithPermissions);
+		Assert.assertEquals(1, tasksIncluded.get(ColumnDefinition.OPEN).intValue());
+		Assert.assertEquals(1, tasksIncluded.get(ColumnDefinition.CLOSED).intValue());
+	}
+
+	@Test
+	public void testCountByColumnDefinitionNoReadPermission() {
+		cardService.createCard("test", column.getId(), new Date(), user);
+
+		Map<ColumnDefinition, Integer> tasks = searchService.countByColumnDefinition(singletonList(createdByMe),
+				project.getId(), null, userWithNoAccessPermission);
+
+		Assert.assertEquals(ColumnDefinition.values().length, tasks.size());
+		for (Integer count : tasks.values()) {
+			Assert.assertEquals(0, count.intValue());
+		}
+	}
+
+	@Test
+	public void testCountByColumnDefinitionMatchesFind() {
+		cardService.createCard("test", column.getId(), new Date(), user);
+		cardService.createCard("test", column.getId(), new Date(), user);
+		cardService.createCard("test", closedColumn.getId(), new Date(), user);
+
+		Map<ColumnDefinition, Integer> tasks = searchService.countByColumnDefinition(singletonList(createdByMe),
+				project.getId(), board.getId(), userWithPermissions);
+
+		for (ColumnDefinition cd : ColumnDefinition.values()) {
+			SearchFilter status = SearchFilter.filterByColumnDefinition(cd);
+			Assert.assertEquals(
+					searchService.find(Arrays.asList(createdByMe, status), project.getId(), board.getId(),
+							userWithPermissions, 0).getCount(), tasks.get(cd).intValue());
+		}
+		Assert.assertEquals(2, tasks.get(ColumnDefinition.OPEN).intValue());
+		Assert.assertEquals(1, tasks.get(ColumnDefinition.CLOSED).intValue());
+	}
+
+	@Test
+	public void testKeysetPagination() {
+		for (int i = 0; i < 120; i++) {
+			cardService.createCard("test", column.getId(), new Date(), user);
+		}
+
+		Set<Integer> found = new HashSet<>();
+		SearchResults first = searchService.find(Arrays.asList(createdByMe), project.getId(), null,
+				userWithPermissions, null, true);
+		Assert.assertEquals(50, first.getFound().size());
+		Assert.assertEquals(120, first.getCount());
+		Assert.assertEquals(3, first.getTotalPages());
+
+		SearchResults page = first;
+		int pages = 1;
+		while (true) {
+			for (CardFullWithCounts c : page.getFound()) {
+				Assert.assertTrue(found.add(c.getId()));
+			}
+			if (page.getContinuationToken() == null) {
+				break;
+			}
+			page = searchService.find(Arrays.asList(createdByMe), project.getId(), null, userWithPermissions,
+					ContinuationToken.decode(page.getContinuationToken()), false);
+			Assert.assertEquals(-1, page.getCount());
+			pages++;
+		}
+		Assert.assertEquals(3, pages);
+		Assert.assertEquals(20, page.getFound().size());
+		Assert.assertEquals(120, found.size());
+	}
+
+	@Test
+	public void testKeysetPaginationNoAccess() {
+		cardService.createCard("test", column.getId(), new Date(), user);
+		SearchResults find = searchService.find(singletonList(createdByMe), project.getId(), null,
+				userWithNoAccessPermission, null, true);
+		Assert.assertEquals(0, find.getCount());
+		Assert.assertNull(find.getContinuationToken());
+	}
 }
@@ -0,0 +1,135 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.util.StreamUtils;
+
+public class ZipSectionsWriterTest {
+
+	private static ZipSection section(String... namesAndContents) throws IOException {
+		ZipSection zs = new ZipSection();
+		for (int i = 0; i < namesAndContents.length; i += 2) {
+			zs.putNextEntry(namesAndContents[i]);
+			zs.write(namesAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+			zs.closeEntry();
+		}
+		zs.close();
+		return zs;
+	}
+
+	private static byte[] write(Date time, ZipSection... sections) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		try (ZipSectionsWriter writer = new ZipSectionsWriter(os, time)) {
+			for (ZipSection zs : sections) {
+				writer.add(zs);
+			}
+		}
+		return os.toByteArray();
+	}
+
+	@Test
+	public void testEntriesAreReadableInOrder() throws IOException {
+		ZipSection first = section("config.json", "[]", "users.json", "[{\"name\":\"user\"}]");
+		ZipSection second = section("projects/TEST.json", "{}", "empty.json", "");
+		try {
+			byte[] zip = write(new Date(), first, second);
+
+			// sequential read, using the local headers
+			List<String> names = new ArrayList<>();
+			List<String> contents = new ArrayList<>();
+			try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(zip))) {
+				for (ZipEntry e = zis.getNextEntry(); e != null; e = zis.getNextEntry()) {
+					names.add(e.getName());
+					contents.add(StreamUtils.copyToString(zis, StandardCharsets.UTF_8));
+				}
+			}
+			Assert.assertEquals(Arrays.asList("config.json", "users.json", "projects/TEST.json", "empty.json"), names);
+			Assert.assertEquals(Arrays.asList("[]", "[{\"name\":\"user\"}]", "{}", ""), contents);
+
+			// random access, using the central directory
+			Path tmp = Files.createTempFile(null, null);
+			try {
+				Files.write(tmp, zip);
+				try (ZipFile zf = new ZipFile(tmp.toFile())) {
+					Assert.assertEquals(4, zf.size());
+					Assert.assertEquals("{}", StreamUtils.copyToString(
+							zf.getInputStream(zf.getEntry("projects/TEST.json")), StandardCharsets.UTF_8));
+				}
+			} finally {
+				Files.delete(tmp);
+			}
+		} finally {
+			first.delete();
+			second.delete();
+		}
+	}
+
+	@Test
+	public void testDeterministicOutput() throws IOException {
+		Date time = new Date();
+		ZipSection first = section("a.json", "[1,2,3]");
+		ZipSection second = section("b.json", "[4,5,6]");
+		try {
+			Assert.assertArrayEquals(write(time, first, second), write(time, first, second));
+		} finally {
+			first.delete();
+			second.delete();
+		}
+	}
+
+	@Test
+	public void testZip64EntryCount() throws IOException {
+		int count = 70000;
+		ZipSection zs = new ZipSection();
+		try {
+			for (int i = 0; i < count; i++) {
+				zs.putNextEntry("events-" + i + ".json");
+				zs.write('1');
+			}
+			zs.close();
+
+			Path tmp = Files.createTempFile(null, null);
+			try {
+				Files.write(tmp, write(new Date(), zs));
+				try (ZipFile zf = new ZipFile(tmp.toFile())) {
+					Assert.assertEquals(count, zf.size());
+					Assert.assertNotNull(zf.getEntry("events-" + (count - 1) + ".json"));
+				}
+			} finally {
+				Files.delete(tmp);
+			}
+		} finally {
+			zs.delete();
+		}
+	}
+}
@@ -20,14 +20,25 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import io.lavagna.model.CacheStatistics;
 import io.lavagna.model.ConfigurationKeyValue;
+import io.lavagna.model.FullTextSyncStatistics;
 import io.lavagna.model.Key;
 import io.lavagna.model.MailConfig;
+import io.lavagna.service.BlobStoreMigrationService;
 import io.lavagna.service.ConfigurationRepository;
+import io.lavagna.service.ExecutorStatisticsService;
+import io.lavagna.service.FullTextIndexService;
 import io.lavagna.service.Ldap;
+import io.lavagna.service.MySqlFullTextSupportService;
+import io.lavagna.service.PermissionCache;
+import io.lavagna.service.RelatedProjectResolver;
 import io.lavagna.web.api.model.Conf;
 
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
 import java.util.Map;
 
 import javax.servlet.ServletContext;
@@ -49,15 +60,29 @@ public class ApplicationConfigurationControllerTest {
 	@Mock
 	private Ldap ldap;
 	@Mock
+	private PermissionCache permissionCache;
+	@Mock
+	private RelatedProjectResolver relatedProjectResolver;
+	@Mock
 	private Map<String, String> ldapParams;
 	@Mock
 	private HttpServletRequest req;
+	@Mock
+	private BlobStoreMigrationService blobStoreMigrationService;
+	@Mock
+	private MySqlFullTextSupportService mySqlFullTextSupportService;
+	@Mock
+	private FullTextIndexService fullTextIndexService;
+	@Mock
+	private ExecutorStatisticsService executorStatisticsService;
 
 	private ApplicationConfigurationController applConfCtrl;
 
 	@Before
 	public void prepare() {
-		applConfCtrl = new ApplicationConfigurationController(configurationRepository, ldap);
+		applConfCtrl = new ApplicationConfigurationController(configurationRepository, ldap, permissionCache,
+				relatedProjectResolver, blobStoreMigrationService, mySqlFullTextSupportService, fullTextIndexService,
+				executorStatisticsService);
 	}
 
 	@Test
@@ -122,4 +147,40 @@ public class ApplicationConfigurationControllerTest {
 
 		applConfCtrl.checkHttpsConfiguration(req);
 	}
+
+	@Test
+	public void getCacheStatistics() {
+		when(configurationRepository.getCacheStatistics()).thenReturn(new CacheStatistics("CONFIGURATION", 3, 1));
+		when(permissionCache.getCacheStatistics()).thenReturn(new CacheStatistics("PERMISSION", 0, 0));
+		when(relatedProjectResolver.getCacheStatistics()).thenReturn(new CacheStatistics("RELATED_PROJECT", 1, 1));
+		List<CacheStatistics> statistics = applConfCtrl.getCacheStatistics();
+		Assert.assertEquals(0.75, statistics.get(0).getHitRatio(), 0.001);
+		Assert.assertEquals(0, statistics.get(1).getHitRatio(), 0.001);
+		Assert.assertEquals(0.5, statistics.get(2).getHitRatio(), 0.001);
+	}
+
+	@Test
+	public void migrateBlobStore() throws IOException {
+		when(blobStoreMigrationService.moveDatabaseContentToBlobStore()).thenReturn(2);
+		Assert.assertEquals(2, applConfCtrl.migrateBlobStore());
+	}
+
+	@Test
+	public void rebuildSearchIndex() throws IOException {
+		when(fullTextIndexService.rebuild()).thenReturn(12);
+		Assert.assertEquals(12, applConfCtrl.rebuildSearchIndex());
+	}
+
+	@Test
+	public void getFullTextSyncStatistics() {
+		FullTextSyncStatistics statistics = new FullTextSyncStatistics(new Date(), 10, 42, 3);
+		when(mySqlFullTextSupportService.getStatistics()).thenReturn(statistics);
+		Assert.assertSame(statistics, applConfCtrl.getFullTextSyncStatistics());
+	}
+
+	@Test
+	public void getExecutorStatistics() {
+		applConfCtrl.getExecutorStatistics();
+		verify(executorStatisticsService).findAll();
+	}
 }
@@ -57,6 +57,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.mock.web.MockHttpServletResponse;
 
 //TODO complete with verify
 @RunWith(MockitoJUnitRunner.class)
@@ -107,6 +108,17 @@ public class CardControllerTest {
 		when(boardRepository.findProjectAndBoardByColumnId(boardColumn.getId())).thenReturn(pab);
 	}
 
+	@Test
+	public void fetchAllInColumn() {
+		MockHttpServletResponse resp = new MockHttpServletResponse();
+		when(eventEmitter.columnVersion(columnId)).thenReturn(42L);
+
+		cardController.fetchAllInColumn(columnId, resp);
+
+		verify(cardService).fetchAllInColumn(columnId);
+		Assert.assertEquals("42", resp.getHeader(CardController.COLUMN_VERSION_HEADER));
+	}
+
 	@Test
 	public void create() {
 		CardData cardData = new CardData();
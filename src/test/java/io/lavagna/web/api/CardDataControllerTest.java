@@ -16,13 +16,16 @@
  */
 package io.lavagna.web.api;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import io.lavagna.model.Card;
 import io.lavagna.model.CardData;
-import io.lavagna.model.CardDataFull;
 import io.lavagna.model.CardType;
 import io.lavagna.model.Event;
 import io.lavagna.model.Event.EventType;
@@ -34,14 +37,16 @@ import io.lavagna.service.CardRepository;
 import io.lavagna.service.ConfigurationRepository;
 import io.lavagna.service.EventEmitter;
 import io.lavagna.service.EventRepository;
+import io.lavagna.service.FileUploadService;
+import io.lavagna.service.FileUploadService.Upload;
 import io.lavagna.web.api.CardDataController.Content;
 import io.lavagna.web.api.CardDataController.OrderData;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.security.NoSuchAlgorithmException;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
@@ -76,6 +81,8 @@ public class CardDataControllerTest {
 	@Mock
 	private CardDataRepository cardDataRepository;
 	@Mock
+	private FileUploadService fileUploadService;
+	@Mock
 	private CardRepository cardRepository;
 	@Mock
 	private EventEmitter eventEmitter;
@@ -98,29 +105,20 @@ public class CardDataControllerTest {
 	@Before
 	public void prepare() {
 		cardDataController = new CardDataController(cardDataService, cardDataRepository, cardRepository,
-				configurationRepository, eventRepository, eventEmitter);
+				configurationRepository, eventRepository, eventEmitter, fileUploadService);
 		when(cardRepository.findBy(cardId)).thenReturn(card);
 	}
 
 	@Test
-	public void getDescription() throws InterruptedException {
-		CardDataFull cardDataFull2 = new CardDataFull(1, null, cardId, "description 2", user.getId(), 2, new Date(),
-				CardType.DESCRIPTION_HISTORY, 1, EventType.DESCRIPTION_CREATE);
-
-		CardDataFull cardDataFull3 = new CardDataFull(2, null, cardId, "description 1", user.getId(), 0, new Date(),
-				CardType.DESCRIPTION_HISTORY, 1, EventType.DESCRIPTION_UPDATE);
-
-		CardDataFull cardDataFull1 = new CardDataFull(0, null, cardId, "description 3", user.getId(), 1, new Date(),
-				CardType.DESCRIPTION, 1, EventType.DESCRIPTION_UPDATE);
-
-		List<CardDataFull> cardData = new ArrayList<>();
-		cardData.add(cardDataFull2);
-		cardData.add(cardDataFull3);
-		cardData.add(cardDataFull1);
-
-		when(cardDataService.findDescriptionByCardId(cardId)).thenReturn(cardData);
-
+	public void getDescription() {
 		cardDataController.description(cardId);
+		verify(cardDataService).findDescriptionHistoryByCardId(cardId);
+	}
+
+	@Test
+	public void dataVersion() {
+		when(eventEmitter.cardDataVersion(cardId)).thenReturn(42L);
+		assertEquals(42L, cardDataController.dataVersion(cardId));
 	}
 
 	@Test
@@ -201,39 +199,9 @@ public class CardDataControllerTest {
 	}
 
 	@Test
-	public void findAllComments() throws InterruptedException {
-		// comment 1
-		CardDataFull cardDataFull1 = new CardDataFull(0, null, cardId, "comment 1", user.getId(), 1, new Date(),
-				CardType.COMMENT, 5, EventType.COMMENT_CREATE);
-
-		CardDataFull cardDataFull2 = new CardDataFull(0, null, cardId, "comment 1 update 1", user.getId(), 1,
-				new Date(), CardType.COMMENT, 0, EventType.COMMENT_UPDATE);
-
-		// comment 2
-		CardDataFull cardDataFull3 = new CardDataFull(1, null, cardId, "comment 2", user.getId(), 2, new Date(),
-				CardType.COMMENT, 3, EventType.COMMENT_CREATE);
-
-		CardDataFull cardDataFull4 = new CardDataFull(1, null, cardId, "comment 2 update 1", user.getId(), 2,
-				new Date(), CardType.COMMENT, 4, EventType.COMMENT_UPDATE);
-
-		CardDataFull cardDataFull5 = new CardDataFull(1, null, cardId, "comment 2 update 2", user.getId(), 2,
-				new Date(), CardType.COMMENT, 1, EventType.COMMENT_UPDATE);
-
-		// comment 3
-		CardDataFull cardDataFull6 = new CardDataFull(2, null, cardId, "comment 3", user.getId(), 3, new Date(),
-				CardType.COMMENT_HISTORY, 2, EventType.COMMENT_CREATE);
-
-		List<CardDataFull> cardData = new ArrayList<>();
-		cardData.add(cardDataFull1);
-		cardData.add(cardDataFull2);
-		cardData.add(cardDataFull4);
-		cardData.add(cardDataFull3);
-		cardData.add(cardDataFull5);
-		cardData.add(cardDataFull6);
-
-		when(cardDataService.findAllCommentsByCardId(cardId)).thenReturn(cardData);
-
+	public void findAllComments() {
 		cardDataController.findAllComments(cardId);
+		verify(cardDataService).findAllCommentsHistoryByCardId(cardId);
 	}
 
 	@Test
@@ -250,7 +218,42 @@ public class CardDataControllerTest {
 	public void getFile() throws IOException {
 		when(cardDataRepository.getUndeletedFileByCardDataId(itemId)).thenReturn(fileDataLight);
 		when(response.getOutputStream()).thenReturn(mock(ServletOutputStream.class));
-		cardDataController.getFile(itemId, response);
+		cardDataController.getFile(itemId, null, response);
+	}
+
+	@Test
+	public void getFileRange() throws IOException {
+		when(fileDataLight.getSize()).thenReturn(10);
+		when(fileDataLight.getDigest()).thenReturn("digest");
+		when(cardDataRepository.getUndeletedFileByCardDataId(itemId)).thenReturn(fileDataLight);
+		MockHttpServletResponse resp = new MockHttpServletResponse();
+		cardDataController.getFile(itemId, "bytes=2-4", resp);
+		assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, resp.getStatus());
+		assertEquals("bytes 2-4/10", resp.getHeader("Content-Range"));
+		verify(cardDataRepository).outputFileContent(eq("digest"), eq(2L), eq(3L), any(OutputStream.class));
+	}
+
+	@Test
+	public void getFileRangeNotSatisfiable() throws IOException {
+		when(fileDataLight.getSize()).thenReturn(10);
+		when(cardDataRepository.getUndeletedFileByCardDataId(itemId)).thenReturn(fileDataLight);
+		MockHttpServletResponse resp = new MockHttpServletResponse();
+		cardDataController.getFile(itemId, "bytes=10-", resp);
+		assertEquals(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, resp.getStatus());
+		assertEquals("bytes */10", resp.getHeader("Content-Range"));
+	}
+
+	@Test
+	public void parseRange() {
+		assertNull(CardDataController.parseRange(null, 10));
+		assertNull(CardDataController.parseRange("bytes=-", 10));
+		assertNull(CardDataController.parseRange("bytes=0-1,4-5", 10));
+		assertNull(CardDataController.parseRange("bytes=5-2", 10));
+		assertArrayEquals(new long[] { 0, 9 }, CardDataController.parseRange("bytes=0-", 10));
+		assertArrayEquals(new long[] { 3, 9 }, CardDataController.parseRange("bytes=3-100", 10));
+		assertArrayEquals(new long[] { 6, 9 }, CardDataController.parseRange("bytes=-4", 10));
+		assertArrayEquals(new long[] { 0, 9 }, CardDataController.parseRange("bytes=-40", 10));
+		assertEquals(10, CardDataController.parseRange("bytes=-0", 10)[0]);
 	}
 
 	@Test
@@ -303,13 +306,14 @@ public class CardDataControllerTest {
 	@Test
 	public void uploadFiles() throws NoSuchAlgorithmException, IOException {
 		MultipartFile f = mock(MultipartFile.class);
-		when(f.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[] { 42, 42, 42, 42, 84, 84, 84 }));
+		when(f.getOriginalFilename()).thenReturn("file.bin");
 		when(
-				cardDataService
-						.createFile(any(String.class), any(String.class), any(Integer.class), any(Integer.class),
-								any(InputStream.class), any(String.class), any(User.class), any(Date.class)))
-				.thenReturn(ImmutablePair.of(true, mock(CardData.class)));
+				fileUploadService.uploadFiles(eq(cardId), Mockito.<List<Upload>> any(), eq(user),
+						any(Date.class))).thenReturn(Arrays.asList("digest"));
+		int columnId = card.getColumnId();
 		List<MultipartFile> files = Arrays.asList(f);
-		cardDataController.uploadFiles(cardId, files, user, new MockHttpServletResponse());
+		assertEquals(Arrays.asList("digest"),
+				cardDataController.uploadFiles(cardId, files, user, new MockHttpServletResponse()));
+		verify(eventEmitter).emitUploadFile(columnId, cardId);
 	}
 }
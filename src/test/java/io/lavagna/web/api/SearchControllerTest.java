@@ -22,6 +22,7 @@ import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import io.lavagna.model.CardLabel;
+import io.lavagna.model.ContinuationToken;
 import io.lavagna.model.Project;
 import io.lavagna.model.UserWithPermission;
 import io.lavagna.service.CardLabelRepository;
@@ -124,9 +125,20 @@ public class SearchControllerTest {
 		Project p = new Project(4, "TEST", "SHORT", "desc", false);
 		when(projectService.findByShortName(p.getShortName())).thenReturn(p);
 
-		searchController.search(null, "SHORT", 0, user);
+		searchController.search(null, "SHORT", 0, null, true, user);
 
 		verify(projectService).findByShortName("SHORT");
 		verify(searchService).find(anyListOf(SearchFilter.class), eq(4), any(Integer.class), eq(user), eq(0));
 	}
+
+	@Test
+	public void testSearchWithContinuationToken() {
+		Project p = new Project(4, "TEST", "SHORT", "desc", false);
+		when(projectService.findByShortName(p.getShortName())).thenReturn(p);
+
+		searchController.search(null, "SHORT", 0, "", false, user);
+
+		verify(searchService).find(anyListOf(SearchFilter.class), eq(4), any(Integer.class), eq(user),
+				any(ContinuationToken.class), eq(false));
+	}
 }
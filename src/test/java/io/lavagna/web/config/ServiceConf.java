@@ -21,8 +21,10 @@ import static org.mockito.Mockito.when;
 import io.lavagna.model.Permission;
 import io.lavagna.model.User;
 import io.lavagna.model.UserWithPermission;
+import io.lavagna.service.BlobStoreMigrationService;
 import io.lavagna.service.BoardColumnRepository;
 import io.lavagna.service.BoardRepository;
+import io.lavagna.service.RelatedProjectResolver;
 import io.lavagna.service.StatisticsService;
 import io.lavagna.service.BulkOperationService;
 import io.lavagna.service.CardDataRepository;
@@ -35,10 +37,15 @@ import io.lavagna.service.EventEmitter;
 import io.lavagna.service.EventRepository;
 import io.lavagna.service.EventService;
 import io.lavagna.service.ExportImportService;
+import io.lavagna.service.FileUploadService;
+import io.lavagna.service.ExecutorStatisticsService;
+import io.lavagna.service.FullTextIndexService;
 import io.lavagna.service.ImportService;
 import io.lavagna.service.LabelService;
 import io.lavagna.service.Ldap;
 import io.lavagna.service.LdapConnection;
+import io.lavagna.service.MySqlFullTextSupportService;
+import io.lavagna.service.PermissionCache;
 import io.lavagna.service.PermissionService;
 import io.lavagna.service.ProjectService;
 import io.lavagna.service.SearchService;
@@ -177,6 +184,41 @@ public class ServiceConf {
 		return mock(ConfigurationRepository.class);
 	}
 
+	@Bean
+	public PermissionCache getPermissionCache() {
+		return mock(PermissionCache.class);
+	}
+
+	@Bean
+	public RelatedProjectResolver getRelatedProjectResolver() {
+		return mock(RelatedProjectResolver.class);
+	}
+
+	@Bean
+	public BlobStoreMigrationService getBlobStoreMigrationService() {
+		return mock(BlobStoreMigrationService.class);
+	}
+
+	@Bean
+	public FullTextIndexService getFullTextIndexService() {
+		return mock(FullTextIndexService.class);
+	}
+
+	@Bean
+	public ExecutorStatisticsService getExecutorStatisticsService() {
+		return mock(ExecutorStatisticsService.class);
+	}
+
+	@Bean
+	public MySqlFullTextSupportService getMySqlFullTextSupportService() {
+		return mock(MySqlFullTextSupportService.class);
+	}
+
+	@Bean
+	public FileUploadService getFileUploadService() {
+		return mock(FileUploadService.class);
+	}
+
 	@Bean
 	public LabelService getLabelService() {
 		return mock(LabelService.class);
@@ -0,0 +1,137 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.web.helper;
+
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import io.lavagna.model.Permission;
+import io.lavagna.model.User;
+import io.lavagna.model.UserWithPermission;
+import io.lavagna.service.RelatedProjectResolver;
+import io.lavagna.service.RelatedProjectResolver.ResourceType;
+import io.lavagna.service.UserRepository;
+import io.lavagna.service.UserService;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.http.HttpSession;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EventSubscriptionInterceptorTest {
+
+	@Mock
+	private UserService userService;
+
+	@Mock
+	private RelatedProjectResolver relatedProjectResolver;
+
+	@Mock
+	private MessageChannel channel;
+
+	@Mock
+	private User user;
+
+	private EventSubscriptionInterceptor interceptor;
+
+	private Map<String, Object> sessionAttributes;
+
+	@Before
+	public void prepare() {
+		interceptor = new EventSubscriptionInterceptor(userService, relatedProjectResolver);
+
+		when(user.getId()).thenReturn(42);
+		MockHttpServletRequest req = new MockHttpServletRequest();
+		UserSession.setUser(user, req, new MockHttpServletResponse(), Mockito.mock(UserRepository.class), false);
+		// as copied by the handshake
+		sessionAttributes = new HashMap<>();
+		HttpSession session = req.getSession();
+		for (String name : Collections.list(session.getAttributeNames())) {
+			sessionAttributes.put(name, session.getAttribute(name));
+		}
+
+		Map<ResourceType, Set<String>> card = Collections.singletonMap(ResourceType.CARD,
+				Collections.singleton("1"));
+		when(relatedProjectResolver.findRelatedProjectShortNames(card)).thenReturn(Collections.singleton("TEST"));
+	}
+
+	private Message<byte[]> subscribe(String destination, Map<String, Object> sessionAttributes) {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+		accessor.setDestination(destination);
+		accessor.setSessionAttributes(sessionAttributes);
+		return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+	}
+
+	private void withPermissions(Set<Permission> base, Map<String, Set<Permission>> byProject) {
+		UserWithPermission withPermissions = new UserWithPermission(user, base, byProject,
+				Collections.<Integer, Set<Permission>> emptyMap());
+		when(userService.findUserWithPermission(42)).thenReturn(withPermissions);
+	}
+
+	@Test(expected = MessagingException.class)
+	public void testSubscribeWithoutReadIsRefused() {
+		withPermissions(EnumSet.noneOf(Permission.class),
+				Collections.<String, Set<Permission>> singletonMap("OTHER", EnumSet.of(Permission.READ)));
+		interceptor.preSend(subscribe("/event/card/1/card-data", sessionAttributes), channel);
+	}
+
+	@Test
+	public void testSubscribeWithReadOnTheProject() {
+		withPermissions(EnumSet.noneOf(Permission.class),
+				Collections.<String, Set<Permission>> singletonMap("TEST", EnumSet.of(Permission.READ)));
+		Message<byte[]> message = subscribe("/event/card/1/card-data", sessionAttributes);
+		Assert.assertSame(message, interceptor.preSend(message, channel));
+	}
+
+	@Test
+	public void testSubscribeWithBaseRead() {
+		withPermissions(EnumSet.of(Permission.READ), Collections.<String, Set<Permission>> emptyMap());
+		Message<byte[]> message = subscribe("/event/card/1/card-data", sessionAttributes);
+		Assert.assertSame(message, interceptor.preSend(message, channel));
+	}
+
+	@Test(expected = MessagingException.class)
+	public void testSubscribeWithoutUserIsRefused() {
+		interceptor.preSend(subscribe("/event/column/1/card", new HashMap<String, Object>()), channel);
+	}
+
+	@Test
+	public void testSubscribeToEventsWithoutProject() {
+		Message<byte[]> message = subscribe("/event/user", new HashMap<String, Object>());
+		Assert.assertSame(message, interceptor.preSend(message, channel));
+		verifyZeroInteractions(userService, relatedProjectResolver);
+	}
+}
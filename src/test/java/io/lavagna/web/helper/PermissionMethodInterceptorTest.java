@@ -0,0 +1,61 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.web.helper;
+
+import io.lavagna.service.RelatedProjectResolver.ResourceType;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PermissionMethodInterceptorTest {
+
+	@Test
+	public void testExtractNothing() {
+		Assert.assertTrue(PermissionMethodInterceptor.extractResourcesFromRequestUri("/api/self").isEmpty());
+	}
+
+	@Test
+	public void testExtractMultipleResources() {
+		Map<ResourceType, Set<String>> res = PermissionMethodInterceptor
+				.extractResourcesFromRequestUri("/api/card/42/from-column/1/to-column/2/card-label-value/7");
+		Assert.assertEquals(Collections.singleton("42"), res.get(ResourceType.CARD));
+		Assert.assertEquals(new HashSet<>(Arrays.asList("1", "2")), res.get(ResourceType.COLUMN));
+		Assert.assertEquals(Collections.singleton("7"), res.get(ResourceType.LABEL_VALUE));
+		Assert.assertEquals(3, res.size());
+	}
+
+	@Test
+	public void testExtractBoardShortNameWithInternalRegex() {
+		Map<ResourceType, Set<String>> res = PermissionMethodInterceptor
+				.extractResourcesFromRequestUri("/api/card-by-seq/TEST-1");
+		Assert.assertEquals(Collections.singleton("TEST"), res.get(ResourceType.BOARD));
+	}
+
+	@Test
+	public void testExtractProjectAndBoard() {
+		Map<ResourceType, Set<String>> res = PermissionMethodInterceptor
+				.extractResourcesFromRequestUri("/api/project/PROJ/board/BRD");
+		Assert.assertEquals(Collections.singleton("PROJ"), res.get(ResourceType.PROJECT));
+		Assert.assertEquals(Collections.singleton("BRD"), res.get(ResourceType.BOARD));
+	}
+}
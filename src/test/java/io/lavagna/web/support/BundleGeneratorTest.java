@@ -0,0 +1,122 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.web.support;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.FileSystemResourceLoader;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.util.StreamUtils;
+
+public class BundleGeneratorTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File webapp;
+
+	private void write(String path, String content) throws IOException {
+		Path p = webapp.toPath().resolve(path.substring(1));
+		Files.createDirectories(p.getParent());
+		Files.write(p, content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Before
+	public void prepare() throws IOException {
+		webapp = folder.newFolder("webapp");
+		List<String> files = new ArrayList<>(BundleAssembler.JS_LIBRARIES);
+		files.addAll(BundleAssembler.CSS);
+		files.add("/app/app.js");
+		for (String f : files) {
+			write(f, "/* " + f + " */");
+		}
+		for (String dir : new String[] { "controllers/", "controllers/admin/", "controllers/project/", "directives/",
+				"filters/", "services/" }) {
+			write("/app/" + dir + "file.js", "var f;");
+		}
+		write("/partials/board/card.html", "<div>{{card.name}}</div>");
+		write("/index.html", "<base href=\"{{contextPath}}\"><link href=\"{{cssBundle}}\"><script src=\"{{jsBundle}}\">"
+				+ "</script>{{inlineTemplates}}");
+	}
+
+	@Test
+	public void testGenerateAndServe() throws IOException {
+		Path output = webapp.toPath().resolve("WEB-INF/bundles");
+		BundleGenerator.main(new String[] { webapp.getAbsolutePath(), output.toString() });
+
+		Properties manifest = new Properties();
+		try (InputStream is = new FileInputStream(output.resolve(BundleGenerator.MANIFEST).toFile())) {
+			manifest.load(is);
+		}
+		String jsHash = manifest.getProperty("js");
+		byte[] js = Files.readAllBytes(output.resolve(BundleGenerator.jsName(jsHash)));
+		assertTrue(new String(js, StandardCharsets.UTF_8).contains("/* /js/angular.min.js */"));
+		try (InputStream is = new GZIPInputStream(Files.newInputStream(output.resolve(BundleGenerator.jsName(jsHash)
+				+ ".gz")))) {
+			assertEquals(js.length, StreamUtils.copyToByteArray(is).length);
+		}
+
+		Environment env = mock(Environment.class);
+		when(env.getActiveProfiles()).thenReturn(new String[] { "prod" });
+		MockServletContext context = new MockServletContext("file:" + webapp.getAbsolutePath(),
+				new FileSystemResourceLoader());
+		context.setContextPath("/lavagna");
+		ResourceController controller = new ResourceController(env);
+		controller.setServletContext(context);
+
+		// the index served is the prebuilt one, with the context path
+		MockHttpServletResponse resp = new MockHttpServletResponse();
+		controller.handleIndex(new MockHttpServletRequest(context), resp);
+		String index = resp.getContentAsString();
+		assertTrue(index.startsWith("<base href=\"/lavagna/\">"));
+		assertTrue(index.contains("<script src=\"resource/app-" + jsHash + ".js\">"));
+		assertTrue(index.contains("<script type=\"text/ng-template\" id=\"partials/board/card.html\">"
+				+ "<div>{{card.name}}</div></script>"));
+
+		// changes in the webapp files are ignored
+		write("/app/app.js", "changed");
+		resp = new MockHttpServletResponse();
+		controller.handleFingerprintedJs(jsHash, new MockHttpServletRequest(context), resp);
+		assertEquals(HttpServletResponse.SC_OK, resp.getStatus());
+		assertEquals(Bundle.CACHE_IMMUTABLE, resp.getHeader("Cache-Control"));
+		assertEquals(js.length, resp.getContentAsByteArray().length);
+	}
+}
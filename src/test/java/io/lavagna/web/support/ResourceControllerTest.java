@@ -16,6 +16,9 @@
  */
 package io.lavagna.web.support;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -37,6 +40,8 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.springframework.core.env.Environment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 
 //TODO add check
 @RunWith(MockitoJUnitRunner.class)
@@ -82,4 +87,41 @@ public class ResourceControllerTest {
 	public void testCss() throws IOException {
 		new ResourceController(env).handleCss(request, response);
 	}
+
+	@Test
+	public void testFingerprintedJsCaching() throws IOException {
+		when(env.getActiveProfiles()).thenReturn(new String[] { "prod" });
+		// no prebuilt bundles
+		when(context.getResourceAsStream("/WEB-INF/bundles/bundles.properties")).thenReturn(null);
+		ResourceController controller = new ResourceController(env);
+
+		MockHttpServletRequest req = new MockHttpServletRequest(context);
+		req.addHeader("Accept-Encoding", "gzip, deflate");
+		MockHttpServletResponse resp = new MockHttpServletResponse();
+		controller.handleJs(req, resp);
+		assertEquals("no-cache", resp.getHeader("Cache-Control"));
+		assertEquals("gzip", resp.getHeader("Content-Encoding"));
+		String etag = resp.getHeader("ETag");
+		String hash = etag.substring(1, etag.indexOf('-'));
+
+		req = new MockHttpServletRequest(context);
+		resp = new MockHttpServletResponse();
+		controller.handleFingerprintedJs(hash, req, resp);
+		assertEquals(Bundle.CACHE_IMMUTABLE, resp.getHeader("Cache-Control"));
+		assertEquals("\"" + hash + "\"", resp.getHeader("ETag"));
+		assertNull(resp.getHeader("Content-Encoding"));
+		assertTrue(resp.getContentAsByteArray().length > 0);
+
+		req = new MockHttpServletRequest(context);
+		req.addHeader("If-None-Match", etag);
+		resp = new MockHttpServletResponse();
+		controller.handleFingerprintedJs(hash, req, resp);
+		assertEquals(HttpServletResponse.SC_NOT_MODIFIED, resp.getStatus());
+		assertEquals(0, resp.getContentAsByteArray().length);
+
+		// an outdated fingerprint must not be cached
+		resp = new MockHttpServletResponse();
+		controller.handleFingerprintedJs("0000", new MockHttpServletRequest(context), resp);
+		assertEquals("no-cache", resp.getHeader("Cache-Control"));
+	}
 }